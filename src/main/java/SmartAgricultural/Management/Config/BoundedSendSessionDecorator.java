@@ -0,0 +1,245 @@
+package SmartAgricultural.Management.Config;
+
+import SmartAgricultural.Management.Service.WebSocketTrafficMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Per-session outbound queue with send-buffer and send-time limits.
+ *
+ * {@link #sendMessage} only queues the frame and returns, so the calling outbound channel
+ * thread is never held by the client's network speed. A writer from
+ * {@link WebSocketTrafficMonitor} drains the queue in order. Each write is bounded by the
+ * send-time limit, through Tomcat's blocking-send timeout when the session runs on it, and the
+ * monitor's watchdog closes the session if a write still outlives the limit, so a stuck client
+ * cannot keep a writer thread. When the queue exceeds its frame or byte limit, or the frame
+ * being written has been stuck longer than the send-time limit, the session is a slow consumer: under {@link Policy#DROP} MESSAGE frames for a
+ * {@code /topic/} destination are dropped (private {@code /user/queue/} deliveries and other
+ * STOMP frames still close the session), under {@link Policy#DISCONNECT} the session is closed.
+ */
+public class BoundedSendSessionDecorator extends WebSocketSessionDecorator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedSendSessionDecorator.class);
+
+    // Read by Tomcat's WsRemoteEndpointImplBase for every blocking send, in milliseconds
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    public enum Policy {
+        DROP, DISCONNECT
+    }
+
+    private final WebSocketTrafficMonitor monitor;
+    private final Policy policy;
+    private final int maxQueuedFrames;
+    private final int maxQueuedBytes;
+    private final long sendTimeLimitNanos;
+    private final Runnable sendTimeCheck = this::checkSendTime;
+
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private int queuedBytes;
+    private boolean draining;
+    private boolean closed;
+
+    // Start of the write in progress, 0 when idle
+    private volatile long sendStartedAt;
+
+    public BoundedSendSessionDecorator(WebSocketSession delegate, WebSocketTrafficMonitor monitor, Policy policy,
+                                       int maxQueuedFrames, int maxQueuedBytes, long sendTimeLimitMillis) {
+        super(delegate);
+        this.monitor = monitor;
+        this.policy = policy;
+        this.maxQueuedFrames = maxQueuedFrames;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.sendTimeLimitNanos = sendTimeLimitMillis * 1_000_000L;
+        boundBlockingSends(delegate, sendTimeLimitMillis);
+        monitor.sessionOpened();
+        monitor.watch(sendTimeCheck);
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        long now = System.nanoTime();
+        if (sendTimeExceeded(now)) {
+            disconnect("send time limit of " + sendTimeLimitNanos / 1_000_000 + " ms exceeded");
+            return;
+        }
+
+        int size = message.getPayloadLength();
+        boolean startDrain;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= maxQueuedFrames || queuedBytes + size > maxQueuedBytes) {
+                if (policy == Policy.DROP && isBroadcastFrame(message)) {
+                    monitor.frameDropped();
+                    return;
+                }
+                startDrain = false;
+            } else {
+                queue.addLast(new Pending(message, now));
+                queuedBytes += size;
+                monitor.frameQueued(queue.size());
+                startDrain = !draining;
+                draining = true;
+                if (!startDrain) {
+                    return;
+                }
+            }
+        }
+
+        if (!startDrain) {
+            disconnect("send buffer limit of " + maxQueuedFrames + " frames / " + maxQueuedBytes + " bytes exceeded");
+            return;
+        }
+        monitor.execute(this::drain);
+    }
+
+    private void drain() {
+        while (true) {
+            Pending next;
+            synchronized (this) {
+                next = queue.pollFirst();
+                if (next == null || closed) {
+                    draining = false;
+                    return;
+                }
+                queuedBytes -= next.message.getPayloadLength();
+            }
+
+            sendStartedAt = System.nanoTime();
+            try {
+                getDelegate().sendMessage(next.message);
+                monitor.frameSent(System.nanoTime() - next.queuedAt);
+            } catch (Exception e) {
+                monitor.frameSent(System.nanoTime() - next.queuedAt);
+                logger.debug("Failed to send to WebSocket session {}: {}", getId(), e.getMessage());
+                closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+                synchronized (this) {
+                    draining = false;
+                }
+                return;
+            } finally {
+                sendStartedAt = 0;
+            }
+        }
+    }
+
+    /**
+     * Called by the monitor's watchdog: closes the session, off the watchdog thread, when the
+     * write in progress has outlived the send-time limit even though no new frame arrived.
+     */
+    private void checkSendTime() {
+        if (sendTimeExceeded(System.nanoTime())) {
+            monitor.close(() -> disconnect("send time limit of " + sendTimeLimitNanos / 1_000_000 + " ms exceeded"));
+        }
+    }
+
+    private boolean sendTimeExceeded(long now) {
+        long startedAt = sendStartedAt;
+        return startedAt != 0 && now - startedAt > sendTimeLimitNanos;
+    }
+
+    /**
+     * Frees the queue once the connection is gone; called from the handler decorator.
+     */
+    public void release() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queuedBytes = 0;
+            int discarded = queue.size();
+            queue.clear();
+            monitor.sessionClosed(discarded);
+        }
+        monitor.unwatch(sendTimeCheck);
+    }
+
+    private void disconnect(String reason) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        monitor.slowConsumerDisconnected(getId(), reason);
+        closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    // Without it a Tomcat blocking send waits 20 s, whatever the configured send-time limit
+    private static void boundBlockingSends(WebSocketSession delegate, long sendTimeLimitMillis) {
+        WebSocketSession session = unwrap(delegate);
+        if (session instanceof NativeWebSocketSession nativeSession) {
+            jakarta.websocket.Session container = nativeSession.getNativeSession(jakarta.websocket.Session.class);
+            if (container != null) {
+                container.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeLimitMillis);
+            }
+        }
+    }
+
+    private void closeQuietly(CloseStatus status) {
+        release();
+        try {
+            getDelegate().close(status);
+        } catch (Exception e) {
+            logger.debug("Error closing WebSocket session {}: {}", getId(), e.getMessage());
+        }
+    }
+
+    // Only broadcasts may be lost: a private delivery (chat message, receipt, badge) has no later copy
+    static boolean isBroadcastFrame(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage)) {
+            return false;
+        }
+        String payload = ((TextMessage) message).getPayload();
+        if (!payload.startsWith("MESSAGE\n") && !payload.startsWith("MESSAGE\r\n")) {
+            return false;
+        }
+        String destination = header(payload, "destination");
+        return destination != null && destination.startsWith("/topic/");
+    }
+
+    /**
+     * First value of a STOMP header, read up to the blank line that ends the headers.
+     */
+    private static String header(String frame, String name) {
+        int lineStart = frame.indexOf('\n') + 1;
+        while (lineStart > 0 && lineStart < frame.length()) {
+            int lineEnd = frame.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = frame.length();
+            }
+            int contentEnd = lineEnd > lineStart && frame.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd == lineStart) {
+                return null;
+            }
+            if (frame.startsWith(name, lineStart) && contentEnd > lineStart + name.length()
+                    && frame.charAt(lineStart + name.length()) == ':') {
+                return frame.substring(lineStart + name.length() + 1, contentEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return null;
+    }
+
+    private static final class Pending {
+        private final WebSocketMessage<?> message;
+        private final long queuedAt;
+
+        private Pending(WebSocketMessage<?> message, long queuedAt) {
+            this.message = message;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package SmartAgricultural.Management.Config;
 
-import SmartAgricultural.Management.Model.User;
-import SmartAgricultural.Management.Service.CustomUserDetailsService;
+import SmartAgricultural.Management.Service.AuthPrincipalCache;
 import SmartAgricultural.Management.Service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,7 +13,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -26,12 +25,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     private final JwtService jwtService;
-    private final CustomUserDetailsService userDetailsService;
+    private final AuthPrincipalCache principalCache;
 
     @Autowired
-    public JwtAuthenticationFilter(JwtService jwtService, CustomUserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService, AuthPrincipalCache principalCache) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -42,8 +41,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String userIdentifier; // Peut être username ou email
 
         // Vérifier si l'en-tête Authorization est présent et commence par "Bearer "
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -51,67 +48,44 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
+        // Vérifier si l'utilisateur n'est pas déjà authentifié
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         // Extraire le token JWT
-        jwt = authHeader.substring(7);
+        final String jwt = authHeader.substring(7);
 
         try {
-            // D'abord vérifier si le token est valide
-            if (!jwtService.isTokenValid(jwt)) {
+            // Le token n'est analysé qu'une seule fois par requête (signature et expiration)
+            Claims claims = jwtService.parseToken(jwt);
+            if (claims == null) {
                 logger.warn("Token JWT invalide ou expiré");
                 filterChain.doFilter(request, response);
                 return;
             }
 
-            // Extraire l'identifiant utilisateur du token (peut être username ou email)
-            userIdentifier = jwtService.extractUsername(jwt); // ou jwtService.extractEmail(jwt) selon votre implémentation
-
-            // Vérifier si l'utilisateur n'est pas déjà authentifié
-            if (userIdentifier != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                try {
-                    // Charger les détails de l'utilisateur
-                    UserDetails userDetails = this.userDetailsService.loadUserByUsername(userIdentifier);
-
-                    // Validation supplémentaire du token contre l'utilisateur
-                    if (userDetails instanceof User) {
-                        User user = (User) userDetails;
-
-                        // Utiliser la méthode de validation qui prend un User en paramètre
-                        if (jwtService.validateToken(jwt, user)) {
-                            // Créer l'objet d'authentification
-                            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-                            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                            // Définir l'authentification dans le contexte de sécurité
-                            SecurityContextHolder.getContext().setAuthentication(authToken);
-
-                            logger.debug("Utilisateur authentifié avec succès : {}", userIdentifier);
-                        } else {
-                            logger.warn("Token JWT invalide pour l'utilisateur : {}", userIdentifier);
-                        }
-                    } else {
-                        // Fallback si UserDetails n'est pas une instance de User
-                        // Utiliser une validation basique du token
-                        if (jwtService.isTokenValid(jwt)) {
-                            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-                            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                            SecurityContextHolder.getContext().setAuthentication(authToken);
-
-                            logger.debug("Utilisateur authentifié avec succès (fallback) : {}", userIdentifier);
-                        } else {
-                            logger.warn("Token JWT invalide (fallback) pour l'utilisateur : {}", userIdentifier);
-                        }
-                    }
-
-                } catch (Exception userLoadException) {
-                    logger.warn("Erreur lors du chargement de l'utilisateur {}: {}", userIdentifier, userLoadException.getMessage());
+            // Le sujet du token est l'email (ou le nom d'utilisateur)
+            String userIdentifier = claims.getSubject();
+            if (userIdentifier != null) {
+                // Principal léger mis en cache : pas de requête ni de chargement du User complet à chaque appel
+                AuthPrincipalCache.AuthenticatedUser principal = principalCache.resolve(userIdentifier);
+
+                if (principal != null && isTokenValidFor(claims, principal)) {
+                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                            principal,
+                            null,
+                            principal.getAuthorities()
+                    );
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                    // Définir l'authentification dans le contexte de sécurité
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+
+                    logger.debug("Utilisateur authentifié avec succès : {}", userIdentifier);
+                } else {
+                    logger.warn("Token JWT invalide pour l'utilisateur : {}", userIdentifier);
                 }
             }
         } catch (Exception e) {
@@ -122,6 +96,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Le compte doit être actif, et les revendications email / userId, quand elles sont présentes,
+    // doivent correspondre à l'utilisateur
+    private boolean isTokenValidFor(Claims claims, AuthPrincipalCache.AuthenticatedUser principal) {
+        if (!principal.isEnabled()) {
+            return false;
+        }
+        String tokenEmail = claims.get("email", String.class);
+        String tokenUserId = claims.get("userId", String.class);
+        return (tokenEmail == null || tokenEmail.equals(principal.getEmail())
+                || tokenEmail.equals(principal.getUsername()))
+                && (tokenUserId == null || tokenUserId.equals(principal.getId()));
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         String path = request.getRequestURI();
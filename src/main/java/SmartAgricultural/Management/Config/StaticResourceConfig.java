@@ -1,15 +1,22 @@
 package SmartAgricultural.Management.Config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.io.File;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class StaticResourceConfig implements WebMvcConfigurer {
 
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Créer les dossiers s'ils n'existent pas
@@ -33,6 +40,11 @@ public class StaticResourceConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/uploads/profiles/**")
                 .addResourceLocations("file:uploads/profiles/")
                 .setCachePeriod(0);
+
+        // Fichiers du blob store : le nom est le hash du contenu, donc jamais modifiés
+        registry.addResourceHandler("/uploads/blobs/**")
+                .addResourceLocations("file:" + Paths.get(uploadDir, "blobs").toAbsolutePath() + "/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
     }
 
     @Override
@@ -1,8 +1,10 @@
 package SmartAgricultural.Management.Config;
 
 import SmartAgricultural.Management.Service.JwtService;
+import SmartAgricultural.Management.Service.WebSocketTrafficMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
@@ -16,11 +18,18 @@ import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -29,9 +38,44 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
     private final JwtService jwtService;
+    private final WebSocketTrafficMonitor trafficMonitor;
 
-    public WebSocketConfig(JwtService jwtService) {
+    @Value("${chat.websocket.inbound.core-threads:4}")
+    private int inboundCoreThreads;
+
+    @Value("${chat.websocket.inbound.max-threads:16}")
+    private int inboundMaxThreads;
+
+    @Value("${chat.websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${chat.websocket.outbound.core-threads:4}")
+    private int outboundCoreThreads;
+
+    @Value("${chat.websocket.outbound.max-threads:16}")
+    private int outboundMaxThreads;
+
+    @Value("${chat.websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    @Value("${chat.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${chat.websocket.send-buffer-limit-bytes:524288}")
+    private int sendBufferLimitBytes;
+
+    @Value("${chat.websocket.max-queued-frames:1000}")
+    private int maxQueuedFrames;
+
+    @Value("${chat.websocket.message-size-limit-bytes:65536}")
+    private int messageSizeLimitBytes;
+
+    @Value("${chat.websocket.slow-consumer-policy:drop}")
+    private String slowConsumerPolicy;
+
+    public WebSocketConfig(JwtService jwtService, WebSocketTrafficMonitor trafficMonitor) {
         this.jwtService = jwtService;
+        this.trafficMonitor = trafficMonitor;
     }
 
     @Override
@@ -48,8 +92,59 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .withSockJS();
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        BoundedSendSessionDecorator.Policy policy =
+                BoundedSendSessionDecorator.Policy.valueOf(slowConsumerPolicy.trim().toUpperCase());
+
+        registration.setMessageSizeLimit(messageSizeLimitBytes);
+        registration.setSendTimeLimit(sendTimeLimitMillis);
+        registration.setSendBufferSizeLimit(sendBufferLimitBytes);
+        // Sessions get a bounded queue drained by the writer pool; Spring's own limits above stay as a backstop
+        registration.addDecoratorFactory(handler -> new WebSocketHandlerDecorator(handler) {
+            private final Map<String, BoundedSendSessionDecorator> sessions = new ConcurrentHashMap<>();
+
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                BoundedSendSessionDecorator bounded = new BoundedSendSessionDecorator(session, trafficMonitor,
+                        policy, maxQueuedFrames, sendBufferLimitBytes, sendTimeLimitMillis);
+                sessions.put(session.getId(), bounded);
+                super.afterConnectionEstablished(bounded);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                BoundedSendSessionDecorator bounded = sessions.get(session.getId());
+                super.handleMessage(bounded != null ? bounded : session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                BoundedSendSessionDecorator bounded = sessions.remove(session.getId());
+                if (bounded != null) {
+                    bounded.release();
+                }
+                super.afterConnectionClosed(bounded != null ? bounded : session, closeStatus);
+            }
+        });
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCoreThreads)
+                .maxPoolSize(outboundMaxThreads)
+                .queueCapacity(outboundQueueCapacity)
+                .keepAliveSeconds(60);
+    }
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundCoreThreads)
+                .maxPoolSize(inboundMaxThreads)
+                .queueCapacity(inboundQueueCapacity)
+                .keepAliveSeconds(60);
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
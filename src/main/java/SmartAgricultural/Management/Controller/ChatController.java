@@ -3,13 +3,20 @@ package SmartAgricultural.Management.Controller;
 
 import SmartAgricultural.Management.Model.ChatMessage;
 import SmartAgricultural.Management.Model.ChatNotification;
+import SmartAgricultural.Management.Service.ChatMediaDerivativeService;
+import SmartAgricultural.Management.Service.ChatMediaStreamingService;
+import SmartAgricultural.Management.Service.ChatReadReceiptBatcher;
+import SmartAgricultural.Management.Service.ChatSearchService;
 import SmartAgricultural.Management.Service.ChatService;
 import SmartAgricultural.Management.Service.JwtService;
 import SmartAgricultural.Management.Service.NotificationService;
+import SmartAgricultural.Management.Service.UploadBlobStore;
+import SmartAgricultural.Management.Service.WebSocketTrafficMonitor;
 import SmartAgricultural.Management.dto.ChatMessageDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -31,6 +38,8 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Controller
@@ -43,13 +52,25 @@ public class ChatController {
     private final SimpMessagingTemplate messagingTemplate;
     private final ChatService chatService;
     private final NotificationService notificationService;
+    private final ChatMediaStreamingService chatMediaStreamingService;
+    private final ChatReadReceiptBatcher chatReadReceiptBatcher;
+    private final WebSocketTrafficMonitor webSocketTrafficMonitor;
+    private final ChatSearchService chatSearchService;
 
     public ChatController(JwtService jwtService, ChatService chatService,
-                          SimpMessagingTemplate messagingTemplate, NotificationService notificationService) {
+                          SimpMessagingTemplate messagingTemplate, NotificationService notificationService,
+                          ChatMediaStreamingService chatMediaStreamingService,
+                          ChatReadReceiptBatcher chatReadReceiptBatcher,
+                          WebSocketTrafficMonitor webSocketTrafficMonitor,
+                          ChatSearchService chatSearchService) {
         this.jwtService = jwtService;
         this.chatService = chatService;
         this.messagingTemplate = messagingTemplate;
         this.notificationService = notificationService;
+        this.chatMediaStreamingService = chatMediaStreamingService;
+        this.chatReadReceiptBatcher = chatReadReceiptBatcher;
+        this.webSocketTrafficMonitor = webSocketTrafficMonitor;
+        this.chatSearchService = chatSearchService;
     }
 
     @MessageMapping("/chat.sendMessage")
@@ -71,29 +92,31 @@ public class ChatController {
         try {
             String userId = payload.get("userId");
             if (userId != null && principal != null) {
+                // Contacts are notified on /topic/presence.<userId> when this brings the user online
                 chatService.updateUserStatus(userId, "ONLINE");
-                messagingTemplate.convertAndSend("/topic/user.status", Map.of(
-                        "userId", userId,
-                        "status", "ONLINE",
-                        "lastSeen", LocalDateTime.now()
-                ));
             }
         } catch (Exception e) {
             logger.error("Error handling user online status", e);
         }
     }
 
+    @MessageMapping("/presence.heartbeat")
+    public void presenceHeartbeat(Principal principal) {
+        try {
+            if (principal != null) {
+                chatService.updateUserStatus(principal.getName(), "ONLINE");
+            }
+        } catch (Exception e) {
+            logger.error("Error handling presence heartbeat", e);
+        }
+    }
+
     @MessageMapping("/user.offline")
     public void userOffline(@Payload Map<String, String> payload, Principal principal) {
         try {
             String userId = payload.get("userId");
             if (userId != null) {
                 chatService.updateUserStatus(userId, "OFFLINE");
-                messagingTemplate.convertAndSend("/topic/user.status", Map.of(
-                        "userId", userId,
-                        "status", "OFFLINE",
-                        "lastSeen", LocalDateTime.now()
-                ));
             }
         } catch (Exception e) {
             logger.error("Error handling user offline status", e);
@@ -173,9 +196,9 @@ public class ChatController {
     }
 
     @GetMapping("/media/stream/{messageId}")
-    public ResponseEntity<Resource> streamMediaFile(@PathVariable Long messageId,
-                                                    @RequestHeader(value = "Authorization") String authHeader,
-                                                    HttpServletRequest request) {
+    public ResponseEntity<?> streamMediaFile(@PathVariable Long messageId,
+                                             @RequestHeader(value = "Authorization") String authHeader,
+                                             HttpServletRequest request) {
         try {
             String token = authHeader.substring(7);
             String username = jwtService.getEmailFromToken(token);
@@ -196,10 +219,8 @@ public class ChatController {
             Resource fileResource = chatService.loadFileAsResource(message.getFileUrl());
             String contentType = getContentTypeFromMessage(message);
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + message.getFileName() + "\"")
-                    .body(fileResource);
+            return chatMediaStreamingService.serve(fileResource.getFile().toPath(), contentType,
+                    message.getFileName(), request);
 
         } catch (Exception e) {
             logger.error("Error streaming media file", e);
@@ -207,9 +228,20 @@ public class ChatController {
         }
     }
 
+    @GetMapping("/media/stream-stats")
+    public ResponseEntity<Map<String, Object>> getMediaStreamStatistics() {
+        return ResponseEntity.ok(chatMediaStreamingService.getStatistics());
+    }
+
+    @GetMapping("/ws-stats")
+    public ResponseEntity<Map<String, Object>> getWebSocketStatistics() {
+        return ResponseEntity.ok(webSocketTrafficMonitor.getStatistics());
+    }
+
     @GetMapping("/media/thumbnail/{messageId}")
     public ResponseEntity<Resource> getMediaThumbnail(@PathVariable Long messageId,
-                                                      @RequestHeader(value = "Authorization") String authHeader) {
+                                                      @RequestHeader(value = "Authorization") String authHeader,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             String token = authHeader.substring(7);
             String username = jwtService.getEmailFromToken(token);
@@ -224,10 +256,7 @@ public class ChatController {
             }
 
             if (message.getType() == ChatMessage.MessageType.IMAGE) {
-                Resource thumbnail = chatService.generateThumbnail(message.getFileUrl());
-                return ResponseEntity.ok()
-                        .contentType(MediaType.IMAGE_JPEG)
-                        .body(thumbnail);
+                return imageDerivativeResponse(message, ChatMediaDerivativeService.THUMBNAIL_SIZE, ifNoneMatch);
             }
 
             return ResponseEntity.notFound().build();
@@ -351,6 +380,72 @@ public class ChatController {
         }
     }
 
+    @GetMapping("/history/{recipientId}/page")
+    public ResponseEntity<?> getChatHistoryPage(@PathVariable String recipientId,
+                                                @RequestParam(required = false) Long before,
+                                                @RequestParam(required = false) Long after,
+                                                @RequestParam(defaultValue = "50") int size,
+                                                @RequestHeader(value = "Authorization") String authHeader) {
+        try {
+            String token = authHeader.substring(7);
+            String senderId = jwtService.getEmailFromToken(token);
+
+            Map<String, Object> page = chatService.getChatHistoryPage(senderId, recipientId, before, after, size);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error fetching chat history page", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error fetching chat history"));
+        }
+    }
+
+    @GetMapping("/sync")
+    public ResponseEntity<?> syncMessages(@RequestParam(defaultValue = "0") long after,
+                                          @RequestParam(defaultValue = "200") int size,
+                                          @RequestHeader(value = "Authorization") String authHeader) {
+        try {
+            String token = authHeader.substring(7);
+            String username = jwtService.getEmailFromToken(token);
+
+            Map<String, Object> page = chatService.getMessagesSince(username, after, size);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error syncing messages", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error syncing messages"));
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMessages(@RequestParam("q") String query,
+                                            @RequestParam(value = "with", required = false) String withUserId,
+                                            @RequestParam(required = false) Long before,
+                                            @RequestParam(defaultValue = "20") int limit,
+                                            @RequestHeader(value = "Authorization") String authHeader) {
+        try {
+            String token = authHeader.substring(7);
+            String username = jwtService.getEmailFromToken(token);
+
+            Map<String, Object> results = chatSearchService.search(username, withUserId, query, before, limit);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error searching messages", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error searching messages"));
+        }
+    }
+
+    @GetMapping("/search/stats")
+    public ResponseEntity<Map<String, Object>> getSearchStatistics() {
+        return ResponseEntity.ok(chatSearchService.getStatistics());
+    }
+
 
 
     @MessageMapping("/chat.private")
@@ -480,34 +575,43 @@ public class ChatController {
                 recipientId = senderId;
             }
 
-            String fileUrl = chatService.saveMediaFile(file);
-
-            ChatMessage mediaMessage = new ChatMessage();
-            mediaMessage.setSenderId(senderId);
-            mediaMessage.setRecipientId(recipientId);
-            mediaMessage.setContent("File sent: " + file.getOriginalFilename());
-            mediaMessage.setFileName(file.getOriginalFilename());
-            mediaMessage.setFileUrl(fileUrl);
-            mediaMessage.setFileSize(file.getSize());
-            mediaMessage.setTimestamp(LocalDateTime.now());
-            mediaMessage.setStatus("SENT");
-
-            String contentType = file.getContentType();
-            if (contentType != null) {
-                if (contentType.startsWith("image/")) {
-                    mediaMessage.setType(ChatMessage.MessageType.IMAGE);
-                } else if (contentType.startsWith("video/")) {
-                    mediaMessage.setType(ChatMessage.MessageType.VIDEO);
-                } else if (contentType.startsWith("audio/")) {
-                    mediaMessage.setType(ChatMessage.MessageType.AUDIO);
-                } else if (contentType.equals("application/pdf")) {
-                    mediaMessage.setType(ChatMessage.MessageType.DOCUMENT);
-                } else {
-                    mediaMessage.setType(ChatMessage.MessageType.FILE);
+            String uploadOwner = UploadBlobStore.owner("chat-upload", UUID.randomUUID());
+            String fileUrl = chatService.saveMediaFile(file, uploadOwner);
+
+            ChatMessage savedMessage;
+            try {
+                ChatMessage mediaMessage = new ChatMessage();
+                mediaMessage.setSenderId(senderId);
+                mediaMessage.setRecipientId(recipientId);
+                mediaMessage.setContent("File sent: " + file.getOriginalFilename());
+                mediaMessage.setFileName(file.getOriginalFilename());
+                mediaMessage.setFileUrl(fileUrl);
+                mediaMessage.setFileSize(file.getSize());
+                mediaMessage.setTimestamp(LocalDateTime.now());
+                mediaMessage.setStatus("SENT");
+
+                String contentType = file.getContentType();
+                if (contentType != null) {
+                    if (contentType.startsWith("image/")) {
+                        mediaMessage.setType(ChatMessage.MessageType.IMAGE);
+                    } else if (contentType.startsWith("video/")) {
+                        mediaMessage.setType(ChatMessage.MessageType.VIDEO);
+                    } else if (contentType.startsWith("audio/")) {
+                        mediaMessage.setType(ChatMessage.MessageType.AUDIO);
+                    } else if (contentType.equals("application/pdf")) {
+                        mediaMessage.setType(ChatMessage.MessageType.DOCUMENT);
+                    } else {
+                        mediaMessage.setType(ChatMessage.MessageType.FILE);
+                    }
                 }
-            }
 
-            ChatMessage savedMessage = chatService.saveMessage(mediaMessage);
+                savedMessage = chatService.saveMessage(mediaMessage);
+            } catch (RuntimeException e) {
+                // No message carries the file, so nothing would ever release the upload's reference
+                chatService.releaseMedia(fileUrl, uploadOwner);
+                throw e;
+            }
+            chatService.claimMedia(savedMessage, uploadOwner);
 
             messagingTemplate.convertAndSendToUser(
                     recipientId,
@@ -534,18 +638,8 @@ public class ChatController {
             Long messageId = Long.valueOf(payload.get("messageId").toString());
             String senderId = payload.get("senderId").toString();
 
-            chatService.markMessageAsRead(messageId, principal.getName());
-
-            messagingTemplate.convertAndSendToUser(
-                    senderId,
-                    "/queue/message.status",
-                    Map.of(
-                            "messageId", messageId,
-                            "status", "READ",
-                            "readBy", principal.getName(),
-                            "timestamp", LocalDateTime.now()
-                    )
-            );
+            // Applied and broadcast to the sender in batches
+            chatReadReceiptBatcher.submit(principal.getName(), senderId, messageId);
         } catch (Exception e) {
             logger.error("Error marking message as read", e);
         }
@@ -580,6 +674,23 @@ public class ChatController {
         }
     }
 
+    @GetMapping("/unread/count")
+    public ResponseEntity<?> getUnreadCount(@RequestHeader(value = "Authorization") String authHeader) {
+        try {
+            String token = authHeader.substring(7);
+            String username = jwtService.getEmailFromToken(token);
+
+            // Later changes are pushed on /user/queue/unread
+            return ResponseEntity.ok(Map.of("unreadCount", chatService.getUnreadCount(username)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error fetching unread count", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error fetching unread count"));
+        }
+    }
+
     @GetMapping("/notifications")
     public ResponseEntity<?> getNotifications(@RequestHeader(value = "Authorization") String authHeader) {
         try {
@@ -600,6 +711,23 @@ public class ChatController {
         }
     }
 
+    @GetMapping("/notifications/since")
+    public ResponseEntity<?> getNotificationsSince(@RequestParam(defaultValue = "0") long seq,
+                                                   @RequestParam(defaultValue = "100") int limit,
+                                                   @RequestHeader(value = "Authorization") String authHeader) {
+        try {
+            String token = authHeader.substring(7);
+            String username = jwtService.getEmailFromToken(token);
+
+            // New notifications are pushed on /user/queue/notifications; this fills the gap after a reconnect
+            return ResponseEntity.ok(notificationService.getNotificationsSince(username, seq, limit));
+        } catch (Exception e) {
+            logger.error("Error fetching notifications since {}", seq, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error fetching notifications"));
+        }
+    }
+
     @PostMapping("/notifications/{id}/read")
     public ResponseEntity<?> markNotificationAsRead(@PathVariable Long id,
                                                     @RequestHeader(value = "Authorization") String authHeader) {
@@ -631,6 +759,24 @@ public class ChatController {
         }
     }
 
+    @GetMapping("/conversations")
+    public ResponseEntity<?> getConversations(@RequestParam(defaultValue = "50") int limit,
+                                              @RequestHeader(value = "Authorization") String authHeader) {
+        try {
+            String token = authHeader.substring(7);
+            String username = jwtService.getEmailFromToken(token);
+
+            Map<String, Object> inbox = chatService.getConversations(username, limit);
+            return ResponseEntity.ok(inbox);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error fetching conversations", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Error fetching conversations"));
+        }
+    }
+
     @PostMapping("/send")
     public ResponseEntity<?> sendChatMessage(@RequestBody ChatMessage chatMessage,
                                              @RequestHeader(value = "Authorization") String authHeader) {
@@ -762,7 +908,9 @@ public class ChatController {
     @GetMapping("/media/preview/{messageId}")
     public ResponseEntity<Resource> getMediaPreview(
             @PathVariable Long messageId,
-            @RequestHeader(value = "Authorization") String authHeader) {
+            @RequestParam(defaultValue = "200") int size,
+            @RequestHeader(value = "Authorization") String authHeader,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             String token = authHeader.substring(7);
             String username = jwtService.getEmailFromToken(token);
@@ -776,6 +924,10 @@ public class ChatController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
+            if (message.getType() == ChatMessage.MessageType.IMAGE) {
+                return imageDerivativeResponse(message, size, ifNoneMatch);
+            }
+
             Resource previewResource = chatService.generateMediaPreview(message);
             return ResponseEntity.ok()
                     .contentType(MediaType.IMAGE_JPEG)
@@ -787,6 +939,26 @@ public class ChatController {
         }
     }
 
+    // Derivatives are content-addressed, so clients may keep them until the ETag changes
+    private ResponseEntity<Resource> imageDerivativeResponse(ChatMessage message, int size, String ifNoneMatch)
+            throws IOException {
+        ChatMediaDerivativeService.Derivative derivative = chatService.getImageDerivative(message.getFileUrl(), size);
+        CacheControl cacheControl = CacheControl.maxAge(30, TimeUnit.DAYS).cachePrivate().immutable();
+
+        if (ifNoneMatch != null && ifNoneMatch.contains(derivative.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(derivative.getEtag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .eTag(derivative.getEtag())
+                .cacheControl(cacheControl)
+                .body(derivative.getResource());
+    }
+
     @GetMapping("/media/metadata/{messageId}")
     public ResponseEntity<?> getMediaMetadata(
             @PathVariable Long messageId,
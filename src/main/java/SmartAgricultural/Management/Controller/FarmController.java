@@ -1,6 +1,8 @@
 package SmartAgricultural.Management.Controller;
 
 import SmartAgricultural.Management.Model.Farm;
+import SmartAgricultural.Management.Model.FarmRiskSnapshot;
+import SmartAgricultural.Management.Service.FarmRiskService;
 import SmartAgricultural.Management.Service.FarmService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,10 +31,12 @@ import java.util.Optional;
 public class FarmController {
 
     private final FarmService farmService;
+    private final FarmRiskService farmRiskService;
 
     @Autowired
-    public FarmController(FarmService farmService) {
+    public FarmController(FarmService farmService, FarmRiskService farmRiskService) {
         this.farmService = farmService;
+        this.farmRiskService = farmRiskService;
     }
 
     // CREATE operations
@@ -357,6 +361,31 @@ public class FarmController {
         return ResponseEntity.ok(farmsPage.getContent());
     }
 
+    // RISK snapshots (precomputed by the scheduled batch)
+    @GetMapping("/{id}/risk")
+    public ResponseEntity<FarmRiskSnapshot> getFarmRisk(@PathVariable @NotBlank String id) {
+        return ResponseEntity.ok(farmRiskService.getSnapshot(id));
+    }
+
+    @GetMapping("/risk/at-risk")
+    public ResponseEntity<Page<FarmRiskSnapshot>> getFarmsAtRisk(
+            @RequestParam(defaultValue = "50") @Min(0) int minScore,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "10") @Min(1) int size) {
+        Page<FarmRiskSnapshot> snapshots = farmRiskService.getFarmsAtRisk(minScore, PageRequest.of(page, size));
+        return ResponseEntity.ok(snapshots);
+    }
+
+    @GetMapping("/risk/overview")
+    public ResponseEntity<Map<String, Object>> getRiskOverview() {
+        return ResponseEntity.ok(farmRiskService.getOverview());
+    }
+
+    @PostMapping("/risk/refresh")
+    public ResponseEntity<Map<String, Object>> refreshRiskSnapshots() {
+        return ResponseEntity.ok(farmRiskService.refresh());
+    }
+
     // DASHBOARD summary endpoint
     @GetMapping("/dashboard/summary")
     public ResponseEntity<Map<String, Object>> getDashboardSummary() {
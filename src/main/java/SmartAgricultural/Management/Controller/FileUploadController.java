@@ -1,16 +1,18 @@
 package SmartAgricultural.Management.Controller;
 
+import SmartAgricultural.Management.Service.UploadBlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -20,23 +22,30 @@ import java.util.UUID;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class FileUploadController {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileUploadController.class);
+
     private static final String UPLOAD_DIR_CROPS = "uploads/crops";
     private static final String UPLOAD_DIR_PROFILES = "uploads/profiles";
 
+    private final UploadBlobStore uploadBlobStore;
+
+    public FileUploadController(UploadBlobStore uploadBlobStore) {
+        this.uploadBlobStore = uploadBlobStore;
+    }
+
     @PostMapping("/crop-image")
     public ResponseEntity<Map<String, String>> uploadCropImage(
             @RequestParam("file") MultipartFile file) {
-        return uploadImage(file, UPLOAD_DIR_CROPS, "/uploads/crops/");
+        return uploadImage(file);
     }
 
     @PostMapping("/profile-image")
     public ResponseEntity<Map<String, String>> uploadProfileImage(
             @RequestParam("file") MultipartFile file) {
-        return uploadImage(file, UPLOAD_DIR_PROFILES, "/uploads/profiles/");
+        return uploadImage(file);
     }
 
-    private ResponseEntity<Map<String, String>> uploadImage(
-            MultipartFile file, String uploadDir, String urlPrefix) {
+    private ResponseEntity<Map<String, String>> uploadImage(MultipartFile file) {
 
         Map<String, String> response = new HashMap<>();
 
@@ -63,38 +72,26 @@ public class FileUploadController {
                 return ResponseEntity.badRequest().body(response);
             }
 
-            // Créer le répertoire s'il n'existe pas
-            File uploadDirFile = new File(uploadDir);
-            if (!uploadDirFile.exists()) {
-                uploadDirFile.mkdirs();
-                System.out.println("✅ Created directory: " + uploadDirFile.getAbsolutePath());
+            // Sauvegarder le fichier (une seule copie par contenu), référence propre à cet envoi
+            String deleteToken = UUID.randomUUID().toString();
+            UploadBlobStore.StoredBlob blob;
+            try (InputStream input = file.getInputStream()) {
+                blob = uploadBlobStore.store(input, file.getOriginalFilename(), contentType,
+                        UploadBlobStore.owner("upload", deleteToken));
             }
 
-            // Générer un nom de fichier unique
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = originalFilename != null ?
-                    originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase() : ".jpg";
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-
-            // Sauvegarder le fichier
-            Path filePath = Paths.get(uploadDir, uniqueFilename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Log de confirmation
-            System.out.println("✅ File saved: " + filePath.toAbsolutePath());
-
-            // Construire l'URL accessible
-            String fileUrl = urlPrefix + uniqueFilename;
+            logger.info("File saved: {}{}", blob.getFileName(), blob.isDuplicate() ? " (already stored)" : "");
 
             response.put("success", "true");
             response.put("message", "File uploaded successfully");
-            response.put("imageUrl", fileUrl);
-            response.put("filename", uniqueFilename);
+            response.put("imageUrl", blob.getUrl());
+            response.put("filename", blob.getFileName());
+            response.put("deleteToken", deleteToken);
 
             return ResponseEntity.ok(response);
 
         } catch (IOException e) {
-            e.printStackTrace();
+            logger.error("Failed to upload file {}", file.getOriginalFilename(), e);
             response.put("success", "false");
             response.put("message", "Failed to upload file: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
@@ -103,23 +100,45 @@ public class FileUploadController {
 
     @DeleteMapping("/crop-image")
     public ResponseEntity<Map<String, String>> deleteCropImage(
-            @RequestParam("filename") String filename) {
-        return deleteImage(filename, UPLOAD_DIR_CROPS);
+            @RequestParam("filename") String filename,
+            @RequestParam(value = "token", required = false) String token) {
+        return deleteImage(filename, token, UPLOAD_DIR_CROPS);
     }
 
     @DeleteMapping("/profile-image")
     public ResponseEntity<Map<String, String>> deleteProfileImage(
-            @RequestParam("filename") String filename) {
-        return deleteImage(filename, UPLOAD_DIR_PROFILES);
+            @RequestParam("filename") String filename,
+            @RequestParam(value = "token", required = false) String token) {
+        return deleteImage(filename, token, UPLOAD_DIR_PROFILES);
     }
 
     private ResponseEntity<Map<String, String>> deleteImage(
-            String filename, String uploadDir) {
+            String filename, String token, String uploadDir) {
 
         Map<String, String> response = new HashMap<>();
 
+        // Images uploaded through the blob store are shared: only the reference taken by the
+        // upload that returned this token goes away
+        if (uploadBlobStore.isBlobUrl(filename)) {
+            String owner = UploadBlobStore.owner("upload", token);
+            if (token == null || !uploadBlobStore.isHeldBy(filename, owner)) {
+                response.put("success", "false");
+                response.put("message", "File not found");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            uploadBlobStore.release(filename, owner);
+            response.put("success", "true");
+            response.put("message", "File deleted successfully");
+            return ResponseEntity.ok(response);
+        }
+
         try {
-            Path filePath = Paths.get(uploadDir, filename);
+            Path filePath = Paths.get(uploadDir, filename).normalize();
+            if (!filePath.startsWith(Paths.get(uploadDir).normalize())) {
+                response.put("success", "false");
+                response.put("message", "Invalid filename");
+                return ResponseEntity.badRequest().body(response);
+            }
 
             if (Files.exists(filePath)) {
                 Files.delete(filePath);
@@ -138,4 +157,9 @@ public class FileUploadController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStorageStatistics() {
+        return ResponseEntity.ok(uploadBlobStore.getStatistics());
+    }
+}
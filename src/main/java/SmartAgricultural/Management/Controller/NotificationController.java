@@ -0,0 +1,41 @@
+package SmartAgricultural.Management.Controller;
+
+import SmartAgricultural.Management.Service.NotificationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * System notifications. New ones are broadcast on the STOMP topic /topic/notifications;
+ * this endpoint gives the initial list and the catch-up after a reconnect.
+ */
+@RestController
+@RequestMapping("/api/notifications")
+@CrossOrigin(origins = "*")
+public class NotificationController {
+
+    private final NotificationService notificationService;
+
+    @Autowired
+    public NotificationController(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    @GetMapping("/since")
+    public ResponseEntity<Map<String, Object>> getNotificationsSince(@RequestParam(defaultValue = "0") long seq,
+                                                                     @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(notificationService.getSystemNotificationsSince(seq, limit));
+    }
+
+    @GetMapping("/dedup/stats")
+    public ResponseEntity<Map<String, Object>> getDedupStatistics() {
+        return ResponseEntity.ok(notificationService.getDedupStatistics());
+    }
+
+    @GetMapping("/write-behind/stats")
+    public ResponseEntity<Map<String, Object>> getWriteBehindStatistics() {
+        return ResponseEntity.ok(notificationService.getWriteBehindStatistics());
+    }
+}
@@ -10,6 +10,7 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -22,6 +23,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/users")
@@ -40,6 +42,15 @@ public class UserController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ProfileImageStore profileImageStore;
+
+    @Autowired
+    private ProfileImageMigrator profileImageMigrator;
+
+    // Profile images are stored as resized variants; larger uploads are refused before decoding
+    private static final long MAX_PROFILE_IMAGE_BYTES = 5 * 1024 * 1024;
+
     @Autowired
     public UserController(UserService userService, PasswordEncoder passwordEncoder,
                           JwtService jwtService, EmailService emailService, OtpService otpService) {
@@ -220,32 +231,25 @@ public class UserController {
             UserDTO user = userService.getUserById(userId);
             logger.info("User found: {}", user.getEmail());
 
-            // Delete old profile image file if exists
+            if (file.isEmpty() || file.getSize() > MAX_PROFILE_IMAGE_BYTES) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("success", false, "message", "Image must be between 1 byte and 5MB"));
+            }
+
+            // Delete old profile image file if exists (images uploaded before the image store)
             if (user.getProfileImageUrl() != null && !user.getProfileImageUrl().isEmpty()) {
                 if (user.getProfileImageUrl().startsWith("uploads/")) {
                     logger.info("Deleting old profile image: {}", user.getProfileImageUrl());
-                    fileStorageService.deleteFile(user.getProfileImageUrl());
+                    fileStorageService.deleteFile(user.getProfileImageUrl(), userId);
                 }
             }
 
-            // Store new file
-            logger.info("Storing new file...");
-            String filePath = fileStorageService.storeFile(file, userId);
-            logger.info("File stored at: {}", filePath);
-
-            // Update user profile image URL + data (store in DB)
-            byte[] imageBytes = file.getBytes();
-            String originalFilename = file.getOriginalFilename();
-            String ext = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                ext = originalFilename.substring(originalFilename.lastIndexOf('.')).toLowerCase();
-            }
-            // FIX: Use userId in the path instead of complex naming
-            String dbImageUrl = "api/users/" + userId + "/profile-image" + ext;
-            userService.updateUserProfileImage(userId, dbImageUrl, imageBytes);
-            logger.info("User profile image URL and data updated in database");
+            // Store the resized variants on disk; the user row only keeps the key
+            String key = profileImageStore.store(file.getBytes());
+            String dbImageUrl = ProfileImageStore.profileImageUrl(userId, key);
+            userService.updateUserProfileImage(userId, dbImageUrl, key);
+            logger.info("User profile image stored as {}", key);
 
-            // FIX: Return the correct image URL
             String imageUrl = "http://localhost:1010/" + dbImageUrl;
             logger.info("✅ Upload successful, image URL: {}", imageUrl);
 
@@ -253,8 +257,11 @@ public class UserController {
                     "success", true,
                     "message", "Profile image uploaded successfully",
                     "imageUrl", imageUrl,
-                    "filePath", filePath
+                    "filePath", dbImageUrl
             ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", e.getMessage()));
         } catch (ResourceNotFoundException e) {
             logger.error("❌ User not found: {}", userId);
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -279,10 +286,12 @@ public class UserController {
 
             if (user.getProfileImageUrl() != null && !user.getProfileImageUrl().isEmpty()) {
                 if (user.getProfileImageUrl().startsWith("uploads/")) {
-                    fileStorageService.deleteFile(user.getProfileImageUrl());
+                    fileStorageService.deleteFile(user.getProfileImageUrl(), userId);
                 }
             }
 
+            // Legacy bytes first: while they remain, the image would be migrated back
+            profileImageMigrator.discardLegacyImage(userId);
             userService.updateUserProfileImage(userId, null, null);
 
             return ResponseEntity.ok(Map.of(
@@ -301,43 +310,56 @@ public class UserController {
 
     @GetMapping(value = {"/{userId}/profile-image", "/{userId}/profile-image.{ext}"})
     public ResponseEntity<byte[]> getProfileImage(@PathVariable String userId,
-                                                   @PathVariable(name = "ext", required = false) String ext) {
+                                                  @PathVariable(name = "ext", required = false) String ext,
+                                                  @RequestParam(required = false) Integer size,
+                                                  @RequestParam(name = "v", required = false) String version,
+                                                  @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
-            UserDTO user = userService.getUserById(userId);
-            if (user == null) {
+            String key = userService.getProfileImageKey(userId);
+            if (key == null) {
+                // Image still in the legacy column: migrate this user now instead of waiting for the batch
+                key = profileImageMigrator.migrateUser(userId);
+            }
+            if (key == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
 
-            byte[] imageData = userService.getProfileImageData(userId);
-            if (imageData == null || imageData.length == 0) {
+            ProfileImageStore.Variant variant = profileImageStore.get(key,
+                    size != null ? size : profileImageStore.largestSize());
+            if (variant == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
 
-            String url = user.getProfileImageUrl();
-            MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
-            String lower = null;
-            if (ext != null && !ext.isEmpty()) {
-                lower = "." + ext.toLowerCase();
-            } else if (url != null) {
-                lower = url.toLowerCase();
-            }
-            if (lower != null) {
-                if (lower.endsWith(".png")) mediaType = MediaType.IMAGE_PNG;
-                else if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) mediaType = MediaType.IMAGE_JPEG;
-                else if (lower.endsWith(".gif")) mediaType = MediaType.IMAGE_GIF;
+            // A URL naming the current version never changes content; others must revalidate
+            CacheControl cacheControl = ProfileImageStore.version(key).equals(version)
+                    ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                    : CacheControl.noCache().cachePublic();
+
+            if (ifNoneMatch != null && ifNoneMatch.contains(variant.getEtag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(variant.getEtag())
+                        .cacheControl(cacheControl)
+                        .build();
             }
 
             return ResponseEntity.ok()
-                    .contentType(mediaType)
-                    .body(imageData);
-        } catch (ResourceNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .eTag(variant.getEtag())
+                    .cacheControl(cacheControl)
+                    .body(variant.getBytes());
         } catch (Exception e) {
             logger.error("Error serving profile image for user {}", userId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @GetMapping("/profile-images/stats")
+    public ResponseEntity<Map<String, Object>> getProfileImageStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>(profileImageStore.getStatistics());
+        stats.put("migration", profileImageMigrator.getStatistics());
+        return ResponseEntity.ok(stats);
+    }
+
 
 
     @PostMapping("/fix-user-password")
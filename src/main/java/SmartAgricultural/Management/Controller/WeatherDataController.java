@@ -3,6 +3,9 @@ package SmartAgricultural.Management.Controller;
 import SmartAgricultural.Management.Model.WeatherData;
 import SmartAgricultural.Management.Model.WeatherData.DataQuality;
 import SmartAgricultural.Management.Service.WeatherDataService;
+import SmartAgricultural.Management.Service.WeatherExportService;
+import SmartAgricultural.Management.Service.WeatherIngestionService;
+import SmartAgricultural.Management.Util.AsyncTimeouts;
 import SmartAgricultural.Management.exception.ResourceNotFoundException;
 import SmartAgricultural.Management.exception.ValidationException;
 
@@ -11,11 +14,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Max;
@@ -23,6 +30,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.DecimalMax;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
@@ -40,6 +48,12 @@ public class WeatherDataController {
     @Autowired
     private WeatherDataService weatherDataService;
 
+    @Autowired
+    private WeatherIngestionService weatherIngestionService;
+
+    @Autowired
+    private WeatherExportService weatherExportService;
+
     // =================================================================================
     // BASIC CRUD OPERATIONS
     // =================================================================================
@@ -723,6 +737,43 @@ public class WeatherDataController {
         }
     }
 
+    /**
+     * Streams station feeds in NDJSON (one reading per line) or CSV (header row first).
+     * The format comes from the {@code format} parameter, or else from the content type.
+     */
+    @PostMapping(value = "/ingest", consumes = {"application/x-ndjson", "text/csv", "text/plain", "application/octet-stream"})
+    public ResponseEntity<?> ingestWeatherData(
+            InputStream body,
+            @RequestHeader(value = "Content-Type", required = false) String contentType,
+            @RequestParam(required = false) String format) {
+        WeatherIngestionService.Format resolved;
+        if (format != null) {
+            try {
+                resolved = WeatherIngestionService.Format.valueOf(format.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(createErrorResponse("Validation Error", "Unsupported format: " + format));
+            }
+        } else {
+            resolved = contentType != null && contentType.toLowerCase().contains("csv")
+                    ? WeatherIngestionService.Format.CSV
+                    : WeatherIngestionService.Format.NDJSON;
+        }
+
+        try {
+            Map<String, Object> response = new HashMap<>(weatherIngestionService.ingest(body, resolved));
+            response.put("success", true);
+            response.put("message", "Weather data ingested");
+            return ResponseEntity.ok(response);
+        } catch (ValidationException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse("Validation Error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Internal Error", "Failed to ingest weather data"));
+        }
+    }
+
     @PutMapping("/bulk")
     public ResponseEntity<?> updateBulkWeatherData(@Valid @RequestBody List<WeatherData> weatherDataList) {
         try {
@@ -796,6 +847,45 @@ public class WeatherDataController {
         }
     }
 
+    @PostMapping("/maintenance/archive")
+    public ResponseEntity<?> archiveOldWeatherData(
+            @RequestParam(required = false) @Min(30) Integer olderThanDays) {
+        try {
+            int archivedCount = weatherDataService.archiveOldWeatherData(olderThanDays);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Old weather data archived successfully");
+            response.put("archivedCount", archivedCount);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Internal Error", "Failed to archive old weather data"));
+        }
+    }
+
+    @GetMapping("/maintenance/archive")
+    public ResponseEntity<?> getArchiveStatistics() {
+        try {
+            return ResponseEntity.ok(weatherDataService.getArchiveStatistics());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Internal Error", "Failed to retrieve weather archive statistics"));
+        }
+    }
+
+    @PostMapping("/maintenance/rebuild-rollups")
+    public ResponseEntity<?> rebuildRollups() {
+        try {
+            Map<String, Object> response = new HashMap<>(weatherDataService.rebuildRollups());
+            response.put("success", true);
+            response.put("message", "Weather rollups rebuilt successfully");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Internal Error", "Failed to rebuild weather rollups"));
+        }
+    }
+
     // =================================================================================
     // UTILITY METHODS
     // =================================================================================
@@ -886,6 +976,38 @@ public class WeatherDataController {
 
 
 
+    /**
+     * Streams readings with {@code startDate <= recordDate < endDate} (default: the last
+     * {@code days} days) as CSV, NDJSON or the compact binary format, in record-date order.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportWeatherData(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "365") @Min(1) int days,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletRequest request) {
+        try {
+            WeatherExportService.Format resolved = WeatherExportService.Format.valueOf(format.trim().toUpperCase());
+            LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : LocalDateTime.now();
+            LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : end.minusDays(days);
+
+            StreamingResponseBody body = out -> weatherExportService.export(start, end, resolved, out);
+            AsyncTimeouts.extend(request, weatherExportService.getTimeoutMs());
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(resolved.getContentType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"weather-data." + resolved.getExtension() + "\"")
+                    .body(body);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse("Invalid Date", "Date format should be yyyy-MM-ddTHH:mm:ss"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse("Validation Error", "Unsupported format: " + format));
+        }
+    }
+
     // =================================================================================
 // AI PREDICTION INTEGRATION
 // =================================================================================
@@ -935,6 +1057,17 @@ public class WeatherDataController {
         }
     }
 
+    @GetMapping("/analytics/forecast-model-cache")
+    public ResponseEntity<?> getForecastModelCacheMetrics() {
+        try {
+            Map<String, Object> metrics = weatherDataService.getForecastModelCacheMetrics();
+            return ResponseEntity.ok(createSuccessResponse("Forecast model cache metrics retrieved", metrics));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Internal Error", "Failed to get forecast model cache metrics"));
+        }
+    }
+
 // =================================================================================
 // FOOD SECURITY INTEGRATION
 // =================================================================================
@@ -0,0 +1,172 @@
+package SmartAgricultural.Management.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One row per pair of chat participants, maintained alongside chat_messages.
+ *
+ * The pair is stored in a canonical order (participantA sorts before participantB) so both
+ * directions of a conversation land on the same row; unread counts are kept per side.
+ */
+@Entity
+@Table(name = "chat_conversations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_chat_conversation_pair",
+                columnNames = {"participant_a", "participant_b"}),
+        indexes = {
+                @Index(name = "idx_chat_conversation_a", columnList = "participant_a, last_message_at"),
+                @Index(name = "idx_chat_conversation_b", columnList = "participant_b, last_message_at")
+        })
+public class ChatConversation {
+
+    public static final int PREVIEW_LENGTH = 120;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "participant_a", nullable = false)
+    private String participantA;
+
+    @Column(name = "participant_b", nullable = false)
+    private String participantB;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "last_sender_id", nullable = false)
+    private String lastSenderId;
+
+    @Column(name = "last_message_type", length = 20)
+    private String lastMessageType;
+
+    @Column(name = "last_preview", length = PREVIEW_LENGTH + 20)
+    private String lastPreview;
+
+    @Column(name = "unread_for_a", nullable = false)
+    private int unreadForA;
+
+    @Column(name = "unread_for_b", nullable = false)
+    private int unreadForB;
+
+    // Read watermarks: each side has read every message from the other up to this id
+    @Column(name = "read_up_to_a", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long readUpToA;
+
+    @Column(name = "read_up_to_b", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long readUpToB;
+
+    @Column(name = "message_count", nullable = false)
+    private long messageCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // ===== CONSTRUCTORS =====
+
+    public ChatConversation() {
+    }
+
+    public ChatConversation(String participantA, String participantB) {
+        this.participantA = participantA;
+        this.participantB = participantB;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    // ===== HELPERS =====
+
+    /**
+     * Orders two user ids the way they are stored: the smaller one is participant A.
+     */
+    public static String[] canonicalPair(String userId, String otherUserId) {
+        return userId.compareTo(otherUserId) <= 0
+                ? new String[]{userId, otherUserId}
+                : new String[]{otherUserId, userId};
+    }
+
+    /**
+     * Short text shown in the inbox for a message: media messages show their type and file name.
+     */
+    public static String previewOf(ChatMessage message) {
+        String text;
+        if (message.getType() != null && message.getType() != ChatMessage.MessageType.CHAT) {
+            String label = message.getFileName() != null ? message.getFileName() : message.getContent();
+            text = "[" + message.getType().name() + "]" + (label != null ? " " + label : "");
+        } else {
+            text = message.getContent() != null ? message.getContent().trim().replaceAll("\\s+", " ") : "";
+        }
+        return text.length() > PREVIEW_LENGTH ? text.substring(0, PREVIEW_LENGTH) + "..." : text;
+    }
+
+    public String getOtherParticipant(String userId) {
+        return participantA.equals(userId) ? participantB : participantA;
+    }
+
+    public int getUnreadFor(String userId) {
+        if (participantA.equals(userId)) {
+            return unreadForA;
+        }
+        return participantB.equals(userId) ? unreadForB : 0;
+    }
+
+    public long getReadUpTo(String userId) {
+        if (participantA.equals(userId)) {
+            return readUpToA;
+        }
+        return participantB.equals(userId) ? readUpToB : 0;
+    }
+
+    // ===== GETTERS AND SETTERS =====
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getParticipantA() { return participantA; }
+    public void setParticipantA(String participantA) { this.participantA = participantA; }
+
+    public String getParticipantB() { return participantB; }
+    public void setParticipantB(String participantB) { this.participantB = participantB; }
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+
+    public String getLastSenderId() { return lastSenderId; }
+    public void setLastSenderId(String lastSenderId) { this.lastSenderId = lastSenderId; }
+
+    public String getLastMessageType() { return lastMessageType; }
+    public void setLastMessageType(String lastMessageType) { this.lastMessageType = lastMessageType; }
+
+    public String getLastPreview() { return lastPreview; }
+    public void setLastPreview(String lastPreview) { this.lastPreview = lastPreview; }
+
+    public int getUnreadForA() { return unreadForA; }
+    public void setUnreadForA(int unreadForA) { this.unreadForA = unreadForA; }
+
+    public int getUnreadForB() { return unreadForB; }
+    public void setUnreadForB(int unreadForB) { this.unreadForB = unreadForB; }
+
+    public long getReadUpToA() { return readUpToA; }
+    public void setReadUpToA(long readUpToA) { this.readUpToA = readUpToA; }
+
+    public long getReadUpToB() { return readUpToB; }
+    public void setReadUpToB(long readUpToB) { this.readUpToB = readUpToB; }
+
+    public long getMessageCount() { return messageCount; }
+    public void setMessageCount(long messageCount) { this.messageCount = messageCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -3,11 +3,19 @@ package SmartAgricultural.Management.Model;
 
 
 import jakarta.persistence.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        @Index(name = "idx_chat_conversation_key_id", columnList = "conversation_key, id"),
+        @Index(name = "idx_chat_sender_id", columnList = "sender_id, id"),
+        @Index(name = "idx_chat_recipient_id", columnList = "recipient_id, id")
+})
 public class ChatMessage {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -74,12 +82,42 @@ public class ChatMessage {
     @Column
     private Long fileSize;
 
+    // Hash of the participant pair, shared by both directions; history pages seek on (conversation_key, id)
+    @Column(name = "conversation_key")
+    private Long conversationKey;
+
     // Constructors
     public ChatMessage() {
         this.timestamp = LocalDateTime.now();
         this.version = 0L; // Ensure version is initialized
     }
 
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updateConversationKey();
+    }
+
+    public void updateConversationKey() {
+        if (senderId != null && recipientId != null) {
+            this.conversationKey = conversationKeyOf(senderId, recipientId);
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the participant pair in canonical order. Collisions are possible,
+     * so queries on the key still filter on the participants.
+     */
+    public static long conversationKeyOf(String userId, String otherUserId) {
+        String[] pair = ChatConversation.canonicalPair(userId, otherUserId);
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : (pair[0] + '\u0000' + pair[1]).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
     // Getters and setters
     public Long getId() {
         return id;
@@ -176,4 +214,12 @@ public class ChatMessage {
     public void setFileSize(Long fileSize) {
         this.fileSize = fileSize;
     }
+
+    public Long getConversationKey() {
+        return conversationKey;
+    }
+
+    public void setConversationKey(Long conversationKey) {
+        this.conversationKey = conversationKey;
+    }
 }
@@ -0,0 +1,42 @@
+package SmartAgricultural.Management.Model;
+
+import jakarta.persistence.*;
+
+/**
+ * Shared presence row per user, used when presence is stored in the database so that several
+ * app nodes see the same state. Times are epoch milliseconds; written by JdbcPresenceStore.
+ */
+@Entity
+@Table(name = "chat_presence", indexes = {
+        @Index(name = "idx_chat_presence_online_last_seen", columnList = "online, last_seen")
+})
+public class ChatPresence {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "online", nullable = false)
+    private boolean online;
+
+    @Column(name = "last_seen", nullable = false)
+    private long lastSeen;
+
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+
+    public ChatPresence() {
+    }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public boolean isOnline() { return online; }
+    public void setOnline(boolean online) { this.online = online; }
+
+    public long getLastSeen() { return lastSeen; }
+    public void setLastSeen(long lastSeen) { this.lastSeen = lastSeen; }
+
+    public long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
+}
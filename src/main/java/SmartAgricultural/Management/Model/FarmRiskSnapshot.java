@@ -0,0 +1,132 @@
+package SmartAgricultural.Management.Model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Latest precomputed drought and flood risk for one farm.
+ *
+ * Rows are replaced as a whole by each batch run of {@code FarmRiskService}; a farm whose
+ * location has no weather readings in the window keeps null scores and a NO_DATA status.
+ */
+@Entity
+@Table(name = "farm_risk_snapshots", indexes = {
+        @Index(name = "idx_farm_risk_drought", columnList = "drought_risk_score"),
+        @Index(name = "idx_farm_risk_flood", columnList = "flood_risk_score")
+})
+public class FarmRiskSnapshot {
+
+    public static final String NO_DATA = "NO_DATA";
+
+    @Id
+    @Column(name = "farm_id", length = 20)
+    private String farmId;
+
+    @Column(name = "cell_id", length = 12)
+    private String cellId;
+
+    @Column(name = "latitude", precision = 10, scale = 8)
+    private BigDecimal latitude;
+
+    @Column(name = "longitude", precision = 11, scale = 8)
+    private BigDecimal longitude;
+
+    @Column(name = "window_days", nullable = false)
+    private int windowDays;
+
+    @Column(name = "data_points", nullable = false)
+    private long dataPoints;
+
+    @Column(name = "drought_risk_score")
+    private Integer droughtRiskScore;
+
+    @Column(name = "drought_status", length = 30)
+    private String droughtStatus;
+
+    @Column(name = "total_rainfall", precision = 10, scale = 2)
+    private BigDecimal totalRainfall;
+
+    @Column(name = "dry_days")
+    private Long dryDays;
+
+    @Column(name = "flood_risk_score")
+    private Integer floodRiskScore;
+
+    @Column(name = "flood_status", length = 30)
+    private String floodStatus;
+
+    @Column(name = "heavy_rain_events")
+    private Long heavyRainEvents;
+
+    @Column(name = "max_consecutive_rainy_days")
+    private Integer maxConsecutiveRainyDays;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+
+    // ===== CONSTRUCTORS =====
+
+    public FarmRiskSnapshot() {
+    }
+
+    public FarmRiskSnapshot(String farmId, BigDecimal latitude, BigDecimal longitude, String cellId,
+                            int windowDays, LocalDateTime computedAt) {
+        this.farmId = farmId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.cellId = cellId;
+        this.windowDays = windowDays;
+        this.computedAt = computedAt;
+        this.droughtStatus = NO_DATA;
+        this.floodStatus = NO_DATA;
+    }
+
+    // ===== GETTERS AND SETTERS =====
+
+    public String getFarmId() { return farmId; }
+    public void setFarmId(String farmId) { this.farmId = farmId; }
+
+    public String getCellId() { return cellId; }
+    public void setCellId(String cellId) { this.cellId = cellId; }
+
+    public BigDecimal getLatitude() { return latitude; }
+    public void setLatitude(BigDecimal latitude) { this.latitude = latitude; }
+
+    public BigDecimal getLongitude() { return longitude; }
+    public void setLongitude(BigDecimal longitude) { this.longitude = longitude; }
+
+    public int getWindowDays() { return windowDays; }
+    public void setWindowDays(int windowDays) { this.windowDays = windowDays; }
+
+    public long getDataPoints() { return dataPoints; }
+    public void setDataPoints(long dataPoints) { this.dataPoints = dataPoints; }
+
+    public Integer getDroughtRiskScore() { return droughtRiskScore; }
+    public void setDroughtRiskScore(Integer droughtRiskScore) { this.droughtRiskScore = droughtRiskScore; }
+
+    public String getDroughtStatus() { return droughtStatus; }
+    public void setDroughtStatus(String droughtStatus) { this.droughtStatus = droughtStatus; }
+
+    public BigDecimal getTotalRainfall() { return totalRainfall; }
+    public void setTotalRainfall(BigDecimal totalRainfall) { this.totalRainfall = totalRainfall; }
+
+    public Long getDryDays() { return dryDays; }
+    public void setDryDays(Long dryDays) { this.dryDays = dryDays; }
+
+    public Integer getFloodRiskScore() { return floodRiskScore; }
+    public void setFloodRiskScore(Integer floodRiskScore) { this.floodRiskScore = floodRiskScore; }
+
+    public String getFloodStatus() { return floodStatus; }
+    public void setFloodStatus(String floodStatus) { this.floodStatus = floodStatus; }
+
+    public Long getHeavyRainEvents() { return heavyRainEvents; }
+    public void setHeavyRainEvents(Long heavyRainEvents) { this.heavyRainEvents = heavyRainEvents; }
+
+    public Integer getMaxConsecutiveRainyDays() { return maxConsecutiveRainyDays; }
+    public void setMaxConsecutiveRainyDays(Integer maxConsecutiveRainyDays) { this.maxConsecutiveRainyDays = maxConsecutiveRainyDays; }
+
+    public LocalDateTime getComputedAt() { return computedAt; }
+    public void setComputedAt(LocalDateTime computedAt) { this.computedAt = computedAt; }
+}
@@ -0,0 +1,64 @@
+package SmartAgricultural.Management.Model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored upload, keyed by the SHA-256 of its content. Every chat message, profile or crop
+ * image pointing at the file holds one reference, recorded per owner in
+ * {@link UploadBlobReference}; a blob whose count stays at zero past the grace period is
+ * removed by UploadBlobStore's collector.
+ */
+@Entity
+@Table(name = "upload_blobs", indexes = {
+        @Index(name = "idx_upload_blobs_ref_count_updated_at", columnList = "ref_count, updated_at")
+})
+public class UploadBlob {
+
+    @Id
+    @Column(name = "sha256", length = 64, nullable = false)
+    private String hash;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long size;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "extension", length = 16, nullable = false)
+    private String extension;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public UploadBlob() {
+    }
+
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public String getExtension() { return extension; }
+    public void setExtension(String extension) { this.extension = extension; }
+
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,45 @@
+package SmartAgricultural.Management.Model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One owner's hold on an upload blob: a chat message, a user's profile image or an anonymous
+ * upload identified by its delete token. A blob's ref_count is the number of these rows, so an
+ * owner can only release its own reference, and only once.
+ */
+@Entity
+@Table(name = "upload_blob_refs", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_upload_blob_refs_sha256_owner", columnNames = {"sha256", "owner"})
+})
+public class UploadBlobReference {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sha256", length = 64, nullable = false)
+    private String hash;
+
+    @Column(name = "owner", length = 191, nullable = false)
+    private String owner;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public UploadBlobReference() {
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -65,9 +65,10 @@ public class User implements UserDetails {
     @Column(name = "profile_image_url")
     private String profileImageUrl;
 
-    @Lob
-    @Column(name = "profile_image_data")
-    private byte[] profileImageData;
+    // Key of the image in the profile image store; the bytes live on disk, not in this row
+    @Column(name = "profile_image_key", length = 64)
+    @JsonIgnore
+    private String profileImageKey;
 
     // Password reset fields - THIS WAS MISSING!
     @Column(name = "reset_token", length = 100)
@@ -275,12 +276,12 @@ public class User implements UserDetails {
         this.profileImageUrl = profileImageUrl;
     }
 
-    public byte[] getProfileImageData() {
-        return profileImageData;
+    public String getProfileImageKey() {
+        return profileImageKey;
     }
 
-    public void setProfileImageData(byte[] profileImageData) {
-        this.profileImageData = profileImageData;
+    public void setProfileImageKey(String profileImageKey) {
+        this.profileImageKey = profileImageKey;
     }
 
     public String getResetToken() {
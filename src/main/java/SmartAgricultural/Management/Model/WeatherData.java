@@ -1,6 +1,7 @@
 package SmartAgricultural.Management.Model;
 
 import SmartAgricultural.Management.Config.BigDecimalDeserializer;
+import SmartAgricultural.Management.Util.GeoHash;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
@@ -12,7 +13,10 @@ import java.time.format.DateTimeFormatter;
 import java.util.Random;
 
 @Entity
-@Table(name = "weather_data")
+@Table(name = "weather_data", indexes = {
+        @Index(name = "idx_weather_geohash_date", columnList = "geohash, record_date"),
+        @Index(name = "idx_weather_record_date_id", columnList = "record_date, id")
+})
 public class WeatherData {
 
     @Id
@@ -33,6 +37,9 @@ public class WeatherData {
     @JsonDeserialize(using = BigDecimalDeserializer.class)
     private BigDecimal longitude;
 
+    @Column(name = "geohash", length = 12)
+    private String geohash;
+
     @Column(name = "record_date", nullable = false)
     @NotNull(message = "Record date is required")
     // FIXED: Accept both ISO 8601 (with T) and space-separated formats
@@ -227,18 +234,38 @@ public class WeatherData {
     // ===== JPA LIFECYCLE =====
     @PrePersist
     protected void onCreate() {
+        prepareForInsert();
+    }
+
+    /**
+     * Assigns the id, geohash and timestamps; also used by inserts that bypass JPA.
+     */
+    public void prepareForInsert() {
         if (this.id == null) {
             this.id = generateAlphanumericId();
         }
+        updateGeohash();
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
 
     @PreUpdate
     protected void onUpdate() {
+        updateGeohash();
         this.updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * Recomputes the spatial index key from the current coordinates.
+     */
+    public void updateGeohash() {
+        if (latitude != null && longitude != null) {
+            this.geohash = GeoHash.encode(latitude.doubleValue(), longitude.doubleValue(), GeoHash.MAX_PRECISION);
+        } else {
+            this.geohash = null;
+        }
+    }
+
     // ===== GETTERS AND SETTERS =====
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -249,6 +276,9 @@ public class WeatherData {
     public BigDecimal getLongitude() { return longitude; }
     public void setLongitude(BigDecimal longitude) { this.longitude = longitude; }
 
+    public String getGeohash() { return geohash; }
+    public void setGeohash(String geohash) { this.geohash = geohash; }
+
     public LocalDateTime getRecordDate() { return recordDate; }
     public void setRecordDate(LocalDateTime recordDate) { this.recordDate = recordDate; }
 
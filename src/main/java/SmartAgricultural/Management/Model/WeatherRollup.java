@@ -0,0 +1,221 @@
+package SmartAgricultural.Management.Model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated weather statistics for one day, one month or one location cell.
+ *
+ * Each metric keeps count, sum, min, max and sum of squares, which is enough to derive
+ * averages, ranges and standard deviations without reading the raw weather_data rows.
+ * Rows are maintained incrementally by {@code WeatherRollupService}.
+ */
+@Entity
+@Table(name = "weather_rollups", indexes = {
+        @Index(name = "idx_rollup_granularity_period", columnList = "granularity, period_start")
+})
+public class WeatherRollup {
+
+    @Id
+    @Column(name = "id", length = 40)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", length = 10, nullable = false)
+    private Granularity granularity;
+
+    @Column(name = "period_start")
+    private LocalDate periodStart;
+
+    @Column(name = "cell_id", length = 12)
+    private String cellId;
+
+    @Column(name = "latitude")
+    private Double latitude;
+
+    @Column(name = "longitude")
+    private Double longitude;
+
+    @Column(name = "record_count", nullable = false)
+    private long recordCount;
+
+    @Column(name = "temperature_count", nullable = false)
+    private long temperatureCount;
+    @Column(name = "temperature_sum", nullable = false)
+    private double temperatureSum;
+    @Column(name = "temperature_min")
+    private Double temperatureMin;
+    @Column(name = "temperature_max")
+    private Double temperatureMax;
+    @Column(name = "temperature_sum_sq", nullable = false)
+    private double temperatureSumSq;
+
+    @Column(name = "humidity_count", nullable = false)
+    private long humidityCount;
+    @Column(name = "humidity_sum", nullable = false)
+    private double humiditySum;
+    @Column(name = "humidity_min")
+    private Double humidityMin;
+    @Column(name = "humidity_max")
+    private Double humidityMax;
+    @Column(name = "humidity_sum_sq", nullable = false)
+    private double humiditySumSq;
+
+    @Column(name = "rainfall_count", nullable = false)
+    private long rainfallCount;
+    @Column(name = "rainfall_sum", nullable = false)
+    private double rainfallSum;
+    @Column(name = "rainfall_min")
+    private Double rainfallMin;
+    @Column(name = "rainfall_max")
+    private Double rainfallMax;
+    @Column(name = "rainfall_sum_sq", nullable = false)
+    private double rainfallSumSq;
+
+    @Column(name = "wind_speed_count", nullable = false)
+    private long windSpeedCount;
+    @Column(name = "wind_speed_sum", nullable = false)
+    private double windSpeedSum;
+    @Column(name = "wind_speed_min")
+    private Double windSpeedMin;
+    @Column(name = "wind_speed_max")
+    private Double windSpeedMax;
+    @Column(name = "wind_speed_sum_sq", nullable = false)
+    private double windSpeedSumSq;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum Granularity {
+        DAY, MONTH, CELL
+    }
+
+    // ===== CONSTRUCTORS =====
+    public WeatherRollup() {
+    }
+
+    public WeatherRollup(String id, Granularity granularity) {
+        this.id = id;
+        this.granularity = granularity;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // ===== ACCUMULATION =====
+
+    /**
+     * Adds one reading to this (not yet persisted) delta.
+     */
+    public void add(WeatherData w) {
+        recordCount++;
+        if (w.getTemperature() != null) {
+            double v = w.getTemperature().doubleValue();
+            temperatureCount++;
+            temperatureSum += v;
+            temperatureSumSq += v * v;
+            temperatureMin = temperatureMin == null ? v : Math.min(temperatureMin, v);
+            temperatureMax = temperatureMax == null ? v : Math.max(temperatureMax, v);
+        }
+        if (w.getHumidity() != null) {
+            double v = w.getHumidity().doubleValue();
+            humidityCount++;
+            humiditySum += v;
+            humiditySumSq += v * v;
+            humidityMin = humidityMin == null ? v : Math.min(humidityMin, v);
+            humidityMax = humidityMax == null ? v : Math.max(humidityMax, v);
+        }
+        if (w.getRainfall() != null) {
+            double v = w.getRainfall().doubleValue();
+            rainfallCount++;
+            rainfallSum += v;
+            rainfallSumSq += v * v;
+            rainfallMin = rainfallMin == null ? v : Math.min(rainfallMin, v);
+            rainfallMax = rainfallMax == null ? v : Math.max(rainfallMax, v);
+        }
+        if (w.getWindSpeed() != null) {
+            double v = w.getWindSpeed().doubleValue();
+            windSpeedCount++;
+            windSpeedSum += v;
+            windSpeedSumSq += v * v;
+            windSpeedMin = windSpeedMin == null ? v : Math.min(windSpeedMin, v);
+            windSpeedMax = windSpeedMax == null ? v : Math.max(windSpeedMax, v);
+        }
+    }
+
+    // ===== DERIVED VALUES =====
+    public Double getAverageTemperature() {
+        return temperatureCount > 0 ? temperatureSum / temperatureCount : null;
+    }
+
+    public Double getAverageHumidity() {
+        return humidityCount > 0 ? humiditySum / humidityCount : null;
+    }
+
+    public Double getAverageWindSpeed() {
+        return windSpeedCount > 0 ? windSpeedSum / windSpeedCount : null;
+    }
+
+    public Double getTemperatureStdDev() {
+        if (temperatureCount == 0) return null;
+        double mean = temperatureSum / temperatureCount;
+        return Math.sqrt(Math.max(0, temperatureSumSq / temperatureCount - mean * mean));
+    }
+
+    // ===== GETTERS AND SETTERS =====
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Granularity getGranularity() { return granularity; }
+    public void setGranularity(Granularity granularity) { this.granularity = granularity; }
+
+    public LocalDate getPeriodStart() { return periodStart; }
+    public void setPeriodStart(LocalDate periodStart) { this.periodStart = periodStart; }
+
+    public String getCellId() { return cellId; }
+    public void setCellId(String cellId) { this.cellId = cellId; }
+
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    public long getRecordCount() { return recordCount; }
+    public void setRecordCount(long recordCount) { this.recordCount = recordCount; }
+
+    public long getTemperatureCount() { return temperatureCount; }
+    public double getTemperatureSum() { return temperatureSum; }
+    public Double getTemperatureMin() { return temperatureMin; }
+    public Double getTemperatureMax() { return temperatureMax; }
+    public double getTemperatureSumSq() { return temperatureSumSq; }
+
+    public long getHumidityCount() { return humidityCount; }
+    public double getHumiditySum() { return humiditySum; }
+    public Double getHumidityMin() { return humidityMin; }
+    public Double getHumidityMax() { return humidityMax; }
+    public double getHumiditySumSq() { return humiditySumSq; }
+
+    public long getRainfallCount() { return rainfallCount; }
+    public double getRainfallSum() { return rainfallSum; }
+    public Double getRainfallMin() { return rainfallMin; }
+    public Double getRainfallMax() { return rainfallMax; }
+    public double getRainfallSumSq() { return rainfallSumSq; }
+
+    public long getWindSpeedCount() { return windSpeedCount; }
+    public double getWindSpeedSum() { return windSpeedSum; }
+    public Double getWindSpeedMin() { return windSpeedMin; }
+    public Double getWindSpeedMax() { return windSpeedMax; }
+    public double getWindSpeedSumSq() { return windSpeedSumSq; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    @Override
+    public String toString() {
+        return "WeatherRollup{" +
+                "id='" + id + '\'' +
+                ", recordCount=" + recordCount +
+                '}';
+    }
+}
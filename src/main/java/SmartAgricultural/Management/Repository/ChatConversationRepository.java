@@ -0,0 +1,71 @@
+package SmartAgricultural.Management.Repository;
+
+import SmartAgricultural.Management.Model.ChatConversation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChatConversationRepository extends JpaRepository<ChatConversation, Long> {
+
+    Optional<ChatConversation> findByParticipantAAndParticipantB(String participantA, String participantB);
+
+    // Inbox: a user's conversations, most recent first
+    @Query("SELECT c FROM ChatConversation c WHERE c.participantA = :userId OR c.participantB = :userId " +
+            "ORDER BY c.lastMessageAt DESC, c.id DESC")
+    List<ChatConversation> findByParticipant(@Param("userId") String userId, Pageable pageable);
+
+    // Everyone the user has exchanged messages with
+    @Query("SELECT CASE WHEN c.participantA = :userId THEN c.participantB ELSE c.participantA END " +
+            "FROM ChatConversation c WHERE c.participantA = :userId OR c.participantB = :userId")
+    List<String> findContactIds(@Param("userId") String userId);
+
+    // New message: create the pair or bump its unread count, last message kept by highest id
+    @Modifying
+    @Query(value = "INSERT INTO chat_conversations (participant_a, participant_b, last_message_id, last_message_at, " +
+            "last_sender_id, last_message_type, last_preview, unread_for_a, unread_for_b, message_count, " +
+            "created_at, updated_at) " +
+            "VALUES (:a, :b, :messageId, :sentAt, :senderId, :type, :preview, :unreadA, :unreadB, 1, :now, :now) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "unread_for_a = unread_for_a + VALUES(unread_for_a), " +
+            "unread_for_b = unread_for_b + VALUES(unread_for_b), " +
+            "message_count = message_count + 1, " +
+            "last_message_at = IF(VALUES(last_message_id) > last_message_id, VALUES(last_message_at), last_message_at), " +
+            "last_sender_id = IF(VALUES(last_message_id) > last_message_id, VALUES(last_sender_id), last_sender_id), " +
+            "last_message_type = IF(VALUES(last_message_id) > last_message_id, VALUES(last_message_type), last_message_type), " +
+            "last_preview = IF(VALUES(last_message_id) > last_message_id, VALUES(last_preview), last_preview), " +
+            "last_message_id = GREATEST(last_message_id, VALUES(last_message_id)), " +
+            "updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    void recordMessage(@Param("a") String participantA, @Param("b") String participantB,
+                       @Param("messageId") Long messageId, @Param("sentAt") LocalDateTime sentAt,
+                       @Param("senderId") String senderId, @Param("type") String type,
+                       @Param("preview") String preview, @Param("unreadA") int unreadA,
+                       @Param("unreadB") int unreadB, @Param("now") LocalDateTime now);
+
+    // Read watermark: move the reader's side forward (never back) and lower its unread count
+    @Modifying
+    @Query(value = "UPDATE chat_conversations SET " +
+            "read_up_to_a = CASE WHEN participant_a = :reader THEN GREATEST(read_up_to_a, :upToId) ELSE read_up_to_a END, " +
+            "read_up_to_b = CASE WHEN participant_b = :reader THEN GREATEST(read_up_to_b, :upToId) ELSE read_up_to_b END, " +
+            "unread_for_a = CASE WHEN participant_a = :reader THEN GREATEST(unread_for_a - :count, 0) ELSE unread_for_a END, " +
+            "unread_for_b = CASE WHEN participant_b = :reader THEN GREATEST(unread_for_b - :count, 0) ELSE unread_for_b END, " +
+            "updated_at = :now " +
+            "WHERE participant_a = :a AND participant_b = :b",
+            nativeQuery = true)
+    int advanceReadWatermark(@Param("a") String participantA, @Param("b") String participantB,
+                             @Param("reader") String reader, @Param("upToId") long upToId,
+                             @Param("count") int count, @Param("now") LocalDateTime now);
+
+    // Conversations where the user still has unread messages
+    @Query("SELECT c FROM ChatConversation c WHERE (c.participantA = :userId AND c.unreadForA > 0) " +
+            "OR (c.participantB = :userId AND c.unreadForB > 0)")
+    List<ChatConversation> findWithUnreadFor(@Param("userId") String userId);
+}
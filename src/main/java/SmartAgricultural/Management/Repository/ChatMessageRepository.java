@@ -4,11 +4,13 @@ package SmartAgricultural.Management.Repository;
 import SmartAgricultural.Management.Model.ChatMessage;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +22,11 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     // Count unread messages for a recipient
     long countByRecipientIdAndReadFalse(String recipientId);
 
+    // Unread counter reconciliation: counts of many users in one grouped query
+    @Query("SELECT m.recipientId, COUNT(m) FROM ChatMessage m WHERE m.read = false AND m.recipientId IN :recipientIds " +
+            "GROUP BY m.recipientId")
+    List<Object[]> countUnreadByRecipients(@Param("recipientIds") Collection<String> recipientIds);
+
     // Find messages within a specific time range
     List<ChatMessage> findByTimestampBetween(LocalDateTime startTime, LocalDateTime endTime);
 
@@ -84,4 +91,55 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     // Find user media by type
     @Query("SELECT cm FROM ChatMessage cm WHERE (cm.senderId = :userId OR cm.recipientId = :userId) AND cm.type = :messageType AND cm.fileUrl IS NOT NULL ORDER BY cm.timestamp DESC")
     List<ChatMessage> findUserMediaByType(@Param("userId") String userId, @Param("messageType") ChatMessage.MessageType messageType, Pageable pageable);
-}
\ No newline at end of file
+
+    // Latest message of a conversation (highest id, the order the conversation index keeps)
+    @Query("SELECT cm FROM ChatMessage cm WHERE (cm.senderId = :senderId AND cm.recipientId = :recipientId) OR (cm.senderId = :recipientId AND cm.recipientId = :senderId) ORDER BY cm.id DESC")
+    List<ChatMessage> findLatestInConversation(@Param("senderId") String senderId, @Param("recipientId") String recipientId, Pageable pageable);
+
+    // Count messages of a conversation (both directions)
+    @Query("SELECT COUNT(cm) FROM ChatMessage cm WHERE (cm.senderId = :senderId AND cm.recipientId = :recipientId) OR (cm.senderId = :recipientId AND cm.recipientId = :senderId)")
+    long countConversationMessages(@Param("senderId") String senderId, @Param("recipientId") String recipientId);
+
+    // Count unread messages from one sender to one recipient
+    long countBySenderIdAndRecipientIdAndReadFalse(String senderId, String recipientId);
+
+    // Per direction totals used to rebuild the conversation index: sender, recipient, max id, count, unread
+    @Query("SELECT m.senderId, m.recipientId, MAX(m.id), COUNT(m), SUM(CASE WHEN m.read = false THEN 1 ELSE 0 END) FROM ChatMessage m GROUP BY m.senderId, m.recipientId")
+    List<Object[]> summarizeByDirection();
+
+    // Keyset history: seek on (conversation_key, id), participants re-checked against hash collisions
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.conversationKey = :conversationKey AND cm.id < :beforeId AND ((cm.senderId = :senderId AND cm.recipientId = :recipientId) OR (cm.senderId = :recipientId AND cm.recipientId = :senderId)) ORDER BY cm.id DESC")
+    List<ChatMessage> findConversationBefore(@Param("conversationKey") long conversationKey, @Param("senderId") String senderId, @Param("recipientId") String recipientId, @Param("beforeId") long beforeId, Pageable pageable);
+
+    // Ids only, to find where a numbered page starts
+    @Query("SELECT cm.id FROM ChatMessage cm WHERE cm.conversationKey = :conversationKey AND cm.id < :beforeId AND ((cm.senderId = :senderId AND cm.recipientId = :recipientId) OR (cm.senderId = :recipientId AND cm.recipientId = :senderId)) ORDER BY cm.id DESC")
+    List<Long> findConversationIdsBefore(@Param("conversationKey") long conversationKey, @Param("senderId") String senderId, @Param("recipientId") String recipientId, @Param("beforeId") long beforeId, Pageable pageable);
+
+    @Query("SELECT cm FROM ChatMessage cm WHERE cm.conversationKey = :conversationKey AND cm.id > :afterId AND ((cm.senderId = :senderId AND cm.recipientId = :recipientId) OR (cm.senderId = :recipientId AND cm.recipientId = :senderId)) ORDER BY cm.id ASC")
+    List<ChatMessage> findConversationAfter(@Param("conversationKey") long conversationKey, @Param("senderId") String senderId, @Param("recipientId") String recipientId, @Param("afterId") long afterId, Pageable pageable);
+
+    // Reconnect sync: messages sent or received after a cursor id, one index range each
+    List<ChatMessage> findBySenderIdAndIdGreaterThanOrderByIdAsc(String senderId, Long afterId, Pageable pageable);
+
+    List<ChatMessage> findByRecipientIdAndIdGreaterThanOrderByIdAsc(String recipientId, Long afterId, Pageable pageable);
+
+    // Search index catch-up: every message after the last indexed id, in primary key order
+    List<ChatMessage> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // Read watermark: one set-based update of a sender's unread messages between the old and new mark
+    @Modifying
+    @Query("UPDATE ChatMessage m SET m.read = true, m.status = 'READ', m.version = m.version + 1 " +
+            "WHERE m.conversationKey = :conversationKey AND m.senderId = :senderId AND m.recipientId = :recipientId " +
+            "AND m.read = false AND m.id > :afterId AND m.id <= :upToId")
+    int markReadUpTo(@Param("conversationKey") long conversationKey, @Param("senderId") String senderId,
+                     @Param("recipientId") String recipientId, @Param("afterId") long afterId,
+                     @Param("upToId") long upToId);
+
+    // Conversation key backfill for messages stored before the column existed
+    @Query("SELECT DISTINCT m.senderId, m.recipientId FROM ChatMessage m WHERE m.conversationKey IS NULL")
+    List<Object[]> findPairsWithoutConversationKey(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE ChatMessage m SET m.conversationKey = :conversationKey WHERE m.senderId = :senderId AND m.recipientId = :recipientId AND m.conversationKey IS NULL")
+    int assignConversationKey(@Param("senderId") String senderId, @Param("recipientId") String recipientId, @Param("conversationKey") long conversationKey);
+}
@@ -3,6 +3,7 @@ package SmartAgricultural.Management.Repository;
 
 
 import SmartAgricultural.Management.Model.ChatNotification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatNotificationRepository extends JpaRepository<ChatNotification, Long> {
@@ -30,6 +32,11 @@ public interface ChatNotificationRepository extends JpaRepository<ChatNotificati
     @Query("SELECT n FROM ChatNotification n WHERE n.recipientId = :recipientId AND n.timestamp >= :since ORDER BY n.timestamp DESC")
     List<ChatNotification> findRecentNotifications(@Param("recipientId") String recipientId, @Param("since") LocalDateTime since);
 
+    // Rattrapage après reconnexion, par id croissant (l'id sert de numéro de séquence)
+    List<ChatNotification> findByRecipientIdAndIdGreaterThanOrderByIdAsc(String recipientId, Long afterId, Pageable pageable);
+
+    Optional<ChatNotification> findTopByRecipientIdOrderByIdDesc(String recipientId);
+
     // Compter les notifications non lues pour un utilisateur
     long countByRecipientIdAndReadFalse(String recipientId);
 
@@ -142,4 +142,8 @@ public interface FarmRepository extends JpaRepository<Farm, String> {
     List<Farm> findFarmsNearLocation(@Param("latitude") BigDecimal latitude,
                                      @Param("longitude") BigDecimal longitude,
                                      @Param("radiusKm") Double radiusKm);
-}
\ No newline at end of file
+
+    // Farm id and coordinates only, for batch jobs over every farm
+    @Query("SELECT f.id, f.latitude, f.longitude FROM Farm f")
+    List<Object[]> findAllLocations();
+}
@@ -0,0 +1,37 @@
+package SmartAgricultural.Management.Repository;
+
+import SmartAgricultural.Management.Model.FarmRiskSnapshot;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FarmRiskSnapshotRepository extends JpaRepository<FarmRiskSnapshot, String> {
+
+    // Farms at or above a risk score, highest first
+    @Query("SELECT s FROM FarmRiskSnapshot s WHERE s.droughtRiskScore >= :minScore OR s.floodRiskScore >= :minScore " +
+            "ORDER BY s.droughtRiskScore DESC, s.floodRiskScore DESC")
+    Page<FarmRiskSnapshot> findAtRisk(@Param("minScore") int minScore, Pageable pageable);
+
+    // National overview in one pass over the snapshot table
+    @Query("SELECT COUNT(s), SUM(CASE WHEN s.dataPoints > 0 THEN 1 ELSE 0 END), " +
+            "AVG(s.droughtRiskScore), AVG(s.floodRiskScore), " +
+            "SUM(CASE WHEN s.droughtRiskScore >= :highScore THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN s.floodRiskScore >= :highScore THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN s.droughtRiskScore >= :severeScore THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN s.floodRiskScore >= :severeScore THEN 1 ELSE 0 END), " +
+            "MIN(s.computedAt), MAX(s.computedAt) FROM FarmRiskSnapshot s")
+    List<Object[]> summarize(@Param("highScore") int highScore, @Param("severeScore") int severeScore);
+
+    // Snapshots of farms that were deleted since the last run
+    @Modifying
+    @Query("DELETE FROM FarmRiskSnapshot s WHERE s.computedAt < :computedAt")
+    int deleteComputedBefore(@Param("computedAt") LocalDateTime computedAt);
+}
@@ -5,17 +5,25 @@ package SmartAgricultural.Management.Repository;
 
 
 import SmartAgricultural.Management.Model.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
 
     List<Notification> findAllByOrderByTimestampDesc();
 
-    @Query("SELECT n FROM Notification n WHERE n.contentHash = :contentHash AND n.timestamp >= :cutoffTime AND n.duplicate = false")
-    List<Notification> findSimilarNotificationsAfterTime(@Param("contentHash") String contentHash, @Param("cutoffTime") LocalDateTime cutoffTime);
+    // Réamorçage de la fenêtre de déduplication après un redémarrage
+    @Query("SELECT n.message, n.type, n.timestamp FROM Notification n WHERE n.timestamp >= :cutoffTime AND n.duplicate = false")
+    List<Object[]> findRecentForDedup(@Param("cutoffTime") LocalDateTime cutoffTime);
+
+    // Rattrapage des notifications diffusées, par id croissant
+    List<Notification> findByIdGreaterThanAndDuplicateFalseOrderByIdAsc(Long afterId, Pageable pageable);
+
+    Optional<Notification> findTopByDuplicateFalseOrderByIdDesc();
 }
@@ -0,0 +1,30 @@
+package SmartAgricultural.Management.Repository;
+
+import SmartAgricultural.Management.Model.UploadBlobReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface UploadBlobReferenceRepository extends JpaRepository<UploadBlobReference, Long> {
+
+    // 1 when the owner did not hold the blob yet, 0 when it already did
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO upload_blob_refs (sha256, owner, created_at) VALUES (:hash, :owner, :now)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String hash, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    boolean existsByHashAndOwner(String hash, String owner);
+
+    @Modifying
+    @Query("DELETE FROM UploadBlobReference r WHERE r.hash = :hash AND r.owner = :owner")
+    int deleteByHashAndOwner(@Param("hash") String hash, @Param("owner") String owner);
+
+    @Modifying
+    @Query("UPDATE UploadBlobReference r SET r.owner = :to WHERE r.hash = :hash AND r.owner = :from")
+    int transfer(@Param("hash") String hash, @Param("from") String from, @Param("to") String to);
+}
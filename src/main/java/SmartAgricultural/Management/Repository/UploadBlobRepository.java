@@ -0,0 +1,46 @@
+package SmartAgricultural.Management.Repository;
+
+import SmartAgricultural.Management.Model.UploadBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadBlobRepository extends JpaRepository<UploadBlob, String> {
+
+    // New reference: create the blob row or bump its count; the first upload's extension is kept
+    @Modifying
+    @Query(value = "INSERT INTO upload_blobs (sha256, size_bytes, content_type, extension, ref_count, created_at, updated_at) " +
+            "VALUES (:hash, :size, :contentType, :extension, 1, :now, :now) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    void acquire(@Param("hash") String hash, @Param("size") long size,
+                 @Param("contentType") String contentType, @Param("extension") String extension,
+                 @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE UploadBlob b SET b.refCount = b.refCount - 1, b.updatedAt = :now " +
+            "WHERE b.hash = :hash AND b.refCount > 0")
+    int release(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    // Collection candidates: no references since the cutoff
+    @Query("SELECT b.hash FROM UploadBlob b WHERE b.refCount <= 0 AND b.updatedAt < :cutoff ORDER BY b.updatedAt")
+    List<String> findUnreferencedSince(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    // Re-checked at delete time, so a blob referenced again in between is kept
+    @Modifying
+    @Query("DELETE FROM UploadBlob b WHERE b.hash = :hash AND b.refCount <= 0 AND b.updatedAt < :cutoff")
+    int deleteIfUnreferenced(@Param("hash") String hash, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT b.hash FROM UploadBlob b WHERE b.hash IN :hashes")
+    List<String> findExistingHashes(@Param("hashes") List<String> hashes);
+
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.size), 0), COALESCE(SUM(b.refCount), 0) FROM UploadBlob b")
+    List<Object[]> summarize();
+}
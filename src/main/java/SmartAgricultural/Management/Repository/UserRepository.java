@@ -17,6 +17,12 @@ public interface UserRepository extends JpaRepository<User, String> {
      */
     Optional<User> findByEmail(String email);
 
+    /**
+     * Authentication fields only (no profile image), matched on email or username
+     */
+    @Query("SELECT u.id, u.username, u.email, u.role, u.isActive FROM User u WHERE u.email = :identifier OR u.username = :identifier")
+    List<Object[]> findPrincipalFields(@Param("identifier") String identifier);
+
     /**
      * Find user by username
      */
@@ -159,6 +165,18 @@ public interface UserRepository extends JpaRepository<User, String> {
     @Query("SELECT u FROM User u WHERE u.profileImageUrl IS NOT NULL AND u.profileImageUrl != ''")
     List<User> findUsersWithProfileImage();
 
+    /**
+     * Profile image store key of a user, without loading the row
+     */
+    @Query("SELECT u.profileImageKey FROM User u WHERE u.id = :id")
+    Optional<String> findProfileImageKey(@Param("id") String id);
+
+    /**
+     * Every profile image key still referenced, for the image store sweep
+     */
+    @Query("SELECT DISTINCT u.profileImageKey FROM User u WHERE u.profileImageKey IS NOT NULL")
+    List<String> findAllProfileImageKeys();
+
     /**
      * Find users without profile image
      */
@@ -11,33 +11,23 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface WeatherDataRepository extends JpaRepository<WeatherData, String> {
+public interface WeatherDataRepository extends JpaRepository<WeatherData, String>, WeatherDataRepositoryCustom {
 
     // Basic finders
     Optional<WeatherData> findByStationId(String stationId);
     List<WeatherData> findByDataSource(String dataSource);
     List<WeatherData> findByDataQuality(DataQuality dataQuality);
 
-    // Location-based queries
-    @Query("SELECT w FROM WeatherData w WHERE " +
-            "(:latitude - :radius) <= w.latitude AND w.latitude <= (:latitude + :radius) AND " +
-            "(:longitude - :radius) <= w.longitude AND w.longitude <= (:longitude + :radius)")
-    List<WeatherData> findByLocationRadius(
-            @Param("latitude") BigDecimal latitude,
-            @Param("longitude") BigDecimal longitude,
-            @Param("radius") BigDecimal radius);
+    @Query("SELECT w.id FROM WeatherData w WHERE w.id IN :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
 
-    @Query("SELECT w FROM WeatherData w WHERE w.latitude BETWEEN :minLat AND :maxLat " +
-            "AND w.longitude BETWEEN :minLon AND :maxLon")
-    List<WeatherData> findByLocationBounds(
-            @Param("minLat") BigDecimal minLatitude,
-            @Param("maxLat") BigDecimal maxLatitude,
-            @Param("minLon") BigDecimal minLongitude,
-            @Param("maxLon") BigDecimal maxLongitude);
+    // Location-based queries (see WeatherDataRepositoryCustom for the geohash-backed radius/bounds lookups)
+    List<WeatherData> findByGeohashIsNull(Pageable pageable);
 
     // Date-based queries
     List<WeatherData> findByRecordDateBetween(LocalDateTime startDate, LocalDateTime endDate);
@@ -50,6 +40,8 @@ public interface WeatherDataRepository extends JpaRepository<WeatherData, String
     @Query("SELECT w FROM WeatherData w WHERE w.recordDate >= :startDate ORDER BY w.recordDate DESC")
     List<WeatherData> findRecentWeatherData(@Param("startDate") LocalDateTime startDate);
 
+    List<WeatherData> findByRecordDateGreaterThanEqualAndTemperatureIsNotNullOrderByRecordDateAsc(LocalDateTime startDate);
+
     // Temperature-based queries
     List<WeatherData> findByTemperatureBetween(BigDecimal minTemp, BigDecimal maxTemp);
     List<WeatherData> findByTemperatureGreaterThan(BigDecimal temperature);
@@ -169,28 +161,6 @@ public interface WeatherDataRepository extends JpaRepository<WeatherData, String
             "WHERE w.weatherCondition IS NOT NULL GROUP BY w.weatherCondition")
     List<Object[]> countByWeatherConditionGrouped();
 
-    @Query("SELECT YEAR(w.recordDate), MONTH(w.recordDate), COUNT(w) FROM WeatherData w " +
-            "GROUP BY YEAR(w.recordDate), MONTH(w.recordDate) ORDER BY YEAR(w.recordDate), MONTH(w.recordDate)")
-    List<Object[]> getMonthlyWeatherDataCount();
-
-    @Query("SELECT DATE(w.recordDate), COUNT(w) FROM WeatherData w " +
-            "WHERE w.recordDate BETWEEN :startDate AND :endDate " +
-            "GROUP BY DATE(w.recordDate) ORDER BY DATE(w.recordDate)")
-    List<Object[]> getDailyWeatherDataCount(@Param("startDate") LocalDateTime startDate,
-                                            @Param("endDate") LocalDateTime endDate);
-
-    // Weather trends
-    @Query("SELECT DATE(w.recordDate), AVG(w.temperature), AVG(w.humidity), SUM(w.rainfall) " +
-            "FROM WeatherData w WHERE w.recordDate BETWEEN :startDate AND :endDate " +
-            "GROUP BY DATE(w.recordDate) ORDER BY DATE(w.recordDate)")
-    List<Object[]> getWeatherTrends(@Param("startDate") LocalDateTime startDate,
-                                    @Param("endDate") LocalDateTime endDate);
-
-    // Location-based statistics
-    @Query("SELECT w.latitude, w.longitude, AVG(w.temperature), AVG(w.humidity) " +
-            "FROM WeatherData w GROUP BY w.latitude, w.longitude")
-    List<Object[]> getLocationBasedAverages();
-
     // Data quality and source analysis
     @Query("SELECT w.dataSource, w.dataQuality, COUNT(w) FROM WeatherData w " +
             "GROUP BY w.dataSource, w.dataQuality")
@@ -0,0 +1,27 @@
+package SmartAgricultural.Management.Repository;
+
+import SmartAgricultural.Management.Model.WeatherData;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Spatial queries on weather data backed by the geohash index.
+ */
+public interface WeatherDataRepositoryCustom {
+
+    /**
+     * Readings within {@code radius} degrees of great-circle arc from the given point.
+     */
+    List<WeatherData> findByLocationRadius(BigDecimal latitude, BigDecimal longitude, BigDecimal radius);
+
+    /**
+     * Readings within {@code radius} degrees of arc recorded after {@code since}, oldest first.
+     */
+    List<WeatherData> findByLocationRadiusSince(BigDecimal latitude, BigDecimal longitude,
+                                                BigDecimal radius, LocalDateTime since);
+
+    List<WeatherData> findByLocationBounds(BigDecimal minLatitude, BigDecimal maxLatitude,
+                                           BigDecimal minLongitude, BigDecimal maxLongitude);
+}
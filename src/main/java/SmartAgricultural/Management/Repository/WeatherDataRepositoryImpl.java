@@ -0,0 +1,91 @@
+package SmartAgricultural.Management.Repository;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Util.GeoHash;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Plans location queries as a cover of geohash cells, fetches the matching index ranges
+ * in one statement and applies the exact geometric filter on the returned rows.
+ */
+public class WeatherDataRepositoryImpl implements WeatherDataRepositoryCustom {
+
+    // Upper bound on cells per query plan; adjacent cells collapse into fewer index ranges
+    private static final int MAX_COVER_CELLS = 32;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<WeatherData> findByLocationRadius(BigDecimal latitude, BigDecimal longitude, BigDecimal radius) {
+        return findByLocationRadiusSince(latitude, longitude, radius, null);
+    }
+
+    @Override
+    public List<WeatherData> findByLocationRadiusSince(BigDecimal latitude, BigDecimal longitude,
+                                                       BigDecimal radius, LocalDateTime since) {
+        double lat = latitude.doubleValue();
+        double lon = longitude.doubleValue();
+        double r = radius.doubleValue();
+        double lonSpan = GeoHash.longitudeSpan(lat, r);
+
+        List<WeatherData> candidates = findInBox(lat - r, lat + r, lon - lonSpan, lon + lonSpan, since);
+        return candidates.stream()
+                .filter(w -> GeoHash.centralAngleDegrees(lat, lon,
+                        w.getLatitude().doubleValue(), w.getLongitude().doubleValue()) <= r)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<WeatherData> findByLocationBounds(BigDecimal minLatitude, BigDecimal maxLatitude,
+                                                  BigDecimal minLongitude, BigDecimal maxLongitude) {
+        return findInBox(minLatitude.doubleValue(), maxLatitude.doubleValue(),
+                minLongitude.doubleValue(), maxLongitude.doubleValue(), null);
+    }
+
+    private List<WeatherData> findInBox(double minLat, double maxLat, double minLon, double maxLon,
+                                        LocalDateTime since) {
+        List<String[]> ranges = GeoHash.toRanges(
+                GeoHash.coverAdaptive(minLat, maxLat, minLon, maxLon, MAX_COVER_CELLS));
+
+        StringBuilder jpql = new StringBuilder("SELECT w FROM WeatherData w WHERE (");
+        for (int i = 0; i < ranges.size(); i++) {
+            if (i > 0) jpql.append(" OR ");
+            jpql.append("(w.geohash >= :from").append(i);
+            if (ranges.get(i)[1] != null) {
+                jpql.append(" AND w.geohash < :to").append(i);
+            }
+            jpql.append(")");
+        }
+        // Rows written before the geohash column existed stay reachable until the backfill completes
+        jpql.append(" OR w.geohash IS NULL)");
+        jpql.append(" AND w.latitude BETWEEN :minLat AND :maxLat AND w.longitude BETWEEN :minLon AND :maxLon");
+        if (since != null) {
+            jpql.append(" AND w.recordDate > :since");
+        }
+        jpql.append(" ORDER BY w.recordDate");
+
+        TypedQuery<WeatherData> query = entityManager.createQuery(jpql.toString(), WeatherData.class);
+        for (int i = 0; i < ranges.size(); i++) {
+            query.setParameter("from" + i, ranges.get(i)[0]);
+            if (ranges.get(i)[1] != null) {
+                query.setParameter("to" + i, ranges.get(i)[1]);
+            }
+        }
+        query.setParameter("minLat", BigDecimal.valueOf(minLat));
+        query.setParameter("maxLat", BigDecimal.valueOf(maxLat));
+        query.setParameter("minLon", BigDecimal.valueOf(minLon));
+        query.setParameter("maxLon", BigDecimal.valueOf(maxLon));
+        if (since != null) {
+            query.setParameter("since", since);
+        }
+        return query.getResultList();
+    }
+}
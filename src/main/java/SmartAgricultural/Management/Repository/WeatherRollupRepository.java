@@ -0,0 +1,124 @@
+package SmartAgricultural.Management.Repository;
+
+import SmartAgricultural.Management.Model.WeatherRollup;
+import SmartAgricultural.Management.Model.WeatherRollup.Granularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WeatherRollupRepository extends JpaRepository<WeatherRollup, String> {
+
+    String COLUMNS = "id, granularity, period_start, cell_id, latitude, longitude, record_count, " +
+            "temperature_count, temperature_sum, temperature_min, temperature_max, temperature_sum_sq, " +
+            "humidity_count, humidity_sum, humidity_min, humidity_max, humidity_sum_sq, " +
+            "rainfall_count, rainfall_sum, rainfall_min, rainfall_max, rainfall_sum_sq, " +
+            "wind_speed_count, wind_speed_sum, wind_speed_min, wind_speed_max, wind_speed_sum_sq, updated_at";
+
+    String AGGREGATES = "COUNT(*), " +
+            "COUNT(temperature), COALESCE(SUM(temperature), 0), MIN(temperature), MAX(temperature), " +
+            "COALESCE(SUM(temperature * temperature), 0), " +
+            "COUNT(humidity), COALESCE(SUM(humidity), 0), MIN(humidity), MAX(humidity), " +
+            "COALESCE(SUM(humidity * humidity), 0), " +
+            "COUNT(rainfall), COALESCE(SUM(rainfall), 0), MIN(rainfall), MAX(rainfall), " +
+            "COALESCE(SUM(rainfall * rainfall), 0), " +
+            "COUNT(wind_speed), COALESCE(SUM(wind_speed), 0), MIN(wind_speed), MAX(wind_speed), " +
+            "COALESCE(SUM(wind_speed * wind_speed), 0), NOW()";
+
+    String RAW = "temperature, humidity, rainfall, wind_speed";
+
+    // Basic finders
+    List<WeatherRollup> findByGranularityOrderByPeriodStart(Granularity granularity);
+
+    List<WeatherRollup> findByGranularityAndPeriodStartBetweenOrderByPeriodStart(
+            Granularity granularity, LocalDate from, LocalDate to);
+
+    List<WeatherRollup> findByGranularity(Granularity granularity);
+
+    // Incremental maintenance: merge a pre-aggregated delta into its bucket
+    @Modifying
+    @Query(value = "INSERT INTO weather_rollups (" + COLUMNS + ") VALUES (" +
+            ":#{#r.id}, :#{#r.granularity.name()}, :#{#r.periodStart}, :#{#r.cellId}, " +
+            ":#{#r.latitude}, :#{#r.longitude}, :#{#r.recordCount}, " +
+            ":#{#r.temperatureCount}, :#{#r.temperatureSum}, :#{#r.temperatureMin}, :#{#r.temperatureMax}, :#{#r.temperatureSumSq}, " +
+            ":#{#r.humidityCount}, :#{#r.humiditySum}, :#{#r.humidityMin}, :#{#r.humidityMax}, :#{#r.humiditySumSq}, " +
+            ":#{#r.rainfallCount}, :#{#r.rainfallSum}, :#{#r.rainfallMin}, :#{#r.rainfallMax}, :#{#r.rainfallSumSq}, " +
+            ":#{#r.windSpeedCount}, :#{#r.windSpeedSum}, :#{#r.windSpeedMin}, :#{#r.windSpeedMax}, :#{#r.windSpeedSumSq}, " +
+            ":#{#r.updatedAt}) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "record_count = record_count + VALUES(record_count), " +
+            "temperature_count = temperature_count + VALUES(temperature_count), " +
+            "temperature_sum = temperature_sum + VALUES(temperature_sum), " +
+            "temperature_min = LEAST(COALESCE(temperature_min, VALUES(temperature_min)), COALESCE(VALUES(temperature_min), temperature_min)), " +
+            "temperature_max = GREATEST(COALESCE(temperature_max, VALUES(temperature_max)), COALESCE(VALUES(temperature_max), temperature_max)), " +
+            "temperature_sum_sq = temperature_sum_sq + VALUES(temperature_sum_sq), " +
+            "humidity_count = humidity_count + VALUES(humidity_count), " +
+            "humidity_sum = humidity_sum + VALUES(humidity_sum), " +
+            "humidity_min = LEAST(COALESCE(humidity_min, VALUES(humidity_min)), COALESCE(VALUES(humidity_min), humidity_min)), " +
+            "humidity_max = GREATEST(COALESCE(humidity_max, VALUES(humidity_max)), COALESCE(VALUES(humidity_max), humidity_max)), " +
+            "humidity_sum_sq = humidity_sum_sq + VALUES(humidity_sum_sq), " +
+            "rainfall_count = rainfall_count + VALUES(rainfall_count), " +
+            "rainfall_sum = rainfall_sum + VALUES(rainfall_sum), " +
+            "rainfall_min = LEAST(COALESCE(rainfall_min, VALUES(rainfall_min)), COALESCE(VALUES(rainfall_min), rainfall_min)), " +
+            "rainfall_max = GREATEST(COALESCE(rainfall_max, VALUES(rainfall_max)), COALESCE(VALUES(rainfall_max), rainfall_max)), " +
+            "rainfall_sum_sq = rainfall_sum_sq + VALUES(rainfall_sum_sq), " +
+            "wind_speed_count = wind_speed_count + VALUES(wind_speed_count), " +
+            "wind_speed_sum = wind_speed_sum + VALUES(wind_speed_sum), " +
+            "wind_speed_min = LEAST(COALESCE(wind_speed_min, VALUES(wind_speed_min)), COALESCE(VALUES(wind_speed_min), wind_speed_min)), " +
+            "wind_speed_max = GREATEST(COALESCE(wind_speed_max, VALUES(wind_speed_max)), COALESCE(VALUES(wind_speed_max), wind_speed_max)), " +
+            "wind_speed_sum_sq = wind_speed_sum_sq + VALUES(wind_speed_sum_sq), " +
+            "updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    void upsert(@Param("r") WeatherRollup r);
+
+    // Recomputation from raw weather_data (single buckets and full rebuild)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM weather_rollups WHERE id = :id", nativeQuery = true)
+    int deleteRollup(@Param("id") String id);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM weather_rollups", nativeQuery = true)
+    int deleteAllRollups();
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM weather_rollups WHERE granularity = :#{#granularity.name()}", nativeQuery = true)
+    int deleteRollups(@Param("granularity") Granularity granularity);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO weather_rollups (" + COLUMNS + ") " +
+            "SELECT CONCAT('DAY#', k), 'DAY', k, NULL, NULL, NULL, " + AGGREGATES + " FROM (" +
+            "SELECT DATE(record_date) AS k, " + RAW + " FROM weather_data " +
+            "WHERE record_date >= :from AND record_date < :to) t GROUP BY k",
+            nativeQuery = true)
+    int rebuildDays(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO weather_rollups (" + COLUMNS + ") " +
+            "SELECT CONCAT('MONTH#', DATE_FORMAT(k, '%Y-%m')), 'MONTH', k, NULL, NULL, NULL, " + AGGREGATES + " FROM (" +
+            "SELECT DATE_SUB(DATE(record_date), INTERVAL DAYOFMONTH(record_date) - 1 DAY) AS k, " + RAW +
+            " FROM weather_data WHERE record_date >= :from AND record_date < :to) t GROUP BY k",
+            nativeQuery = true)
+    int rebuildMonths(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO weather_rollups (" + COLUMNS + ") " +
+            "SELECT CONCAT('CELL#', k), 'CELL', NULL, k, MIN(latitude), MIN(longitude), " + AGGREGATES + " FROM (" +
+            "SELECT LEFT(geohash, :precision) AS k, latitude, longitude, " + RAW + " FROM weather_data " +
+            "WHERE geohash >= :from AND geohash < :to) t GROUP BY k",
+            nativeQuery = true)
+    int rebuildCells(@Param("precision") int precision, @Param("from") String from, @Param("to") String to);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO weather_rollups (" + COLUMNS + ") " +
+            "SELECT CONCAT('CELL#', k), 'CELL', NULL, k, MIN(latitude), MIN(longitude), " + AGGREGATES + " FROM (" +
+            "SELECT LEFT(geohash, :precision) AS k, latitude, longitude, " + RAW + " FROM weather_data " +
+            "WHERE geohash IS NOT NULL) t GROUP BY k",
+            nativeQuery = true)
+    int rebuildAllCells(@Param("precision") int precision);
+}
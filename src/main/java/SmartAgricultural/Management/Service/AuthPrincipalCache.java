@@ -0,0 +1,201 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.User;
+import SmartAgricultural.Management.Repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * Authenticated principals for the JWT filter, keyed by token subject.
+ *
+ * A principal holds only what authentication needs (id, username, email, role, active flag)
+ * and is read with a projection query, so the profile image and the rest of the user row
+ * are never loaded per request. Entries live for the TTL and the cache is bounded, least
+ * recently used first out. UserService evicts a user once a change to their status, role,
+ * credentials or identity commits; the TTL bounds staleness for changes made elsewhere
+ * (another node, direct SQL).
+ */
+@Service
+public class AuthPrincipalCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthPrincipalCache.class);
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final Map<String, CachedEntry> entries;
+
+    public AuthPrincipalCache(UserRepository userRepository,
+                              @Value("${security.principal-cache.ttl-ms:60000}") long ttlMillis,
+                              @Value("${security.principal-cache.max-entries:10000}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlMillis;
+        int capacity = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedEntry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the principal for a token subject (email or username), or null if no user matches.
+     * Inactive users are returned too, so repeated requests with their tokens stay off the database.
+     */
+    public AuthenticatedUser resolve(String subject) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            CachedEntry entry = entries.get(subject);
+            if (entry != null && entry.expiresAt > now) {
+                return entry.principal;
+            }
+        }
+
+        AuthenticatedUser principal = load(subject);
+        if (principal != null) {
+            synchronized (entries) {
+                entries.put(subject, new CachedEntry(principal, now + ttlMillis));
+            }
+        }
+        return principal;
+    }
+
+    private AuthenticatedUser load(String subject) {
+        AuthenticatedUser match = null;
+        for (Object[] row : userRepository.findPrincipalFields(subject)) {
+            AuthenticatedUser principal = new AuthenticatedUser((String) row[0], (String) row[1], (String) row[2],
+                    (User.Role) row[3], row[4] == null || (Boolean) row[4]);
+            // Same precedence as CustomUserDetailsService: username first, then email
+            if (subject.equals(principal.getUsername())) {
+                match = principal;
+            } else if (match == null && subject.equals(principal.getEmail())) {
+                match = principal;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Forgets a user once the current transaction commits (immediately outside one).
+     */
+    public void evictUser(String userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(userId);
+                }
+            });
+        } else {
+            evictNow(userId);
+        }
+    }
+
+    private void evictNow(String userId) {
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<CachedEntry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (userId.equals(it.next().principal.getId())) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            logger.debug("Evicted {} cached principals for user {}", removed, userId);
+        }
+    }
+
+    private static final class CachedEntry {
+        private final AuthenticatedUser principal;
+        private final long expiresAt;
+
+        private CachedEntry(AuthenticatedUser principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Lightweight principal set on the security context; carries no password or profile data.
+     */
+    public static final class AuthenticatedUser implements UserDetails {
+        private final String id;
+        private final String username;
+        private final String email;
+        private final User.Role role;
+        private final boolean active;
+        private final List<GrantedAuthority> authorities;
+
+        public AuthenticatedUser(String id, String username, String email, User.Role role, boolean active) {
+            this.id = id;
+            this.username = username;
+            this.email = email;
+            this.role = role;
+            this.active = active;
+            this.authorities = role != null
+                    ? List.of(new SimpleGrantedAuthority(role.getAuthority()))
+                    : List.of();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public User.Role getRole() {
+            return role;
+        }
+
+        @Override
+        public Collection<? extends GrantedAuthority> getAuthorities() {
+            return authorities;
+        }
+
+        @Override
+        public String getPassword() {
+            return null;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public boolean isAccountNonExpired() {
+            return true;
+        }
+
+        @Override
+        public boolean isAccountNonLocked() {
+            return active;
+        }
+
+        @Override
+        public boolean isCredentialsNonExpired() {
+            return true;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return active;
+        }
+    }
+}
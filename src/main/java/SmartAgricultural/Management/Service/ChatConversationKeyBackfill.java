@@ -0,0 +1,69 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.ChatMessage;
+import SmartAgricultural.Management.Repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills the conversation key of chat messages stored before keyset history existed.
+ *
+ * Runs before the web server starts accepting requests, since history pages seek on the key
+ * and would otherwise miss older messages. Each directed pair is one bulk update, so the
+ * cost follows the number of conversations rather than messages.
+ */
+@Component
+public class ChatConversationKeyBackfill implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatConversationKeyBackfill.class);
+    private static final int BATCH_SIZE = 200;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    public int backfill() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int total = 0;
+        try {
+            while (true) {
+                Integer updated = transaction.execute(status -> {
+                    List<Object[]> pairs = chatMessageRepository.findPairsWithoutConversationKey(PageRequest.of(0, BATCH_SIZE));
+                    int messages = 0;
+                    for (Object[] pair : pairs) {
+                        String senderId = (String) pair[0];
+                        String recipientId = (String) pair[1];
+                        messages += chatMessageRepository.assignConversationKey(senderId, recipientId,
+                                ChatMessage.conversationKeyOf(senderId, recipientId));
+                    }
+                    return messages;
+                });
+                if (updated == null || updated == 0) {
+                    break;
+                }
+                total += updated;
+            }
+            if (total > 0) {
+                logger.info("Conversation key backfill completed for {} chat messages", total);
+            }
+        } catch (Exception e) {
+            logger.error("Conversation key backfill stopped after {} chat messages", total, e);
+        }
+        return total;
+    }
+}
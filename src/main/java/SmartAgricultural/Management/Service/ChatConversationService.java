@@ -0,0 +1,212 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.ChatConversation;
+import SmartAgricultural.Management.Model.ChatMessage;
+import SmartAgricultural.Management.Repository.ChatConversationRepository;
+import SmartAgricultural.Management.Repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Maintains the chat conversation index: one row per participant pair with the last message
+ * and per-side unread counts, so the inbox and contact lists are read in O(conversations).
+ *
+ * Every method joins the caller's transaction, so the index commits or rolls back together
+ * with the chat_messages change it mirrors.
+ */
+@Service
+public class ChatConversationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatConversationService.class);
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private final ChatConversationRepository chatConversationRepository;
+    private final ChatMessageRepository chatMessageRepository;
+
+    public ChatConversationService(ChatConversationRepository chatConversationRepository,
+                                   ChatMessageRepository chatMessageRepository) {
+        this.chatConversationRepository = chatConversationRepository;
+        this.chatMessageRepository = chatMessageRepository;
+    }
+
+    // =================================================================================
+    // INDEX MAINTENANCE
+    // =================================================================================
+
+    /**
+     * Records a newly stored message: creates the pair if needed, moves the last message
+     * forward and adds one unread message on the recipient's side.
+     */
+    @Transactional
+    public void recordMessage(ChatMessage message) {
+        String[] pair = ChatConversation.canonicalPair(message.getSenderId(), message.getRecipientId());
+        boolean toSelf = message.getSenderId().equals(message.getRecipientId());
+        int unreadA = !toSelf && pair[0].equals(message.getRecipientId()) && !message.isRead() ? 1 : 0;
+        int unreadB = !toSelf && pair[1].equals(message.getRecipientId()) && !message.isRead() ? 1 : 0;
+
+        chatConversationRepository.recordMessage(pair[0], pair[1], message.getId(), message.getTimestamp(),
+                message.getSenderId(), message.getType() != null ? message.getType().name() : null,
+                ChatConversation.previewOf(message), unreadA, unreadB, LocalDateTime.now());
+    }
+
+    /**
+     * Moves the reader's read watermark up to {@code upToId} after {@code count} messages sent by
+     * the other user were marked read.
+     */
+    @Transactional
+    public void recordReadUpTo(String readerId, String senderId, long upToId, int count) {
+        if (readerId.equals(senderId)) {
+            return;
+        }
+        String[] pair = ChatConversation.canonicalPair(readerId, senderId);
+        chatConversationRepository.advanceReadWatermark(pair[0], pair[1], readerId, upToId, count, LocalDateTime.now());
+    }
+
+    /**
+     * Recomputes one pair from chat_messages; used when messages are removed, since the
+     * previous last message cannot be derived from the index alone.
+     */
+    @Transactional
+    public void refresh(String userId, String otherUserId) {
+        String[] pair = ChatConversation.canonicalPair(userId, otherUserId);
+        Optional<ChatConversation> existing = chatConversationRepository.findByParticipantAAndParticipantB(pair[0], pair[1]);
+        List<ChatMessage> latest = chatMessageRepository.findLatestInConversation(pair[0], pair[1], PageRequest.of(0, 1));
+
+        if (latest.isEmpty()) {
+            existing.ifPresent(chatConversationRepository::delete);
+            return;
+        }
+
+        ChatConversation conversation = existing.orElseGet(() -> new ChatConversation(pair[0], pair[1]));
+        applyLastMessage(conversation, latest.get(0));
+        boolean toSelf = pair[0].equals(pair[1]);
+        conversation.setUnreadForA(toSelf ? 0 : (int) chatMessageRepository.countBySenderIdAndRecipientIdAndReadFalse(pair[1], pair[0]));
+        conversation.setUnreadForB(toSelf ? 0 : (int) chatMessageRepository.countBySenderIdAndRecipientIdAndReadFalse(pair[0], pair[1]));
+        conversation.setMessageCount(chatMessageRepository.countConversationMessages(pair[0], pair[1]));
+        conversation.setUpdatedAt(LocalDateTime.now());
+        chatConversationRepository.save(conversation);
+    }
+
+    // =================================================================================
+    // QUERIES
+    // =================================================================================
+
+    @Transactional(readOnly = true)
+    public List<ChatConversation> getConversations(String userId, int limit) {
+        return chatConversationRepository.findByParticipant(userId, PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ChatConversation> getConversationsWithUnread(String userId) {
+        return chatConversationRepository.findWithUnreadFor(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ChatConversation> getConversation(String userId, String otherUserId) {
+        String[] pair = ChatConversation.canonicalPair(userId, otherUserId);
+        return chatConversationRepository.findByParticipantAAndParticipantB(pair[0], pair[1]);
+    }
+
+    /**
+     * The id up to which {@code readerId} has read the messages {@code senderId} sent them, or 0.
+     */
+    @Transactional(readOnly = true)
+    public long getReadUpTo(String readerId, String senderId) {
+        return getConversation(readerId, senderId)
+                .map(conversation -> conversation.getReadUpTo(readerId))
+                .orElse(0L);
+    }
+
+    @Transactional(readOnly = true)
+    public Set<String> getContactIds(String userId) {
+        Set<String> contactIds = new HashSet<>(chatConversationRepository.findContactIds(userId));
+        contactIds.remove(userId);
+        return contactIds;
+    }
+
+    // =================================================================================
+    // REBUILD
+    // =================================================================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            if (chatConversationRepository.count() == 0 && chatMessageRepository.count() > 0) {
+                int created = rebuild();
+                logger.info("Built chat conversation index with {} conversations", created);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to build chat conversation index", e);
+        }
+    }
+
+    /**
+     * Fills the index from chat_messages with one grouped query plus a lookup of each pair's
+     * last message. Pairs that already have a row (created by live traffic meanwhile) are kept.
+     */
+    @Transactional
+    public int rebuild() {
+        Map<String, ChatConversation> conversations = new LinkedHashMap<>();
+        for (Object[] row : chatMessageRepository.summarizeByDirection()) {
+            String senderId = (String) row[0];
+            String recipientId = (String) row[1];
+            long maxId = ((Number) row[2]).longValue();
+            long count = ((Number) row[3]).longValue();
+            int unread = row[4] != null ? ((Number) row[4]).intValue() : 0;
+
+            String[] pair = ChatConversation.canonicalPair(senderId, recipientId);
+            ChatConversation conversation = conversations.computeIfAbsent(pair[0] + "\n" + pair[1],
+                    key -> new ChatConversation(pair[0], pair[1]));
+            if (conversation.getLastMessageId() == null || maxId > conversation.getLastMessageId()) {
+                conversation.setLastMessageId(maxId);
+            }
+            conversation.setMessageCount(conversation.getMessageCount() + count);
+            if (!senderId.equals(recipientId)) {
+                if (pair[0].equals(recipientId)) {
+                    conversation.setUnreadForA(unread);
+                } else {
+                    conversation.setUnreadForB(unread);
+                }
+            }
+        }
+
+        int created = 0;
+        List<ChatConversation> pending = new ArrayList<>(conversations.values());
+        for (int from = 0; from < pending.size(); from += REBUILD_BATCH_SIZE) {
+            List<ChatConversation> batch = pending.subList(from, Math.min(from + REBUILD_BATCH_SIZE, pending.size()));
+            Map<Long, ChatMessage> lastMessages = new HashMap<>();
+            chatMessageRepository.findAllById(batch.stream().map(ChatConversation::getLastMessageId).toList())
+                    .forEach(message -> lastMessages.put(message.getId(), message));
+
+            List<ChatConversation> toSave = new ArrayList<>(batch.size());
+            for (ChatConversation conversation : batch) {
+                ChatMessage last = lastMessages.get(conversation.getLastMessageId());
+                if (last == null || chatConversationRepository.findByParticipantAAndParticipantB(
+                        conversation.getParticipantA(), conversation.getParticipantB()).isPresent()) {
+                    continue;
+                }
+                applyLastMessage(conversation, last);
+                toSave.add(conversation);
+            }
+            chatConversationRepository.saveAll(toSave);
+            created += toSave.size();
+        }
+        return created;
+    }
+
+    private void applyLastMessage(ChatConversation conversation, ChatMessage message) {
+        conversation.setLastMessageId(message.getId());
+        conversation.setLastMessageAt(message.getTimestamp());
+        conversation.setLastSenderId(message.getSenderId());
+        conversation.setLastMessageType(message.getType() != null ? message.getType().name() : null);
+        conversation.setLastPreview(ChatConversation.previewOf(message));
+    }
+}
@@ -0,0 +1,323 @@
+package SmartAgricultural.Management.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scaled JPEG thumbnails and previews of uploaded chat images, kept on disk.
+ *
+ * Derivatives are written next to the original as {@code <sha256>-<size>.jpg}, named after
+ * the content of the original, so identical uploads share them and a name never needs
+ * invalidating. Uploads queue generation of every configured size on a small bounded pool;
+ * a request that arrives first (or after the queue dropped the job) generates them itself,
+ * once, with concurrent requests for the same file waiting on that single run.
+ */
+@Service
+public class ChatMediaDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMediaDerivativeService.class);
+
+    public static final int THUMBNAIL_SIZE = 200;
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    private final List<Integer> sizes;
+    private final ThreadPoolExecutor workers;
+
+    // Original file URL -> content hash, so cached requests do not re-read the original
+    private final Map<String, String> hashes;
+
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public ChatMediaDerivativeService(@Value("${chat.media.derivative-sizes:200,480,960}") List<Integer> sizes,
+                                      @Value("${chat.media.worker-threads:2}") int workerThreads,
+                                      @Value("${chat.media.queue-capacity:100}") int queueCapacity,
+                                      @Value("${chat.media.max-cached-hashes:10000}") int maxCachedHashes) {
+        TreeSet<Integer> configured = new TreeSet<>(sizes);
+        configured.add(THUMBNAIL_SIZE);
+        this.sizes = List.copyOf(configured);
+
+        this.hashes = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxCachedHashes;
+            }
+        });
+
+        AtomicInteger counter = new AtomicInteger();
+        // Bounded queue that drops on overflow: a dropped job is generated on first request instead
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "chat-media-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> dropped.incrementAndGet());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    // =================================================================================
+    // GENERATION
+    // =================================================================================
+
+    /**
+     * Queues generation of every size for a freshly uploaded image.
+     */
+    public void enqueue(String fileUrl) {
+        workers.execute(() -> {
+            try {
+                ensureDerivatives(fileUrl);
+            } catch (IOException e) {
+                logger.warn("Could not generate derivatives for {}: {}", fileUrl, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Returns the cached derivative of an image closest to {@code requestedSize} (the smallest
+     * configured size not below it), generating the set first if it is missing.
+     */
+    public Derivative getDerivative(String fileUrl, int requestedSize) throws IOException {
+        int size = snapSize(requestedSize);
+        Path original = resolveOriginal(fileUrl);
+
+        String hash = knownHash(fileUrl);
+        if (hash != null) {
+            Path cached = derivativePath(original, hash, size);
+            if (Files.isRegularFile(cached)) {
+                hits.incrementAndGet();
+                return new Derivative(new FileSystemResource(cached), etag(hash, size));
+            }
+        }
+
+        hash = ensureDerivatives(fileUrl);
+        return new Derivative(new FileSystemResource(derivativePath(original, hash, size)), etag(hash, size));
+    }
+
+    /**
+     * Makes sure every size exists on disk and returns the content hash of the original.
+     * Concurrent calls for the same file share one run.
+     */
+    private String ensureDerivatives(String fileUrl) throws IOException {
+        CompletableFuture<String> own = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(fileUrl, own);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            own.complete(generate(fileUrl));
+        } catch (Throwable e) {
+            own.completeExceptionally(e);
+        } finally {
+            inFlight.remove(fileUrl, own);
+        }
+        return await(own);
+    }
+
+    private String generate(String fileUrl) throws IOException {
+        Path original = resolveOriginal(fileUrl);
+        String hash = knownHash(fileUrl);
+        if (hash == null) {
+            hash = sha256(original);
+            hashes.put(fileUrl, hash);
+        }
+
+        List<Integer> missing = new ArrayList<>();
+        for (int size : sizes) {
+            if (!Files.isRegularFile(derivativePath(original, hash, size))) {
+                missing.add(size);
+            }
+        }
+        if (missing.isEmpty()) {
+            return hash;
+        }
+
+        BufferedImage image;
+        try (InputStream in = Files.newInputStream(original)) {
+            image = ImageIO.read(in);
+        }
+        if (image == null) {
+            throw new IOException("Could not read image file");
+        }
+
+        for (int size : missing) {
+            writeAtomically(scale(image, size), derivativePath(original, hash, size));
+        }
+        generated.incrementAndGet();
+        logger.debug("Generated {} derivatives for {}", missing.size(), fileUrl);
+        return hash;
+    }
+
+    private BufferedImage scale(BufferedImage original, int maxSize) {
+        int originalWidth = original.getWidth();
+        int originalHeight = original.getHeight();
+
+        double scaleFactor = Math.min(1.0, Math.min(
+                (double) maxSize / originalWidth,
+                (double) maxSize / originalHeight
+        ));
+
+        int width = Math.max(1, (int) (originalWidth * scaleFactor));
+        int height = Math.max(1, (int) (originalHeight * scaleFactor));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.drawImage(original, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+
+    // Written to a temporary file first so readers never see a partial JPEG
+    private void writeAtomically(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".derivative-", ".tmp");
+        try {
+            ImageIO.write(image, "jpg", temp.toFile());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // =================================================================================
+    // HELPERS
+    // =================================================================================
+
+    private int snapSize(int requestedSize) {
+        for (int size : sizes) {
+            if (size >= requestedSize) {
+                return size;
+            }
+        }
+        return sizes.get(sizes.size() - 1);
+    }
+
+    private Path resolveOriginal(String fileUrl) throws IOException {
+        if (fileUrl == null || fileUrl.trim().isEmpty()) {
+            throw new IllegalArgumentException("File URL cannot be null or empty");
+        }
+        String cleanFileUrl = fileUrl.startsWith("/uploads/") ?
+                fileUrl.substring("/uploads/".length()) : fileUrl;
+
+        Path uploadPath = Paths.get(uploadDir).normalize();
+        Path filePath = uploadPath.resolve(cleanFileUrl).normalize();
+        if (!filePath.startsWith(uploadPath)) {
+            throw new IOException("File is outside upload directory");
+        }
+        if (!Files.isRegularFile(filePath)) {
+            throw new IOException("File not found: " + filePath);
+        }
+        return filePath;
+    }
+
+    // Blob store files are named by their hash, older uploads have to be read once
+    private String knownHash(String fileUrl) {
+        String hash = UploadBlobStore.hashFromUrl(fileUrl);
+        return hash != null ? hash : hashes.get(fileUrl);
+    }
+
+    private static Path derivativePath(Path original, String hash, int size) {
+        return original.resolveSibling(hash + "-" + size + ".jpg");
+    }
+
+    private static String etag(String hash, int size) {
+        return "\"" + hash + "-" + size + "\"";
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating derivatives", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Could not generate derivatives", e.getCause());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sizes", sizes);
+        stats.put("hits", hits.get());
+        stats.put("generated", generated.get());
+        stats.put("droppedJobs", dropped.get());
+        stats.put("queued", workers.getQueue().size());
+        return stats;
+    }
+
+    /**
+     * A derivative file and the strong ETag naming its content.
+     */
+    public static class Derivative {
+        private final Resource resource;
+        private final String etag;
+
+        public Derivative(Resource resource, String etag) {
+            this.resource = resource;
+            this.etag = etag;
+        }
+
+        public Resource getResource() {
+            return resource;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
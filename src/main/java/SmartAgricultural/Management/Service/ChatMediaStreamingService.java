@@ -0,0 +1,305 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Util.AsyncTimeouts;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves chat media files with conditional GET and byte ranges (RFC 9110).
+ *
+ * Validators are a strong ETag built from size and modification time, plus Last-Modified;
+ * uploads are never rewritten in place, so both are stable. Single ranges and whole files
+ * go through Tomcat's sendfile when the connector offers it, which leaves the copy to the
+ * kernel and frees the request thread immediately. Otherwise, and for multi-range requests,
+ * the body is written asynchronously with {@link FileChannel#transferTo}, under its own
+ * async timeout rather than the global one.
+ */
+@Service
+public class ChatMediaStreamingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMediaStreamingService.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(7, TimeUnit.DAYS).cachePrivate();
+
+    @Value("${chat.media.stream-timeout-ms:600000}")
+    private long streamTimeoutMs = 600_000;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong fullResponses = new AtomicLong();
+    private final AtomicLong partialResponses = new AtomicLong();
+    private final AtomicLong multipartResponses = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong unsatisfiable = new AtomicLong();
+    private final AtomicLong sendfileResponses = new AtomicLong();
+    private final AtomicLong sendfileBytes = new AtomicLong();
+    private final AtomicLong streamedBytes = new AtomicLong();
+    private final AtomicLong streamNanos = new AtomicLong();
+    private final AtomicLong slowestKbps = new AtomicLong(Long.MAX_VALUE);
+
+    public ResponseEntity<?> serve(Path file, String contentType, String fileName,
+                                   HttpServletRequest request) throws IOException {
+        requests.incrementAndGet();
+
+        long length = Files.size(file);
+        // HTTP dates have second precision
+        long lastModified = Files.getLastModifiedTime(file).toMillis() / 1000 * 1000;
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setLastModified(lastModified);
+        headers.setCacheControl(CACHE_CONTROL);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (isNotModified(request, etag, lastModified)) {
+            notModified.incrementAndGet();
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+
+        List<HttpRange> ranges = requestedRanges(request, etag, lastModified);
+        if (ranges.isEmpty()) {
+            fullResponses.incrementAndGet();
+            headers.setContentType(MediaType.parseMediaType(contentType));
+            headers.setContentLength(length);
+            return single(file, 0, length, HttpStatus.OK, headers, request);
+        }
+
+        for (HttpRange range : ranges) {
+            if (!isSatisfiable(range, length)) {
+                unsatisfiable.incrementAndGet();
+                HttpHeaders rejected = new HttpHeaders();
+                rejected.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return new ResponseEntity<>(rejected, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+        }
+
+        // Overlapping ranges adding up to more than the file are served as the whole file
+        long requested = 0;
+        for (HttpRange range : ranges) {
+            requested += range.getRangeEnd(length) - range.getRangeStart(length) + 1;
+        }
+        if (requested > length && ranges.size() > 1) {
+            fullResponses.incrementAndGet();
+            headers.setContentType(MediaType.parseMediaType(contentType));
+            headers.setContentLength(length);
+            return single(file, 0, length, HttpStatus.OK, headers, request);
+        }
+
+        if (ranges.size() == 1) {
+            partialResponses.incrementAndGet();
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            headers.setContentType(MediaType.parseMediaType(contentType));
+            headers.setContentLength(end - start + 1);
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            return single(file, start, end - start + 1, HttpStatus.PARTIAL_CONTENT, headers, request);
+        }
+
+        multipartResponses.incrementAndGet();
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+        StreamingResponseBody body = out -> writeMultipart(file, ranges, length, contentType, boundary, out);
+        AsyncTimeouts.extend(request, streamTimeoutMs);
+        return new ResponseEntity<>(body, headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    private ResponseEntity<?> single(Path file, long start, long count, HttpStatus status,
+                                     HttpHeaders headers, HttpServletRequest request) {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sends the file itself once the response headers are committed
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            sendfileResponses.incrementAndGet();
+            sendfileBytes.addAndGet(count);
+            return new ResponseEntity<>(headers, status);
+        }
+
+        StreamingResponseBody body = out -> {
+            long startedAt = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                transfer(channel, start, count, target);
+            }
+            record(file, count, System.nanoTime() - startedAt);
+        };
+        AsyncTimeouts.extend(request, streamTimeoutMs);
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    private void writeMultipart(Path file, List<HttpRange> ranges, long length, String contentType,
+                                String boundary, OutputStream out) throws IOException {
+        long startedAt = System.nanoTime();
+        long bytes = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (HttpRange range : ranges) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                String partHeader = "\r\n--" + boundary + "\r\n" +
+                        HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n" +
+                        HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n";
+                out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                transfer(channel, start, end - start + 1, target);
+                bytes += end - start + 1;
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        record(file, bytes, System.nanoTime() - startedAt);
+    }
+
+    private static void transfer(FileChannel channel, long position, long count,
+                                 WritableByteChannel target) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long sent = channel.transferTo(position, remaining, target);
+            if (sent <= 0) {
+                throw new IOException("Media file shorter than expected");
+            }
+            position += sent;
+            remaining -= sent;
+        }
+    }
+
+    // =================================================================================
+    // CONDITIONAL AND RANGE HEADERS
+    // =================================================================================
+
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.trim().equals("*") || matchesEtag(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    private static boolean matchesEtag(String headerValue, String etag) {
+        for (String candidate : headerValue.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The ranges to serve, or an empty list for the whole file: no Range header, a malformed
+     * one (ignored as RFC 9110 allows), or an If-Range validator that no longer matches.
+     */
+    private static List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return List.of();
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            boolean current = ifRange.startsWith("\"")
+                    ? ifRange.trim().equals(etag)
+                    : dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+            if (!current) {
+                return List.of();
+            }
+        }
+
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring malformed Range header '{}': {}", rangeHeader, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static boolean isSatisfiable(HttpRange range, long length) {
+        try {
+            return length > 0 && range.getRangeStart(length) <= range.getRangeEnd(length);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    // =================================================================================
+    // METRICS
+    // =================================================================================
+
+    private void record(Path file, long bytes, long nanos) {
+        streamedBytes.addAndGet(bytes);
+        streamNanos.addAndGet(nanos);
+        long kbps = kbps(bytes, nanos);
+        if (bytes > 0) {
+            slowestKbps.accumulateAndGet(kbps, Math::min);
+        }
+        logger.debug("Streamed {} bytes of {} in {} ms ({} KB/s)",
+                bytes, file.getFileName(), nanos / 1_000_000, kbps);
+    }
+
+    private static long kbps(long bytes, long nanos) {
+        return nanos > 0 ? (long) (bytes / 1024.0 / (nanos / 1_000_000_000.0)) : 0;
+    }
+
+    public Map<String, Object> getStatistics() {
+        long bytes = streamedBytes.get();
+        long nanos = streamNanos.get();
+        long slowest = slowestKbps.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("fullResponses", fullResponses.get());
+        stats.put("partialResponses", partialResponses.get());
+        stats.put("multipartResponses", multipartResponses.get());
+        stats.put("notModified", notModified.get());
+        stats.put("unsatisfiable", unsatisfiable.get());
+        stats.put("sendfileResponses", sendfileResponses.get());
+        stats.put("sendfileBytes", sendfileBytes.get());
+        stats.put("streamedBytes", bytes);
+        stats.put("averageStreamKbps", kbps(bytes, nanos));
+        stats.put("slowestStreamKbps", slowest == Long.MAX_VALUE ? 0 : slowest);
+        return stats;
+    }
+}
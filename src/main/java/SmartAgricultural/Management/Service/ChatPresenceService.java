@@ -0,0 +1,135 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Util.HeartbeatTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Online presence of chat users.
+ *
+ * A heartbeat keeps a user online for the configured TTL. Deadlines live on a hashed timing
+ * wheel, so expiry costs one slot per tick instead of a scan over every user, and state
+ * lives in a {@link PresenceStore} (in memory, or shared when several nodes run).
+ * Transitions are pushed on {@code /topic/presence.<userId>}, which a client subscribes to
+ * for each of its contacts.
+ */
+@Service
+public class ChatPresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatPresenceService.class);
+
+    public static final String ONLINE = "ONLINE";
+    public static final String OFFLINE = "OFFLINE";
+
+    private final PresenceStore presenceStore;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final HeartbeatTimingWheel wheel;
+    private final long ttlMillis;
+
+    @Value("${chat.presence.legacy-broadcast:true}")
+    private boolean legacyBroadcast = true;
+
+    @Value("${chat.presence.retention-hours:24}")
+    private int retentionHours = 24;
+
+    public ChatPresenceService(PresenceStore presenceStore,
+                               SimpMessagingTemplate messagingTemplate,
+                               @Value("${chat.presence.ttl-ms:300000}") long ttlMillis,
+                               @Value("${chat.presence.tick-ms:1000}") long tickMillis,
+                               @Value("${chat.presence.wheel-slots:512}") int wheelSlots) {
+        this.presenceStore = presenceStore;
+        this.messagingTemplate = messagingTemplate;
+        this.ttlMillis = ttlMillis;
+        this.wheel = new HeartbeatTimingWheel(tickMillis, wheelSlots, System.currentTimeMillis());
+    }
+
+    // =================================================================================
+    // UPDATES
+    // =================================================================================
+
+    public void heartbeat(String userId) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttlMillis;
+        wheel.touch(userId, expiresAt);
+        if (presenceStore.heartbeat(userId, now, expiresAt)) {
+            publish(userId, ONLINE, now);
+        }
+    }
+
+    public void goOffline(String userId) {
+        long now = System.currentTimeMillis();
+        wheel.remove(userId);
+        if (presenceStore.markOffline(userId, now)) {
+            publish(userId, OFFLINE, now);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.presence.tick-ms:1000}")
+    public void expireHeartbeats() {
+        long now = System.currentTimeMillis();
+        for (String userId : wheel.advance(now)) {
+            try {
+                // The store may hold a later heartbeat received by another node
+                if (presenceStore.expire(userId, now)) {
+                    publish(userId, OFFLINE, now - ttlMillis);
+                }
+            } catch (Exception e) {
+                logger.error("Error expiring presence of {}", userId, e);
+            }
+        }
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void purgeOfflineUsers() {
+        try {
+            presenceStore.purge(System.currentTimeMillis() - retentionHours * 3600_000L);
+        } catch (Exception e) {
+            logger.error("Error purging old presence records", e);
+        }
+    }
+
+    private void publish(String userId, String status, long lastSeen) {
+        Map<String, Object> event = Map.of(
+                "userId", userId,
+                "status", status,
+                "lastSeen", toDateTime(lastSeen)
+        );
+        messagingTemplate.convertAndSend("/topic/presence." + userId, event);
+        if (legacyBroadcast) {
+            messagingTemplate.convertAndSend("/topic/user.status", event);
+        }
+        logger.debug("User {} is now {}", userId, status);
+    }
+
+    // =================================================================================
+    // QUERIES
+    // =================================================================================
+
+    public boolean isOnline(String userId) {
+        PresenceStore.Presence presence = presenceStore.find(List.of(userId), System.currentTimeMillis()).get(userId);
+        return presence != null && presence.isOnline();
+    }
+
+    /**
+     * Presence of several users in one store lookup; unknown users are absent.
+     */
+    public Map<String, PresenceStore.Presence> getPresence(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return presenceStore.find(userIds, System.currentTimeMillis());
+    }
+
+    public static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
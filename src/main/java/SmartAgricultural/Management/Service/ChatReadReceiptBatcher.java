@@ -0,0 +1,99 @@
+package SmartAgricultural.Management.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Coalesces read receipts sent over STOMP.
+ *
+ * A client scrolling through a thread reports every message it shows; receipts are kept as
+ * the highest id per reader and sender until the next flush, which then applies one
+ * watermark UPDATE and sends one status event to the sender for the whole batch (none when
+ * the messages were already read).
+ */
+@Component
+public class ChatReadReceiptBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatReadReceiptBatcher.class);
+
+    private final ChatService chatService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final ConcurrentMap<ReceiptKey, Long> pending = new ConcurrentHashMap<>();
+
+    public ChatReadReceiptBatcher(ChatService chatService, SimpMessagingTemplate messagingTemplate) {
+        this.chatService = chatService;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /**
+     * Queues "reader has read everything from sender up to messageId".
+     */
+    public void submit(String readerId, String senderId, long messageId) {
+        pending.merge(new ReceiptKey(readerId, senderId), messageId, Math::max);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.receipts.flush-interval-ms:250}")
+    public void flush() {
+        for (ReceiptKey key : pending.keySet()) {
+            // A receipt arriving after the remove starts the next batch for this pair
+            Long upToId = pending.remove(key);
+            if (upToId == null) {
+                continue;
+            }
+            try {
+                int marked = chatService.markReadUpTo(key.readerId, key.senderId, upToId);
+                if (marked == 0) {
+                    continue;
+                }
+                messagingTemplate.convertAndSendToUser(
+                        key.senderId,
+                        "/queue/message.status",
+                        Map.of(
+                                "messageId", upToId,
+                                "readUpTo", upToId,
+                                "marked", marked,
+                                "status", "READ",
+                                "readBy", key.readerId,
+                                "timestamp", LocalDateTime.now()
+                        )
+                );
+            } catch (Exception e) {
+                logger.error("Error applying read receipt of {} for messages from {} up to {}",
+                        key.readerId, key.senderId, upToId, e);
+            }
+        }
+    }
+
+    private static final class ReceiptKey {
+        private final String readerId;
+        private final String senderId;
+
+        private ReceiptKey(String readerId, String senderId) {
+            this.readerId = readerId;
+            this.senderId = senderId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ReceiptKey)) return false;
+            ReceiptKey that = (ReceiptKey) o;
+            return readerId.equals(that.readerId) && senderId.equals(that.senderId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(readerId, senderId);
+        }
+    }
+}
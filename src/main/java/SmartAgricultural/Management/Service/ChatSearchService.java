@@ -0,0 +1,1047 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.ChatMessage;
+import SmartAgricultural.Management.Repository.ChatMessageRepository;
+import SmartAgricultural.Management.Util.SearchTokenizer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over chat message text and file names.
+ *
+ * The inverted index is split by conversation: each participant pair has a sorted term
+ * dictionary whose entries list the ids of the messages containing the term, delta-encoded
+ * as varints. A user's search visits only that user's conversations, a search within one
+ * conversation only its dictionary, and a prefix query is a range of the dictionary.
+ *
+ * Messages are indexed by a single background thread once their transaction has committed.
+ * Changes are appended to disk as segment files every few thousand messages or seconds, and
+ * once there are too many segments they are merged into one snapshot; the deleted messages
+ * are purged from memory as well, and forgotten. On startup the segments are loaded and
+ * chat_messages is read back from the low-water id: ids are assigned on insert but indexed on
+ * commit, so a message may commit after higher ids were indexed, and only ids the index had
+ * passed one commit grace earlier are known to be complete.
+ */
+@Service
+public class ChatSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSearchService.class);
+
+    private static final int MAGIC = 0x43535832; // "CSX2"
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".cseg";
+    private static final int CATCH_UP_PAGE = 1000;
+    private static final int APPLY_BATCH = 1000;
+    private static final int SNIPPET_CHARS = 160;
+    private static final int SNIPPET_LEAD_CHARS = 40;
+    private static final long[] NO_IDS = new long[0];
+
+    private final ChatMessageRepository chatMessageRepository;
+
+    @Value("${chat.search.dir:index/chat}")
+    private String indexDir = "index/chat";
+
+    @Value("${chat.search.flush-docs:5000}")
+    private int flushDocs = 5000;
+
+    @Value("${chat.search.flush-interval-ms:10000}")
+    private long flushIntervalMillis = 10000;
+
+    @Value("${chat.search.max-segments:16}")
+    private int maxSegments = 16;
+
+    @Value("${chat.search.max-prefix-expansions:64}")
+    private int maxPrefixExpansions = 64;
+
+    @Value("${chat.search.max-results:100}")
+    private int maxResults = 100;
+
+    @Value("${chat.search.commit-grace-ms:60000}")
+    private long commitGraceMillis = 60000;
+
+    // Guards conversations, conversationsByUser, deleted and the posting lists
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Conversation> conversations = new HashMap<>();
+    private final Map<String, List<Conversation>> conversationsByUser = new HashMap<>();
+    private final Set<Long> deleted = new HashSet<>();
+    private long maxIndexedId;
+    private long documents;
+
+    // Changes not yet in a segment file; only the indexer thread touches these
+    private final Map<Conversation, Map<String, PostingList>> pending = new HashMap<>();
+    private final List<Long> pendingDeletes = new ArrayList<>();
+    private int pendingDocuments;
+    private long lastFlushAt = System.currentTimeMillis();
+    private int nextSegment = 1;
+    private int segmentCount;
+    // Every message up to this id is indexed; catch-up after a restart resumes from here
+    private long lowWaterId;
+    // (time, maxIndexedId) at recent flushes, until they are older than the commit grace
+    private final Deque<long[]> watermarks = new ArrayDeque<>();
+
+    private final BlockingQueue<Change> changes = new LinkedBlockingQueue<>();
+    private volatile Thread indexer;
+    private volatile boolean running = true;
+    private volatile boolean ready;
+
+    private final AtomicLong indexedMessages = new AtomicLong();
+    private final AtomicLong segmentsWritten = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong queryNanosTotal = new AtomicLong();
+    private final AtomicLong queryNanosMax = new AtomicLong();
+
+    public ChatSearchService(ChatMessageRepository chatMessageRepository) {
+        this.chatMessageRepository = chatMessageRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::runIndexer, "chat-search-indexer");
+        thread.setDaemon(true);
+        indexer = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread thread = indexer;
+        if (thread != null) {
+            try {
+                thread.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // =================================================================================
+    // UPDATES
+    // =================================================================================
+
+    /**
+     * Queues a newly saved message for indexing once the surrounding transaction commits.
+     */
+    public void index(ChatMessage message) {
+        if (message == null || message.getId() == null) {
+            return;
+        }
+        enqueueAfterCommit(Change.add(message));
+    }
+
+    public void remove(Long messageId) {
+        if (messageId == null) {
+            return;
+        }
+        enqueueAfterCommit(Change.delete(messageId));
+    }
+
+    private void enqueueAfterCommit(Change change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changes.add(change);
+                }
+            });
+        } else {
+            changes.add(change);
+        }
+    }
+
+    private void runIndexer() {
+        try {
+            load();
+        } catch (Exception e) {
+            logger.warn("Chat search segments in {} are unreadable, rebuilding the index from the database", indexDir, e);
+            reset();
+        }
+        catchUp();
+        ready = true;
+
+        long pollMillis = Math.max(50, Math.min(flushIntervalMillis, 500));
+        List<Change> batch = new ArrayList<>(APPLY_BATCH);
+        while (running) {
+            try {
+                Change first = changes.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    changes.drainTo(batch, APPLY_BATCH - 1);
+                    applyAll(batch);
+                    batch.clear();
+                }
+                flushIfDue(false);
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                batch.clear();
+                logger.error("Error indexing chat messages", e);
+            }
+        }
+
+        // Whatever was queued before shutdown goes into a last segment
+        Thread.interrupted();
+        try {
+            changes.drainTo(batch);
+            applyAll(batch);
+            flushIfDue(true);
+        } catch (Exception e) {
+            logger.error("Error writing the last chat search segment", e);
+        }
+    }
+
+    private void catchUp() {
+        long afterId = lowWaterId;
+        long caughtUp = 0;
+        try {
+            while (running) {
+                List<ChatMessage> page = chatMessageRepository.findByIdGreaterThanOrderByIdAsc(afterId,
+                        PageRequest.of(0, CATCH_UP_PAGE));
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<Change> batch = new ArrayList<>(page.size());
+                for (ChatMessage message : page) {
+                    batch.add(Change.add(message));
+                }
+                applyAll(batch);
+                afterId = page.get(page.size() - 1).getId();
+                caughtUp += page.size();
+                flushIfDue(false);
+                if (page.size() < CATCH_UP_PAGE) {
+                    break;
+                }
+            }
+            flushIfDue(true);
+        } catch (Exception e) {
+            logger.error("Error indexing chat messages saved after id {}", afterId, e);
+        }
+        logger.info("Chat search index ready: {} messages in {} conversations ({} read from the database)",
+                documents, conversations.size(), caughtUp);
+    }
+
+    private void applyAll(List<Change> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Change change : batch) {
+                apply(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Change change) {
+        if (change.deleted) {
+            if (deleted.add(change.messageId)) {
+                pendingDeletes.add(change.messageId);
+            }
+            return;
+        }
+        maxIndexedId = Math.max(maxIndexedId, change.messageId);
+        if (change.senderId == null || change.recipientId == null) {
+            return;
+        }
+
+        Conversation conversation = conversationFor(change.senderId, change.recipientId);
+        Map<String, PostingList> delta = null;
+        boolean added = false;
+        for (String term : indexTerms(change.text)) {
+            if (conversation.terms.computeIfAbsent(term, t -> new PostingList()).add(change.messageId)) {
+                if (delta == null) {
+                    delta = pending.computeIfAbsent(conversation, c -> new HashMap<>());
+                }
+                delta.computeIfAbsent(term, t -> new PostingList()).add(change.messageId);
+                added = true;
+            }
+        }
+        if (added) {
+            documents++;
+            pendingDocuments++;
+            indexedMessages.incrementAndGet();
+        }
+    }
+
+    private Conversation conversationFor(String senderId, String recipientId) {
+        String first = senderId.compareTo(recipientId) <= 0 ? senderId : recipientId;
+        String second = first.equals(senderId) ? recipientId : senderId;
+        String key = pairKey(first, second);
+        Conversation conversation = conversations.get(key);
+        if (conversation == null) {
+            conversation = new Conversation(first, second);
+            conversations.put(key, conversation);
+            conversationsByUser.computeIfAbsent(first, u -> new ArrayList<>()).add(conversation);
+            if (!first.equals(second)) {
+                conversationsByUser.computeIfAbsent(second, u -> new ArrayList<>()).add(conversation);
+            }
+        }
+        return conversation;
+    }
+
+    private static String pairKey(String first, String second) {
+        return first + '\u0000' + second;
+    }
+
+    private static Set<String> indexTerms(String text) {
+        Set<String> terms = new HashSet<>();
+        for (SearchTokenizer.Token token : SearchTokenizer.tokenize(text)) {
+            if (SearchTokenizer.isIndexable(token.getTerm())) {
+                terms.add(token.getTerm());
+            }
+        }
+        return terms;
+    }
+
+    private void reset() {
+        lock.writeLock().lock();
+        try {
+            conversations.clear();
+            conversationsByUser.clear();
+            deleted.clear();
+            maxIndexedId = 0;
+            documents = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lowWaterId = 0;
+        watermarks.clear();
+        try {
+            Path dir = Paths.get(indexDir);
+            Files.createDirectories(dir);
+            for (Path segment : listSegments(dir)) {
+                Files.deleteIfExists(segment);
+            }
+        } catch (IOException e) {
+            logger.error("Error clearing chat search segments in {}", indexDir, e);
+        }
+        segmentCount = 0;
+        nextSegment = 1;
+    }
+
+    // =================================================================================
+    // SEGMENTS
+    // =================================================================================
+
+    private void flushIfDue(boolean force) {
+        long now = System.currentTimeMillis();
+        if (pendingDocuments == 0 && pendingDeletes.isEmpty()) {
+            lastFlushAt = now;
+            return;
+        }
+        if (!force && pendingDocuments < flushDocs && now - lastFlushAt < flushIntervalMillis) {
+            return;
+        }
+
+        Path dir = Paths.get(indexDir);
+        try {
+            Files.createDirectories(dir);
+            long maxId;
+            lock.readLock().lock();
+            try {
+                maxId = maxIndexedId;
+            } finally {
+                lock.readLock().unlock();
+            }
+            writeSegment(dir.resolve(segmentName(nextSegment)), pending, pendingDeletes, maxId,
+                    advanceLowWater(now, maxId));
+        } catch (IOException e) {
+            // The changes stay pending and are retried on the next flush
+            logger.error("Error writing chat search segment to {}", dir, e);
+            lastFlushAt = now;
+            return;
+        }
+        nextSegment++;
+        segmentCount++;
+        segmentsWritten.incrementAndGet();
+        pending.clear();
+        pendingDeletes.clear();
+        pendingDocuments = 0;
+        lastFlushAt = now;
+
+        if (segmentCount > maxSegments) {
+            merge(dir);
+        }
+    }
+
+    /**
+     * Rewrites the whole index as one segment without deleted messages and drops the others.
+     * Only the indexer thread changes the index, so the purged lists are built under a read
+     * lock while searches go on, and swapped in once the segment is written. No segment left
+     * on disk mentions the purged ids, so they are dropped from the deleted set too.
+     */
+    private void merge(Path dir) {
+        int number = nextSegment;
+        Map<Conversation, Map<String, PostingList>> purged = new LinkedHashMap<>();
+        Set<Long> purgedIds;
+        long maxId;
+        lock.readLock().lock();
+        try {
+            purgedIds = new HashSet<>(deleted);
+            for (Conversation conversation : conversations.values()) {
+                Map<String, PostingList> terms = new TreeMap<>();
+                for (Map.Entry<String, PostingList> term : conversation.terms.entrySet()) {
+                    PostingList list = purgedIds.isEmpty() ? term.getValue() : term.getValue().without(purgedIds);
+                    if (list.count > 0) {
+                        terms.put(term.getKey(), list);
+                    }
+                }
+                purged.put(conversation, terms);
+            }
+            maxId = maxIndexedId;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try {
+            writeSegment(dir.resolve(segmentName(number)), purged, Collections.emptyList(), maxId, lowWaterId);
+        } catch (IOException e) {
+            logger.error("Error merging chat search segments in {}", dir, e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Conversation, Map<String, PostingList>> conversation : purged.entrySet()) {
+                conversation.getKey().terms.clear();
+                conversation.getKey().terms.putAll(conversation.getValue());
+            }
+            deleted.removeAll(purgedIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        nextSegment++;
+        try {
+            for (Path segment : listSegments(dir)) {
+                if (segmentNumber(segment) < number) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Error removing merged chat search segments from {}", dir, e);
+        }
+        segmentCount = 1;
+        merges.incrementAndGet();
+        logger.info("Merged chat search segments into {}, purged {} deleted messages", segmentName(number),
+                purgedIds.size());
+    }
+
+    /**
+     * Records the index position at this flush and returns the low-water id: the highest id
+     * the index had already reached one commit grace ago. Any transaction holding a lower id
+     * has committed or rolled back since, so nothing below it can still arrive.
+     */
+    private long advanceLowWater(long now, long maxId) {
+        watermarks.addLast(new long[]{now, maxId});
+        while (!watermarks.isEmpty() && watermarks.peekFirst()[0] <= now - commitGraceMillis) {
+            lowWaterId = Math.max(lowWaterId, watermarks.pollFirst()[1]);
+        }
+        return lowWaterId;
+    }
+
+    private static void writeSegment(Path file, Map<Conversation, Map<String, PostingList>> postings,
+                                     Collection<Long> deletes, long maxId, long lowWaterId) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(maxId);
+            out.writeLong(lowWaterId);
+            out.writeInt(postings.size());
+            for (Map.Entry<Conversation, Map<String, PostingList>> conversation : postings.entrySet()) {
+                out.writeUTF(conversation.getKey().first);
+                out.writeUTF(conversation.getKey().second);
+                out.writeInt(conversation.getValue().size());
+                for (Map.Entry<String, PostingList> term : conversation.getValue().entrySet()) {
+                    out.writeUTF(term.getKey());
+                    term.getValue().writeTo(out);
+                }
+            }
+            out.writeInt(deletes.size());
+            for (Long id : deletes) {
+                out.writeLong(id);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        Path dir = Paths.get(indexDir);
+        Files.createDirectories(dir);
+        List<Path> segments = listSegments(dir);
+        long started = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            for (Path segment : segments) {
+                readSegment(segment);
+            }
+            documents = countDocuments();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        segmentCount = segments.size();
+        nextSegment = segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        if (!segments.isEmpty()) {
+            logger.info("Loaded {} chat search segments from {} in {} ms", segments.size(), dir,
+                    System.currentTimeMillis() - started);
+        }
+    }
+
+    private void readSegment(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a chat search segment: " + file);
+            }
+            long maxId = in.readLong();
+            maxIndexedId = Math.max(maxIndexedId, maxId);
+            lowWaterId = Math.max(lowWaterId, in.readLong());
+            int conversationCount = in.readInt();
+            for (int c = 0; c < conversationCount; c++) {
+                Conversation conversation = conversationFor(in.readUTF(), in.readUTF());
+                int termCount = in.readInt();
+                for (int t = 0; t < termCount; t++) {
+                    String term = in.readUTF();
+                    PostingList list = PostingList.readFrom(in);
+                    if (list.count == 0) {
+                        continue;
+                    }
+                    PostingList existing = conversation.terms.get(term);
+                    if (existing == null) {
+                        conversation.terms.put(term, list);
+                    } else {
+                        for (long id : list.toArray()) {
+                            existing.add(id);
+                        }
+                    }
+                }
+            }
+            int deleteCount = in.readInt();
+            for (int i = 0; i < deleteCount; i++) {
+                deleted.add(in.readLong());
+            }
+        }
+    }
+
+    private long countDocuments() {
+        Set<Long> ids = new HashSet<>();
+        for (Conversation conversation : conversations.values()) {
+            for (PostingList list : conversation.terms.values()) {
+                for (long id : list.toArray()) {
+                    ids.add(id);
+                }
+            }
+        }
+        ids.removeAll(deleted);
+        return ids.size();
+    }
+
+    private static List<Path> listSegments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingInt(ChatSearchService::segmentNumber))
+                    .toList();
+        }
+    }
+
+    private static String segmentName(int number) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+    }
+
+    private static int segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // =================================================================================
+    // SEARCH
+    // =================================================================================
+
+    /**
+     * Messages of {@code userId} matching every word of the query, newest first. The last word
+     * (unless followed by a space) and words ending in {@code *} match as prefixes. With
+     * {@code withUserId} the search is limited to that conversation; {@code beforeId} pages on.
+     */
+    public Map<String, Object> search(String userId, String withUserId, String query, Long beforeId, int limit) {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new IllegalArgumentException("User ID cannot be null or empty");
+        }
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be empty");
+        }
+        List<QueryTerm> terms = parseQuery(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain at least one word of "
+                    + SearchTokenizer.MIN_TERM_LENGTH + " characters");
+        }
+        int pageSize = Math.max(1, Math.min(limit, maxResults));
+        long before = beforeId != null && beforeId > 0 ? beforeId : Long.MAX_VALUE;
+        long started = System.nanoTime();
+
+        List<Long> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Conversation> scope;
+            if (withUserId != null && !withUserId.trim().isEmpty()) {
+                String first = userId.compareTo(withUserId) <= 0 ? userId : withUserId;
+                String second = first.equals(userId) ? withUserId : userId;
+                Conversation conversation = conversations.get(pairKey(first, second));
+                scope = conversation != null ? List.of(conversation) : Collections.emptyList();
+            } else {
+                scope = conversationsByUser.getOrDefault(userId, Collections.emptyList());
+            }
+
+            for (Conversation conversation : scope) {
+                long[] ids = match(conversation, terms);
+                // Only the newest pageSize + 1 of each conversation can make the page
+                int taken = 0;
+                for (int i = ids.length - 1; i >= 0 && taken <= pageSize; i--) {
+                    if (ids[i] < before && !deleted.contains(ids[i])) {
+                        candidates.add(ids[i]);
+                        taken++;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        candidates.sort(Comparator.reverseOrder());
+        boolean hasMore = candidates.size() > pageSize;
+        List<Long> pageIds = hasMore ? candidates.subList(0, pageSize) : candidates;
+
+        Map<Long, ChatMessage> messages = new HashMap<>();
+        for (ChatMessage message : chatMessageRepository.findAllById(pageIds)) {
+            messages.put(message.getId(), message);
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            ChatMessage message = messages.get(id);
+            // Deleted since it was indexed, the delete is still queued
+            if (message == null) {
+                continue;
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", message.getId());
+            result.put("senderId", message.getSenderId());
+            result.put("recipientId", message.getRecipientId());
+            result.put("type", message.getType());
+            result.put("timestamp", message.getTimestamp());
+            result.put("fileName", message.getFileName());
+            result.put("fileUrl", message.getFileUrl());
+            result.put("highlight", highlight(message.getContent(), terms));
+            if (message.getFileName() != null) {
+                result.put("fileNameHighlight", highlight(message.getFileName(), terms));
+            }
+            results.add(result);
+        }
+
+        long nanos = System.nanoTime() - started;
+        queries.incrementAndGet();
+        queryNanosTotal.addAndGet(nanos);
+        queryNanosMax.accumulateAndGet(nanos, Math::max);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("query", query);
+        response.put("results", results);
+        response.put("hasMore", hasMore);
+        response.put("nextBefore", hasMore ? pageIds.get(pageIds.size() - 1) : null);
+        response.put("indexReady", ready);
+        response.put("tookMs", nanos / 1_000_000.0);
+        return response;
+    }
+
+    private static List<QueryTerm> parseQuery(String query) {
+        List<QueryTerm> terms = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        List<SearchTokenizer.Token> tokens = SearchTokenizer.tokenize(query);
+        for (int i = 0; i < tokens.size(); i++) {
+            SearchTokenizer.Token token = tokens.get(i);
+            boolean starred = token.getEnd() < query.length() && query.charAt(token.getEnd()) == '*';
+            boolean typing = i == tokens.size() - 1 && token.getEnd() == query.length();
+            boolean prefix = starred || typing;
+            if (!prefix && !SearchTokenizer.isIndexable(token.getTerm())) {
+                continue;
+            }
+            if (seen.add(token.getTerm() + (prefix ? "*" : ""))) {
+                terms.add(new QueryTerm(token.getTerm(), prefix));
+            }
+        }
+        return terms;
+    }
+
+    private long[] match(Conversation conversation, List<QueryTerm> terms) {
+        long[] result = null;
+        for (QueryTerm term : terms) {
+            long[] ids;
+            if (term.prefix) {
+                ids = expand(conversation, term.text);
+            } else {
+                PostingList list = conversation.terms.get(term.text);
+                ids = list != null ? list.toArray() : NO_IDS;
+            }
+            result = result == null ? ids : intersect(result, ids);
+            if (result.length == 0) {
+                return NO_IDS;
+            }
+        }
+        return result != null ? result : NO_IDS;
+    }
+
+    private long[] expand(Conversation conversation, String prefix) {
+        NavigableMap<String, PostingList> range = conversation.terms.subMap(prefix, true,
+                prefix + Character.MAX_VALUE, false);
+        if (range.isEmpty()) {
+            return NO_IDS;
+        }
+        if (range.size() == 1) {
+            return range.firstEntry().getValue().toArray();
+        }
+
+        List<long[]> lists = new ArrayList<>();
+        int total = 0;
+        for (PostingList list : range.values()) {
+            if (lists.size() >= maxPrefixExpansions) {
+                break;
+            }
+            long[] ids = list.toArray();
+            lists.add(ids);
+            total += ids.length;
+        }
+        long[] union = new long[total];
+        int offset = 0;
+        for (long[] ids : lists) {
+            System.arraycopy(ids, 0, union, offset, ids.length);
+            offset += ids.length;
+        }
+        Arrays.sort(union);
+        int size = 0;
+        for (int i = 0; i < union.length; i++) {
+            if (size == 0 || union[size - 1] != union[i]) {
+                union[size++] = union[i];
+            }
+        }
+        return Arrays.copyOf(union, size);
+    }
+
+    // Merge walk for lists of similar size, binary search of the longer one otherwise
+    private static long[] intersect(long[] a, long[] b) {
+        if (a.length > b.length) {
+            long[] swap = a;
+            a = b;
+            b = swap;
+        }
+        long[] out = new long[a.length];
+        int size = 0;
+        if ((long) a.length * 16 < b.length) {
+            int from = 0;
+            for (long id : a) {
+                int pos = Arrays.binarySearch(b, from, b.length, id);
+                if (pos >= 0) {
+                    out[size++] = id;
+                    from = pos + 1;
+                } else {
+                    from = -pos - 1;
+                }
+                if (from >= b.length) {
+                    break;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] == b[j]) {
+                    out[size++] = a[i];
+                    i++;
+                    j++;
+                } else if (a[i] < b[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    /**
+     * HTML-escaped excerpt of the text around the first match, matched words in {@code <mark>}.
+     */
+    private static String highlight(String text, List<QueryTerm> terms) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        List<SearchTokenizer.Token> matches = new ArrayList<>();
+        for (SearchTokenizer.Token token : SearchTokenizer.tokenize(text)) {
+            for (QueryTerm term : terms) {
+                if (term.prefix ? token.getTerm().startsWith(term.text) : token.getTerm().equals(term.text)) {
+                    matches.add(token);
+                    break;
+                }
+            }
+        }
+
+        int start = 0;
+        int end = text.length();
+        if (end > SNIPPET_CHARS) {
+            if (!matches.isEmpty()) {
+                start = Math.max(0, matches.get(0).getStart() - SNIPPET_LEAD_CHARS);
+                int space = text.indexOf(' ', start);
+                if (start > 0 && space >= 0 && space < matches.get(0).getStart()) {
+                    start = space + 1;
+                }
+            }
+            end = Math.min(text.length(), start + SNIPPET_CHARS);
+        }
+
+        StringBuilder snippet = new StringBuilder(end - start + 32);
+        if (start > 0) {
+            snippet.append("…");
+        }
+        int position = start;
+        for (SearchTokenizer.Token match : matches) {
+            if (match.getStart() < start) {
+                continue;
+            }
+            if (match.getEnd() > end) {
+                break;
+            }
+            snippet.append(HtmlUtils.htmlEscape(text.substring(position, match.getStart())))
+                    .append("<mark>")
+                    .append(HtmlUtils.htmlEscape(text.substring(match.getStart(), match.getEnd())))
+                    .append("</mark>");
+            position = match.getEnd();
+        }
+        snippet.append(HtmlUtils.htmlEscape(text.substring(position, end)));
+        if (end < text.length()) {
+            snippet.append("…");
+        }
+        return snippet.toString();
+    }
+
+    // =================================================================================
+    // STATISTICS
+    // =================================================================================
+
+    public Map<String, Object> getStatistics() {
+        long count = queries.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        lock.readLock().lock();
+        try {
+            long terms = 0;
+            long postingBytes = 0;
+            for (Conversation conversation : conversations.values()) {
+                terms += conversation.terms.size();
+                for (PostingList list : conversation.terms.values()) {
+                    postingBytes += list.length;
+                }
+            }
+            stats.put("documents", documents);
+            stats.put("deletedDocuments", deleted.size());
+            stats.put("conversations", conversations.size());
+            stats.put("users", conversationsByUser.size());
+            stats.put("terms", terms);
+            stats.put("postingBytes", postingBytes);
+            stats.put("maxIndexedId", maxIndexedId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("queuedChanges", changes.size());
+        stats.put("indexedMessages", indexedMessages.get());
+        stats.put("segments", segmentCount);
+        stats.put("segmentsWritten", segmentsWritten.get());
+        stats.put("merges", merges.get());
+        stats.put("queries", count);
+        stats.put("averageQueryMs", count > 0 ? queryNanosTotal.get() / count / 1_000_000.0 : 0.0);
+        stats.put("maxQueryMs", queryNanosMax.get() / 1_000_000.0);
+        return stats;
+    }
+
+    // =================================================================================
+    // INDEX STRUCTURES
+    // =================================================================================
+
+    private static final class Conversation {
+        private final String first;
+        private final String second;
+        private final TreeMap<String, PostingList> terms = new TreeMap<>();
+
+        private Conversation(String first, String second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    /**
+     * Ascending message ids stored as varint gaps; appends are O(1), out-of-order ids from
+     * transactions that committed late are inserted by re-encoding.
+     */
+    static final class PostingList {
+        private byte[] data = new byte[4];
+        private int length;
+        private int count;
+        private long lastId;
+
+        boolean add(long id) {
+            if (count > 0 && id <= lastId) {
+                return id != lastId && insert(id);
+            }
+            append(id);
+            return true;
+        }
+
+        private void append(long id) {
+            long gap = id - lastId;
+            if (data.length - length < 10) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 10));
+            }
+            while ((gap & ~0x7FL) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+            lastId = id;
+            count++;
+        }
+
+        private boolean insert(long id) {
+            long[] ids = toArray();
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos >= 0) {
+                return false;
+            }
+            pos = -pos - 1;
+            length = 0;
+            count = 0;
+            lastId = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (i == pos) {
+                    append(id);
+                }
+                append(ids[i]);
+            }
+            return true;
+        }
+
+        long[] toArray() {
+            long[] ids = new long[count];
+            long id = 0;
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                long gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    gap |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                id += gap;
+                ids[i] = id;
+            }
+            return ids;
+        }
+
+        PostingList without(Set<Long> excluded) {
+            PostingList kept = new PostingList();
+            for (long id : toArray()) {
+                if (!excluded.contains(id)) {
+                    kept.append(id);
+                }
+            }
+            return kept;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(count);
+            out.writeLong(lastId);
+            out.writeInt(length);
+            out.write(data, 0, length);
+        }
+
+        static PostingList readFrom(DataInputStream in) throws IOException {
+            PostingList list = new PostingList();
+            list.count = in.readInt();
+            list.lastId = in.readLong();
+            list.length = in.readInt();
+            list.data = new byte[Math.max(4, list.length)];
+            in.readFully(list.data, 0, list.length);
+            return list;
+        }
+    }
+
+    private static final class QueryTerm {
+        private final String text;
+        private final boolean prefix;
+
+        private QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    private static final class Change {
+        private final long messageId;
+        private final boolean deleted;
+        private final String senderId;
+        private final String recipientId;
+        private final String text;
+
+        private Change(long messageId, boolean deleted, String senderId, String recipientId, String text) {
+            this.messageId = messageId;
+            this.deleted = deleted;
+            this.senderId = senderId;
+            this.recipientId = recipientId;
+            this.text = text;
+        }
+
+        static Change add(ChatMessage message) {
+            String text = message.getContent();
+            if (message.getFileName() != null) {
+                text = text == null ? message.getFileName() : text + ' ' + message.getFileName();
+            }
+            return new Change(message.getId(), false, message.getSenderId(), message.getRecipientId(), text);
+        }
+
+        static Change delete(long messageId) {
+            return new Change(messageId, true, null, null, null);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 
 package SmartAgricultural.Management.Service;
 
+import SmartAgricultural.Management.Model.ChatConversation;
 import SmartAgricultural.Management.Model.ChatMessage;
 import SmartAgricultural.Management.Repository.ChatMessageRepository;
 import org.slf4j.Logger;
@@ -26,20 +27,21 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
 public class ChatService {
     private static final Logger logger = LoggerFactory.getLogger(ChatService.class);
     private final ChatMessageRepository chatMessageRepository;
-
-    // In-memory storage for user online status
-    private final Map<String, UserStatus> userStatusMap = new ConcurrentHashMap<>();
+    private final ChatConversationService chatConversationService;
+    private final ChatMediaDerivativeService chatMediaDerivativeService;
+    private final ChatPresenceService chatPresenceService;
+    private final ChatSearchService chatSearchService;
+    private final UploadBlobStore uploadBlobStore;
+    private final ChatUnreadCounter chatUnreadCounter;
 
     // File upload configuration
     @Value("${app.upload.dir:uploads}")
@@ -66,8 +68,20 @@ public class ChatService {
             "application/vnd.openxmlformats-officedocument.wordprocessingml.document"
     );
 
-    public ChatService(ChatMessageRepository chatMessageRepository) {
+    public ChatService(ChatMessageRepository chatMessageRepository,
+                       ChatConversationService chatConversationService,
+                       ChatMediaDerivativeService chatMediaDerivativeService,
+                       ChatPresenceService chatPresenceService,
+                       ChatSearchService chatSearchService,
+                       UploadBlobStore uploadBlobStore,
+                       ChatUnreadCounter chatUnreadCounter) {
         this.chatMessageRepository = chatMessageRepository;
+        this.chatConversationService = chatConversationService;
+        this.chatMediaDerivativeService = chatMediaDerivativeService;
+        this.chatPresenceService = chatPresenceService;
+        this.chatSearchService = chatSearchService;
+        this.uploadBlobStore = uploadBlobStore;
+        this.chatUnreadCounter = chatUnreadCounter;
     }
 
     @jakarta.annotation.PostConstruct
@@ -145,8 +159,17 @@ public class ChatService {
                     chatMessage.setType(ChatMessage.MessageType.CHAT);
                 }
 
+                boolean isNew = chatMessage.getId() == null;
+
                 logger.info("Calling repository.save()...");
                 ChatMessage savedMessage = chatMessageRepository.save(chatMessage);
+                if (isNew) {
+                    chatConversationService.recordMessage(savedMessage);
+                    chatSearchService.index(savedMessage);
+                    if (!savedMessage.isRead()) {
+                        chatUnreadCounter.messageReceived(savedMessage.getRecipientId());
+                    }
+                }
                 logger.info("✅ MESSAGE SAVED SUCCESSFULLY!");
                 logger.info("Saved Message ID: {}", savedMessage.getId());
                 logger.info("Saved Message Content: {}", savedMessage.getContent());
@@ -244,53 +267,15 @@ public class ChatService {
 
     @Transactional(readOnly = true)
     public Resource generateThumbnail(String fileUrl) throws IOException {
-        try {
-            if (fileUrl == null || fileUrl.trim().isEmpty()) {
-                throw new IllegalArgumentException("File URL cannot be null or empty");
-            }
-
-            Resource originalResource = loadFileAsResource(fileUrl);
-            BufferedImage originalImage = ImageIO.read(originalResource.getInputStream());
-
-            if (originalImage == null) {
-                throw new IOException("Could not read image file");
-            }
-
-            int maxSize = 200;
-            int originalWidth = originalImage.getWidth();
-            int originalHeight = originalImage.getHeight();
-
-            double scaleFactor = Math.min(
-                    (double) maxSize / originalWidth,
-                    (double) maxSize / originalHeight
-            );
-
-            int thumbnailWidth = (int) (originalWidth * scaleFactor);
-            int thumbnailHeight = (int) (originalHeight * scaleFactor);
-
-            BufferedImage thumbnail = new BufferedImage(
-                    thumbnailWidth, thumbnailHeight, BufferedImage.TYPE_INT_RGB
-            );
-
-            Graphics2D g2d = thumbnail.createGraphics();
-            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-            g2d.drawImage(originalImage, 0, 0, thumbnailWidth, thumbnailHeight, null);
-            g2d.dispose();
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(thumbnail, "jpg", baos);
-            byte[] thumbnailBytes = baos.toByteArray();
-
-            return new ByteArrayResource(thumbnailBytes) {
-                @Override
-                public String getFilename() {
-                    return "thumbnail.jpg";
-                }
-            };
+        return getImageDerivative(fileUrl, ChatMediaDerivativeService.THUMBNAIL_SIZE).getResource();
+    }
 
+    /**
+     * Cached scaled copy of an uploaded image; only the first request for a missing size decodes the original.
+     */
+    public ChatMediaDerivativeService.Derivative getImageDerivative(String fileUrl, int size) throws IOException {
+        try {
+            return chatMediaDerivativeService.getDerivative(fileUrl, size);
         } catch (Exception e) {
             logger.error("Error generating thumbnail for: {}", fileUrl, e);
             throw new IOException("Could not generate thumbnail", e);
@@ -490,9 +475,9 @@ public class ChatService {
         try {
             validateUserIds(senderId, recipientId);
 
-            PageRequest pageRequest = PageRequest.of(0, 100, Sort.by("timestamp").descending());
-            List<ChatMessage> messages = chatMessageRepository.findBySenderIdAndRecipientId(
-                    senderId, recipientId, pageRequest);
+            List<ChatMessage> messages = chatMessageRepository.findConversationBefore(
+                    ChatMessage.conversationKeyOf(senderId, recipientId), senderId, recipientId,
+                    Long.MAX_VALUE, PageRequest.of(0, 100));
 
             List<ChatMessage> chronologicalMessages = new ArrayList<>(messages);
             Collections.reverse(chronologicalMessages);
@@ -523,9 +508,24 @@ public class ChatService {
                 size = 50;
             }
 
-            PageRequest pageRequest = PageRequest.of(page, size, Sort.by("timestamp").descending());
-            List<ChatMessage> messages = chatMessageRepository.findBySenderIdAndRecipientId(
-                    senderId, recipientId, pageRequest);
+            // Numbered pages for older clients: one id-only lookup finds the last message of the
+            // previous page, then the requested page is a keyset seek from it
+            long conversationKey = ChatMessage.conversationKeyOf(senderId, recipientId);
+            long cursor = Long.MAX_VALUE;
+            if (page > 0) {
+                long offset = (long) page * size - 1;
+                if (offset > Integer.MAX_VALUE) {
+                    return new ArrayList<>();
+                }
+                List<Long> ids = chatMessageRepository.findConversationIdsBefore(conversationKey,
+                        senderId, recipientId, Long.MAX_VALUE, PageRequest.of((int) offset, 1));
+                if (ids.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                cursor = ids.get(0);
+            }
+            List<ChatMessage> messages = chatMessageRepository.findConversationBefore(conversationKey,
+                    senderId, recipientId, cursor, PageRequest.of(0, size));
 
             List<ChatMessage> chronologicalMessages = new ArrayList<>(messages);
             Collections.reverse(chronologicalMessages);
@@ -542,6 +542,116 @@ public class ChatService {
         }
     }
 
+    /**
+     * One page of a conversation, in chronological order. With {@code beforeId} (or no cursor)
+     * the page ends just before that message; with {@code afterId} it starts just after it.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getChatHistoryPage(String senderId, String recipientId,
+                                                  Long beforeId, Long afterId, int size) {
+        try {
+            validateUserIds(senderId, recipientId);
+
+            if (beforeId != null && afterId != null) {
+                throw new IllegalArgumentException("Use either a before or an after cursor, not both");
+            }
+            if (size <= 0 || size > 100) {
+                logger.warn("Invalid page size {}, using default 50", size);
+                size = 50;
+            }
+
+            long conversationKey = ChatMessage.conversationKeyOf(senderId, recipientId);
+            PageRequest pageRequest = PageRequest.of(0, size + 1);
+            List<ChatMessage> messages;
+            if (afterId != null) {
+                messages = new ArrayList<>(chatMessageRepository.findConversationAfter(
+                        conversationKey, senderId, recipientId, afterId, pageRequest));
+            } else {
+                messages = new ArrayList<>(chatMessageRepository.findConversationBefore(
+                        conversationKey, senderId, recipientId, beforeId != null ? beforeId : Long.MAX_VALUE, pageRequest));
+            }
+
+            boolean hasMore = messages.size() > size;
+            if (hasMore) {
+                messages.remove(messages.size() - 1);
+            }
+            if (afterId == null) {
+                Collections.reverse(messages);
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("messages", messages);
+            result.put("hasMore", hasMore);
+            result.put("beforeCursor", messages.isEmpty() ? beforeId : messages.get(0).getId());
+            result.put("afterCursor", messages.isEmpty() ? afterId : messages.get(messages.size() - 1).getId());
+
+            logger.debug("Retrieved {} messages (before {}, after {}) for conversation between {} and {}",
+                    messages.size(), beforeId, afterId, senderId, recipientId);
+            return result;
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid parameters: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error retrieving chat history page for {} and {}", senderId, recipientId, e);
+            throw new RuntimeException("Failed to retrieve chat history", e);
+        }
+    }
+
+    /**
+     * Every message a user sent or received after a cursor id, oldest first, for clients
+     * catching up after a reconnect. Each page is two bounded index range scans.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getMessagesSince(String username, long afterId, int size) {
+        try {
+            if (username == null || username.trim().isEmpty()) {
+                throw new IllegalArgumentException("Username cannot be null or empty");
+            }
+            if (size <= 0 || size > 500) {
+                logger.warn("Invalid sync page size {}, using default 200", size);
+                size = 200;
+            }
+
+            PageRequest pageRequest = PageRequest.of(0, size + 1);
+            List<ChatMessage> sent = chatMessageRepository.findBySenderIdAndIdGreaterThanOrderByIdAsc(username, afterId, pageRequest);
+            List<ChatMessage> received = chatMessageRepository.findByRecipientIdAndIdGreaterThanOrderByIdAsc(username, afterId, pageRequest);
+
+            // Merge the two id-ordered lists; a message to oneself appears in both
+            List<ChatMessage> messages = new ArrayList<>(Math.min(size + 1, sent.size() + received.size()));
+            int i = 0;
+            int j = 0;
+            while (messages.size() <= size && (i < sent.size() || j < received.size())) {
+                ChatMessage next;
+                if (j >= received.size() || (i < sent.size() && sent.get(i).getId() <= received.get(j).getId())) {
+                    next = sent.get(i++);
+                    if (j < received.size() && received.get(j).getId().equals(next.getId())) {
+                        j++;
+                    }
+                } else {
+                    next = received.get(j++);
+                }
+                messages.add(next);
+            }
+
+            boolean hasMore = messages.size() > size;
+            if (hasMore) {
+                messages.remove(messages.size() - 1);
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("messages", messages);
+            result.put("hasMore", hasMore);
+            result.put("cursor", messages.isEmpty() ? afterId : messages.get(messages.size() - 1).getId());
+            return result;
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid parameters: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error retrieving messages since {} for user {}", afterId, username, e);
+            throw new RuntimeException("Failed to retrieve messages", e);
+        }
+    }
+
     @Transactional(readOnly = true)
     public List<ChatMessage> getUnreadMessages(String recipientId) {
         try {
@@ -561,6 +671,16 @@ public class ChatService {
         }
     }
 
+    /**
+     * Badge count, served from the unread counter cache.
+     */
+    public long getUnreadCount(String recipientId) {
+        if (recipientId == null || recipientId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Recipient ID cannot be null or empty");
+        }
+        return chatUnreadCounter.getUnreadCount(recipientId);
+    }
+
     @Transactional(readOnly = true)
     public List<ChatMessage> getNewMessages(String username, LocalDateTime cutoffTime) {
         try {
@@ -581,12 +701,14 @@ public class ChatService {
                                     message.getSenderId().equals(username))
                     .collect(Collectors.toList());
 
-            List<ChatMessage> allMessages = new ArrayList<>(unreadMessages);
+            Map<Long, ChatMessage> byId = new LinkedHashMap<>();
+            for (ChatMessage message : unreadMessages) {
+                byId.put(message.getId(), message);
+            }
             for (ChatMessage message : recentMessages) {
-                if (!containsMessage(allMessages, message)) {
-                    allMessages.add(message);
-                }
+                byId.putIfAbsent(message.getId(), message);
             }
+            List<ChatMessage> allMessages = new ArrayList<>(byId.values());
 
             allMessages.sort((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
 
@@ -601,12 +723,10 @@ public class ChatService {
         }
     }
 
-    private boolean containsMessage(List<ChatMessage> messages, ChatMessage targetMessage) {
-        return messages.stream()
-                .anyMatch(message -> message.getId() != null &&
-                        message.getId().equals(targetMessage.getId()));
-    }
-
+    /**
+     * Marks a message read by moving the recipient's read watermark up to it, which also marks
+     * any earlier unread messages from the same sender.
+     */
     @Transactional
     public void markMessageAsRead(Long messageId, String username) {
         try {
@@ -624,10 +744,8 @@ public class ChatService {
                 ChatMessage message = messageOpt.get();
 
                 if (message.getRecipientId().equals(username)) {
-                    message.setRead(true);
-                    message.setStatus("READ");
-                    chatMessageRepository.save(message);
-                    logger.info("Message {} marked as read by {}", messageId, username);
+                    int marked = markReadUpTo(username, message.getSenderId(), messageId);
+                    logger.info("Messages up to {} marked as read by {} ({} updated)", messageId, username, marked);
                 } else {
                     logger.warn("User {} attempted to mark message {} as read but is not the recipient",
                             username, messageId);
@@ -646,6 +764,28 @@ public class ChatService {
         }
     }
 
+    /**
+     * Marks every unread message from {@code senderId} to {@code readerId} with an id up to
+     * {@code upToId} as read in one UPDATE, and advances the reader's watermark in the
+     * conversation index. Messages at or below the current watermark were already marked, so
+     * the UPDATE only scans above it and is skipped when the watermark is already past
+     * {@code upToId}. Returns the number of messages that changed.
+     */
+    @Transactional
+    public int markReadUpTo(String readerId, String senderId, long upToId) {
+        validateUserIds(readerId, senderId);
+
+        long readUpTo = chatConversationService.getReadUpTo(readerId, senderId);
+        if (upToId <= readUpTo) {
+            return 0;
+        }
+        int marked = chatMessageRepository.markReadUpTo(
+                ChatMessage.conversationKeyOf(readerId, senderId), senderId, readerId, readUpTo, upToId);
+        chatConversationService.recordReadUpTo(readerId, senderId, upToId, marked);
+        chatUnreadCounter.messagesRead(readerId, marked);
+        return marked;
+    }
+
     @Transactional
     public void markAllMessagesAsRead(String recipientId, String senderId) {
         try {
@@ -653,21 +793,20 @@ public class ChatService {
                 throw new IllegalArgumentException("Recipient ID cannot be null or empty");
             }
 
-            List<ChatMessage> unreadMessages = chatMessageRepository.findByRecipientIdAndReadFalse(recipientId);
+            // Each conversation is marked up to its current last message
+            List<ChatConversation> conversations = senderId != null
+                    ? chatConversationService.getConversation(recipientId, senderId).map(List::of).orElse(List.of())
+                    : chatConversationService.getConversationsWithUnread(recipientId);
 
-            List<ChatMessage> messagesToUpdate = unreadMessages.stream()
-                    .filter(message -> senderId == null || message.getSenderId().equals(senderId))
-                    .collect(Collectors.toList());
-
-            for (ChatMessage message : messagesToUpdate) {
-                message.setRead(true);
-                message.setStatus("READ");
+            int marked = 0;
+            for (ChatConversation conversation : conversations) {
+                marked += markReadUpTo(recipientId, conversation.getOtherParticipant(recipientId),
+                        conversation.getLastMessageId());
             }
 
-            if (!messagesToUpdate.isEmpty()) {
-                chatMessageRepository.saveAll(messagesToUpdate);
+            if (marked > 0) {
                 logger.info("Marked {} messages as read for recipient {} from sender {}",
-                        messagesToUpdate.size(), recipientId, senderId);
+                        marked, recipientId, senderId);
             }
         } catch (IllegalArgumentException e) {
             logger.error("Invalid parameters: {}", e.getMessage());
@@ -697,6 +836,14 @@ public class ChatService {
 
                 if (message.getSenderId().equals(username) || message.getRecipientId().equals(username)) {
                     chatMessageRepository.deleteById(messageId);
+                    chatConversationService.refresh(message.getSenderId(), message.getRecipientId());
+                    chatSearchService.remove(messageId);
+                    if (message.getFileUrl() != null) {
+                        uploadBlobStore.release(message.getFileUrl(), mediaOwner(messageId));
+                    }
+                    if (!message.isRead()) {
+                        chatUnreadCounter.messagesRead(message.getRecipientId(), 1);
+                    }
                     logger.info("Message {} deleted by user {}", messageId, username);
                     return true;
                 } else {
@@ -726,10 +873,11 @@ public class ChatService {
                 throw new IllegalArgumentException("Status cannot be null or empty");
             }
 
-            UserStatus userStatus = userStatusMap.getOrDefault(userId, new UserStatus());
-            userStatus.setStatus(status.toUpperCase());
-            userStatus.setLastSeen(LocalDateTime.now());
-            userStatusMap.put(userId, userStatus);
+            if (ChatPresenceService.ONLINE.equalsIgnoreCase(status)) {
+                chatPresenceService.heartbeat(userId);
+            } else {
+                chatPresenceService.goOffline(userId);
+            }
 
             logger.debug("Updated status for user {} to {}", userId, status);
         } catch (IllegalArgumentException e) {
@@ -746,13 +894,7 @@ public class ChatService {
                 return false;
             }
 
-            UserStatus userStatus = userStatusMap.get(userId);
-            if (userStatus == null) {
-                return false;
-            }
-
-            return "ONLINE".equals(userStatus.getStatus()) &&
-                    userStatus.getLastSeen().isAfter(LocalDateTime.now().minusMinutes(5));
+            return chatPresenceService.isOnline(userId);
         } catch (Exception e) {
             logger.error("Error checking online status for user {}", userId, e);
             return false;
@@ -772,15 +914,16 @@ public class ChatService {
             Map<String, Object> onlineUsers = new HashMap<>();
             Map<String, Object> offlineUsers = new HashMap<>();
 
+            Map<String, PresenceStore.Presence> presence = chatPresenceService.getPresence(contactIds);
             for (String contactId : contactIds) {
-                UserStatus status = userStatusMap.get(contactId);
+                PresenceStore.Presence status = presence.get(contactId);
                 Map<String, Object> contactInfo = new HashMap<>();
 
                 if (status != null) {
-                    contactInfo.put("status", status.getStatus());
-                    contactInfo.put("lastSeen", status.getLastSeen());
+                    contactInfo.put("status", status.isOnline() ? ChatPresenceService.ONLINE : ChatPresenceService.OFFLINE);
+                    contactInfo.put("lastSeen", ChatPresenceService.toDateTime(status.getLastSeen()));
 
-                    if (isUserOnline(contactId)) {
+                    if (status.isOnline()) {
                         onlineUsers.put(contactId, contactInfo);
                     } else {
                         offlineUsers.put(contactId, contactInfo);
@@ -810,29 +953,72 @@ public class ChatService {
 
     private Set<String> getContactIds(String username) {
         try {
-            Set<String> contactIds = new HashSet<>();
-            List<ChatMessage> sentMessages = chatMessageRepository.findBySenderId(username);
-            contactIds.addAll(sentMessages.stream()
-                    .map(ChatMessage::getRecipientId)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toSet()));
+            return chatConversationService.getContactIds(username);
+        } catch (Exception e) {
+            logger.error("Error retrieving contact IDs for user {}", username, e);
+            return new HashSet<>();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getConversations(String username, int limit) {
+        try {
+            if (username == null || username.trim().isEmpty()) {
+                throw new IllegalArgumentException("Username cannot be null or empty");
+            }
+            if (limit <= 0 || limit > 200) {
+                throw new IllegalArgumentException("Limit must be between 1 and 200");
+            }
+
+            List<Map<String, Object>> conversations = new ArrayList<>();
+            int totalUnread = 0;
 
-            List<ChatMessage> receivedMessages = chatMessageRepository.findByRecipientId(username);
-            contactIds.addAll(receivedMessages.stream()
-                    .map(ChatMessage::getSenderId)
-                    .filter(Objects::nonNull)
+            List<ChatConversation> page = chatConversationService.getConversations(username, limit);
+            Map<String, PresenceStore.Presence> presence = chatPresenceService.getPresence(page.stream()
+                    .map(conversation -> conversation.getOtherParticipant(username))
                     .collect(Collectors.toSet()));
 
-            contactIds.remove(username);
-            return contactIds;
+            for (ChatConversation conversation : page) {
+                String contactId = conversation.getOtherParticipant(username);
+                int unread = conversation.getUnreadFor(username);
+                totalUnread += unread;
+
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("contactId", contactId);
+                entry.put("lastMessageId", conversation.getLastMessageId());
+                entry.put("lastMessageAt", conversation.getLastMessageAt());
+                entry.put("lastSenderId", conversation.getLastSenderId());
+                entry.put("lastMessageType", conversation.getLastMessageType());
+                entry.put("lastPreview", conversation.getLastPreview());
+                entry.put("unreadCount", unread);
+                entry.put("messageCount", conversation.getMessageCount());
+                PresenceStore.Presence contactPresence = presence.get(contactId);
+                entry.put("online", contactPresence != null && contactPresence.isOnline());
+                conversations.add(entry);
+            }
+
+            Map<String, Object> inbox = new HashMap<>();
+            inbox.put("conversations", conversations);
+            inbox.put("count", conversations.size());
+            inbox.put("totalUnread", totalUnread);
+
+            logger.debug("Retrieved {} conversations for user {}", conversations.size(), username);
+            return inbox;
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid parameters: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
-            logger.error("Error retrieving contact IDs for user {}", username, e);
-            return new HashSet<>();
+            logger.error("Error retrieving conversations for user {}", username, e);
+            throw new RuntimeException("Failed to retrieve conversations", e);
         }
     }
 
+    /**
+     * Stores an uploaded file with a reference held by {@code uploadOwner} until
+     * {@link #claimMedia} hands it to the message that carries it.
+     */
     @Transactional
-    public String saveMediaFile(MultipartFile file) throws IOException {
+    public String saveMediaFile(MultipartFile file, String uploadOwner) throws IOException {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
@@ -848,19 +1034,39 @@ public class ChatService {
         }
 
         String originalFilename = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
-        String fileExtension = originalFilename.contains(".") ?
-                originalFilename.substring(originalFilename.lastIndexOf(".")) : "";
-        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
 
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        UploadBlobStore.StoredBlob blob;
+        try (InputStream input = file.getInputStream()) {
+            blob = uploadBlobStore.store(input, originalFilename, contentType, uploadOwner);
+        }
+
+        String fileUrl = blob.getUrl();
+        // A forwarded image already has its derivatives
+        if (isImageFile(contentType) && !blob.isDuplicate()) {
+            chatMediaDerivativeService.enqueue(fileUrl);
         }
+        return fileUrl;
+    }
+
+    public void claimMedia(ChatMessage message, String uploadOwner) {
+        if (message.getId() != null && message.getFileUrl() != null) {
+            uploadBlobStore.transfer(message.getFileUrl(), uploadOwner, mediaOwner(message.getId()));
+        }
+    }
 
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Drops the reference {@link #saveMediaFile} took when no message ends up carrying the file.
+     */
+    public void releaseMedia(String fileUrl, String uploadOwner) {
+        try {
+            uploadBlobStore.release(fileUrl, uploadOwner);
+        } catch (Exception e) {
+            logger.warn("Could not release unsent upload {}: {}", fileUrl, e.getMessage());
+        }
+    }
 
-        return "/uploads/" + uniqueFilename;
+    private static String mediaOwner(Long messageId) {
+        return UploadBlobStore.owner("chat-message", messageId);
     }
 
     private boolean isAllowedFileType(String contentType) {
@@ -883,7 +1089,7 @@ public class ChatService {
 
             long totalSent = chatMessageRepository.countBySenderId(username);
             long totalReceived = chatMessageRepository.countByRecipientId(username);
-            long unreadCount = chatMessageRepository.countByRecipientIdAndReadFalse(username);
+            long unreadCount = chatUnreadCounter.getUnreadCount(username);
 
             stats.put("totalSent", totalSent);
             stats.put("totalReceived", totalReceived);
@@ -911,42 +1117,4 @@ public class ChatService {
             throw new IllegalArgumentException("Recipient ID cannot be null or empty");
         }
     }
-
-    public void cleanupOldUserStatuses() {
-        try {
-            LocalDateTime cutoff = LocalDateTime.now().minusHours(24);
-            userStatusMap.entrySet().removeIf(entry ->
-                    entry.getValue().getLastSeen().isBefore(cutoff));
-
-            logger.debug("Cleaned up old user statuses, remaining: {}", userStatusMap.size());
-        } catch (Exception e) {
-            logger.error("Error cleaning up old user statuses", e);
-        }
-    }
-
-    private static class UserStatus {
-        private String status;
-        private LocalDateTime lastSeen;
-
-        public UserStatus() {
-            this.status = "OFFLINE";
-            this.lastSeen = LocalDateTime.now();
-        }
-
-        public String getStatus() {
-            return status;
-        }
-
-        public void setStatus(String status) {
-            this.status = status;
-        }
-
-        public LocalDateTime getLastSeen() {
-            return lastSeen;
-        }
-
-        public void setLastSeen(LocalDateTime lastSeen) {
-            this.lastSeen = lastSeen;
-        }
-    }
-}
\ No newline at end of file
+}
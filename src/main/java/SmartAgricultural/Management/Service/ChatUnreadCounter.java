@@ -0,0 +1,240 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user unread message counts for chat badges.
+ *
+ * A count is read from the database the first time a user needs it, then kept up to date
+ * from the events that change it (a message received, messages read, an unread message
+ * deleted), applied once the transaction commits. Every change is pushed to the user on
+ * {@code /user/queue/unread}, so a badge needs no polling. A periodic pass recounts the
+ * cached users in one grouped query, corrects any drift (such as changes committed by
+ * another node) and forgets users idle for longer than the idle timeout.
+ */
+@Service
+public class ChatUnreadCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatUnreadCounter.class);
+
+    private static final int RECONCILE_BATCH = 500;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Value("${chat.unread.idle-evict-ms:3600000}")
+    private long idleEvictMillis = 3600000;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong pushes = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+
+    public ChatUnreadCounter(ChatMessageRepository chatMessageRepository, SimpMessagingTemplate messagingTemplate) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    // =================================================================================
+    // QUERIES
+    // =================================================================================
+
+    public long getUnreadCount(String userId) {
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            hits.incrementAndGet();
+            counter.touch();
+            return counter.get();
+        }
+        return load(userId).get();
+    }
+
+    private Counter load(String userId) {
+        long count = chatMessageRepository.countByRecipientIdAndReadFalse(userId);
+        loads.incrementAndGet();
+        Counter loaded = new Counter(count);
+        // Another thread may have loaded and already applied a change; keep that one
+        Counter existing = counters.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    // =================================================================================
+    // UPDATES
+    // =================================================================================
+
+    /**
+     * A message to {@code recipientId} was saved unread.
+     */
+    public void messageReceived(String recipientId) {
+        afterCommit(() -> {
+            Counter counter = counters.get(recipientId);
+            if (counter == null) {
+                // Loaded after the commit, so the count already includes this message
+                push(recipientId, load(recipientId).get());
+            } else {
+                push(recipientId, counter.add(1));
+            }
+        });
+    }
+
+    /**
+     * {@code count} messages to {@code userId} went from unread to read (or unread ones were deleted).
+     */
+    public void messagesRead(String userId, int count) {
+        if (count <= 0) {
+            return;
+        }
+        afterCommit(() -> {
+            Counter counter = counters.get(userId);
+            if (counter != null) {
+                push(userId, counter.add(-count));
+            } else {
+                push(userId, load(userId).get());
+            }
+        });
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private void apply(Runnable change) {
+        try {
+            change.run();
+        } catch (Exception e) {
+            logger.warn("Error updating unread count: {}", e.getMessage());
+        }
+    }
+
+    private void push(String userId, long count) {
+        messagingTemplate.convertAndSendToUser(userId, "/queue/unread", Map.of(
+                "unreadCount", count,
+                "timestamp", LocalDateTime.now()
+        ));
+        pushes.incrementAndGet();
+    }
+
+    // =================================================================================
+    // RECONCILIATION
+    // =================================================================================
+
+    @Scheduled(initialDelayString = "${chat.unread.reconcile-interval-ms:300000}",
+            fixedDelayString = "${chat.unread.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long idleBefore = System.currentTimeMillis() - idleEvictMillis;
+        counters.entrySet().removeIf(entry -> entry.getValue().lastAccess < idleBefore);
+
+        List<String> userIds = new ArrayList<>(counters.keySet());
+        int corrected = 0;
+        for (int from = 0; from < userIds.size(); from += RECONCILE_BATCH) {
+            List<String> batch = userIds.subList(from, Math.min(userIds.size(), from + RECONCILE_BATCH));
+            try {
+                Map<String, Long> versions = new HashMap<>();
+                for (String userId : batch) {
+                    Counter counter = counters.get(userId);
+                    if (counter != null) {
+                        versions.put(userId, counter.version());
+                    }
+                }
+
+                Map<String, Long> actual = new HashMap<>();
+                for (Object[] row : chatMessageRepository.countUnreadByRecipients(batch)) {
+                    actual.put((String) row[0], ((Number) row[1]).longValue());
+                }
+
+                for (Map.Entry<String, Long> entry : versions.entrySet()) {
+                    Counter counter = counters.get(entry.getKey());
+                    long count = actual.getOrDefault(entry.getKey(), 0L);
+                    // Skipped when a change landed during the query; the next pass checks again
+                    if (counter != null && counter.correct(entry.getValue(), count)) {
+                        push(entry.getKey(), count);
+                        corrected++;
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("Error reconciling unread counts", e);
+            }
+        }
+        if (corrected > 0) {
+            corrections.addAndGet(corrected);
+            logger.info("Corrected {} unread counts out of {}", corrected, userIds.size());
+        }
+    }
+
+    // =================================================================================
+    // STATISTICS
+    // =================================================================================
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedUsers", counters.size());
+        stats.put("hits", hits.get());
+        stats.put("loads", loads.get());
+        stats.put("pushes", pushes.get());
+        stats.put("corrections", corrections.get());
+        return stats;
+    }
+
+    private static final class Counter {
+        private long count;
+        private long version;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private Counter(long count) {
+            this.count = count;
+        }
+
+        synchronized long get() {
+            return count;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        synchronized long add(long delta) {
+            count = Math.max(0, count + delta);
+            version++;
+            lastAccess = System.currentTimeMillis();
+            return count;
+        }
+
+        synchronized boolean correct(long expectedVersion, long actual) {
+            if (version != expectedVersion || count == actual) {
+                return false;
+            }
+            count = actual;
+            version++;
+            return true;
+        }
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+}
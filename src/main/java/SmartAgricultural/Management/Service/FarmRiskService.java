@@ -0,0 +1,284 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.FarmRiskSnapshot;
+import SmartAgricultural.Management.Repository.FarmRepository;
+import SmartAgricultural.Management.Repository.FarmRiskSnapshotRepository;
+import SmartAgricultural.Management.Util.GeoHash;
+import SmartAgricultural.Management.exception.InvalidOperationException;
+import SmartAgricultural.Management.exception.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Precomputed drought and flood risk for every farm.
+ *
+ * A scheduled batch groups farms by geohash cell (~4.9 km) and scores each cell once from a
+ * single weather scan of the 0.5 degree radius around its centre, the same window the
+ * per-location assessments use. Cells are split across a fork-join pool and the results
+ * replace the farm_risk_snapshots table in one transaction, so API reads and the national
+ * overview never touch raw weather data.
+ */
+@Service
+public class FarmRiskService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FarmRiskService.class);
+
+    static final int CELL_PRECISION = 5;
+    private static final BigDecimal RADIUS_DEGREES = new BigDecimal("0.5");
+    private static final int CELLS_PER_TASK = 16;
+
+    public static final int HIGH_RISK_SCORE = 50;
+    public static final int SEVERE_RISK_SCORE = 70;
+
+    private static final String UPSERT = "INSERT INTO farm_risk_snapshots (farm_id, cell_id, latitude, longitude, " +
+            "window_days, data_points, drought_risk_score, drought_status, total_rainfall, dry_days, " +
+            "flood_risk_score, flood_status, heavy_rain_events, max_consecutive_rainy_days, computed_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "cell_id = VALUES(cell_id), latitude = VALUES(latitude), longitude = VALUES(longitude), " +
+            "window_days = VALUES(window_days), data_points = VALUES(data_points), " +
+            "drought_risk_score = VALUES(drought_risk_score), drought_status = VALUES(drought_status), " +
+            "total_rainfall = VALUES(total_rainfall), dry_days = VALUES(dry_days), " +
+            "flood_risk_score = VALUES(flood_risk_score), flood_status = VALUES(flood_status), " +
+            "heavy_rain_events = VALUES(heavy_rain_events), " +
+            "max_consecutive_rainy_days = VALUES(max_consecutive_rainy_days), computed_at = VALUES(computed_at)";
+
+    @Autowired
+    private FarmRepository farmRepository;
+
+    @Autowired
+    private FarmRiskSnapshotRepository farmRiskSnapshotRepository;
+
+    @Autowired
+    private WeatherSeriesStore weatherSeriesStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${farm.risk.window-days:30}")
+    private int windowDays = 30;
+
+    @Value("${farm.risk.parallelism:0}")
+    private int parallelism = 0;
+
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public FarmRiskService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // =================================================================================
+    // BATCH COMPUTATION
+    // =================================================================================
+
+    @Scheduled(initialDelayString = "${farm.risk.initial-delay-ms:60000}",
+            fixedDelayString = "${farm.risk.refresh-interval-ms:3600000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.error("Scheduled farm risk refresh failed", e);
+        }
+    }
+
+    /**
+     * Recomputes the snapshot of every farm; returns a summary of the run.
+     */
+    public Map<String, Object> refresh() {
+        if (!running.compareAndSet(false, true)) {
+            throw new InvalidOperationException("A farm risk refresh is already running");
+        }
+        try {
+            return computeAll();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Map<String, Object> computeAll() {
+        long startedAt = System.currentTimeMillis();
+        LocalDateTime computedAt = LocalDateTime.now();
+        LocalDateTime since = computedAt.minusDays(windowDays);
+
+        Map<String, List<Object[]>> farmsByCell = new HashMap<>();
+        int farms = 0;
+        for (Object[] farm : farmRepository.findAllLocations()) {
+            BigDecimal latitude = (BigDecimal) farm[1];
+            BigDecimal longitude = (BigDecimal) farm[2];
+            if (latitude == null || longitude == null) {
+                continue;
+            }
+            String cell = GeoHash.encode(latitude.doubleValue(), longitude.doubleValue(), CELL_PRECISION);
+            farmsByCell.computeIfAbsent(cell, c -> new ArrayList<>()).add(farm);
+            farms++;
+        }
+        List<String> cells = new ArrayList<>(farmsByCell.keySet());
+
+        // Load the series store once up front rather than racing to load it from the workers
+        weatherSeriesStore.scanRegion(since);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        List<FarmRiskSnapshot> snapshots;
+        try {
+            snapshots = pool.invoke(new CellTask(cells, 0, cells.size(), farmsByCell, since, computedAt));
+        } finally {
+            pool.shutdown();
+        }
+        long computedMs = System.currentTimeMillis() - startedAt;
+
+        int removed = transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(UPSERT, snapshots, 500, (ps, s) -> {
+                ps.setString(1, s.getFarmId());
+                ps.setString(2, s.getCellId());
+                ps.setBigDecimal(3, s.getLatitude());
+                ps.setBigDecimal(4, s.getLongitude());
+                ps.setInt(5, s.getWindowDays());
+                ps.setLong(6, s.getDataPoints());
+                ps.setObject(7, s.getDroughtRiskScore());
+                ps.setString(8, s.getDroughtStatus());
+                ps.setBigDecimal(9, s.getTotalRainfall());
+                ps.setObject(10, s.getDryDays());
+                ps.setObject(11, s.getFloodRiskScore());
+                ps.setString(12, s.getFloodStatus());
+                ps.setObject(13, s.getHeavyRainEvents());
+                ps.setObject(14, s.getMaxConsecutiveRainyDays());
+                ps.setTimestamp(15, Timestamp.valueOf(s.getComputedAt()));
+            });
+            return farmRiskSnapshotRepository.deleteComputedBefore(computedAt);
+        });
+
+        long elapsed = System.currentTimeMillis() - startedAt;
+        logger.info("Farm risk snapshots for {} farms in {} cells computed in {} ms, saved in {} ms",
+                farms, cells.size(), computedMs, elapsed - computedMs);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("farms", farms);
+        summary.put("cells", cells.size());
+        summary.put("removedSnapshots", removed);
+        summary.put("windowDays", windowDays);
+        summary.put("computedAt", computedAt);
+        summary.put("elapsedMs", elapsed);
+        return summary;
+    }
+
+    /**
+     * Scores a range of cells, splitting it in halves until it is small enough.
+     */
+    private final class CellTask extends RecursiveTask<List<FarmRiskSnapshot>> {
+        private final List<String> cells;
+        private final int from;
+        private final int to;
+        private final Map<String, List<Object[]>> farmsByCell;
+        private final LocalDateTime since;
+        private final LocalDateTime computedAt;
+
+        CellTask(List<String> cells, int from, int to, Map<String, List<Object[]>> farmsByCell,
+                 LocalDateTime since, LocalDateTime computedAt) {
+            this.cells = cells;
+            this.from = from;
+            this.to = to;
+            this.farmsByCell = farmsByCell;
+            this.since = since;
+            this.computedAt = computedAt;
+        }
+
+        @Override
+        protected List<FarmRiskSnapshot> compute() {
+            if (to - from <= CELLS_PER_TASK) {
+                List<FarmRiskSnapshot> result = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    scoreCell(cells.get(i), farmsByCell.get(cells.get(i)), since, computedAt, result);
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            CellTask left = new CellTask(cells, from, middle, farmsByCell, since, computedAt);
+            left.fork();
+            List<FarmRiskSnapshot> result = new CellTask(cells, middle, to, farmsByCell, since, computedAt).compute();
+            result.addAll(left.join());
+            return result;
+        }
+    }
+
+    private void scoreCell(String cell, List<Object[]> farms, LocalDateTime since, LocalDateTime computedAt,
+                           List<FarmRiskSnapshot> result) {
+        double[] centre = GeoHash.center(cell);
+        WeatherSeriesStore.WindowStats stats = weatherSeriesStore.scanRadius(
+                BigDecimal.valueOf(centre[0]), BigDecimal.valueOf(centre[1]), RADIUS_DEGREES, since);
+
+        Map<String, Object> drought = stats.getCount() > 0 ? WeatherDataService.analyzeDrought(stats) : null;
+        Map<String, Object> flood = stats.getCount() > 0 ? WeatherDataService.analyzeFlood(stats) : null;
+
+        for (Object[] farm : farms) {
+            FarmRiskSnapshot snapshot = new FarmRiskSnapshot((String) farm[0], (BigDecimal) farm[1],
+                    (BigDecimal) farm[2], cell, windowDays, computedAt);
+            snapshot.setDataPoints(stats.getCount());
+            if (drought != null) {
+                snapshot.setDroughtRiskScore((Integer) drought.get("riskScore"));
+                snapshot.setDroughtStatus((String) drought.get("status"));
+                snapshot.setTotalRainfall((BigDecimal) drought.get("totalRainfall"));
+                snapshot.setDryDays((Long) drought.get("dryDays"));
+                snapshot.setFloodRiskScore((Integer) flood.get("riskScore"));
+                snapshot.setFloodStatus((String) flood.get("status"));
+                snapshot.setHeavyRainEvents((Long) flood.get("heavyRainEvents"));
+                snapshot.setMaxConsecutiveRainyDays((Integer) flood.get("maxConsecutiveRainyDays"));
+            }
+            result.add(snapshot);
+        }
+    }
+
+    // =================================================================================
+    // READ OPERATIONS
+    // =================================================================================
+
+    @Transactional(readOnly = true)
+    public FarmRiskSnapshot getSnapshot(String farmId) {
+        return farmRiskSnapshotRepository.findById(farmId)
+                .orElseThrow(() -> new ResourceNotFoundException("Risk snapshot not found for farm: " + farmId));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<FarmRiskSnapshot> getFarmsAtRisk(int minScore, Pageable pageable) {
+        return farmRiskSnapshotRepository.findAtRisk(minScore, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getOverview() {
+        Object[] row = farmRiskSnapshotRepository.summarize(HIGH_RISK_SCORE, SEVERE_RISK_SCORE).get(0);
+
+        Map<String, Object> overview = new LinkedHashMap<>();
+        overview.put("farms", toLong(row[0]));
+        overview.put("farmsWithData", toLong(row[1]));
+        overview.put("averageDroughtRisk", row[2] != null ? Math.round(((Number) row[2]).doubleValue()) : null);
+        overview.put("averageFloodRisk", row[3] != null ? Math.round(((Number) row[3]).doubleValue()) : null);
+        overview.put("highDroughtRiskFarms", toLong(row[4]));
+        overview.put("highFloodRiskFarms", toLong(row[5]));
+        overview.put("severeDroughtRiskFarms", toLong(row[6]));
+        overview.put("severeFloodRiskFarms", toLong(row[7]));
+        overview.put("oldestSnapshot", row[8]);
+        overview.put("computedAt", row[9]);
+        return overview;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
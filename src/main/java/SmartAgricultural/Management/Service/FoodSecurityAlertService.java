@@ -20,6 +20,9 @@ public class FoodSecurityAlertService {
     @Autowired
     private FoodSecurityAlertRepository alertRepository;
 
+    @Autowired
+    private FarmRiskService farmRiskService;
+
     // Create new alert
     public FoodSecurityAlert createAlert(FoodSecurityAlertDTO dto) {
         FoodSecurityAlert alert = new FoodSecurityAlert();
@@ -231,6 +234,9 @@ public class FoodSecurityAlertService {
         }
         stats.put("alertsByStatus", byStatus);
 
+        // Precomputed drought/flood risk across all farms
+        stats.put("farmWeatherRisk", farmRiskService.getOverview());
+
         return stats;
     }
 
@@ -0,0 +1,80 @@
+package SmartAgricultural.Management.Service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Presence in the shared chat_presence table, for running more than one app node.
+ *
+ * Every transition is a conditional UPDATE, so when two nodes race only the one whose
+ * statement changed the row reports the transition.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.presence.store", havingValue = "jdbc")
+public class JdbcPresenceStore implements PresenceStore {
+
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcPresenceStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean heartbeat(String userId, long now, long expiresAt) {
+        // Common case: already online, just extend
+        int refreshed = jdbcTemplate.update(
+                "UPDATE chat_presence SET last_seen = ?, expires_at = ? " +
+                        "WHERE user_id = ? AND online = TRUE AND expires_at > ?",
+                now, expiresAt, userId, now);
+        if (refreshed > 0) {
+            return false;
+        }
+        jdbcTemplate.update(
+                "INSERT INTO chat_presence (user_id, online, last_seen, expires_at) VALUES (?, TRUE, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE online = TRUE, last_seen = VALUES(last_seen), expires_at = VALUES(expires_at)",
+                userId, now, expiresAt);
+        return true;
+    }
+
+    @Override
+    public boolean markOffline(String userId, long now) {
+        return jdbcTemplate.update(
+                "UPDATE chat_presence SET online = FALSE, last_seen = ? WHERE user_id = ? AND online = TRUE",
+                now, userId) > 0;
+    }
+
+    @Override
+    public boolean expire(String userId, long now) {
+        return jdbcTemplate.update(
+                "UPDATE chat_presence SET online = FALSE WHERE user_id = ? AND online = TRUE AND expires_at <= ?",
+                userId, now) > 0;
+    }
+
+    @Override
+    public Map<String, Presence> find(Collection<String> userIds, long now) {
+        Map<String, Presence> result = new HashMap<>();
+        List<String> ids = new ArrayList<>(userIds);
+        for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, ids.size()));
+            String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+            jdbcTemplate.query(
+                    "SELECT user_id, online, last_seen, expires_at FROM chat_presence WHERE user_id IN (" + placeholders + ")",
+                    rs -> {
+                        boolean online = rs.getBoolean("online") && rs.getLong("expires_at") > now;
+                        result.put(rs.getString("user_id"), new Presence(online, rs.getLong("last_seen")));
+                    },
+                    batch.toArray());
+        }
+        return result;
+    }
+
+    @Override
+    public void purge(long lastSeenBefore) {
+        jdbcTemplate.update("DELETE FROM chat_presence WHERE online = FALSE AND last_seen < ?", lastSeenBefore);
+    }
+}
@@ -29,6 +29,8 @@ public class JwtService {
     @Value("${jwt.refresh.expiration:604800000}")
     private long refreshExpiration; // Default 7 days in milliseconds
 
+    private volatile JwtParser parser;
+
     private Key getSigningKey() {
         byte[] keyBytes = jwtSecret.getBytes();
         if (keyBytes.length < 32) {
@@ -88,11 +90,35 @@ public class JwtService {
         return claims != null ? claimsResolver.apply(claims) : null;
     }
 
+    /**
+     * Parse and verify the token once; null if it is malformed, badly signed or expired
+     */
+    public Claims parseToken(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return null;
+        }
+        Claims claims = extractAllClaims(token);
+        if (claims == null || (claims.getExpiration() != null && claims.getExpiration().before(new Date()))) {
+            return null;
+        }
+        return claims;
+    }
+
+    // Built once: the signing key and parser do not change at runtime
+    private JwtParser parser() {
+        JwtParser current = parser;
+        if (current == null) {
+            current = Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build();
+            parser = current;
+        }
+        return current;
+    }
+
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
+            return parser()
                     .parseClaimsJws(token)
                     .getBody();
         } catch (JwtException e) {
@@ -0,0 +1,88 @@
+package SmartAgricultural.Management.Service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Presence kept in this node's memory; the default for a single app node.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.presence.store", havingValue = "local", matchIfMissing = true)
+public class LocalPresenceStore implements PresenceStore {
+
+    private final ConcurrentHashMap<String, Record> records = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean heartbeat(String userId, long now, long expiresAt) {
+        boolean[] cameOnline = new boolean[1];
+        records.compute(userId, (id, record) -> {
+            if (record == null) {
+                record = new Record();
+            }
+            cameOnline[0] = !record.isOnline(now);
+            record.online = true;
+            record.lastSeen = now;
+            record.expiresAt = expiresAt;
+            return record;
+        });
+        return cameOnline[0];
+    }
+
+    @Override
+    public boolean markOffline(String userId, long now) {
+        boolean[] wasOnline = new boolean[1];
+        records.computeIfPresent(userId, (id, record) -> {
+            wasOnline[0] = record.online;
+            record.online = false;
+            record.lastSeen = now;
+            return record;
+        });
+        return wasOnline[0];
+    }
+
+    @Override
+    public boolean expire(String userId, long now) {
+        boolean[] expired = new boolean[1];
+        records.computeIfPresent(userId, (id, record) -> {
+            if (record.online && record.expiresAt <= now) {
+                record.online = false;
+                expired[0] = true;
+            }
+            return record;
+        });
+        return expired[0];
+    }
+
+    @Override
+    public Map<String, Presence> find(Collection<String> userIds, long now) {
+        Map<String, Presence> result = new HashMap<>();
+        for (String userId : userIds) {
+            Record record = records.get(userId);
+            if (record != null) {
+                result.put(userId, new Presence(record.isOnline(now), record.lastSeen));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void purge(long lastSeenBefore) {
+        records.values().removeIf(record -> !record.online && record.lastSeen < lastSeenBefore);
+    }
+
+    // Mutated only inside compute, read racily by find; a stale read is one heartbeat old at most
+    private static final class Record {
+        private volatile boolean online;
+        private volatile long lastSeen;
+        private volatile long expiresAt;
+
+        private boolean isOnline(long now) {
+            return online && expiresAt > now;
+        }
+    }
+}
@@ -10,18 +10,20 @@ import SmartAgricultural.Management.Model.ChatNotification;
 import SmartAgricultural.Management.Model.Notification;
 import SmartAgricultural.Management.Repository.ChatNotificationRepository;
 import SmartAgricultural.Management.Repository.NotificationRepository;
+import SmartAgricultural.Management.Util.DedupWindow;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
-import java.util.HexFormat;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class NotificationService {
@@ -32,52 +34,75 @@ public class NotificationService {
     @Autowired
     private ChatNotificationRepository chatNotificationRepository;
 
-    // Cache en mémoire pour réduire les requêtes à la base de données
-    private final Map<String, LocalDateTime> recentHashesCache = new ConcurrentHashMap<>();
-
-    // Nettoyer ce cache périodiquement
-    @Scheduled(fixedRate = 900000) // 15 minutes
-    public void cleanupCache() {
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(15);
-        recentHashesCache.entrySet().removeIf(entry -> entry.getValue().isBefore(cutoffTime));
-    }
-
-    // Générer un hash pour identifier les notifications similaires
-    private String generateContentHash(String message, String type) {
-        try {
-            // Normaliser le message - supprimer les espaces supplémentaires, etc.
-            String normalizedMessage = message.trim().replaceAll("\\s+", " ");
-            String content = normalizedMessage + "_" + type;
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(content.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(hashBytes);
-        } catch (NoSuchAlgorithmException e) {
-            // Fallback à un hash plus simple
-            return String.valueOf((message + "_" + type).hashCode());
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    // Écriture différée par lots : les appelants ne font plus le save eux-mêmes
+    @Autowired
+    private NotificationWriteBehind notificationWriter;
+
+    // Taille maximale d'une page de rattrapage après reconnexion
+    private static final int MAX_CATCH_UP = 500;
+
+    // Fenêtre de déduplication en mémoire : un seau par minute d'empreintes 64 bits
+    private static final long DEDUP_BUCKET_MILLIS = 60_000;
+
+    @Value("${notifications.dedup.window-minutes:15}")
+    private int dedupWindowMinutes = 15;
+
+    @Value("${notifications.dedup.max-entries:100000}")
+    private int dedupMaxEntries = 100000;
+
+    private volatile DedupWindow dedupWindow;
+
+    // Créée au premier usage et réamorcée une seule fois depuis la base (après un redémarrage)
+    private DedupWindow dedupWindow() {
+        DedupWindow window = dedupWindow;
+        if (window == null) {
+            synchronized (this) {
+                window = dedupWindow;
+                if (window == null) {
+                    window = new DedupWindow(DEDUP_BUCKET_MILLIS, dedupWindowMinutes + 1,
+                            dedupMaxEntries, System.currentTimeMillis());
+                    warmUp(window);
+                    dedupWindow = window;
+                }
+            }
         }
+        return window;
     }
 
-    // Vérifier si une notification similaire a été envoyée récemment
-    public boolean isSimilarNotificationRecentlySent(String message, String type) {
-        String contentHash = generateContentHash(message, type);
-
-        // Vérifier d'abord dans le cache
-        if (recentHashesCache.containsKey(contentHash)) {
-            return true;
+    private void warmUp(DedupWindow window) {
+        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(dedupWindowMinutes);
+        long now = System.currentTimeMillis();
+        for (Object[] row : notificationRepository.findRecentForDedup(cutoffTime)) {
+            String message = (String) row[0];
+            LocalDateTime timestamp = (LocalDateTime) row[2];
+            if (message != null && timestamp != null) {
+                long at = timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                window.record(DedupWindow.fingerprint(message, (String) row[1]), at, now);
+            }
         }
+    }
 
-        // Si pas dans le cache, vérifier dans la base de données
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(15);
-        List<Notification> recentSimilarNotifications =
-                notificationRepository.findSimilarNotificationsAfterTime(contentHash, cutoffTime);
+    // Empreinte du message normalisé (espaces réduits) et du type
+    private long contentFingerprint(String message, String type) {
+        return DedupWindow.fingerprint(message == null ? "" : message, type);
+    }
 
-        boolean hasSimilar = !recentSimilarNotifications.isEmpty();
-        if (hasSimilar) {
-            // Ajouter au cache
-            recentHashesCache.put(contentHash, LocalDateTime.now());
-        }
+    // Vérifier si une notification similaire a été envoyée récemment
+    public boolean isSimilarNotificationRecentlySent(String message, String type) {
+        return dedupWindow().contains(contentFingerprint(message, type), System.currentTimeMillis());
+    }
 
-        return hasSimilar;
+    public Map<String, Object> getDedupStatistics() {
+        DedupWindow window = dedupWindow();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fingerprints", window.size());
+        stats.put("maxFingerprints", dedupMaxEntries);
+        stats.put("windowMinutes", dedupWindowMinutes);
+        stats.put("evictedEarly", window.evictedEarly());
+        return stats;
     }
 
     // Créer et sauvegarder une notification avec vérification des doublons (version originale)
@@ -91,30 +116,34 @@ public class NotificationService {
         notification.setType(type);
         notification.setTimestamp(LocalDateTime.now());
 
-        // Générer le hash de contenu
-        String contentHash = generateContentHash(message, type);
-        notification.setContentHash(contentHash);
+        // Générer l'empreinte de contenu
+        long fingerprint = contentFingerprint(message, type);
+        notification.setContentHash(String.format("%016x", fingerprint));
 
-        // Vérifier seulement les notifications non prioritaires pour les doublons
-        if (!isHighPriority && isSimilarNotificationRecentlySent(message, type)) {
+        // Vérifier et enregistrer en une seule étape : deux envois identiques simultanés
+        // ne peuvent pas passer tous les deux. Les priorités sont enregistrées sans vérification.
+        long now = System.currentTimeMillis();
+        if (isHighPriority) {
+            dedupWindow().record(fingerprint, now, now);
+        } else if (dedupWindow().checkAndRecord(fingerprint, now)) {
             // Marquer comme doublon mais toujours sauvegarder pour le suivi
             notification.setDuplicate(true);
-            notification = notificationRepository.save(notification);
+            notificationWriter.enqueue(notification, null);
             return null; // Retourner null pour indiquer que ça ne devrait pas être affiché
         }
 
-        // Ajouter au cache pour les vérifications futures
-        recentHashesCache.put(contentHash, LocalDateTime.now());
-
-        // C'est une nouvelle notification ou assez de temps a passé
+        // C'est une nouvelle notification ou assez de temps a passé.
+        // L'id est attribué à l'écriture du lot, juste avant la diffusion.
         notification.setDuplicate(false);
-        return notificationRepository.save(notification);
+        afterCommit(() -> notificationWriter.enqueue(notification, () -> broadcast(notification)));
+        return notification;
     }
 
     // Nouvelle méthode pour créer des notifications de chat
     public ChatNotification createNotification(String senderId, String recipientId, String content, ChatNotification.NotificationType type) {
         ChatNotification notification = new ChatNotification(senderId, recipientId, content, type);
-        return chatNotificationRepository.save(notification);
+        afterCommit(() -> notificationWriter.enqueue(notification, () -> pushToUser(notification)));
+        return notification;
     }
 
     // Méthode pour envoyer des notifications push (implémentation basique)
@@ -130,9 +159,9 @@ public class NotificationService {
         pushNotification.setType(ChatNotification.NotificationType.SYSTEM_ALERT);
         pushNotification.setTimestamp(LocalDateTime.now());
 
-        chatNotificationRepository.save(pushNotification);
+        afterCommit(() -> notificationWriter.enqueue(pushNotification, () -> pushToUser(pushNotification)));
 
-        // TODO: Intégrer avec un service de push réel
+        // TODO: Intégrer avec un service de push mobile
         // Exemple avec FCM:
         // fcmService.sendNotification(recipientId, title, message);
     }
@@ -150,11 +179,93 @@ public class NotificationService {
         if (notification.getRecipientId().equals(recipientId)) {
             notification.setRead(true);
             chatNotificationRepository.save(notification);
+
+            // Les autres onglets du même utilisateur mettent leur badge à jour
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("event", "READ");
+            event.put("id", notification.getId());
+            afterCommit(() -> messagingTemplate.convertAndSendToUser(recipientId, "/queue/notifications", event));
         } else {
             throw new RuntimeException("Unauthorized access to notification");
         }
     }
 
+    // Rattrapage après reconnexion : notifications du destinataire après la séquence donnée (l'id).
+    // Une séquence négative renvoie seulement la dernière séquence connue.
+    public Map<String, Object> getNotificationsSince(String recipientId, long afterSeq, int limit) {
+        if (afterSeq < 0) {
+            // Premier abonnement : seulement le point de départ
+            long latestSeq = chatNotificationRepository.findTopByRecipientIdOrderByIdDesc(recipientId)
+                    .map(ChatNotification::getId).orElse(0L);
+            return catchUpPage(List.of(), latestSeq, false);
+        }
+        int size = Math.max(1, Math.min(limit, MAX_CATCH_UP));
+        List<ChatNotification> page = chatNotificationRepository.findByRecipientIdAndIdGreaterThanOrderByIdAsc(
+                recipientId, afterSeq, PageRequest.of(0, size + 1));
+        boolean hasMore = page.size() > size;
+        List<ChatNotification> notifications = hasMore ? page.subList(0, size) : page;
+        long latestSeq = notifications.isEmpty() ? afterSeq : notifications.get(notifications.size() - 1).getId();
+        return catchUpPage(notifications, latestSeq, hasMore);
+    }
+
+    // Rattrapage des notifications système diffusées sur /topic/notifications
+    public Map<String, Object> getSystemNotificationsSince(long afterSeq, int limit) {
+        if (afterSeq < 0) {
+            long latestSeq = notificationRepository.findTopByDuplicateFalseOrderByIdDesc()
+                    .map(Notification::getId).orElse(0L);
+            return catchUpPage(List.of(), latestSeq, false);
+        }
+        int size = Math.max(1, Math.min(limit, MAX_CATCH_UP));
+        List<Notification> page = notificationRepository.findByIdGreaterThanAndDuplicateFalseOrderByIdAsc(
+                afterSeq, PageRequest.of(0, size + 1));
+        boolean hasMore = page.size() > size;
+        List<Notification> notifications = hasMore ? page.subList(0, size) : page;
+        long latestSeq = notifications.isEmpty() ? afterSeq : notifications.get(notifications.size() - 1).getId();
+        return catchUpPage(notifications, latestSeq, hasMore);
+    }
+
+    private Map<String, Object> catchUpPage(List<?> notifications, long latestSeq, boolean hasMore) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("notifications", notifications);
+        result.put("latestSeq", latestSeq);
+        result.put("hasMore", hasMore);
+        return result;
+    }
+
+    // Diffusion aux clients connectés, appelée une fois la notification écrite
+    private void pushToUser(ChatNotification notification) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", "CREATED");
+        event.put("seq", notification.getId());
+        event.put("notification", notification);
+        messagingTemplate.convertAndSendToUser(notification.getRecipientId(), "/queue/notifications", event);
+    }
+
+    private void broadcast(Notification notification) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("event", "CREATED");
+        event.put("seq", notification.getId());
+        event.put("notification", notification);
+        messagingTemplate.convertAndSend("/topic/notifications", event);
+    }
+
+    public Map<String, Object> getWriteBehindStatistics() {
+        return notificationWriter.getStatistics();
+    }
+
+    private void afterCommit(Runnable send) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send.run();
+                }
+            });
+        } else {
+            send.run();
+        }
+    }
+
     // Récupérer toutes les notifications non-dupliquées (version originale)
     public List<Notification> getAllNonDuplicateNotifications() {
         return notificationRepository.findAll().stream()
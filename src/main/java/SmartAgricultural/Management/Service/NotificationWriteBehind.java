@@ -0,0 +1,508 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.ChatNotification;
+import SmartAgricultural.Management.Model.Notification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind persistence for chat and system notifications.
+ *
+ * Callers put a notification on a bounded queue and return; a single writer thread drains
+ * it into JDBC batches, flushed when a batch is full or when the oldest queued notification
+ * has waited the flush interval. Ids are assigned by the insert and set on the entity before
+ * its after-write callback runs (the STOMP push), so clients only ever see persisted ids.
+ *
+ * When the queue stays full for the enqueue timeout the caller writes its notification
+ * itself, which slows an alert storm down to the database's pace instead of dropping or
+ * buffering without bound. A batch the database rejects is retried one row at a time, so
+ * a single bad row cannot hold back the rest. A row rejected for its own data (a constraint
+ * or a value too long for its column) goes to a dead-letter file that is never replayed.
+ * Once a row fails for any other reason the database is taken to be unavailable: that row
+ * and the rest of the batch, like whatever is still queued when the writer cannot finish at
+ * shutdown, are appended to a spill file as NDJSON and written again on the next start or
+ * retry pass.
+ */
+@Service
+public class NotificationWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationWriteBehind.class);
+
+    private static final String INSERT_CHAT_SQL = "INSERT INTO chat_notifications " +
+            "(sender_id, recipient_id, content, timestamp, type, is_read) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_SYSTEM_SQL = "INSERT INTO notification " +
+            "(message, type, timestamp, content_hash, is_duplicate) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SPILL_PREFIX = "spill-";
+    private static final String SPILL_SUFFIX = ".ndjson";
+    private static final String DEAD_LETTER_PREFIX = "dead-letter-";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Pending> queue;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long enqueueTimeoutMillis;
+
+    @Value("${notifications.write-behind.spill-dir:data/notification-spill}")
+    private String spillDir = "data/notification-spill";
+
+    private final Object spillLock = new Object();
+    private final AtomicLong spillSequence = new AtomicLong();
+
+    private volatile Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean accepting = true;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong callerWrites = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong flushNanosTotal = new AtomicLong();
+    private final AtomicLong flushNanosMax = new AtomicLong();
+    private final AtomicLong latencyNanosTotal = new AtomicLong();
+    private final AtomicLong latencyNanosMax = new AtomicLong();
+
+    public NotificationWriteBehind(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper,
+                                   @Value("${notifications.write-behind.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${notifications.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${notifications.write-behind.flush-interval-ms:50}") long flushIntervalMillis,
+                                   @Value("${notifications.write-behind.enqueue-timeout-ms:100}") long enqueueTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        // A caller's own transaction may already be committed (after-commit callbacks), so always start a new one
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.enqueueTimeoutMillis = Math.max(0, enqueueTimeoutMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        replaySpills();
+        Thread thread = new Thread(this::runWriter, "notification-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // From here on callers write synchronously; the writer drains what is queued
+        accepting = false;
+        running = false;
+        Thread thread = writer;
+        if (thread != null) {
+            try {
+                thread.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            logger.warn("Notification writer did not finish, spilling {} queued notifications", remaining.size());
+            spill(remaining);
+        }
+    }
+
+    // =================================================================================
+    // ENQUEUE
+    // =================================================================================
+
+    public void enqueue(ChatNotification notification, Runnable afterWrite) {
+        submit(new Pending(notification, null, afterWrite));
+    }
+
+    public void enqueue(Notification notification, Runnable afterWrite) {
+        submit(new Pending(null, notification, afterWrite));
+    }
+
+    private void submit(Pending pending) {
+        if (accepting) {
+            try {
+                if (queue.offer(pending, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    enqueued.incrementAndGet();
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Queue full (or shutting down): the caller pays for its own write
+        callerWrites.incrementAndGet();
+        write(List.of(pending));
+    }
+
+    // =================================================================================
+    // WRITER
+    // =================================================================================
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.enqueuedAt + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                write(batch);
+                return;
+            } catch (Exception e) {
+                logger.error("Notification writer error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() > 1) {
+            long startedAt = System.nanoTime();
+            try {
+                insert(batch);
+                completed(batch, startedAt);
+                return;
+            } catch (Exception e) {
+                failedBatches.incrementAndGet();
+                logger.warn("Failed to write a batch of {} notifications, retrying them one by one: {}",
+                        batch.size(), e.getMessage());
+            }
+        }
+        writeOneByOne(batch);
+    }
+
+    private void writeOneByOne(List<Pending> batch) {
+        List<DeadLetterRecord> deadLetters = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            long startedAt = System.nanoTime();
+            try {
+                insert(List.of(pending));
+                completed(List.of(pending), startedAt);
+            } catch (DataIntegrityViolationException e) {
+                logger.error("Notification rejected by the database, moving it to the dead-letter file: {}",
+                        e.getMostSpecificCause().getMessage());
+                deadLetters.add(new DeadLetterRecord(pending.chat, pending.system,
+                        e.getMostSpecificCause().getMessage()));
+            } catch (Exception e) {
+                // Not this row's data: the database is unavailable, so keep the rest for the retry pass
+                logger.error("Failed to write notifications, spilling {}: {}", batch.size() - i, e.getMessage());
+                spill(batch.subList(i, batch.size()));
+                break;
+            }
+        }
+        if (!deadLetters.isEmpty()) {
+            deadLetter(deadLetters);
+        }
+    }
+
+    private void insert(List<Pending> batch) {
+        List<ChatNotification> chat = new ArrayList<>();
+        List<Notification> system = new ArrayList<>();
+        for (Pending pending : batch) {
+            if (pending.chat != null) {
+                chat.add(pending.chat);
+            } else {
+                system.add(pending.system);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            insertChat(chat);
+            insertSystem(system);
+        });
+    }
+
+    private void completed(List<Pending> batch, long startedAt) {
+        long now = System.nanoTime();
+        long flushNanos = now - startedAt;
+        flushNanosTotal.addAndGet(flushNanos);
+        flushNanosMax.accumulateAndGet(flushNanos, Math::max);
+        batches.incrementAndGet();
+        written.addAndGet(batch.size());
+
+        for (Pending pending : batch) {
+            long latency = now - pending.enqueuedAt;
+            latencyNanosTotal.addAndGet(latency);
+            latencyNanosMax.accumulateAndGet(latency, Math::max);
+            if (pending.afterWrite != null) {
+                try {
+                    pending.afterWrite.run();
+                } catch (Exception e) {
+                    logger.warn("Error after writing notification: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void insertChat(List<ChatNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_CHAT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ChatNotification n = notifications.get(i);
+                        ps.setString(1, n.getSenderId());
+                        ps.setString(2, n.getRecipientId());
+                        ps.setString(3, n.getContent());
+                        ps.setTimestamp(4, Timestamp.valueOf(n.getTimestamp()));
+                        ps.setString(5, n.getType() != null ? n.getType().name() : null);
+                        ps.setBoolean(6, n.isRead());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return notifications.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < notifications.size() && i < generated.size(); i++) {
+            notifications.get(i).setId(generatedId(generated.get(i)));
+        }
+    }
+
+    private void insertSystem(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SYSTEM_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Notification n = notifications.get(i);
+                        ps.setString(1, n.getMessage());
+                        ps.setString(2, n.getType());
+                        ps.setTimestamp(3, n.getTimestamp() != null ? Timestamp.valueOf(n.getTimestamp()) : null);
+                        ps.setString(4, n.getContentHash());
+                        ps.setBoolean(5, n.isDuplicate());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return notifications.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < notifications.size() && i < generated.size(); i++) {
+            notifications.get(i).setId(generatedId(generated.get(i)));
+        }
+    }
+
+    private static Long generatedId(Map<String, Object> keys) {
+        Object key = keys.values().iterator().next();
+        return key instanceof Number ? ((Number) key).longValue() : null;
+    }
+
+    // =================================================================================
+    // SPILL FILES
+    // =================================================================================
+
+    private void spill(List<Pending> batch) {
+        List<SpillRecord> records = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            records.add(new SpillRecord(pending.chat, pending.system));
+        }
+        if (appendFile(SPILL_PREFIX, records)) {
+            spilled.addAndGet(records.size());
+        }
+    }
+
+    /**
+     * Keeps rows the database will never accept, with the reason, for someone to fix by hand.
+     */
+    private void deadLetter(List<DeadLetterRecord> records) {
+        if (appendFile(DEAD_LETTER_PREFIX, records)) {
+            deadLettered.addAndGet(records.size());
+        }
+    }
+
+    private boolean appendFile(String prefix, List<?> records) {
+        synchronized (spillLock) {
+            Path dir = Paths.get(spillDir);
+            Path file = dir.resolve(prefix + System.currentTimeMillis() + "-"
+                    + spillSequence.incrementAndGet() + SPILL_SUFFIX);
+            try {
+                Files.createDirectories(dir);
+                try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    for (Object record : records) {
+                        out.write(objectMapper.writeValueAsString(record));
+                        out.newLine();
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                logger.error("Failed to write {} notifications to {}; they are lost", records.size(), file, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Writes spilled notifications back to the database. Runs at startup and periodically,
+     * so a batch rejected during a database outage is written once the database is back.
+     */
+    @Scheduled(initialDelayString = "${notifications.write-behind.spill-retry-interval-ms:60000}",
+            fixedDelayString = "${notifications.write-behind.spill-retry-interval-ms:60000}")
+    public void replaySpills() {
+        synchronized (spillLock) {
+            Path dir = Paths.get(spillDir);
+            if (!Files.isDirectory(dir)) {
+                return;
+            }
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(dir)) {
+                files = listing.filter(p -> {
+                    String name = p.getFileName().toString();
+                    return name.startsWith(SPILL_PREFIX) && name.endsWith(SPILL_SUFFIX);
+                }).sorted().toList();
+            } catch (IOException e) {
+                logger.error("Failed to list notification spill files", e);
+                return;
+            }
+
+            for (Path file : files) {
+                List<Pending> pending = new ArrayList<>();
+                try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (line.isBlank()) {
+                            continue;
+                        }
+                        SpillRecord record = objectMapper.readValue(line, SpillRecord.class);
+                        if (record.chat() != null || record.system() != null) {
+                            pending.add(new Pending(record.chat(), record.system(), null));
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.error("Unreadable notification spill file {}, leaving it in place", file, e);
+                    continue;
+                }
+
+                // Rows that fail again are spilled or dead-lettered to new files, so this one can go either way
+                for (int from = 0; from < pending.size(); from += batchSize) {
+                    write(pending.subList(from, Math.min(pending.size(), from + batchSize)));
+                }
+                replayed.addAndGet(pending.size());
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.error("Failed to delete replayed spill file {}", file, e);
+                }
+            }
+        }
+    }
+
+    // =================================================================================
+    // STATISTICS
+    // =================================================================================
+
+    public Map<String, Object> getStatistics() {
+        long batchCount = batches.get();
+        long writtenCount = written.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("enqueued", enqueued.get());
+        stats.put("written", writtenCount);
+        stats.put("batches", batchCount);
+        stats.put("avgBatchSize", batchCount > 0 ? (double) writtenCount / batchCount : 0.0);
+        stats.put("callerWrites", callerWrites.get());
+        stats.put("failedBatches", failedBatches.get());
+        stats.put("spilled", spilled.get());
+        stats.put("deadLettered", deadLettered.get());
+        stats.put("replayed", replayed.get());
+        stats.put("avgFlushMillis", batchCount > 0 ? flushNanosTotal.get() / batchCount / 1_000_000.0 : 0.0);
+        stats.put("maxFlushMillis", flushNanosMax.get() / 1_000_000.0);
+        stats.put("avgLatencyMillis", writtenCount > 0 ? latencyNanosTotal.get() / writtenCount / 1_000_000.0 : 0.0);
+        stats.put("maxLatencyMillis", latencyNanosMax.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private static final class Pending {
+        private final ChatNotification chat;
+        private final Notification system;
+        private final Runnable afterWrite;
+        private final long enqueuedAt = System.nanoTime();
+
+        private Pending(ChatNotification chat, Notification system, Runnable afterWrite) {
+            this.chat = chat;
+            this.system = system;
+            this.afterWrite = afterWrite;
+        }
+    }
+
+    private record SpillRecord(ChatNotification chat, Notification system) {
+    }
+
+    private record DeadLetterRecord(ChatNotification chat, Notification system, String error) {
+    }
+}
@@ -0,0 +1,60 @@
+package SmartAgricultural.Management.Service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Where presence state lives. Timestamps are epoch milliseconds.
+ *
+ * The in-memory store serves a single node; the JDBC store keeps one row per user in a
+ * shared table so every node answers presence queries the same way. Each method reports
+ * whether it changed the user's online state, so only the node that made the transition
+ * publishes it.
+ */
+public interface PresenceStore {
+
+    /**
+     * Records a heartbeat valid until {@code expiresAt}. Returns true if the user was not
+     * online before, i.e. this heartbeat brought them online.
+     */
+    boolean heartbeat(String userId, long now, long expiresAt);
+
+    /**
+     * Marks the user offline. Returns true if they were online.
+     */
+    boolean markOffline(String userId, long now);
+
+    /**
+     * Marks the user offline if no heartbeat has extended them past {@code now}. Returns true
+     * if this call took them offline.
+     */
+    boolean expire(String userId, long now);
+
+    /**
+     * Current presence of the given users; users never seen are absent from the result.
+     */
+    Map<String, Presence> find(Collection<String> userIds, long now);
+
+    /**
+     * Forgets offline users last seen before {@code lastSeenBefore}.
+     */
+    void purge(long lastSeenBefore);
+
+    final class Presence {
+        private final boolean online;
+        private final long lastSeen;
+
+        public Presence(boolean online, long lastSeen) {
+            this.online = online;
+            this.lastSeen = lastSeen;
+        }
+
+        public boolean isOnline() {
+            return online;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package SmartAgricultural.Management.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves profile images stored in the legacy {@code users.profile_image_data} column into the
+ * {@link ProfileImageStore}.
+ *
+ * The column is no longer mapped on {@code User}, so it is only read here, with plain JDBC and
+ * one row's bytes at a time. A scheduled pass migrates a batch of users and stops for good once
+ * none are left (or the column does not exist, as on a fresh database); any other database
+ * error only skips the pass. A request for a user
+ * not migrated yet migrates that user on the spot. Each migrated row gets its key and URL set
+ * and its bytes cleared in one update. Users who uploaded a new image through the store already
+ * have a key; their legacy bytes are only cleared, never migrated over the new image. Deleting
+ * a profile image clears the legacy bytes as well, so the deleted image never comes back.
+ */
+@Service
+public class ProfileImageMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileImageMigrator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProfileImageStore profileImageStore;
+    private final int batchSize;
+
+    private volatile boolean finished;
+
+    // Rows whose bytes are not a readable image; left in place for inspection, skipped by later passes
+    private final Set<String> unreadable = Collections.synchronizedSet(new HashSet<>());
+
+    private final AtomicLong migrated = new AtomicLong();
+
+    public ProfileImageMigrator(JdbcTemplate jdbcTemplate, ProfileImageStore profileImageStore,
+                                @Value("${profile.images.migration-batch-size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.profileImageStore = profileImageStore;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(initialDelayString = "${profile.images.migration-interval-ms:30000}",
+            fixedDelayString = "${profile.images.migration-interval-ms:30000}")
+    public void migrateBatch() {
+        if (finished) {
+            return;
+        }
+        List<String> ids;
+        try {
+            int superseded = jdbcTemplate.update("UPDATE users SET profile_image_data = NULL " +
+                    "WHERE profile_image_data IS NOT NULL AND profile_image_key IS NOT NULL");
+            if (superseded > 0) {
+                logger.info("Cleared {} legacy profile images replaced by newer uploads", superseded);
+            }
+            ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM users WHERE profile_image_data IS NOT NULL AND profile_image_key IS NULL LIMIT ?",
+                    String.class, batchSize + unreadable.size());
+        } catch (DataAccessException e) {
+            if (isMissingColumn(e)) {
+                logger.info("No legacy profile image column to migrate: {}", e.getMostSpecificCause().getMessage());
+                finished = true;
+            } else {
+                // Outage or lock timeout: try again on the next pass
+                logger.warn("Profile image migration pass failed, retrying later: {}",
+                        e.getMostSpecificCause().getMessage());
+            }
+            return;
+        }
+
+        int done = 0;
+        for (String id : ids) {
+            if (done >= batchSize) {
+                break;
+            }
+            if (!unreadable.contains(id)) {
+                migrateUser(id);
+                done++;
+            }
+        }
+        if (done == 0) {
+            finished = true;
+            logger.info("Profile image migration complete: {} migrated, {} unreadable",
+                    migrated.get(), unreadable.size());
+        } else {
+            logger.info("Migrated {} legacy profile images ({} in total)", done, migrated.get());
+        }
+    }
+
+    /**
+     * Migrates one user's legacy image and returns its key, or null if the user has none.
+     */
+    public String migrateUser(String userId) {
+        if (finished || unreadable.contains(userId)) {
+            return null;
+        }
+        try {
+            List<byte[]> rows = jdbcTemplate.query(
+                    "SELECT profile_image_data FROM users WHERE id = ? AND profile_image_data IS NOT NULL " +
+                            "AND profile_image_key IS NULL",
+                    (rs, rowNum) -> rs.getBytes(1), userId);
+            if (rows.isEmpty() || rows.get(0) == null || rows.get(0).length == 0) {
+                return null;
+            }
+
+            String key = profileImageStore.store(rows.get(0));
+            // Guarded on the bytes too: a delete that cleared them while they were stored wins
+            int updated = jdbcTemplate.update("UPDATE users SET profile_image_key = ?, profile_image_url = ?, " +
+                            "profile_image_data = NULL WHERE id = ? AND profile_image_key IS NULL " +
+                            "AND profile_image_data IS NOT NULL",
+                    key, ProfileImageStore.profileImageUrl(userId, key), userId);
+            if (updated == 0) {
+                // The user uploaded a new image or deleted theirs while this one was being stored
+                List<String> current = jdbcTemplate.queryForList(
+                        "SELECT profile_image_key FROM users WHERE id = ?", String.class, userId);
+                return current.isEmpty() ? null : current.get(0);
+            }
+            migrated.incrementAndGet();
+            return key;
+        } catch (IllegalArgumentException e) {
+            unreadable.add(userId);
+            logger.warn("Legacy profile image of user {} is not a readable image", userId);
+        } catch (DataAccessException e) {
+            logger.debug("Legacy profile image lookup failed for user {}: {}", userId,
+                    e.getMostSpecificCause().getMessage());
+        } catch (Exception e) {
+            logger.error("Error migrating profile image of user {}", userId, e);
+        }
+        return null;
+    }
+
+    /**
+     * True when the failure is the legacy column being absent (MySQL error 1054, SQL state 42S22).
+     */
+    static boolean isMissingColumn(DataAccessException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql && ("42S22".equals(sql.getSQLState()) || sql.getErrorCode() == 1054)) {
+                return true;
+            }
+        }
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains("unknown column");
+    }
+
+    /**
+     * Drops the user's legacy image bytes, so that deleting a profile image does not let the
+     * next request or pass migrate the old one back.
+     */
+    public void discardLegacyImage(String userId) {
+        try {
+            jdbcTemplate.update("UPDATE users SET profile_image_data = NULL WHERE id = ? " +
+                    "AND profile_image_data IS NOT NULL", userId);
+            unreadable.remove(userId);
+        } catch (DataAccessException e) {
+            if (!isMissingColumn(e)) {
+                throw e;
+            }
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("finished", finished);
+        stats.put("migrated", migrated.get());
+        stats.put("unreadable", unreadable.size());
+        return stats;
+    }
+}
@@ -0,0 +1,351 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Profile images as resized JPEG variants on disk, with the small ones also held in memory.
+ *
+ * An upload is decoded once and written as one JPEG per configured size under
+ * {@code <upload-dir>/profile-images/<first two hex>/<sha256>/<size>.jpg}, named after the
+ * content of the upload. A key therefore never changes meaning: responses can carry strong
+ * ETags and, when the URL names the key, be cached as immutable. The user row only keeps the
+ * key. Variants up to the memory limit per image are kept in a byte-bounded LRU in front of
+ * the disk, so avatars in lists are served without touching the file system.
+ *
+ * Identical uploads share a directory, so nothing is deleted on replace; a daily sweep
+ * removes directories no user references any more once they are past the grace period.
+ */
+@Service
+public class ProfileImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileImageStore.class);
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final UserRepository userRepository;
+    private final Path root;
+    private final List<Integer> sizes;
+    private final long memoryLimitBytes;
+    private final int memoryMaxVariantBytes;
+
+    @Value("${profile.images.gc-grace-hours:24}")
+    private long gcGraceHours = 24;
+
+    // Memory tier, least recently used first out once the byte limit is reached
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskReads = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong swept = new AtomicLong();
+
+    public ProfileImageStore(UserRepository userRepository,
+                             @Value("${app.upload.dir:uploads}") String uploadDir,
+                             @Value("${profile.images.sizes:64,256,1024}") List<Integer> sizes,
+                             @Value("${profile.images.memory-cache-bytes:16777216}") long memoryLimitBytes,
+                             @Value("${profile.images.memory-max-variant-bytes:65536}") int memoryMaxVariantBytes) {
+        this.userRepository = userRepository;
+        this.root = Paths.get(uploadDir, "profile-images").toAbsolutePath().normalize();
+        this.sizes = List.copyOf(new TreeSet<>(sizes));
+        if (this.sizes.isEmpty()) {
+            throw new IllegalArgumentException("At least one profile image size is required");
+        }
+        this.memoryLimitBytes = memoryLimitBytes;
+        this.memoryMaxVariantBytes = memoryMaxVariantBytes;
+    }
+
+    // =================================================================================
+    // STORE
+    // =================================================================================
+
+    /**
+     * Writes every variant of the image and returns its key (the SHA-256 of the bytes).
+     *
+     * @throws IllegalArgumentException if the bytes are not a readable image
+     */
+    public String store(byte[] data) throws IOException {
+        if (data == null || data.length == 0) {
+            throw new IllegalArgumentException("Image is empty");
+        }
+        String key = sha256(data);
+        Path dir = directory(key);
+        if (hasAllVariants(dir)) {
+            // Touched so the sweep's grace period restarts for a re-used image
+            Files.setLastModifiedTime(dir, FileTime.from(Instant.now()));
+            deduplicated.incrementAndGet();
+            return key;
+        }
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null) {
+            throw new IllegalArgumentException("File is not a readable image");
+        }
+
+        Files.createDirectories(dir);
+        for (int size : sizes) {
+            Path target = dir.resolve(size + ".jpg");
+            if (!Files.isRegularFile(target)) {
+                writeAtomically(scale(image, size), target);
+            }
+        }
+        stored.incrementAndGet();
+        logger.debug("Stored profile image {} in {} sizes", key, sizes.size());
+        return key;
+    }
+
+    // =================================================================================
+    // READ
+    // =================================================================================
+
+    /**
+     * The variant closest to {@code requestedSize} from above (or the largest); null if the key
+     * is unknown or malformed.
+     */
+    public Variant get(String key, int requestedSize) throws IOException {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            return null;
+        }
+        int size = snapSize(requestedSize);
+        String cacheKey = key + "-" + size;
+
+        synchronized (memory) {
+            byte[] cached = memory.get(cacheKey);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                return new Variant(cached, etag(key, size));
+            }
+        }
+
+        Path file = directory(key).resolve(size + ".jpg");
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        diskReads.incrementAndGet();
+        if (bytes.length <= memoryMaxVariantBytes) {
+            remember(cacheKey, bytes);
+        }
+        return new Variant(bytes, etag(key, size));
+    }
+
+    /**
+     * The URL stored on the user; the version parameter lets clients cache it as immutable.
+     */
+    public static String profileImageUrl(String userId, String key) {
+        return "api/users/" + userId + "/profile-image?v=" + version(key);
+    }
+
+    public static String version(String key) {
+        return key.substring(0, 16);
+    }
+
+    public static String etag(String key, int size) {
+        return "\"" + version(key) + "-" + size + "\"";
+    }
+
+    public int snapSize(int requestedSize) {
+        for (int size : sizes) {
+            if (size >= requestedSize) {
+                return size;
+            }
+        }
+        return sizes.get(sizes.size() - 1);
+    }
+
+    public int largestSize() {
+        return sizes.get(sizes.size() - 1);
+    }
+
+    private void remember(String cacheKey, byte[] bytes) {
+        synchronized (memory) {
+            byte[] previous = memory.put(cacheKey, bytes);
+            memoryBytes += bytes.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> it = memory.values().iterator();
+            while (memoryBytes > memoryLimitBytes && it.hasNext()) {
+                memoryBytes -= it.next().length;
+                it.remove();
+            }
+        }
+    }
+
+    // =================================================================================
+    // SWEEP
+    // =================================================================================
+
+    @Scheduled(initialDelayString = "${profile.images.gc-interval-ms:86400000}",
+            fixedDelayString = "${profile.images.gc-interval-ms:86400000}")
+    public void sweepUnreferenced() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try {
+            Set<String> referenced = new HashSet<>(userRepository.findAllProfileImageKeys());
+            Instant cutoff = Instant.now().minus(gcGraceHours, ChronoUnit.HOURS);
+            int removed = 0;
+
+            try (Stream<Path> shards = Files.list(root)) {
+                for (Path shard : shards.filter(Files::isDirectory).toList()) {
+                    try (Stream<Path> dirs = Files.list(shard)) {
+                        for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                            String key = dir.getFileName().toString();
+                            if (!KEY_PATTERN.matcher(key).matches() || referenced.contains(key)
+                                    || Files.getLastModifiedTime(dir).toInstant().isAfter(cutoff)) {
+                                continue;
+                            }
+                            deleteDirectory(dir);
+                            forget(key);
+                            removed++;
+                        }
+                    }
+                }
+            }
+            if (removed > 0) {
+                swept.addAndGet(removed);
+                logger.info("Removed {} unreferenced profile images", removed);
+            }
+        } catch (Exception e) {
+            logger.error("Error sweeping unreferenced profile images", e);
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (memory) {
+            Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, byte[]> entry = it.next();
+                if (entry.getKey().startsWith(key)) {
+                    memoryBytes -= entry.getValue().length;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    // =================================================================================
+    // HELPERS
+    // =================================================================================
+
+    private Path directory(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private boolean hasAllVariants(Path dir) {
+        for (int size : sizes) {
+            if (!Files.isRegularFile(dir.resolve(size + ".jpg"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Transparent areas become white rather than the black a plain RGB copy would give
+    private BufferedImage scale(BufferedImage original, int maxSize) {
+        double scaleFactor = Math.min(1.0, Math.min(
+                (double) maxSize / original.getWidth(),
+                (double) maxSize / original.getHeight()
+        ));
+        int width = Math.max(1, (int) (original.getWidth() * scaleFactor));
+        int height = Math.max(1, (int) (original.getHeight() * scaleFactor));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, width, height);
+        g2d.drawImage(original, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+
+    // Written to a temporary file first so readers never see a partial JPEG
+    private void writeAtomically(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".variant-", ".tmp");
+        try {
+            ImageIO.write(image, "jpg", temp.toFile());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // =================================================================================
+    // STATISTICS
+    // =================================================================================
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (memory) {
+            stats.put("memoryVariants", memory.size());
+            stats.put("memoryBytes", memoryBytes);
+        }
+        stats.put("memoryLimitBytes", memoryLimitBytes);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskReads", diskReads.get());
+        stats.put("stored", stored.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("swept", swept.get());
+        stats.put("sizes", sizes);
+        return stats;
+    }
+
+    public static class Variant {
+        private final byte[] bytes;
+        private final String etag;
+
+        public Variant(byte[] bytes, String etag) {
+            this.bytes = bytes;
+            this.etag = etag;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.UploadBlob;
+import SmartAgricultural.Management.Repository.UploadBlobReferenceRepository;
+import SmartAgricultural.Management.Repository.UploadBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store shared by chat media, profile images and crop images.
+ *
+ * An upload is streamed to a temp file while its SHA-256 is computed, then kept once under
+ * {@code <upload-dir>/blobs/<first two hex>/<sha256><ext>}; a second upload of the same bytes
+ * only adds a reference and its temp file is discarded. Because the name is the content, the
+ * chat derivatives written next to it ({@code <sha256>-<size>.jpg}) serve every message that
+ * carries the file.
+ *
+ * Every reference belongs to an owner ({@code chat-message:<id>}, {@code user-profile:<id>},
+ * {@code upload:<token>}) and is a row in {@code upload_blob_refs}; {@code upload_blobs} counts
+ * them. Taking or releasing a reference is idempotent per owner, so a caller can only give up
+ * what it holds and repeated releases cannot drive the count of a shared blob to zero. A blob
+ * counted before owners were recorded keeps those references for good: it is never collected.
+ *
+ * A blob left without references for the grace
+ * period is deleted with its derivatives; files that never got a row (an upload whose
+ * transaction rolled back) are swept by a slower pass over the directory. Store and delete of
+ * one hash are serialized in this process, so run a single collector when several nodes
+ * share the directory.
+ */
+@Service
+public class UploadBlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadBlobStore.class);
+
+    public static final String URL_PREFIX = "/uploads/blobs/";
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,10}");
+    private static final int GC_BATCH = 500;
+    private static final int LOCK_STRIPES = 64;
+
+    private final UploadBlobRepository uploadBlobRepository;
+    private final UploadBlobReferenceRepository uploadBlobReferenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path root;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @Value("${storage.blobs.gc-grace-hours:24}")
+    private int gcGraceHours = 24;
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong collected = new AtomicLong();
+    private final AtomicLong collectedBytes = new AtomicLong();
+    private final AtomicLong orphansRemoved = new AtomicLong();
+
+    public UploadBlobStore(UploadBlobRepository uploadBlobRepository,
+                           UploadBlobReferenceRepository uploadBlobReferenceRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.upload.dir:uploads}") String uploadDir) {
+        this.uploadBlobRepository = uploadBlobRepository;
+        this.uploadBlobReferenceRepository = uploadBlobReferenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.root = Paths.get(uploadDir, "blobs").toAbsolutePath().normalize();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // =================================================================================
+    // STORE / RELEASE
+    // =================================================================================
+
+    /**
+     * Owner key for {@link #store} and {@link #release}, e.g. {@code owner("chat-message", 42)}.
+     */
+    public static String owner(String kind, Object id) {
+        return kind + ":" + id;
+    }
+
+    /**
+     * Stores the content and takes {@code owner}'s reference on it (a no-op if it already holds
+     * one). Joins the caller's transaction, so the reference is only counted if the caller commits.
+     */
+    public StoredBlob store(InputStream input, String originalFilename, String contentType, String owner)
+            throws IOException {
+        Path tmpDir = root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        Path temp = Files.createTempFile(tmpDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(input, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                size = in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String extension = extensionOf(originalFilename);
+
+            boolean duplicate;
+            Path target;
+            synchronized (lockFor(hash)) {
+                String storedExtension = transactionTemplate.execute(status -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    if (uploadBlobReferenceRepository.insertIfAbsent(hash, owner, now) > 0) {
+                        uploadBlobRepository.acquire(hash, size, contentType, extension, now);
+                    }
+                    return uploadBlobRepository.findById(hash).map(UploadBlob::getExtension).orElse(extension);
+                });
+                target = pathFor(hash, storedExtension);
+                duplicate = Files.isRegularFile(target);
+                if (!duplicate) {
+                    Files.createDirectories(target.getParent());
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            stored.incrementAndGet();
+            if (duplicate) {
+                deduplicated.incrementAndGet();
+                bytesSaved.addAndGet(size);
+            } else {
+                bytesWritten.addAndGet(size);
+            }
+            String fileName = target.getFileName().toString();
+            logger.debug("Stored blob {} ({} bytes, duplicate: {})", fileName, size, duplicate);
+            return new StoredBlob(hash, URL_PREFIX + hash.substring(0, 2) + "/" + fileName, fileName, size, duplicate);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Drops {@code owner}'s reference to the blob behind {@code url}, if it holds one; returns
+     * false when the URL is not a blob URL (files stored before the blob store existed), which
+     * the caller handles itself.
+     */
+    public boolean release(String url, String owner) {
+        String hash = hashFromUrl(url);
+        if (hash == null) {
+            return false;
+        }
+        Boolean dropped = transactionTemplate.execute(status -> {
+            if (uploadBlobReferenceRepository.deleteByHashAndOwner(hash, owner) == 0) {
+                return false;
+            }
+            uploadBlobRepository.release(hash, LocalDateTime.now());
+            return true;
+        });
+        if (Boolean.TRUE.equals(dropped)) {
+            released.incrementAndGet();
+        } else {
+            logger.debug("{} holds no reference to blob {}", owner, hash);
+        }
+        return true;
+    }
+
+    /**
+     * Whether {@code owner} holds a reference to the blob behind {@code url}.
+     */
+    public boolean isHeldBy(String url, String owner) {
+        String hash = hashFromUrl(url);
+        return hash != null && uploadBlobReferenceRepository.existsByHashAndOwner(hash, owner);
+    }
+
+    /**
+     * Hands a reference over to another owner, e.g. from an upload to the message it was sent with.
+     */
+    public boolean transfer(String url, String fromOwner, String toOwner) {
+        String hash = hashFromUrl(url);
+        if (hash == null) {
+            return false;
+        }
+        Integer moved = transactionTemplate.execute(status ->
+                uploadBlobReferenceRepository.transfer(hash, fromOwner, toOwner));
+        return moved != null && moved > 0;
+    }
+
+    public boolean isBlobUrl(String url) {
+        return hashFromUrl(url) != null;
+    }
+
+    /**
+     * Content hash named by a blob URL or file name, or null if it is not one.
+     */
+    public static String hashFromUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        if (url.contains("/") && !url.contains(URL_PREFIX.substring(1))) {
+            return null;
+        }
+        int dot = name.indexOf('.');
+        String hash = dot >= 0 ? name.substring(0, dot) : name;
+        return HASH.matcher(hash).matches() ? hash : null;
+    }
+
+    private Path pathFor(String hash, String extension) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash + extension);
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename == null || !filename.contains(".")) {
+            return "";
+        }
+        String extension = filename.substring(filename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // =================================================================================
+    // GARBAGE COLLECTION
+    // =================================================================================
+
+    @Scheduled(initialDelayString = "${storage.blobs.gc-interval-ms:3600000}",
+            fixedDelayString = "${storage.blobs.gc-interval-ms:3600000}")
+    public void collectGarbage() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(gcGraceHours);
+        int removed = 0;
+        long bytes = 0;
+        try {
+            while (true) {
+                List<String> hashes = uploadBlobRepository.findUnreferencedSince(cutoff, PageRequest.of(0, GC_BATCH));
+                for (String hash : hashes) {
+                    synchronized (lockFor(hash)) {
+                        Integer deleted = transactionTemplate.execute(status ->
+                                uploadBlobRepository.deleteIfUnreferenced(hash, cutoff));
+                        if (deleted != null && deleted > 0) {
+                            bytes += deleteFiles(hash);
+                            removed++;
+                        }
+                    }
+                }
+                if (hashes.size() < GC_BATCH) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error collecting unreferenced blobs", e);
+        }
+        if (removed > 0) {
+            collected.addAndGet(removed);
+            collectedBytes.addAndGet(bytes);
+            logger.info("Removed {} unreferenced blobs ({} bytes)", removed, bytes);
+        }
+    }
+
+    /**
+     * Removes blob files without a row and stale temp files, both older than the grace period.
+     */
+    @Scheduled(initialDelayString = "${storage.blobs.orphan-sweep-interval-ms:86400000}",
+            fixedDelayString = "${storage.blobs.orphan-sweep-interval-ms:86400000}")
+    public void sweepOrphans() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        FileTime cutoff = FileTime.fromMillis(System.currentTimeMillis() - gcGraceHours * 3600_000L);
+        int removed = 0;
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(root)) {
+            for (Path shard : shards) {
+                if (!Files.isDirectory(shard)) {
+                    continue;
+                }
+                if (shard.getFileName().toString().equals("tmp")) {
+                    removed += deleteOlderThan(shard, cutoff);
+                    continue;
+                }
+                Map<String, Path> candidates = new HashMap<>();
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                    for (Path file : files) {
+                        String hash = hashFromUrl(file.getFileName().toString());
+                        if (hash != null && Files.getLastModifiedTime(file).compareTo(cutoff) < 0) {
+                            candidates.put(hash, file);
+                        }
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    continue;
+                }
+                List<String> hashes = new ArrayList<>(candidates.keySet());
+                for (int from = 0; from < hashes.size(); from += GC_BATCH) {
+                    List<String> batch = hashes.subList(from, Math.min(hashes.size(), from + GC_BATCH));
+                    Set<String> known = new HashSet<>(uploadBlobRepository.findExistingHashes(batch));
+                    for (String hash : batch) {
+                        if (known.contains(hash)) {
+                            continue;
+                        }
+                        synchronized (lockFor(hash)) {
+                            if (!uploadBlobRepository.existsById(hash)) {
+                                deleteFiles(hash);
+                                removed++;
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error sweeping orphaned blob files in {}", root, e);
+        }
+        if (removed > 0) {
+            orphansRemoved.addAndGet(removed);
+            logger.info("Removed {} orphaned blob files", removed);
+        }
+    }
+
+    // The original and its derivatives (<hash>-<size>.jpg) share the hash prefix
+    private long deleteFiles(String hash) {
+        long bytes = 0;
+        Path shard = root.resolve(hash.substring(0, 2));
+        if (!Files.isDirectory(shard)) {
+            return 0;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(shard, hash + "*")) {
+            for (Path file : files) {
+                long size = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    bytes += size;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Error deleting files of blob {}: {}", hash, e.getMessage());
+        }
+        return bytes;
+    }
+
+    private static int deleteOlderThan(Path dir, FileTime cutoff) throws IOException {
+        int removed = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0 && Files.deleteIfExists(file)) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    // =================================================================================
+    // STATISTICS
+    // =================================================================================
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Object[]> summary = uploadBlobRepository.summarize();
+        if (!summary.isEmpty()) {
+            Object[] row = summary.get(0);
+            stats.put("blobs", ((Number) row[0]).longValue());
+            stats.put("storedBytes", ((Number) row[1]).longValue());
+            stats.put("references", ((Number) row[2]).longValue());
+        }
+        stats.put("uploads", stored.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("bytesWritten", bytesWritten.get());
+        stats.put("bytesSaved", bytesSaved.get());
+        stats.put("released", released.get());
+        stats.put("collected", collected.get());
+        stats.put("collectedBytes", collectedBytes.get());
+        stats.put("orphansRemoved", orphansRemoved.get());
+        return stats;
+    }
+
+    public static final class StoredBlob {
+        private final String hash;
+        private final String url;
+        private final String fileName;
+        private final long size;
+        private final boolean duplicate;
+
+        private StoredBlob(String hash, String url, String fileName, long size, boolean duplicate) {
+            this.hash = hash;
+            this.url = url;
+            this.fileName = fileName;
+            this.size = size;
+            this.duplicate = duplicate;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Site-relative URL, {@code /uploads/blobs/<xx>/<sha256><ext>}.
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public boolean isDuplicate() {
+            return duplicate;
+        }
+    }
+}
@@ -23,11 +23,14 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final AuthPrincipalCache principalCache;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       AuthPrincipalCache principalCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
     }
 
     /**
@@ -190,6 +193,7 @@ public class UserService {
             }
 
             User updatedUser = userRepository.save(existingUser);
+            principalCache.evictUser(updatedUser.getId());
             logger.info("User updated successfully with ID: {}", updatedUser.getId());
 
             return convertToDTO(updatedUser);
@@ -201,13 +205,13 @@ public class UserService {
         }
     }
 
-    public UserDTO updateUserProfileImage(String id, String profileImageUrl, byte[] profileImageData) {
+    public UserDTO updateUserProfileImage(String id, String profileImageUrl, String profileImageKey) {
         try {
             User existingUser = userRepository.findById(id)
                     .orElseThrow(() -> ResourceNotFoundException.userNotFoundById(id));
 
             existingUser.setProfileImageUrl(profileImageUrl);
-            existingUser.setProfileImageData(profileImageData);
+            existingUser.setProfileImageKey(profileImageKey);
 
             User updatedUser = userRepository.save(existingUser);
             logger.info("Profile image updated for user ID: {}", updatedUser.getId());
@@ -221,15 +225,15 @@ public class UserService {
         }
     }
 
-    public byte[] getProfileImageData(String id) {
+    /**
+     * Profile image store key of the user, or null if the user has no migrated image
+     */
+    @Transactional(readOnly = true)
+    public String getProfileImageKey(String id) {
         try {
-            User existingUser = userRepository.findById(id)
-                    .orElseThrow(() -> ResourceNotFoundException.userNotFoundById(id));
-            return existingUser.getProfileImageData();
-        } catch (ResourceNotFoundException e) {
-            throw e;
+            return userRepository.findProfileImageKey(id).orElse(null);
         } catch (Exception e) {
-            logger.error("Error retrieving profile image for user {}: {}", id, e.getMessage(), e);
+            logger.error("Error retrieving profile image key for user {}: {}", id, e.getMessage(), e);
             throw new RuntimeException("Error retrieving profile image", e);
         }
     }
@@ -241,6 +245,7 @@ public class UserService {
 
             user.setPassword(newPasswordHash);
             userRepository.save(user);
+            principalCache.evictUser(id);
 
             logger.info("Password updated successfully for user ID: {}", id);
         } catch (ResourceNotFoundException e) {
@@ -258,6 +263,7 @@ public class UserService {
 
             user.setIsActive(isActive);
             userRepository.save(user);
+            principalCache.evictUser(id);
 
             logger.info("User status updated to {} for user ID: {}", isActive ? "active" : "inactive", id);
         } catch (ResourceNotFoundException e) {
@@ -291,6 +297,7 @@ public class UserService {
                     .orElseThrow(() -> ResourceNotFoundException.userNotFoundById(id));
 
             userRepository.delete(user);
+            principalCache.evictUser(id);
             logger.info("User deleted successfully with ID: {}", id);
         } catch (ResourceNotFoundException e) {
             throw e;
@@ -372,6 +379,7 @@ public class UserService {
             user.clearResetToken();
 
             userRepository.save(user);
+            principalCache.evictUser(user.getId());
 
             logger.info("Password reset successfully for email: {}", email);
         } catch (ResourceNotFoundException e) {
@@ -0,0 +1,386 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Repository.WeatherDataRepository;
+import SmartAgricultural.Management.Util.GeoHash;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates weather alert rules as readings are persisted.
+ *
+ * Point rules (heat, frost, heavy rain, wind) look at a single reading; the drought rule
+ * looks at the rolling rainfall of the reading's location cell, kept as one bucket per day.
+ * Each cell and alert type has at most one active trigger: repeated matches refresh it
+ * instead of adding duplicates, and a trigger expires once its rule has not matched for
+ * the configured TTL. Updates and deletes mark the engine stale and it replays the recent
+ * readings from the database on the next read.
+ */
+@Component
+public class WeatherAlertEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherAlertEngine.class);
+
+    // Geohash cells of ~4.9 x 4.9 km
+    static final int CELL_PRECISION = 5;
+    private static final long DAY_MS = 24L * 3600 * 1000;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${weather.alerts.extreme-heat-celsius:40}")
+    private BigDecimal extremeHeatCelsius = new BigDecimal("40");
+
+    @Value("${weather.alerts.frost-celsius:0}")
+    private BigDecimal frostCelsius = BigDecimal.ZERO;
+
+    @Value("${weather.alerts.heavy-rain-mm:50}")
+    private BigDecimal heavyRainMm = new BigDecimal("50");
+
+    @Value("${weather.alerts.strong-wind-kmh:40}")
+    private BigDecimal strongWindKmh = new BigDecimal("40");
+
+    @Value("${weather.alerts.drought-min-rainfall-mm:5}")
+    private double droughtMinRainfallMm = 5;
+
+    @Value("${weather.alerts.drought-window-days:7}")
+    private int droughtWindowDays = 7;
+
+    @Value("${weather.alerts.trigger-ttl-hours:24}")
+    private int triggerTtlHours = 24;
+
+    private final List<PointRule> pointRules = new ArrayList<>();
+    private final Map<String, CellState> cells = new HashMap<>();
+    private final Map<String, Trigger> active = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded = false;
+    private volatile boolean stale = false;
+
+    @PostConstruct
+    void initRules() {
+        pointRules.clear();
+        pointRules.add(new PointRule("EXTREME_HEAT", "CRITICAL", Metric.TEMPERATURE, true, extremeHeatCelsius,
+                "Extreme heat detected: %s°C"));
+        pointRules.add(new PointRule("FROST", "HIGH", Metric.TEMPERATURE, false, frostCelsius,
+                "Frost conditions detected: %s°C"));
+        pointRules.add(new PointRule("HEAVY_RAIN", "HIGH", Metric.RAINFALL, true, heavyRainMm,
+                "Heavy rainfall detected: %smm"));
+        pointRules.add(new PointRule("STRONG_WIND", "MEDIUM", Metric.WIND_SPEED, true, strongWindKmh,
+                "Strong winds detected: %s km/h"));
+    }
+
+    // =================================================================================
+    // WRITE PATH
+    // =================================================================================
+
+    /**
+     * Evaluates a newly inserted reading once its transaction commits.
+     */
+    public void record(WeatherData weatherData) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evaluate(weatherData);
+                }
+            });
+        } else {
+            evaluate(weatherData);
+        }
+    }
+
+    /**
+     * Marks the rolling state as outdated after readings were updated or deleted.
+     */
+    public void invalidate() {
+        stale = true;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    stale = true;
+                }
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        replay();
+    }
+
+    private synchronized void evaluate(WeatherData weatherData) {
+        if (!loaded) {
+            return;
+        }
+        apply(weatherData, true);
+    }
+
+    private void apply(WeatherData w, boolean publish) {
+        if (w.getRecordDate() == null || w.getLatitude() == null || w.getLongitude() == null) {
+            return;
+        }
+        String cell = GeoHash.encode(w.getLatitude().doubleValue(), w.getLongitude().doubleValue(), CELL_PRECISION);
+
+        for (PointRule rule : pointRules) {
+            BigDecimal value = rule.metric.of(w);
+            if (value != null && rule.matches(value)) {
+                fire(cell, rule.type, rule.severity, String.format(rule.message, value), w, publish);
+            }
+        }
+
+        CellState state = cells.computeIfAbsent(cell, k -> new CellState(droughtWindowDays));
+        long day = Math.floorDiv(toEpoch(w.getRecordDate()), DAY_MS);
+        state.add(day, w.getRainfall() != null ? w.getRainfall().doubleValue() : 0);
+
+        // Only judge drought once the cell has been observed for a full window
+        if (day >= state.latestDay && day - state.firstDay >= droughtWindowDays - 1) {
+            double rainfall = state.windowSum(day);
+            String key = cell + "#DROUGHT_RISK";
+            if (rainfall < droughtMinRainfallMm) {
+                fire(cell, "DROUGHT_RISK", "MEDIUM", "Low rainfall in past " + droughtWindowDays + " days: "
+                        + BigDecimal.valueOf(rainfall).setScale(2, RoundingMode.HALF_UP) + "mm", w, publish);
+            } else if (active.remove(key) != null) {
+                logger.info("Weather alert cleared: DROUGHT_RISK in cell {}", cell);
+            }
+        }
+    }
+
+    private void fire(String cell, String type, String severity, String message, WeatherData w, boolean publish) {
+        String key = cell + "#" + type;
+        Trigger previous = active.get(key);
+        LocalDateTime at = w.getRecordDate();
+
+        if (previous != null && !previous.isExpired(expiryCutoff())) {
+            if (!at.isBefore(previous.lastTriggered)) {
+                active.put(key, new Trigger(type, severity, message, cell, w.getLatitude(), w.getLongitude(),
+                        previous.firstTriggered, at, previous.occurrences + 1));
+            } else {
+                active.put(key, previous.withOccurrence());
+            }
+            return;
+        }
+
+        Trigger trigger = new Trigger(type, severity, message, cell, w.getLatitude(), w.getLongitude(), at, at, 1);
+        active.put(key, trigger);
+        if (publish) {
+            logger.info("Weather alert triggered: {} ({}) in cell {}", type, severity, cell);
+            eventPublisher.publishEvent(new WeatherAlertTriggeredEvent(this, trigger.toMap()));
+        }
+    }
+
+    // =================================================================================
+    // READ PATH
+    // =================================================================================
+
+    /**
+     * Returns the currently active triggers, most recent first.
+     */
+    public List<Map<String, Object>> currentTriggers() {
+        if (!loaded || stale) {
+            replay();
+        }
+        LocalDateTime cutoff = expiryCutoff();
+        active.values().removeIf(t -> t.isExpired(cutoff));
+
+        List<Trigger> triggers = new ArrayList<>(active.values());
+        triggers.sort(Comparator.comparing((Trigger t) -> t.lastTriggered).reversed());
+        List<Map<String, Object>> result = new ArrayList<>(triggers.size());
+        for (Trigger trigger : triggers) {
+            result.add(trigger.toMap());
+        }
+        return result;
+    }
+
+    private synchronized void replay() {
+        if (loaded && !stale) {
+            return;
+        }
+        stale = false;
+        LocalDateTime since = LocalDateTime.now()
+                .minusDays(Math.max(droughtWindowDays, (triggerTtlHours + 23) / 24) + 1L);
+
+        long startedAt = System.currentTimeMillis();
+        List<WeatherData> descending = weatherDataRepository.findRecentWeatherData(since);
+        cells.clear();
+        active.clear();
+        for (int i = descending.size() - 1; i >= 0; i--) {
+            apply(descending.get(i), false);
+        }
+        loaded = true;
+        logger.info("Weather alert engine replayed {} readings in {} ms, {} active triggers",
+                descending.size(), System.currentTimeMillis() - startedAt, active.size());
+    }
+
+    private LocalDateTime expiryCutoff() {
+        return LocalDateTime.now().minusHours(triggerTtlHours);
+    }
+
+    private static long toEpoch(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    // =================================================================================
+    // RULES AND STATE
+    // =================================================================================
+
+    private enum Metric {
+        TEMPERATURE, RAINFALL, WIND_SPEED;
+
+        BigDecimal of(WeatherData w) {
+            switch (this) {
+                case TEMPERATURE: return w.getTemperature();
+                case RAINFALL: return w.getRainfall();
+                default: return w.getWindSpeed();
+            }
+        }
+    }
+
+    private static final class PointRule {
+        final String type;
+        final String severity;
+        final Metric metric;
+        final boolean above;
+        final BigDecimal threshold;
+        final String message;
+
+        PointRule(String type, String severity, Metric metric, boolean above, BigDecimal threshold, String message) {
+            this.type = type;
+            this.severity = severity;
+            this.metric = metric;
+            this.above = above;
+            this.threshold = threshold;
+            this.message = message;
+        }
+
+        boolean matches(BigDecimal value) {
+            int cmp = value.compareTo(threshold);
+            return above ? cmp > 0 : cmp < 0;
+        }
+    }
+
+    /**
+     * Per-cell rainfall totals for the last {@code windowDays} days, indexed by epoch day.
+     */
+    private static final class CellState {
+        final double[] rainfall;
+        final long[] days;
+        long firstDay = Long.MAX_VALUE;
+        long latestDay = Long.MIN_VALUE;
+
+        CellState(int windowDays) {
+            rainfall = new double[windowDays];
+            days = new long[windowDays];
+            Arrays.fill(days, Long.MIN_VALUE);
+        }
+
+        void add(long day, double value) {
+            firstDay = Math.min(firstDay, day);
+            latestDay = Math.max(latestDay, day);
+            if (day <= latestDay - days.length) {
+                return;
+            }
+            int slot = (int) Math.floorMod(day, (long) days.length);
+            if (days[slot] != day) {
+                days[slot] = day;
+                rainfall[slot] = 0;
+            }
+            rainfall[slot] += value;
+        }
+
+        double windowSum(long day) {
+            double sum = 0;
+            for (int i = 0; i < days.length; i++) {
+                if (days[i] <= day && days[i] > day - days.length) {
+                    sum += rainfall[i];
+                }
+            }
+            return sum;
+        }
+    }
+
+    private static final class Trigger {
+        final String type;
+        final String severity;
+        final String message;
+        final String cell;
+        final BigDecimal latitude;
+        final BigDecimal longitude;
+        final LocalDateTime firstTriggered;
+        final LocalDateTime lastTriggered;
+        final int occurrences;
+
+        Trigger(String type, String severity, String message, String cell, BigDecimal latitude,
+                BigDecimal longitude, LocalDateTime firstTriggered, LocalDateTime lastTriggered, int occurrences) {
+            this.type = type;
+            this.severity = severity;
+            this.message = message;
+            this.cell = cell;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.firstTriggered = firstTriggered;
+            this.lastTriggered = lastTriggered;
+            this.occurrences = occurrences;
+        }
+
+        Trigger withOccurrence() {
+            return new Trigger(type, severity, message, cell, latitude, longitude,
+                    firstTriggered, lastTriggered, occurrences + 1);
+        }
+
+        boolean isExpired(LocalDateTime cutoff) {
+            return lastTriggered.isBefore(cutoff);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> alert = new HashMap<>();
+            alert.put("alertType", type);
+            alert.put("severity", severity);
+            alert.put("message", message);
+            alert.put("timestamp", lastTriggered);
+            alert.put("firstTriggered", firstTriggered);
+            alert.put("occurrences", occurrences);
+            alert.put("cell", cell);
+            alert.put("latitude", latitude);
+            alert.put("longitude", longitude);
+            return alert;
+        }
+    }
+
+    /**
+     * Published once when a trigger becomes active; repeats of an active trigger are not re-published.
+     */
+    public static class WeatherAlertTriggeredEvent extends ApplicationEvent {
+
+        private final Map<String, Object> trigger;
+
+        public WeatherAlertTriggeredEvent(Object source, Map<String, Object> trigger) {
+            super(source);
+            this.trigger = trigger;
+        }
+
+        public Map<String, Object> getTrigger() {
+            return trigger;
+        }
+    }
+}
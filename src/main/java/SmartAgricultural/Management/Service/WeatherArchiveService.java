@@ -0,0 +1,779 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Model.WeatherData.DataQuality;
+import SmartAgricultural.Management.Util.GorillaCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Cold storage for aged weather readings.
+ *
+ * Readings older than the archive threshold are moved out of weather_data into one segment
+ * file per station and month ({@code <dir>/<yyyy-MM>/<station>.wseg}). Inside a segment every
+ * column is its own Gorilla stream: record dates as delta-of-delta, numeric columns as XOR of
+ * their fixed-scale integer values (e.g. tenths of a degree), and text columns as dictionary
+ * codes. The row id is kept as well, so re-archiving a month recognises readings it already
+ * holds. Readers merge segments by record date through {@link ArchiveCursor}, so the export
+ * and the series store see archived and live rows as one ordered history; segments are opened
+ * month by month as the merge reaches them and decoded column by column from the file.
+ */
+@Service
+public class WeatherArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherArchiveService.class);
+
+    private static final int MAGIC = 0x57534732; // "WSG2"
+    private static final String SEGMENT_SUFFIX = ".wseg";
+    private static final int DELETE_BATCH = 500;
+
+    // Fixed decimal scales matching the weather_data column definitions
+    private static final int COORDINATE_SCALE = 8;
+    private static final int TEMPERATURE_SCALE = 1;
+    private static final int HUMIDITY_SCALE = 1;
+    private static final int RAINFALL_SCALE = 2;
+    private static final int WIND_SCALE = 1;
+
+    private static final String SELECT_MONTH = "SELECT id, record_date, latitude, longitude, temperature, " +
+            "humidity, rainfall, wind_speed, weather_condition, data_source, data_quality, station_id, " +
+            "COALESCE(station_id, CONCAT('cell-', LEFT(geohash, 7)), 'unknown') AS station_key " +
+            "FROM weather_data WHERE record_date >= ? AND record_date < ? ORDER BY station_key, record_date, id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${weather.archive.dir:archive/weather}")
+    private String archiveDir = "archive/weather";
+
+    @Value("${weather.archive.after-days:365}")
+    private int archiveAfterDays = 365;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public WeatherArchiveService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // =================================================================================
+    // ARCHIVING
+    // =================================================================================
+
+    public int getArchiveAfterDays() {
+        return archiveAfterDays;
+    }
+
+    /**
+     * Moves every reading recorded before {@code cutoff} into segment files, one month at a
+     * time; returns the number of readings moved.
+     */
+    public synchronized int archive(LocalDateTime cutoff) throws IOException {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(record_date) FROM weather_data WHERE record_date < ?", Timestamp.class,
+                Timestamp.valueOf(cutoff));
+        if (oldest == null) {
+            return 0;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        int moved = 0, segments = 0;
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime());
+             month.atDay(1).atStartOfDay().isBefore(cutoff); month = month.plusMonths(1)) {
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            if (to.isAfter(cutoff)) {
+                to = cutoff;
+            }
+
+            List<SegmentBuilder> pending = new ArrayList<>(1);
+            int[] monthMoved = {0};
+            int[] monthSegments = {0};
+            YearMonth current = month;
+            jdbcTemplate.query(SELECT_MONTH, rs -> {
+                String key = rs.getString("station_key");
+                SegmentBuilder builder = pending.isEmpty() ? null : pending.get(0);
+                if (builder == null || !builder.stationKey.equals(key)) {
+                    if (builder != null) {
+                        monthMoved[0] += flush(current, builder);
+                        monthSegments[0]++;
+                    }
+                    builder = new SegmentBuilder(key, rs.getString("station_id"));
+                    pending.clear();
+                    pending.add(builder);
+                }
+                builder.add(rs);
+            }, Timestamp.valueOf(from), Timestamp.valueOf(to));
+
+            if (!pending.isEmpty()) {
+                monthMoved[0] += flush(current, pending.get(0));
+                monthSegments[0]++;
+            }
+            moved += monthMoved[0];
+            segments += monthSegments[0];
+        }
+
+        logger.info("Archived {} weather readings before {} into {} segments in {} ms",
+                moved, cutoff, segments, System.currentTimeMillis() - startedAt);
+        return moved;
+    }
+
+    /**
+     * Writes (or extends) the segment for one station and month, then deletes the rows it holds.
+     */
+    private int flush(YearMonth month, SegmentBuilder builder) {
+        List<String> confirmed;
+        try {
+            Path file = segmentPath(month, builder.stationKey);
+            Files.createDirectories(file.getParent());
+
+            // A previous run may have written this segment before failing to delete the rows
+            List<ArchivedReading> readings = builder.readings;
+            if (Files.exists(file)) {
+                readings = mergeWithExisting(file, readings);
+            }
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                writeSegment(out, builder.stationId, readings);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            confirmed = confirmedIds(file, builder.ids);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write weather archive segment " + builder.stationKey, e);
+        }
+
+        if (confirmed.size() < builder.ids.size()) {
+            logger.warn("Segment {} of {} is missing {} of the archived readings; keeping those rows",
+                    builder.stationKey, month, builder.ids.size() - confirmed.size());
+        }
+        List<String> ids = confirmed;
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ids.size(); i += DELETE_BATCH) {
+                List<String> batch = ids.subList(i, Math.min(ids.size(), i + DELETE_BATCH));
+                String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+                jdbcTemplate.update("DELETE FROM weather_data WHERE id IN (" + placeholders + ")", batch.toArray());
+            }
+        });
+        return ids.size();
+    }
+
+    /**
+     * The readings already in the segment plus the added ones it does not hold yet, in
+     * record-date order. Readings are told apart by record date and row id, so distinct
+     * readings sharing a timestamp are all kept.
+     */
+    static List<ArchivedReading> mergeWithExisting(Path file, List<ArchivedReading> added) throws IOException {
+        List<ArchivedReading> merged = new ArrayList<>(added.size());
+        Set<String> present = new HashSet<>();
+        try (SegmentReader reader = new SegmentReader(file)) {
+            while (reader.hasNext()) {
+                ArchivedReading reading = reader.next();
+                merged.add(reading);
+                present.add(reading.recordDate + "/" + reading.id);
+            }
+        }
+        for (ArchivedReading reading : added) {
+            if (!present.contains(reading.recordDate + "/" + reading.id)) {
+                merged.add(reading);
+            }
+        }
+        merged.sort(Comparator.comparingLong((ArchivedReading r) -> r.recordDate)
+                .thenComparing(r -> r.id));
+        return merged;
+    }
+
+    /**
+     * The ids among {@code ids} that the segment on disk actually holds; only those rows are deleted.
+     */
+    static List<String> confirmedIds(Path file, List<String> ids) throws IOException {
+        Set<String> written = new HashSet<>();
+        try (SegmentReader reader = new SegmentReader(file)) {
+            while (reader.hasNext()) {
+                written.add(reader.next().id);
+            }
+        }
+        List<String> confirmed = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (written.contains(id)) {
+                confirmed.add(id);
+            }
+        }
+        return confirmed;
+    }
+
+    // =================================================================================
+    // READING
+    // =================================================================================
+
+    /**
+     * Opens a cursor over archived readings with {@code from <= recordDate < to}, in record-date
+     * order. Only the first month's segments are opened here; later months are opened as the
+     * cursor reaches them.
+     */
+    public ArchiveCursor open(LocalDateTime from, LocalDateTime to) throws IOException {
+        List<YearMonth> months = new ArrayList<>();
+        Path root = Paths.get(archiveDir);
+        if (Files.isDirectory(root)) {
+            for (YearMonth month = YearMonth.from(from); month.atDay(1).atStartOfDay().isBefore(to);
+                 month = month.plusMonths(1)) {
+                if (Files.isDirectory(root.resolve(month.toString()))) {
+                    months.add(month);
+                }
+            }
+        }
+        return new ArchiveCursor(root, months, toEpoch(from), toEpoch(to));
+    }
+
+    /**
+     * Archived readings with {@code from <= recordDate < to} as entities, oldest first.
+     */
+    public List<WeatherData> read(LocalDateTime from, LocalDateTime to) {
+        List<WeatherData> result = new ArrayList<>();
+        try (ArchiveCursor cursor = open(from, to)) {
+            while (cursor.hasNext()) {
+                result.add(cursor.next().toWeatherData());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read weather archive", e);
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStatistics() throws IOException {
+        long segments = 0, bytes = 0, readings = 0;
+        Path root = Paths.get(archiveDir);
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(SEGMENT_SUFFIX))::iterator) {
+                    segments++;
+                    bytes += Files.size(file);
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                        in.readInt();
+                        readings += in.readInt();
+                    }
+                }
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("directory", root.toAbsolutePath().toString());
+        stats.put("segments", segments);
+        stats.put("readings", readings);
+        stats.put("bytes", bytes);
+        stats.put("bytesPerReading", readings > 0 ? (double) bytes / readings : 0.0);
+        return stats;
+    }
+
+    // =================================================================================
+    // SEGMENT FORMAT
+    // =================================================================================
+
+    private Path segmentPath(YearMonth month, String stationKey) {
+        String safeKey = stationKey.replaceAll("[^A-Za-z0-9_-]", "_");
+        return Paths.get(archiveDir, month.toString(), safeKey + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Layout: magic, row count, station id, one length-prefixed Gorilla stream per column, then
+     * the row ids.
+     */
+    static void writeSegment(DataOutputStream out, String stationId, List<ArchivedReading> readings)
+            throws IOException {
+        GorillaCodec.BitOutput time = new GorillaCodec.BitOutput();
+        GorillaCodec.TimestampEncoder timeEncoder = new GorillaCodec.TimestampEncoder(time);
+        GorillaCodec.BitOutput[] numeric = new GorillaCodec.BitOutput[6];
+        GorillaCodec.ValueEncoder[] numericEncoders = new GorillaCodec.ValueEncoder[6];
+        for (int i = 0; i < numeric.length; i++) {
+            numeric[i] = new GorillaCodec.BitOutput();
+            numericEncoders[i] = new GorillaCodec.ValueEncoder(numeric[i]);
+        }
+        TextColumnWriter condition = new TextColumnWriter();
+        TextColumnWriter source = new TextColumnWriter();
+        TextColumnWriter quality = new TextColumnWriter();
+        ByteArrayOutputStream idBytes = new ByteArrayOutputStream();
+        DataOutputStream ids = new DataOutputStream(idBytes);
+
+        for (ArchivedReading r : readings) {
+            timeEncoder.write(r.recordDate);
+            double[] values = r.numericValues();
+            for (int i = 0; i < values.length; i++) {
+                numericEncoders[i].write(values[i]);
+            }
+            condition.add(r.weatherCondition);
+            source.add(r.dataSource);
+            quality.add(r.dataQuality);
+            ids.writeUTF(r.id);
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(readings.size());
+        out.writeBoolean(stationId != null);
+        if (stationId != null) {
+            out.writeUTF(stationId);
+        }
+        writeBlock(out, time.toByteArray());
+        for (GorillaCodec.BitOutput column : numeric) {
+            writeBlock(out, column.toByteArray());
+        }
+        condition.writeTo(out);
+        source.writeTo(out);
+        quality.writeTo(out);
+        writeBlock(out, idBytes.toByteArray());
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] block) throws IOException {
+        out.writeInt(block.length);
+        out.write(block);
+    }
+
+    /**
+     * Dictionary-coded text column: a bit per row for "same as previous", else the code.
+     */
+    private static final class TextColumnWriter {
+        private final Map<String, Integer> codes = new LinkedHashMap<>();
+        private final List<Integer> rows = new ArrayList<>();
+
+        TextColumnWriter() {
+            codes.put(null, 0);
+        }
+
+        void add(String value) {
+            rows.add(codes.computeIfAbsent(value, v -> codes.size()));
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(codes.size() - 1);
+            for (String value : codes.keySet()) {
+                if (value != null) {
+                    out.writeUTF(value);
+                }
+            }
+            int width = codeWidth(codes.size());
+            GorillaCodec.BitOutput bits = new GorillaCodec.BitOutput();
+            int previous = -1;
+            for (int code : rows) {
+                if (code == previous) {
+                    bits.writeBit(false);
+                } else {
+                    bits.writeBit(true);
+                    bits.writeBits(code, width);
+                    previous = code;
+                }
+            }
+            writeBlock(out, bits.toByteArray());
+        }
+    }
+
+    private static final class TextColumnReader {
+        private final String[] dictionary;
+        private final int width;
+        private final GorillaCodec.BitInput bits;
+        private String current;
+
+        TextColumnReader(String[] dictionary, InputStream bits) {
+            this.dictionary = dictionary;
+            this.width = codeWidth(dictionary.length);
+            this.bits = new GorillaCodec.BitInput(bits);
+        }
+
+        static String[] readDictionary(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            String[] dictionary = new String[size + 1];
+            for (int i = 1; i <= size; i++) {
+                dictionary[i] = in.readUTF();
+            }
+            return dictionary;
+        }
+
+        String next() {
+            if (bits.readBit()) {
+                current = dictionary[(int) bits.readBits(width)];
+            }
+            return current;
+        }
+    }
+
+    private static int codeWidth(int dictionarySize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(dictionarySize - 1));
+    }
+
+    /**
+     * Sequential decoder over one segment file. Only the header and the text dictionaries are
+     * read when it opens; every column is then decoded through its own small window onto the
+     * file, so an open reader holds a few kilobytes whatever the size of the segment.
+     */
+    static final class SegmentReader implements Closeable {
+        private static final int HEADER_BUFFER = 4096;
+        private static final int COLUMN_BUFFER = 512;
+
+        private final FileChannel channel;
+        private final int count;
+        private final String stationId;
+        private final GorillaCodec.TimestampDecoder time;
+        private final GorillaCodec.ValueDecoder[] numeric = new GorillaCodec.ValueDecoder[6];
+        private final TextColumnReader condition;
+        private final TextColumnReader source;
+        private final TextColumnReader quality;
+        private final DataInputStream ids;
+        private int position = 0;
+
+        SegmentReader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                RegionInputStream header = new RegionInputStream(channel, 0, channel.size(), HEADER_BUFFER);
+                DataInputStream in = new DataInputStream(header);
+                int magic = in.readInt();
+                if (magic != MAGIC) {
+                    throw new IOException("Not a weather archive segment: " + file);
+                }
+                count = in.readInt();
+                stationId = in.readBoolean() ? in.readUTF() : null;
+                time = new GorillaCodec.TimestampDecoder(new GorillaCodec.BitInput(column(in, header)));
+                for (int i = 0; i < numeric.length; i++) {
+                    numeric[i] = new GorillaCodec.ValueDecoder(new GorillaCodec.BitInput(column(in, header)));
+                }
+                condition = new TextColumnReader(TextColumnReader.readDictionary(in), column(in, header));
+                source = new TextColumnReader(TextColumnReader.readDictionary(in), column(in, header));
+                quality = new TextColumnReader(TextColumnReader.readDictionary(in), column(in, header));
+                ids = new DataInputStream(column(in, header));
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Window onto the length-prefixed block at the header's position; the header skips past it.
+         */
+        private InputStream column(DataInputStream in, RegionInputStream header) throws IOException {
+            int length = in.readInt();
+            long start = header.position();
+            if (length < 0 || start + length > channel.size()) {
+                throw new EOFException("Weather archive segment is truncated");
+            }
+            header.seek(start + length);
+            return new RegionInputStream(channel, start, start + length, COLUMN_BUFFER);
+        }
+
+        boolean hasNext() {
+            return position < count;
+        }
+
+        ArchivedReading next() throws IOException {
+            position++;
+            ArchivedReading r = new ArchivedReading();
+            try {
+                r.recordDate = time.read();
+                r.latitude = numeric[0].read();
+                r.longitude = numeric[1].read();
+                r.temperature = numeric[2].read();
+                r.humidity = numeric[3].read();
+                r.rainfall = numeric[4].read();
+                r.windSpeed = numeric[5].read();
+                r.weatherCondition = condition.next();
+                r.dataSource = source.next();
+                r.dataQuality = quality.next();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            r.stationId = stationId;
+            r.id = ids.readUTF();
+            return r;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Buffered stream over {@code [start, end)} of a file, read with positional reads so that
+     * several of them can share one channel.
+     */
+    private static final class RegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private final ByteBuffer buffer;
+        // File offset just past the buffered bytes
+        private long next;
+
+        RegionInputStream(FileChannel channel, long start, long end, int bufferSize) {
+            this.channel = channel;
+            this.end = end;
+            this.next = start;
+            this.buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(bufferSize, end - start)));
+            buffer.limit(0);
+        }
+
+        long position() {
+            return next - buffer.remaining();
+        }
+
+        void seek(long position) {
+            next = position;
+            buffer.limit(0);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining() && !fill()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining() && !fill()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        private boolean fill() throws IOException {
+            if (next >= end) {
+                return false;
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - next));
+            int read = channel.read(buffer, next);
+            if (read <= 0) {
+                throw new EOFException("Weather archive segment is truncated");
+            }
+            next += read;
+            buffer.flip();
+            return true;
+        }
+    }
+
+    private static final class SegmentBuilder {
+        final String stationKey;
+        final String stationId;
+        final List<ArchivedReading> readings = new ArrayList<>();
+        final List<String> ids = new ArrayList<>();
+
+        SegmentBuilder(String stationKey, String stationId) {
+            this.stationKey = stationKey;
+            this.stationId = stationId;
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            ArchivedReading r = new ArchivedReading();
+            r.recordDate = toEpoch(rs.getTimestamp("record_date").toLocalDateTime());
+            r.latitude = unscaled(rs.getBigDecimal("latitude"), COORDINATE_SCALE);
+            r.longitude = unscaled(rs.getBigDecimal("longitude"), COORDINATE_SCALE);
+            r.temperature = unscaled(rs.getBigDecimal("temperature"), TEMPERATURE_SCALE);
+            r.humidity = unscaled(rs.getBigDecimal("humidity"), HUMIDITY_SCALE);
+            r.rainfall = unscaled(rs.getBigDecimal("rainfall"), RAINFALL_SCALE);
+            r.windSpeed = unscaled(rs.getBigDecimal("wind_speed"), WIND_SCALE);
+            r.weatherCondition = rs.getString("weather_condition");
+            r.dataSource = rs.getString("data_source");
+            r.dataQuality = rs.getString("data_quality");
+            r.stationId = stationId;
+            r.id = rs.getString("id");
+            readings.add(r);
+            ids.add(rs.getString("id"));
+        }
+
+        private static double unscaled(BigDecimal value, int scale) {
+            return value == null ? Double.NaN : value.movePointRight(scale).doubleValue();
+        }
+    }
+
+    // =================================================================================
+    // MERGED CURSOR
+    // =================================================================================
+
+    /**
+     * K-way merge of segment readers by record date, restricted to a time range.
+     *
+     * A segment only holds readings of its own month, so a month's segments are opened once
+     * the merge reaches the start of that month, and each reader is closed as soon as it is
+     * exhausted. At most the segments of one or two months are open at any time.
+     */
+    public static final class ArchiveCursor implements Closeable {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparingLong(h -> h.reading.recordDate));
+        private final Path root;
+        private final Deque<YearMonth> months;
+        private final long from;
+        private final long to;
+
+        ArchiveCursor(Path root, List<YearMonth> months, long from, long to) throws IOException {
+            this.root = root;
+            this.months = new ArrayDeque<>(months);
+            this.from = from;
+            this.to = to;
+            openDueMonths();
+        }
+
+        private void openDueMonths() throws IOException {
+            while (!months.isEmpty()
+                    && (heads.isEmpty() || heads.peek().reading.recordDate >= monthStart(months.peekFirst()))) {
+                openMonth(months.pollFirst());
+            }
+        }
+
+        private void openMonth(YearMonth month) throws IOException {
+            List<Path> segments;
+            try (Stream<Path> files = Files.list(root.resolve(month.toString()))) {
+                segments = files.filter(f -> f.toString().endsWith(SEGMENT_SUFFIX)).toList();
+            }
+            for (Path file : segments) {
+                SegmentReader reader = new SegmentReader(file);
+                try {
+                    advance(reader);
+                } catch (IOException | RuntimeException e) {
+                    reader.close();
+                    throw e;
+                }
+            }
+        }
+
+        private static long monthStart(YearMonth month) {
+            return toEpoch(month.atDay(1).atStartOfDay());
+        }
+
+        private void advance(SegmentReader reader) throws IOException {
+            while (reader.hasNext()) {
+                ArchivedReading reading = reader.next();
+                if (reading.recordDate >= to) {
+                    break;
+                }
+                if (reading.recordDate >= from) {
+                    heads.add(new Head(reader, reading));
+                    return;
+                }
+            }
+            reader.close();
+        }
+
+        private void ensureOpen() {
+            try {
+                openDueMonths();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read weather archive segment", e);
+            }
+        }
+
+        public boolean hasNext() {
+            ensureOpen();
+            return !heads.isEmpty();
+        }
+
+        /**
+         * Record date (epoch millis, UTC) of the next reading; only valid when {@link #hasNext()}.
+         */
+        public long peekTime() {
+            ensureOpen();
+            return heads.peek().reading.recordDate;
+        }
+
+        public ArchivedReading next() {
+            ensureOpen();
+            Head head = heads.poll();
+            try {
+                advance(head.reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read weather archive segment", e);
+            }
+            return head.reading;
+        }
+
+        @Override
+        public void close() {
+            for (Head head : heads) {
+                try {
+                    head.reader.close();
+                } catch (IOException e) {
+                    logger.debug("Error closing weather archive segment: {}", e.getMessage());
+                }
+            }
+            heads.clear();
+            months.clear();
+        }
+
+        private static final class Head {
+            final SegmentReader reader;
+            final ArchivedReading reading;
+
+            Head(SegmentReader reader, ArchivedReading reading) {
+                this.reader = reader;
+                this.reading = reading;
+            }
+        }
+    }
+
+    /**
+     * One archived reading. Numeric fields hold the fixed-scale integer value, NaN when missing.
+     */
+    public static final class ArchivedReading {
+        String id;
+        long recordDate;
+        double latitude, longitude, temperature, humidity, rainfall, windSpeed;
+        String weatherCondition, dataSource, dataQuality, stationId;
+
+        double[] numericValues() {
+            return new double[]{latitude, longitude, temperature, humidity, rainfall, windSpeed};
+        }
+
+        /** Row id the reading had in weather_data; null for readings archived before ids were kept. */
+        public String getId() { return id; }
+        public long getRecordDateMillis() { return recordDate; }
+        public LocalDateTime getRecordDate() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(recordDate), ZoneOffset.UTC);
+        }
+        public BigDecimal getLatitude() { return scaled(latitude, COORDINATE_SCALE); }
+        public BigDecimal getLongitude() { return scaled(longitude, COORDINATE_SCALE); }
+        public BigDecimal getTemperature() { return scaled(temperature, TEMPERATURE_SCALE); }
+        public BigDecimal getHumidity() { return scaled(humidity, HUMIDITY_SCALE); }
+        public BigDecimal getRainfall() { return scaled(rainfall, RAINFALL_SCALE); }
+        public BigDecimal getWindSpeed() { return scaled(windSpeed, WIND_SCALE); }
+        public String getWeatherCondition() { return weatherCondition; }
+        public String getDataSource() { return dataSource; }
+        public String getDataQuality() { return dataQuality; }
+        public String getStationId() { return stationId; }
+
+        public WeatherData toWeatherData() {
+            WeatherData w = new WeatherData(getLatitude(), getLongitude(), getRecordDate());
+            w.setTemperature(getTemperature());
+            w.setHumidity(getHumidity());
+            w.setRainfall(getRainfall());
+            w.setWindSpeed(getWindSpeed());
+            w.setWeatherCondition(weatherCondition);
+            w.setDataSource(dataSource);
+            w.setStationId(stationId);
+            w.setDataQuality(dataQuality != null ? DataQuality.valueOf(dataQuality) : null);
+            return w;
+        }
+
+        private static BigDecimal scaled(double unscaled, int scale) {
+            return Double.isNaN(unscaled) ? null : BigDecimal.valueOf((long) unscaled, scale);
+        }
+    }
+
+    private static long toEpoch(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
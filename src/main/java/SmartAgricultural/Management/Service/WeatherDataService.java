@@ -12,9 +12,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
@@ -29,13 +31,51 @@ public class WeatherDataService {
     @Autowired
     private WeatherDataRepository weatherDataRepository;
 
+    @Autowired
+    private WeatherSeriesStore weatherSeriesStore;
+
+    @Autowired
+    private WeatherRollupService weatherRollupService;
+
+    @Autowired
+    private WeatherAlertEngine weatherAlertEngine;
+
+    @Autowired
+    private WeatherForecastModelCache weatherForecastModelCache;
+
+    @Autowired
+    private WeatherArchiveService weatherArchiveService;
+
     // =================================================================================
     // BASIC CRUD OPERATIONS
     // =================================================================================
 
     public WeatherData save(WeatherData weatherData) {
+        Set<String> previousBuckets = weatherData.getId() == null
+                ? Collections.emptySet()
+                : weatherDataRepository.findById(weatherData.getId())
+                        .map(weatherRollupService::bucketIds)
+                        .orElse(Collections.emptySet());
+        return save(weatherData, previousBuckets);
+    }
+
+    private WeatherData save(WeatherData weatherData, Set<String> previousBuckets) {
         validateWeatherData(weatherData);
-        return weatherDataRepository.save(weatherData);
+        boolean isNew = weatherData.getId() == null;
+        WeatherData saved = weatherDataRepository.save(weatherData);
+        if (isNew) {
+            weatherSeriesStore.record(saved);
+            weatherAlertEngine.record(saved);
+            weatherRollupService.recordInserted(List.of(saved));
+        } else {
+            weatherSeriesStore.invalidate();
+            weatherAlertEngine.invalidate();
+            weatherForecastModelCache.invalidate();
+            Set<String> buckets = new LinkedHashSet<>(previousBuckets);
+            buckets.addAll(weatherRollupService.bucketIds(saved));
+            weatherRollupService.refresh(buckets);
+        }
+        return saved;
     }
 
     public WeatherData create(WeatherData weatherData) {
@@ -47,8 +87,9 @@ public class WeatherDataService {
 
     public WeatherData update(String id, WeatherData weatherData) {
         WeatherData existing = findById(id);
+        Set<String> previousBuckets = weatherRollupService.bucketIds(existing);
         updateWeatherDataFields(existing, weatherData);
-        return save(existing);
+        return save(existing, previousBuckets);
     }
 
     @Transactional(readOnly = true)
@@ -73,10 +114,13 @@ public class WeatherDataService {
     }
 
     public void deleteById(String id) {
-        if (!weatherDataRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Weather data not found with id: " + id);
-        }
-        weatherDataRepository.deleteById(id);
+        WeatherData existing = findById(id);
+        Set<String> buckets = weatherRollupService.bucketIds(existing);
+        weatherDataRepository.delete(existing);
+        weatherSeriesStore.invalidate();
+        weatherAlertEngine.invalidate();
+        weatherForecastModelCache.invalidate();
+        weatherRollupService.refresh(buckets);
     }
 
     @Transactional(readOnly = true)
@@ -302,15 +346,13 @@ public class WeatherDataService {
 
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getWeatherTrends(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Object[]> results = weatherDataRepository.getWeatherTrends(startDate, endDate);
-
-        return results.stream()
-                .map(result -> {
+        return weatherRollupService.findDaily(startDate.toLocalDate(), endDate.toLocalDate()).stream()
+                .map(rollup -> {
                     Map<String, Object> trend = new HashMap<>();
-                    trend.put("date", result[0]);
-                    trend.put("averageTemperature", result[1]);
-                    trend.put("averageHumidity", result[2]);
-                    trend.put("totalRainfall", result[3]);
+                    trend.put("date", rollup.getPeriodStart());
+                    trend.put("averageTemperature", rollup.getAverageTemperature());
+                    trend.put("averageHumidity", rollup.getAverageHumidity());
+                    trend.put("totalRainfall", rollup.getRainfallCount() > 0 ? rollup.getRainfallSum() : null);
                     return trend;
                 })
                 .collect(Collectors.toList());
@@ -318,14 +360,17 @@ public class WeatherDataService {
 
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getMonthlyWeatherStats() {
-        List<Object[]> results = weatherDataRepository.getMonthlyWeatherDataCount();
-
-        return results.stream()
-                .map(result -> {
+        return weatherRollupService.findMonthly().stream()
+                .map(rollup -> {
                     Map<String, Object> stat = new HashMap<>();
-                    stat.put("year", result[0]);
-                    stat.put("month", result[1]);
-                    stat.put("recordCount", result[2]);
+                    stat.put("year", rollup.getPeriodStart().getYear());
+                    stat.put("month", rollup.getPeriodStart().getMonthValue());
+                    stat.put("recordCount", rollup.getRecordCount());
+                    stat.put("avgTemperature", rollup.getAverageTemperature());
+                    stat.put("minTemperature", rollup.getTemperatureMin());
+                    stat.put("maxTemperature", rollup.getTemperatureMax());
+                    stat.put("avgHumidity", rollup.getAverageHumidity());
+                    stat.put("totalRainfall", rollup.getRainfallSum());
                     return stat;
                 })
                 .collect(Collectors.toList());
@@ -333,13 +378,16 @@ public class WeatherDataService {
 
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getDailyWeatherStats(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Object[]> results = weatherDataRepository.getDailyWeatherDataCount(startDate, endDate);
-
-        return results.stream()
-                .map(result -> {
+        return weatherRollupService.findDaily(startDate.toLocalDate(), endDate.toLocalDate()).stream()
+                .map(rollup -> {
                     Map<String, Object> stat = new HashMap<>();
-                    stat.put("date", result[0]);
-                    stat.put("recordCount", result[1]);
+                    stat.put("date", rollup.getPeriodStart());
+                    stat.put("recordCount", rollup.getRecordCount());
+                    stat.put("avgTemperature", rollup.getAverageTemperature());
+                    stat.put("minTemperature", rollup.getTemperatureMin());
+                    stat.put("maxTemperature", rollup.getTemperatureMax());
+                    stat.put("avgHumidity", rollup.getAverageHumidity());
+                    stat.put("totalRainfall", rollup.getRainfallSum());
                     return stat;
                 })
                 .collect(Collectors.toList());
@@ -379,7 +427,11 @@ public class WeatherDataService {
                 throw new ValidationException("Cannot create weather data with existing ID");
             }
         }
-        return weatherDataRepository.saveAll(weatherDataList);
+        List<WeatherData> saved = weatherDataRepository.saveAll(weatherDataList);
+        saved.forEach(weatherSeriesStore::record);
+        saved.forEach(weatherAlertEngine::record);
+        weatherRollupService.recordInserted(saved);
+        return saved;
     }
 
     public List<WeatherData> updateWeatherDataBulk(List<WeatherData> weatherDataList) {
@@ -393,7 +445,16 @@ public class WeatherDataService {
                 })
                 .collect(Collectors.toList());
 
-        return weatherDataRepository.saveAll(updatedWeatherData);
+        List<String> ids = updatedWeatherData.stream().map(WeatherData::getId).collect(Collectors.toList());
+        Set<String> buckets = weatherRollupService.bucketIds(weatherDataRepository.findAllById(ids));
+
+        List<WeatherData> saved = weatherDataRepository.saveAll(updatedWeatherData);
+        weatherSeriesStore.invalidate();
+        weatherAlertEngine.invalidate();
+        weatherForecastModelCache.invalidate();
+        buckets.addAll(weatherRollupService.bucketIds(saved));
+        weatherRollupService.refresh(buckets);
+        return saved;
     }
 
     public void deleteWeatherDataBulk(List<String> ids) {
@@ -401,7 +462,12 @@ public class WeatherDataService {
                 .map(this::findById)
                 .collect(Collectors.toList());
 
+        Set<String> buckets = weatherRollupService.bucketIds(weatherDataList);
         weatherDataRepository.deleteAll(weatherDataList);
+        weatherSeriesStore.invalidate();
+        weatherAlertEngine.invalidate();
+        weatherForecastModelCache.invalidate();
+        weatherRollupService.refresh(buckets);
     }
 
     // =================================================================================
@@ -410,12 +476,51 @@ public class WeatherDataService {
 
     public int cleanupPoorQualityOldData(int daysOld) {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysOld);
-        return weatherDataRepository.deletePoorQualityOldData(cutoffDate);
+        int deleted = weatherDataRepository.deletePoorQualityOldData(cutoffDate);
+        weatherSeriesStore.invalidate();
+        weatherAlertEngine.invalidate();
+        weatherForecastModelCache.invalidate();
+        if (deleted > 0) {
+            weatherRollupService.rebuildAll();
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> rebuildRollups() {
+        return weatherRollupService.rebuildAll();
+    }
+
+    /**
+     * Moves readings older than {@code daysOld} days (the configured archive age when null)
+     * to the weather archive. Each segment commits on its own, so no outer transaction.
+     * Rollups keep their totals: archived readings are still part of the history.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int archiveOldWeatherData(Integer daysOld) throws IOException {
+        int days = daysOld != null ? daysOld : weatherArchiveService.getArchiveAfterDays();
+        int archived = weatherArchiveService.archive(LocalDateTime.now().minusDays(days));
+        if (archived > 0) {
+            weatherSeriesStore.invalidate();
+            weatherAlertEngine.invalidate();
+            weatherForecastModelCache.invalidate();
+        }
+        return archived;
+    }
+
+    public Map<String, Object> getArchiveStatistics() throws IOException {
+        return weatherArchiveService.getStatistics();
     }
 
     public int cleanupOldWeatherData(int daysOld) {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysOld);
-        return weatherDataRepository.deleteOldWeatherData(cutoffDate);
+        int deleted = weatherDataRepository.deleteOldWeatherData(cutoffDate);
+        weatherSeriesStore.invalidate();
+        weatherAlertEngine.invalidate();
+        weatherForecastModelCache.invalidate();
+        if (deleted > 0) {
+            weatherRollupService.rebuildAll();
+        }
+        return deleted;
     }
 
     // =================================================================================
@@ -424,15 +529,14 @@ public class WeatherDataService {
 
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getLocationBasedAverages() {
-        List<Object[]> results = weatherDataRepository.getLocationBasedAverages();
-
-        return results.stream()
-                .map(result -> {
+        return weatherRollupService.findCells().stream()
+                .map(rollup -> {
                     Map<String, Object> location = new HashMap<>();
-                    location.put("latitude", result[0]);
-                    location.put("longitude", result[1]);
-                    location.put("averageTemperature", result[2]);
-                    location.put("averageHumidity", result[3]);
+                    location.put("latitude", rollup.getLatitude());
+                    location.put("longitude", rollup.getLongitude());
+                    location.put("averageTemperature", rollup.getAverageTemperature());
+                    location.put("averageHumidity", rollup.getAverageHumidity());
+                    location.put("recordCount", rollup.getRecordCount());
                     return location;
                 })
                 .collect(Collectors.toList());
@@ -461,38 +565,21 @@ public class WeatherDataService {
     public Map<String, Object> getWeatherInsights(BigDecimal latitude, BigDecimal longitude, int days) {
         Map<String, Object> insights = new HashMap<>();
         LocalDateTime since = LocalDateTime.now().minusDays(days);
-        LocalDateTime now = LocalDateTime.now();
 
-        // Get weather data for the location and time period
+        // Aggregate weather data for the location and time period in a single pass
         BigDecimal radius = new BigDecimal("0.1"); // 0.1 degree radius
-        List<WeatherData> locationData = findByLocationRadius(latitude, longitude, radius);
-        List<WeatherData> recentData = locationData.stream()
-                .filter(w -> w.getRecordDate().isAfter(since))
-                .collect(Collectors.toList());
+        WeatherSeriesStore.WindowStats stats = weatherSeriesStore.scanRadius(latitude, longitude, radius, since);
 
-        if (recentData.isEmpty()) {
+        if (stats.getCount() == 0) {
             insights.put("message", "No weather data available for this location and time period");
             return insights;
         }
 
         // Temperature analysis
-        BigDecimal avgTemp = recentData.stream()
-                .filter(w -> w.getTemperature() != null)
-                .map(WeatherData::getTemperature)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(new BigDecimal(recentData.size()), 2, RoundingMode.HALF_UP);
-
-        BigDecimal maxTemp = recentData.stream()
-                .filter(w -> w.getTemperature() != null)
-                .map(WeatherData::getTemperature)
-                .max(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
-
-        BigDecimal minTemp = recentData.stream()
-                .filter(w -> w.getTemperature() != null)
-                .map(WeatherData::getTemperature)
-                .min(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
+        BigDecimal avgTemp = BigDecimal.valueOf(stats.getTemperatureSum())
+                .divide(new BigDecimal(stats.getCount()), 2, RoundingMode.HALF_UP);
+        BigDecimal maxTemp = BigDecimal.valueOf(stats.getTemperatureMax());
+        BigDecimal minTemp = BigDecimal.valueOf(stats.getTemperatureMin());
 
         insights.put("averageTemperature", avgTemp);
         insights.put("maxTemperature", maxTemp);
@@ -500,25 +587,14 @@ public class WeatherDataService {
         insights.put("temperatureRange", maxTemp.subtract(minTemp));
 
         // Rainfall analysis
-        BigDecimal totalRainfall = recentData.stream()
-                .filter(w -> w.getRainfall() != null)
-                .map(WeatherData::getRainfall)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        long rainyDays = recentData.stream()
-                .mapToLong(w -> w.isRainy() ? 1 : 0)
-                .sum();
+        BigDecimal totalRainfall = BigDecimal.valueOf(stats.getRainfallSum()).setScale(2, RoundingMode.HALF_UP);
+        long rainyDays = stats.getRainyCount();
 
         insights.put("totalRainfall", totalRainfall);
         insights.put("rainyDays", rainyDays);
 
         // Weather conditions analysis
-        Map<String, Long> conditionCounts = recentData.stream()
-                .filter(w -> w.getWeatherCondition() != null)
-                .collect(Collectors.groupingBy(
-                        WeatherData::getWeatherCondition,
-                        Collectors.counting()
-                ));
+        Map<String, Long> conditionCounts = stats.getConditionCounts();
 
         insights.put("weatherConditions", conditionCounts);
 
@@ -574,7 +650,7 @@ public class WeatherDataService {
 
 
 
-    private void validateWeatherData(WeatherData weatherData) {
+    void validateWeatherData(WeatherData weatherData) {
         List<String> errors = new ArrayList<>();
 
         if (weatherData.getLatitude() == null) {
@@ -750,24 +826,16 @@ public class WeatherDataService {
     @Transactional(readOnly = true)
     public List<WeatherData> getTrainingDataForPrediction(int days) {
         LocalDateTime since = LocalDateTime.now().minusDays(days);
-        List<WeatherData> data = weatherDataRepository.findRecentWeatherData(since);
-
-        // Sort by date and filter valid temperature data
-        return data.stream()
-                .filter(w -> w.getTemperature() != null)
-                .filter(w -> w.getRecordDate() != null)
-                .sorted(Comparator.comparing(WeatherData::getRecordDate))
-                .collect(Collectors.toList());
+        return weatherDataRepository.findByRecordDateGreaterThanEqualAndTemperatureIsNotNullOrderByRecordDateAsc(since);
     }
 
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getTemperatureHistory(int days) {
         LocalDateTime since = LocalDateTime.now().minusDays(days);
-        List<WeatherData> data = weatherDataRepository.findRecentWeatherData(since);
+        List<WeatherData> data = weatherDataRepository
+                .findByRecordDateGreaterThanEqualAndTemperatureIsNotNullOrderByRecordDateAsc(since);
 
         return data.stream()
-                .filter(w -> w.getTemperature() != null)
-                .sorted(Comparator.comparing(WeatherData::getRecordDate))
                 .map(w -> {
                     Map<String, Object> point = new HashMap<>();
                     point.put("date", w.getRecordDate());
@@ -783,35 +851,21 @@ public class WeatherDataService {
     public Map<String, Object> generatePredictions(int days, BigDecimal latitude, BigDecimal longitude) {
         Map<String, Object> result = new HashMap<>();
 
-        // Get historical data for the location
-        BigDecimal radius = new BigDecimal("0.5");
-        List<WeatherData> locationData = findByLocationRadius(latitude, longitude, radius);
-
-        // Get last 60 days of data for pattern analysis
-        LocalDateTime since = LocalDateTime.now().minusDays(60);
-        List<WeatherData> recentData = locationData.stream()
-                .filter(w -> w.getRecordDate().isAfter(since))
-                .filter(w -> w.getTemperature() != null)
-                .sorted(Comparator.comparing(WeatherData::getRecordDate))
-                .collect(Collectors.toList());
+        // Trend model of the last 60 days around the location's cell, fitted once and kept current
+        WeatherForecastModelCache.ForecastModel model = weatherForecastModelCache.get(latitude, longitude);
+        int dataPoints = (int) model.getCount();
 
-        if (recentData.size() < 10) {
+        if (dataPoints < 10) {
             result.put("error", "Insufficient data for predictions");
-            result.put("dataPoints", recentData.size());
+            result.put("dataPoints", dataPoints);
             return result;
         }
 
         // Calculate temperature trends
-        List<BigDecimal> temperatures = recentData.stream()
-                .map(WeatherData::getTemperature)
-                .collect(Collectors.toList());
-
-        BigDecimal avgTemp = temperatures.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(new BigDecimal(temperatures.size()), 2, RoundingMode.HALF_UP);
+        BigDecimal avgTemp = BigDecimal.valueOf(model.getMean()).setScale(2, RoundingMode.HALF_UP);
 
         // Calculate trend (simple linear regression slope)
-        BigDecimal trend = calculateTrend(temperatures);
+        BigDecimal trend = BigDecimal.valueOf(model.getSlope()).setScale(4, RoundingMode.HALF_UP);
 
         // Generate predictions
         List<Map<String, Object>> predictions = new ArrayList<>();
@@ -826,7 +880,7 @@ public class WeatherDataService {
             prediction.put("day", i);
             prediction.put("date", LocalDateTime.now().plusDays(i));
             prediction.put("temperature", predictedTemp.setScale(1, RoundingMode.HALF_UP));
-            prediction.put("confidence", calculateConfidence(i, recentData.size()));
+            prediction.put("confidence", calculateConfidence(i, dataPoints));
 
             predictions.add(prediction);
         }
@@ -834,38 +888,17 @@ public class WeatherDataService {
         result.put("predictions", predictions);
         result.put("baselineTemp", avgTemp);
         result.put("trend", trend);
-        result.put("dataPoints", recentData.size());
+        result.put("dataPoints", dataPoints);
         result.put("location", Map.of("latitude", latitude, "longitude", longitude));
+        result.put("modelCell", model.getCell());
+        result.put("modelFittedAt", model.getFittedAt());
 
         return result;
     }
 
-    private BigDecimal calculateTrend(List<BigDecimal> values) {
-        if (values.size() < 2) return BigDecimal.ZERO;
-
-        int n = values.size();
-        BigDecimal sumX = BigDecimal.ZERO;
-        BigDecimal sumY = BigDecimal.ZERO;
-        BigDecimal sumXY = BigDecimal.ZERO;
-        BigDecimal sumX2 = BigDecimal.ZERO;
-
-        for (int i = 0; i < n; i++) {
-            BigDecimal x = new BigDecimal(i);
-            BigDecimal y = values.get(i);
-
-            sumX = sumX.add(x);
-            sumY = sumY.add(y);
-            sumXY = sumXY.add(x.multiply(y));
-            sumX2 = sumX2.add(x.multiply(x));
-        }
-
-        BigDecimal nBig = new BigDecimal(n);
-        BigDecimal numerator = nBig.multiply(sumXY).subtract(sumX.multiply(sumY));
-        BigDecimal denominator = nBig.multiply(sumX2).subtract(sumX.multiply(sumX));
-
-        if (denominator.compareTo(BigDecimal.ZERO) == 0) return BigDecimal.ZERO;
-
-        return numerator.divide(denominator, 4, RoundingMode.HALF_UP);
+    @Transactional(readOnly = true)
+    public Map<String, Object> getForecastModelCacheMetrics() {
+        return weatherForecastModelCache.getMetrics();
     }
 
     private BigDecimal getSeasonalAdjustment(int daysAhead) {
@@ -894,18 +927,18 @@ public class WeatherDataService {
         Map<String, Object> analysis = new HashMap<>();
         LocalDateTime since = LocalDateTime.now().minusDays(days);
 
-        List<WeatherData> recentData = weatherDataRepository.findRecentWeatherData(since);
+        WeatherSeriesStore.WindowStats stats = weatherSeriesStore.scanRegion(since);
 
-        if (recentData.isEmpty()) {
+        if (stats.getCount() == 0) {
             analysis.put("error", "No data available");
             return analysis;
         }
 
         // Analyze different risk factors
-        Map<String, Object> droughtRisk = analyzeDrought(recentData);
-        Map<String, Object> floodRisk = analyzeFlood(recentData);
-        Map<String, Object> heatStress = analyzeHeatStress(recentData);
-        Map<String, Object> cropConditions = analyzeCropConditions(recentData);
+        Map<String, Object> droughtRisk = analyzeDrought(stats);
+        Map<String, Object> floodRisk = analyzeFlood(stats);
+        Map<String, Object> heatStress = analyzeHeatStress(stats);
+        Map<String, Object> cropConditions = analyzeCropConditions(stats);
 
         // Calculate overall risk score (0-100)
         int overallRisk = calculateOverallRisk(droughtRisk, floodRisk, heatStress, cropConditions);
@@ -917,7 +950,7 @@ public class WeatherDataService {
         analysis.put("heatStressRisk", heatStress);
         analysis.put("cropConditions", cropConditions);
         analysis.put("analyzedPeriod", days);
-        analysis.put("dataPoints", recentData.size());
+        analysis.put("dataPoints", stats.getCount());
 
         // Generate recommendations
         List<String> recommendations = generateRiskRecommendations(
@@ -927,25 +960,20 @@ public class WeatherDataService {
         return analysis;
     }
 
-    private Map<String, Object> analyzeDrought(List<WeatherData> data) {
+    static Map<String, Object> analyzeDrought(WeatherSeriesStore.WindowStats data) {
         Map<String, Object> result = new HashMap<>();
 
         // Calculate rainfall deficit
-        BigDecimal totalRainfall = data.stream()
-                .map(w -> w.getRainfall() != null ? w.getRainfall() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalRainfall = BigDecimal.valueOf(data.getRainfallSum());
 
         // Expected rainfall for the period (example: 5mm per day average)
-        BigDecimal expectedRainfall = new BigDecimal(data.size() * 5);
+        BigDecimal expectedRainfall = new BigDecimal(data.getCount() * 5);
         BigDecimal deficit = expectedRainfall.subtract(totalRainfall);
 
         // Count dry days (< 1mm rainfall)
-        long dryDays = data.stream()
-                .filter(w -> w.getRainfall() == null ||
-                        w.getRainfall().compareTo(BigDecimal.ONE) < 0)
-                .count();
+        long dryDays = data.getDryCount();
 
-        double dryDaysPercent = (dryDays * 100.0) / data.size();
+        double dryDaysPercent = (dryDays * 100.0) / data.getCount();
 
         // Calculate risk score
         int riskScore = 0;
@@ -966,28 +994,23 @@ public class WeatherDataService {
         return result;
     }
 
-    private Map<String, Object> analyzeFlood(List<WeatherData> data) {
+    static Map<String, Object> analyzeFlood(WeatherSeriesStore.WindowStats data) {
         Map<String, Object> result = new HashMap<>();
 
         // Find heavy rainfall events
-        List<WeatherData> heavyRainDays = data.stream()
-                .filter(w -> w.getRainfall() != null &&
-                        w.getRainfall().compareTo(new BigDecimal("50")) > 0)
-                .collect(Collectors.toList());
+        long heavyRainDays = data.getHeavyRainCount();
 
         // Calculate consecutive rainy days
-        int maxConsecutiveRain = calculateMaxConsecutiveRainyDays(data);
+        int maxConsecutiveRain = data.getMaxConsecutiveRain();
 
         // Total extreme rainfall
-        BigDecimal extremeRainfall = heavyRainDays.stream()
-                .map(WeatherData::getRainfall)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal extremeRainfall = BigDecimal.valueOf(data.getHeavyRainSum());
 
         // Calculate risk score
         int riskScore = 0;
-        if (heavyRainDays.size() > 5) riskScore += 40;
-        else if (heavyRainDays.size() > 2) riskScore += 25;
-        else if (heavyRainDays.size() > 0) riskScore += 10;
+        if (heavyRainDays > 5) riskScore += 40;
+        else if (heavyRainDays > 2) riskScore += 25;
+        else if (heavyRainDays > 0) riskScore += 10;
 
         if (maxConsecutiveRain > 7) riskScore += 30;
         else if (maxConsecutiveRain > 5) riskScore += 20;
@@ -996,7 +1019,7 @@ public class WeatherDataService {
         if (extremeRainfall.compareTo(new BigDecimal("200")) > 0) riskScore += 30;
 
         result.put("riskScore", Math.min(riskScore, 100));
-        result.put("heavyRainEvents", heavyRainDays.size());
+        result.put("heavyRainEvents", heavyRainDays);
         result.put("maxConsecutiveRainyDays", maxConsecutiveRain);
         result.put("extremeRainfall", extremeRainfall.setScale(2, RoundingMode.HALF_UP));
         result.put("status", getFloodStatus(riskScore));
@@ -1004,47 +1027,18 @@ public class WeatherDataService {
         return result;
     }
 
-    private int calculateMaxConsecutiveRainyDays(List<WeatherData> data) {
-        int maxConsecutive = 0;
-        int currentConsecutive = 0;
-
-        List<WeatherData> sorted = data.stream()
-                .sorted(Comparator.comparing(WeatherData::getRecordDate))
-                .collect(Collectors.toList());
-
-        for (WeatherData w : sorted) {
-            if (w.getRainfall() != null && w.getRainfall().compareTo(BigDecimal.ONE) > 0) {
-                currentConsecutive++;
-                maxConsecutive = Math.max(maxConsecutive, currentConsecutive);
-            } else {
-                currentConsecutive = 0;
-            }
-        }
-
-        return maxConsecutive;
-    }
-
-    private Map<String, Object> analyzeHeatStress(List<WeatherData> data) {
+    private Map<String, Object> analyzeHeatStress(WeatherSeriesStore.WindowStats data) {
         Map<String, Object> result = new HashMap<>();
 
         // Count hot days (> 35°C)
-        long hotDays = data.stream()
-                .filter(w -> w.getTemperature() != null &&
-                        w.getTemperature().compareTo(new BigDecimal("35")) > 0)
-                .count();
+        long hotDays = data.getHotCount();
 
         // Count extreme heat days (> 40°C)
-        long extremeHeatDays = data.stream()
-                .filter(w -> w.getTemperature() != null &&
-                        w.getTemperature().compareTo(new BigDecimal("40")) > 0)
-                .count();
+        long extremeHeatDays = data.getExtremeHeatCount();
 
         // Calculate average temperature
-        BigDecimal avgTemp = data.stream()
-                .filter(w -> w.getTemperature() != null)
-                .map(WeatherData::getTemperature)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(new BigDecimal(data.size()), 2, RoundingMode.HALF_UP);
+        BigDecimal avgTemp = BigDecimal.valueOf(data.getTemperatureSum())
+                .divide(new BigDecimal(data.getCount()), 2, RoundingMode.HALF_UP);
 
         // Calculate risk score
         int riskScore = 0;
@@ -1067,25 +1061,17 @@ public class WeatherDataService {
         return result;
     }
 
-    private Map<String, Object> analyzeCropConditions(List<WeatherData> data) {
+    private Map<String, Object> analyzeCropConditions(WeatherSeriesStore.WindowStats data) {
         Map<String, Object> result = new HashMap<>();
 
         // Ideal temperature range for most crops: 20-30°C
-        long optimalTempDays = data.stream()
-                .filter(w -> w.getTemperature() != null)
-                .filter(w -> w.getTemperature().compareTo(new BigDecimal("20")) >= 0 &&
-                        w.getTemperature().compareTo(new BigDecimal("30")) <= 0)
-                .count();
+        long optimalTempDays = data.getOptimalTempCount();
 
         // Ideal humidity range: 40-70%
-        long optimalHumidityDays = data.stream()
-                .filter(w -> w.getHumidity() != null)
-                .filter(w -> w.getHumidity().compareTo(new BigDecimal("40")) >= 0 &&
-                        w.getHumidity().compareTo(new BigDecimal("70")) <= 0)
-                .count();
+        long optimalHumidityDays = data.getOptimalHumidityCount();
 
-        double optimalTempPercent = (optimalTempDays * 100.0) / data.size();
-        double optimalHumidityPercent = (optimalHumidityDays * 100.0) / data.size();
+        double optimalTempPercent = (optimalTempDays * 100.0) / data.getCount();
+        double optimalHumidityPercent = (optimalHumidityDays * 100.0) / data.getCount();
 
         // Calculate favorability score (higher is better, inverse of risk)
         int favorabilityScore = (int) ((optimalTempPercent + optimalHumidityPercent) / 2);
@@ -1120,14 +1106,14 @@ public class WeatherDataService {
         return "LOW";
     }
 
-    private String getDroughtStatus(int score) {
+    private static String getDroughtStatus(int score) {
         if (score >= 70) return "SEVERE_DROUGHT";
         if (score >= 50) return "MODERATE_DROUGHT";
         if (score >= 30) return "MILD_DROUGHT";
         return "NO_DROUGHT";
     }
 
-    private String getFloodStatus(int score) {
+    private static String getFloodStatus(int score) {
         if (score >= 70) return "SEVERE_FLOOD_RISK";
         if (score >= 50) return "HIGH_FLOOD_RISK";
         if (score >= 30) return "MODERATE_FLOOD_RISK";
@@ -1208,15 +1194,12 @@ public class WeatherDataService {
     public Map<String, Object> assessDroughtRisk(int days, BigDecimal latitude, BigDecimal longitude) {
         LocalDateTime since = LocalDateTime.now().minusDays(days);
 
-        List<WeatherData> data;
+        WeatherSeriesStore.WindowStats data;
         if (latitude != null && longitude != null) {
             BigDecimal radius = new BigDecimal("0.5");
-            List<WeatherData> locationData = findByLocationRadius(latitude, longitude, radius);
-            data = locationData.stream()
-                    .filter(w -> w.getRecordDate().isAfter(since))
-                    .collect(Collectors.toList());
+            data = weatherSeriesStore.scanRadius(latitude, longitude, radius, since);
         } else {
-            data = weatherDataRepository.findRecentWeatherData(since);
+            data = weatherSeriesStore.scanRegion(since);
         }
 
         return analyzeDrought(data);
@@ -1226,15 +1209,12 @@ public class WeatherDataService {
     public Map<String, Object> assessFloodRisk(int days, BigDecimal latitude, BigDecimal longitude) {
         LocalDateTime since = LocalDateTime.now().minusDays(days);
 
-        List<WeatherData> data;
+        WeatherSeriesStore.WindowStats data;
         if (latitude != null && longitude != null) {
             BigDecimal radius = new BigDecimal("0.5");
-            List<WeatherData> locationData = findByLocationRadius(latitude, longitude, radius);
-            data = locationData.stream()
-                    .filter(w -> w.getRecordDate().isAfter(since))
-                    .collect(Collectors.toList());
+            data = weatherSeriesStore.scanRadius(latitude, longitude, radius, since);
         } else {
-            data = weatherDataRepository.findRecentWeatherData(since);
+            data = weatherSeriesStore.scanRegion(since);
         }
 
         return analyzeFlood(data);
@@ -1243,39 +1223,25 @@ public class WeatherDataService {
     @Transactional(readOnly = true)
     public Map<String, Object> getCropStressIndicators(int days) {
         LocalDateTime since = LocalDateTime.now().minusDays(days);
-        List<WeatherData> data = weatherDataRepository.findRecentWeatherData(since);
+        WeatherSeriesStore.WindowStats data = weatherSeriesStore.scanRegion(since);
 
         Map<String, Object> indicators = new HashMap<>();
 
         // Temperature stress
-        long highTempStress = data.stream()
-                .filter(w -> w.getTemperature() != null &&
-                        w.getTemperature().compareTo(new BigDecimal("35")) > 0)
-                .count();
+        long highTempStress = data.getHotCount();
 
-        long lowTempStress = data.stream()
-                .filter(w -> w.getTemperature() != null &&
-                        w.getTemperature().compareTo(new BigDecimal("10")) < 0)
-                .count();
+        long lowTempStress = data.getColdCount();
 
         // Water stress
-        BigDecimal totalRainfall = data.stream()
-                .map(w -> w.getRainfall() != null ? w.getRainfall() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalRainfall = BigDecimal.valueOf(data.getRainfallSum());
 
         BigDecimal avgRainfallPerDay = totalRainfall.divide(
                 new BigDecimal(days), 2, RoundingMode.HALF_UP);
 
         // Humidity stress
-        long lowHumidityDays = data.stream()
-                .filter(w -> w.getHumidity() != null &&
-                        w.getHumidity().compareTo(new BigDecimal("30")) < 0)
-                .count();
+        long lowHumidityDays = data.getLowHumidityCount();
 
-        long highHumidityDays = data.stream()
-                .filter(w -> w.getHumidity() != null &&
-                        w.getHumidity().compareTo(new BigDecimal("80")) > 0)
-                .count();
+        long highHumidityDays = data.getHighHumidityCount();
 
         // Calculate overall stress level
         int stressScore = 0;
@@ -1328,7 +1294,7 @@ public class WeatherDataService {
         ));
 
         indicators.put("analyzedDays", days);
-        indicators.put("dataPoints", data.size());
+        indicators.put("dataPoints", data.getCount());
 
         // Generate stress recommendations
         List<String> recommendations = generateStressRecommendations(
@@ -1412,97 +1378,6 @@ public class WeatherDataService {
 
     @Transactional(readOnly = true)
     public List<Map<String, Object>> checkWeatherAlertTriggers() {
-        List<Map<String, Object>> triggers = new ArrayList<>();
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime last24Hours = now.minusHours(24);
-
-        List<WeatherData> recentData = weatherDataRepository.findRecentWeatherData(last24Hours);
-
-        if (recentData.isEmpty()) {
-            return triggers;
-        }
-
-        // Check for extreme temperature
-        for (WeatherData data : recentData) {
-            if (data.getTemperature() != null) {
-                if (data.getTemperature().compareTo(new BigDecimal("40")) > 0) {
-                    triggers.add(createAlertTrigger(
-                            "EXTREME_HEAT",
-                            "CRITICAL",
-                            "Extreme heat detected: " + data.getTemperature() + "°C",
-                            data.getRecordDate(),
-                            data.getLatitude(),
-                            data.getLongitude()
-                    ));
-                } else if (data.getTemperature().compareTo(new BigDecimal("0")) < 0) {
-                    triggers.add(createAlertTrigger(
-                            "FROST",
-                            "HIGH",
-                            "Frost conditions detected: " + data.getTemperature() + "°C",
-                            data.getRecordDate(),
-                            data.getLatitude(),
-                            data.getLongitude()
-                    ));
-                }
-            }
-
-            // Check for heavy rainfall
-            if (data.getRainfall() != null && data.getRainfall().compareTo(new BigDecimal("50")) > 0) {
-                triggers.add(createAlertTrigger(
-                        "HEAVY_RAIN",
-                        "HIGH",
-                        "Heavy rainfall detected: " + data.getRainfall() + "mm",
-                        data.getRecordDate(),
-                        data.getLatitude(),
-                        data.getLongitude()
-                ));
-            }
-
-            // Check for strong winds
-            if (data.getWindSpeed() != null && data.getWindSpeed().compareTo(new BigDecimal("40")) > 0) {
-                triggers.add(createAlertTrigger(
-                        "STRONG_WIND",
-                        "MEDIUM",
-                        "Strong winds detected: " + data.getWindSpeed() + " km/h",
-                        data.getRecordDate(),
-                        data.getLatitude(),
-                        data.getLongitude()
-                ));
-            }
-        }
-
-        // Check for drought conditions (no significant rain in last 7 days)
-        LocalDateTime last7Days = now.minusDays(7);
-        List<WeatherData> weekData = weatherDataRepository.findRecentWeatherData(last7Days);
-
-        BigDecimal weekRainfall = weekData.stream()
-                .map(w -> w.getRainfall() != null ? w.getRainfall() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        if (weekRainfall.compareTo(new BigDecimal("5")) < 0) {
-            triggers.add(createAlertTrigger(
-                    "DROUGHT_RISK",
-                    "MEDIUM",
-                    "Low rainfall in past 7 days: " + weekRainfall.setScale(2, RoundingMode.HALF_UP) + "mm",
-                    now,
-                    null,
-                    null
-            ));
-        }
-
-        return triggers;
-    }
-
-    private Map<String, Object> createAlertTrigger(String type, String severity,
-                                                   String message, LocalDateTime timestamp,
-                                                   BigDecimal latitude, BigDecimal longitude) {
-        Map<String, Object> alert = new HashMap<>();
-        alert.put("alertType", type);
-        alert.put("severity", severity);
-        alert.put("message", message);
-        alert.put("timestamp", timestamp);
-        alert.put("latitude", latitude);
-        alert.put("longitude", longitude);
-        return alert;
+        return weatherAlertEngine.currentTriggers();
     }
 }
\ No newline at end of file
@@ -0,0 +1,371 @@
+package SmartAgricultural.Management.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Streams weather history in record-date order with constant memory.
+ *
+ * Rows are read in keyset pages over {@code (record_date, id)}, so every page is an index
+ * range scan that resumes after the last row written, and each row is written to the output
+ * as soon as it is read; no page is ever held as entities or maps. Readings that were moved
+ * to the weather archive are merged in by record date, so the export covers the full history.
+ *
+ * The binary format is a 4-byte magic {@code WDX1} followed by fixed 40-byte big-endian
+ * records: record date as epoch milliseconds (UTC, long), latitude and longitude (double),
+ * then temperature, humidity, rainfall and wind speed (float, NaN when missing).
+ */
+@Service
+public class WeatherExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherExportService.class);
+
+    private static final String COLUMNS = "id, record_date, latitude, longitude, temperature, humidity, " +
+            "rainfall, wind_speed, weather_condition, station_id, data_source";
+
+    private static final String FIRST_PAGE = "SELECT " + COLUMNS + " FROM weather_data " +
+            "WHERE record_date >= ? AND record_date < ? ORDER BY record_date, id LIMIT ?";
+
+    private static final String NEXT_PAGE = "SELECT " + COLUMNS + " FROM weather_data " +
+            "WHERE record_date < ? AND (record_date > ? OR (record_date = ? AND id > ?)) " +
+            "ORDER BY record_date, id LIMIT ?";
+
+    private static final byte[] BINARY_MAGIC = {'W', 'D', 'X', '1'};
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson"),
+        BINARY("application/octet-stream", "bin");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WeatherArchiveService weatherArchiveService;
+
+    @Value("${weather.export.page-size:5000}")
+    private int pageSize = 5000;
+
+    @Value("${weather.export.timeout-ms:3600000}")
+    private long timeoutMs = 3_600_000;
+
+    // =================================================================================
+    // EXPORT
+    // =================================================================================
+
+    /**
+     * Async timeout for one export request; a full history can stream for a long time.
+     */
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Writes every reading with {@code from <= recordDate < to} to the stream; returns the row count.
+     */
+    public long export(LocalDateTime from, LocalDateTime to, Format format, OutputStream out) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        RowWriter writer = createWriter(format, out);
+        writer.start();
+
+        Cursor cursor = new Cursor();
+        cursor.archive = weatherArchiveService.open(from, to);
+        int read;
+        do {
+            int[] counter = {0};
+            if (cursor.recordDate == null) {
+                jdbcTemplate.query(FIRST_PAGE, rs -> {
+                    counter[0]++;
+                    writeRow(rs, writer, cursor);
+                }, Timestamp.valueOf(from), Timestamp.valueOf(to), pageSize);
+            } else {
+                Timestamp last = Timestamp.valueOf(cursor.recordDate);
+                jdbcTemplate.query(NEXT_PAGE, rs -> {
+                    counter[0]++;
+                    writeRow(rs, writer, cursor);
+                }, Timestamp.valueOf(to), last, last, cursor.id, pageSize);
+            }
+            read = counter[0];
+        } while (read == pageSize);
+
+        while (cursor.archive.hasNext()) {
+            writer.writeArchived(cursor.archive.next());
+            cursor.rows++;
+        }
+        cursor.archive.close();
+        writer.finish();
+        logger.info("Weather export ({}) of {} rows from {} to {} took {} ms",
+                format, cursor.rows, from, to, System.currentTimeMillis() - startedAt);
+        return cursor.rows;
+    }
+
+    private void writeRow(ResultSet rs, RowWriter writer, Cursor cursor) throws SQLException {
+        try {
+            long rowTime = toEpoch(rs.getTimestamp("record_date").toLocalDateTime());
+            while (cursor.archive.hasNext() && cursor.archive.peekTime() <= rowTime) {
+                writer.writeArchived(cursor.archive.next());
+                cursor.rows++;
+            }
+            writer.write(rs);
+        } catch (IOException e) {
+            // Client went away; abort the scan instead of reading further pages
+            throw new UncheckedIOException(e);
+        }
+        cursor.recordDate = rs.getTimestamp("record_date").toLocalDateTime();
+        cursor.id = rs.getString("id");
+        cursor.rows++;
+    }
+
+    private static long toEpoch(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private RowWriter createWriter(Format format, OutputStream out) throws IOException {
+        switch (format) {
+            case NDJSON: return new NdjsonWriter(objectMapper, out);
+            case BINARY: return new BinaryWriter(out);
+            default: return new CsvWriter(out);
+        }
+    }
+
+    // =================================================================================
+    // ROW WRITERS
+    // =================================================================================
+
+    private static final class Cursor {
+        LocalDateTime recordDate;
+        String id;
+        long rows;
+        WeatherArchiveService.ArchiveCursor archive;
+    }
+
+    private interface RowWriter {
+        void start() throws IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void writeArchived(WeatherArchiveService.ArchivedReading reading) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private static final String[] NUMBER_COLUMNS =
+                {"latitude", "longitude", "temperature", "humidity", "rainfall", "wind_speed"};
+        private static final String[] TEXT_COLUMNS = {"weather_condition", "station_id", "data_source"};
+
+        private final Writer out;
+
+        CsvWriter(OutputStream out) {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void start() throws IOException {
+            out.write("id,recordDate,latitude,longitude,temperature,humidity,rainfall,windSpeed," +
+                    "weatherCondition,stationId,dataSource\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            out.write(rs.getString("id"));
+            out.write(',');
+            out.write(rs.getTimestamp("record_date").toLocalDateTime().toString());
+            for (String column : NUMBER_COLUMNS) {
+                out.write(',');
+                BigDecimal value = rs.getBigDecimal(column);
+                if (value != null) {
+                    out.write(value.toPlainString());
+                }
+            }
+            for (String column : TEXT_COLUMNS) {
+                out.write(',');
+                writeText(rs.getString(column));
+            }
+            out.write('\n');
+        }
+
+        @Override
+        public void writeArchived(WeatherArchiveService.ArchivedReading r) throws IOException {
+            if (r.getId() != null) {
+                out.write(r.getId());
+            }
+            out.write(',');
+            out.write(r.getRecordDate().toString());
+            for (BigDecimal value : new BigDecimal[]{r.getLatitude(), r.getLongitude(), r.getTemperature(),
+                    r.getHumidity(), r.getRainfall(), r.getWindSpeed()}) {
+                out.write(',');
+                if (value != null) {
+                    out.write(value.toPlainString());
+                }
+            }
+            out.write(',');
+            writeText(r.getWeatherCondition());
+            out.write(',');
+            writeText(r.getStationId());
+            out.write(',');
+            writeText(r.getDataSource());
+            out.write('\n');
+        }
+
+        private void writeText(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static final class NdjsonWriter implements RowWriter {
+        private final JsonGenerator json;
+
+        NdjsonWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(new BufferedOutputStream(out, 64 * 1024));
+            this.json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeStringField("id", rs.getString("id"));
+            json.writeStringField("recordDate", rs.getTimestamp("record_date").toLocalDateTime().toString());
+            writeNumber("latitude", rs.getBigDecimal("latitude"));
+            writeNumber("longitude", rs.getBigDecimal("longitude"));
+            writeNumber("temperature", rs.getBigDecimal("temperature"));
+            writeNumber("humidity", rs.getBigDecimal("humidity"));
+            writeNumber("rainfall", rs.getBigDecimal("rainfall"));
+            writeNumber("windSpeed", rs.getBigDecimal("wind_speed"));
+            json.writeStringField("weatherCondition", rs.getString("weather_condition"));
+            json.writeStringField("stationId", rs.getString("station_id"));
+            json.writeStringField("dataSource", rs.getString("data_source"));
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void writeArchived(WeatherArchiveService.ArchivedReading r) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("id", r.getId());
+            json.writeStringField("recordDate", r.getRecordDate().toString());
+            writeNumber("latitude", r.getLatitude());
+            writeNumber("longitude", r.getLongitude());
+            writeNumber("temperature", r.getTemperature());
+            writeNumber("humidity", r.getHumidity());
+            writeNumber("rainfall", r.getRainfall());
+            writeNumber("windSpeed", r.getWindSpeed());
+            json.writeStringField("weatherCondition", r.getWeatherCondition());
+            json.writeStringField("stationId", r.getStationId());
+            json.writeStringField("dataSource", r.getDataSource());
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        private void writeNumber(String field, BigDecimal value) throws IOException {
+            json.writeFieldName(field);
+            if (value != null) {
+                json.writeNumber(value);
+            } else {
+                json.writeNull();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+
+    private static final class BinaryWriter implements RowWriter {
+        private final DataOutputStream out;
+
+        BinaryWriter(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        }
+
+        @Override
+        public void start() throws IOException {
+            out.write(BINARY_MAGIC);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            out.writeLong(rs.getTimestamp("record_date").toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+            out.writeDouble(rs.getDouble("latitude"));
+            out.writeDouble(rs.getDouble("longitude"));
+            out.writeFloat(floatOrNaN(rs, "temperature"));
+            out.writeFloat(floatOrNaN(rs, "humidity"));
+            out.writeFloat(floatOrNaN(rs, "rainfall"));
+            out.writeFloat(floatOrNaN(rs, "wind_speed"));
+        }
+
+        @Override
+        public void writeArchived(WeatherArchiveService.ArchivedReading r) throws IOException {
+            out.writeLong(r.getRecordDateMillis());
+            out.writeDouble(r.getLatitude() != null ? r.getLatitude().doubleValue() : 0);
+            out.writeDouble(r.getLongitude() != null ? r.getLongitude().doubleValue() : 0);
+            out.writeFloat(floatOrNaN(r.getTemperature()));
+            out.writeFloat(floatOrNaN(r.getHumidity()));
+            out.writeFloat(floatOrNaN(r.getRainfall()));
+            out.writeFloat(floatOrNaN(r.getWindSpeed()));
+        }
+
+        private static float floatOrNaN(BigDecimal value) {
+            return value != null ? value.floatValue() : Float.NaN;
+        }
+
+        private static float floatOrNaN(ResultSet rs, String column) throws SQLException {
+            float value = rs.getFloat(column);
+            return rs.wasNull() ? Float.NaN : value;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Util.GeoHash;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fitted temperature trend models per location cell, used by weather predictions.
+ *
+ * A model holds the least-squares sums of temperature against reading index for the
+ * readings within {@link #RADIUS_DEGREES} of the cell centre over the fitting window. New
+ * readings extend those sums in place; a model is refitted from {@link WeatherSeriesStore}
+ * once it is older than the refit interval (the window has moved on) and dropped entirely
+ * when readings are corrected or deleted.
+ *
+ * Readings arrive from the store as it appends them, each with the store's sequence number.
+ * Models are indexed by a coarse geohash area, so a reading only visits the models around it.
+ * A model remembers the sequence it is current to: the one its fit scanned, then each reading
+ * it absorbed. Readings appended while a cell is being fitted are held for that fit and
+ * replayed onto it if the scan did not include them, so a fit finishing late neither loses
+ * them nor counts them twice.
+ */
+@Component
+public class WeatherForecastModelCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherForecastModelCache.class);
+
+    // Geohash cells of ~4.9 x 4.9 km
+    static final int CELL_PRECISION = 5;
+    // Index areas of ~156 x 156 km, so a reading's radius touches a handful of them
+    static final int AREA_PRECISION = 3;
+    static final double RADIUS_DEGREES = 0.5;
+    static final int WINDOW_DAYS = 60;
+
+    @Autowired
+    private WeatherSeriesStore weatherSeriesStore;
+
+    @Value("${weather.forecast.refit-hours:6}")
+    private int refitHours = 6;
+
+    @Value("${weather.forecast.max-models:2048}")
+    private int maxModels = 2048;
+
+    private final Map<String, ForecastModel> models = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ForecastModel> eldest) {
+            if (size() > maxModels) {
+                unindex(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // Area geohash -> models whose centre lies in it; kept in step with models
+    private final Map<String, Map<String, ForecastModel>> modelsByArea = new HashMap<>();
+
+    // Cells being fitted, with the readings appended since their fit started
+    private final Map<String, PendingFit> fitting = new HashMap<>();
+
+    private long generation = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong incrementalUpdates = new AtomicLong();
+    private final AtomicLong replayedReadings = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong refitNanosTotal = new AtomicLong();
+    private final AtomicLong refitNanosMax = new AtomicLong();
+
+    @PostConstruct
+    void listenToAppends() {
+        weatherSeriesStore.addAppendListener(this::extend);
+    }
+
+    // =================================================================================
+    // LOOKUP
+    // =================================================================================
+
+    /**
+     * Returns the model for the cell containing the location, fitting it on a miss.
+     */
+    public ForecastModel get(BigDecimal latitude, BigDecimal longitude) {
+        String cell = GeoHash.encode(latitude.doubleValue(), longitude.doubleValue(), CELL_PRECISION);
+        LocalDateTime refitBefore = LocalDateTime.now().minusHours(refitHours);
+
+        long fitGeneration;
+        PendingFit pending;
+        synchronized (this) {
+            ForecastModel model = models.get(cell);
+            if (model != null && model.fittedAt.isAfter(refitBefore)) {
+                hits.incrementAndGet();
+                return model.copy();
+            }
+            fitGeneration = generation;
+            pending = fitting.computeIfAbsent(cell, PendingFit::new);
+            pending.fitters++;
+        }
+
+        misses.incrementAndGet();
+        try {
+            ForecastModel fitted = fit(cell);
+            synchronized (this) {
+                for (Appended reading : pending.readings) {
+                    if (fitted.absorb(reading.sequence, reading.recordDate, reading.temperature)) {
+                        replayedReadings.incrementAndGet();
+                    }
+                }
+                // Do not cache a model fitted from data that was corrected meanwhile
+                if (fitGeneration == generation) {
+                    cache(fitted);
+                }
+            }
+            return fitted.copy();
+        } finally {
+            synchronized (this) {
+                if (--pending.fitters == 0) {
+                    fitting.remove(cell, pending);
+                }
+            }
+        }
+    }
+
+    private ForecastModel fit(String cell) {
+        long startedAt = System.nanoTime();
+        double[] centre = GeoHash.center(cell);
+        double centreLat = centre[0];
+        double centreLon = centre[1];
+        LocalDateTime now = LocalDateTime.now();
+
+        WeatherSeriesStore.WindowStats stats = weatherSeriesStore.scanRadius(
+                BigDecimal.valueOf(centreLat), BigDecimal.valueOf(centreLon),
+                BigDecimal.valueOf(RADIUS_DEGREES), now.minusDays(WINDOW_DAYS));
+
+        ForecastModel model = new ForecastModel(cell, centreLat, centreLon, now);
+        model.sequence = stats.getSequence();
+        model.count = stats.getTemperatureCount();
+        model.sumY = stats.getTemperatureSum();
+        model.sumX = stats.getTrendSumX();
+        model.sumXY = stats.getTrendSumXY();
+        model.sumX2 = stats.getTrendSumX2();
+
+        long elapsed = System.nanoTime() - startedAt;
+        refitNanosTotal.addAndGet(elapsed);
+        refitNanosMax.accumulateAndGet(elapsed, Math::max);
+        logger.debug("Forecast model for cell {} fitted from {} readings in {} µs", cell, model.count, elapsed / 1000);
+        return model;
+    }
+
+    private void cache(ForecastModel fitted) {
+        ForecastModel current = models.get(fitted.cell);
+        // A concurrent fit of the same cell that started later is at least as current
+        if (current != null && current.fittedAt.isAfter(fitted.fittedAt)) {
+            return;
+        }
+        if (current != null) {
+            unindex(current);
+        }
+        models.put(fitted.cell, fitted);
+        modelsByArea.computeIfAbsent(fitted.cell.substring(0, AREA_PRECISION), k -> new HashMap<>())
+                .put(fitted.cell, fitted);
+    }
+
+    private void unindex(ForecastModel model) {
+        Map<String, ForecastModel> area = modelsByArea.get(model.cell.substring(0, AREA_PRECISION));
+        if (area != null && area.remove(model.cell, model) && area.isEmpty()) {
+            modelsByArea.remove(model.cell.substring(0, AREA_PRECISION));
+        }
+    }
+
+    // =================================================================================
+    // MAINTENANCE
+    // =================================================================================
+
+    /**
+     * Drops every model after readings were corrected or deleted.
+     */
+    public void invalidate() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private synchronized void clear() {
+        generation++;
+        if (!models.isEmpty()) {
+            models.clear();
+            modelsByArea.clear();
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Extends the models around a reading the series store has just appended.
+     */
+    synchronized void extend(WeatherData w, long sequence) {
+        if (w.getTemperature() == null || w.getLatitude() == null || w.getLongitude() == null
+                || w.getRecordDate() == null) {
+            return;
+        }
+        double lat = w.getLatitude().doubleValue();
+        double lon = w.getLongitude().doubleValue();
+        double temp = w.getTemperature().doubleValue();
+
+        if (!modelsByArea.isEmpty()) {
+            double lonSpan = GeoHash.longitudeSpan(lat, RADIUS_DEGREES);
+            for (String area : GeoHash.cover(lat - RADIUS_DEGREES, lat + RADIUS_DEGREES,
+                    lon - lonSpan, lon + lonSpan, AREA_PRECISION)) {
+                Map<String, ForecastModel> near = modelsByArea.get(area);
+                if (near == null) {
+                    continue;
+                }
+                for (ForecastModel model : near.values()) {
+                    if (GeoHash.centralAngleDegrees(model.centreLatitude, model.centreLongitude, lat, lon) <= RADIUS_DEGREES
+                            && model.absorb(sequence, w.getRecordDate(), temp)) {
+                        incrementalUpdates.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        for (PendingFit pending : fitting.values()) {
+            if (GeoHash.centralAngleDegrees(pending.centreLatitude, pending.centreLongitude, lat, lon) <= RADIUS_DEGREES) {
+                pending.readings.add(new Appended(sequence, w.getRecordDate(), temp));
+            }
+        }
+    }
+
+    // =================================================================================
+    // METRICS
+    // =================================================================================
+
+    public Map<String, Object> getMetrics() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (this) {
+            metrics.put("models", models.size());
+            metrics.put("fitsInProgress", fitting.size());
+        }
+        metrics.put("maxModels", maxModels);
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hitRate", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        metrics.put("incrementalUpdates", incrementalUpdates.get());
+        metrics.put("replayedReadings", replayedReadings.get());
+        metrics.put("invalidations", invalidations.get());
+        metrics.put("refitTimeAvgMs", missCount > 0 ? refitNanosTotal.get() / 1e6 / missCount : 0.0);
+        metrics.put("refitTimeMaxMs", refitNanosMax.get() / 1e6);
+        metrics.put("refitIntervalHours", refitHours);
+        return metrics;
+    }
+
+    /**
+     * Least-squares temperature model of one cell; evaluation is O(1).
+     */
+    public static class ForecastModel {
+        private final String cell;
+        private final double centreLatitude;
+        private final double centreLongitude;
+        private final LocalDateTime fittedAt;
+        // Store sequence this model is current to
+        private long sequence;
+        private long count;
+        private double sumY, sumX, sumXY, sumX2;
+
+        ForecastModel(String cell, double centreLatitude, double centreLongitude, LocalDateTime fittedAt) {
+            this.cell = cell;
+            this.centreLatitude = centreLatitude;
+            this.centreLongitude = centreLongitude;
+            this.fittedAt = fittedAt;
+        }
+
+        ForecastModel copy() {
+            ForecastModel copy = new ForecastModel(cell, centreLatitude, centreLongitude, fittedAt);
+            copy.sequence = sequence;
+            copy.count = count;
+            copy.sumY = sumY;
+            copy.sumX = sumX;
+            copy.sumXY = sumXY;
+            copy.sumX2 = sumX2;
+            return copy;
+        }
+
+        /**
+         * Adds a reading the model has not seen yet; returns whether it changed the sums.
+         */
+        boolean absorb(long readingSequence, LocalDateTime recordDate, double temperature) {
+            if (readingSequence <= sequence) {
+                return false;
+            }
+            sequence = readingSequence;
+            // Late readings from before the fitting window would not have been part of the fit
+            if (recordDate.isBefore(fittedAt.minusDays(WINDOW_DAYS))) {
+                return false;
+            }
+            double x = count;
+            count++;
+            sumY += temperature;
+            sumX += x;
+            sumXY += x * temperature;
+            sumX2 += x * x;
+            return true;
+        }
+
+        public String getCell() { return cell; }
+        public LocalDateTime getFittedAt() { return fittedAt; }
+        public long getCount() { return count; }
+
+        public double getMean() {
+            return count > 0 ? sumY / count : 0;
+        }
+
+        /**
+         * Least-squares slope of temperature against reading index (0, 1, 2, ...).
+         */
+        public double getSlope() {
+            if (count < 2) return 0;
+            double denominator = count * sumX2 - sumX * sumX;
+            if (denominator == 0) return 0;
+            return (count * sumXY - sumX * sumY) / denominator;
+        }
+    }
+
+    private static final class PendingFit {
+        private final double centreLatitude;
+        private final double centreLongitude;
+        private final List<Appended> readings = new ArrayList<>();
+        private int fitters;
+
+        private PendingFit(String cell) {
+            double[] centre = GeoHash.center(cell);
+            this.centreLatitude = centre[0];
+            this.centreLongitude = centre[1];
+        }
+    }
+
+    private record Appended(long sequence, LocalDateTime recordDate, double temperature) {
+    }
+}
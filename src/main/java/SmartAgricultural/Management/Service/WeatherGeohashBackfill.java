@@ -0,0 +1,78 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Repository.WeatherDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills the geohash column of weather readings stored before the spatial index existed.
+ * Runs once in the background after startup, one batch per transaction. The cell rollups only
+ * see readings that have a geohash, so they are rebuilt once the backfill has filled any.
+ */
+@Component
+public class WeatherGeohashBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherGeohashBackfill.class);
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private WeatherRollupService weatherRollupService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread worker = new Thread(this::backfill, "weather-geohash-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public int backfill() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int total = 0;
+        try {
+            while (true) {
+                Integer updated = transaction.execute(status -> {
+                    List<WeatherData> batch = weatherDataRepository.findByGeohashIsNull(PageRequest.of(0, BATCH_SIZE));
+                    batch.forEach(WeatherData::updateGeohash);
+                    weatherDataRepository.saveAll(batch);
+                    return batch.size();
+                });
+                if (updated == null || updated == 0) {
+                    break;
+                }
+                total += updated;
+                if (updated < BATCH_SIZE) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                logger.info("Geohash backfill completed for {} weather readings", total);
+            }
+        } catch (Exception e) {
+            logger.error("Geohash backfill stopped after {} weather readings", total, e);
+        }
+        if (total > 0) {
+            try {
+                weatherRollupService.rebuildCells();
+            } catch (Exception e) {
+                logger.error("Could not rebuild the weather cell rollups after the geohash backfill", e);
+            }
+        }
+        return total;
+    }
+}
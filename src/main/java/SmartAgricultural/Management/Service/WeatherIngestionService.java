@@ -0,0 +1,410 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Model.WeatherData.DataQuality;
+import SmartAgricultural.Management.exception.ValidationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming ingestion of station feeds in NDJSON or CSV.
+ *
+ * The body is read line by line and cut into chunks. Each chunk is parsed and validated in
+ * parallel on the request thread while the previous chunk is written with a JDBC batch on
+ * the writer pool. At most one chunk per request is in flight, so a slow database stops the
+ * request from reading further instead of buffering the body in memory.
+ */
+@Service
+public class WeatherIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherIngestionService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final String INSERT_SQL = "INSERT INTO weather_data (id, latitude, longitude, geohash, " +
+            "record_date, temperature, temperature_min, temperature_max, humidity, rainfall, wind_speed, " +
+            "wind_direction, weather_condition, solar_radiation, evapotranspiration, atmospheric_pressure, " +
+            "uv_index, data_source, station_id, data_quality, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    @Autowired
+    private WeatherDataService weatherDataService;
+
+    @Autowired
+    private WeatherSeriesStore weatherSeriesStore;
+
+    @Autowired
+    private WeatherAlertEngine weatherAlertEngine;
+
+    @Autowired
+    private WeatherRollupService weatherRollupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor writers;
+    private final int chunkSize;
+
+    public WeatherIngestionService(PlatformTransactionManager transactionManager,
+                                   @Value("${weather.ingest.chunk-size:1000}") int chunkSize,
+                                   @Value("${weather.ingest.writer-threads:4}") int writerThreads) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+
+        AtomicInteger counter = new AtomicInteger();
+        // Bounded queue + caller-runs: when every writer is busy the request thread writes itself
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(writerThreads * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "weather-ingest-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+
+    // =================================================================================
+    // INGESTION
+    // =================================================================================
+
+    public Map<String, Object> ingest(InputStream body, Format format) throws IOException {
+        long startedAt = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Totals totals = new Totals();
+
+        String[] header = null;
+        List<String> lines = new ArrayList<>(chunkSize);
+        int chunkIndex = 0, chunkFirstLine = 1, lineNumber = 0;
+        Future<ChunkResult> inFlight = null;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = splitCsv(line);
+                continue;
+            }
+            if (lines.isEmpty()) {
+                chunkFirstLine = lineNumber;
+            }
+            lines.add(line);
+            totals.linesRead++;
+
+            if (lines.size() == chunkSize) {
+                ParsedChunk parsed = parse(chunkIndex++, chunkFirstLine, lines, format, header);
+                totals.add(await(inFlight));
+                inFlight = writers.submit(() -> write(parsed));
+                lines = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!lines.isEmpty()) {
+            ParsedChunk parsed = parse(chunkIndex, chunkFirstLine, lines, format, header);
+            totals.add(await(inFlight));
+            inFlight = writers.submit(() -> write(parsed));
+        }
+        totals.add(await(inFlight));
+
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+        logger.info("Weather ingestion ({}): {} lines, {} inserted, {} rejected in {} ms",
+                format, totals.linesRead, totals.inserted, totals.rejected, elapsedMs);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("format", format.name());
+        result.put("linesRead", totals.linesRead);
+        result.put("inserted", totals.inserted);
+        result.put("rejected", totals.rejected);
+        result.put("elapsedMs", elapsedMs);
+        result.put("rowsPerSecond", elapsedMs > 0 ? totals.inserted * 1000L / elapsedMs : totals.inserted);
+        result.put("chunks", totals.chunks);
+        result.put("errors", totals.errors);
+        return result;
+    }
+
+    // =================================================================================
+    // PARSE AND VALIDATE
+    // =================================================================================
+
+    private ParsedChunk parse(int index, int firstLine, List<String> lines, Format format, String[] header) {
+        long startedAt = System.nanoTime();
+        WeatherData[] rows = new WeatherData[lines.size()];
+        String[] rowErrors = new String[lines.size()];
+
+        IntStream.range(0, lines.size()).parallel().forEach(i -> {
+            try {
+                WeatherData weatherData = format == Format.NDJSON
+                        ? objectMapper.readValue(lines.get(i), WeatherData.class)
+                        : fromCsv(header, splitCsv(lines.get(i)));
+                weatherDataService.validateWeatherData(weatherData);
+                rows[i] = weatherData;
+            } catch (ValidationException e) {
+                rowErrors[i] = e.getMessage();
+            } catch (Exception e) {
+                rowErrors[i] = "Unparseable record: " + e.getMessage();
+            }
+        });
+
+        ParsedChunk chunk = new ParsedChunk(index, firstLine, lines.size());
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] != null) {
+                chunk.rows.add(rows[i]);
+            } else {
+                chunk.errors.add("line " + (firstLine + i) + ": " + rowErrors[i]);
+            }
+        }
+        chunk.parseNanos = System.nanoTime() - startedAt;
+        return chunk;
+    }
+
+    private WeatherData fromCsv(String[] header, String[] values) {
+        if (header == null) {
+            throw new ValidationException("CSV header row is missing");
+        }
+        WeatherData w = new WeatherData();
+        for (int i = 0; i < header.length && i < values.length; i++) {
+            String value = values[i].trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (header[i].trim().toLowerCase(Locale.ROOT).replace("_", "").replace("-", "")) {
+                case "id": w.setId(value); break;
+                case "latitude": w.setLatitude(new BigDecimal(value)); break;
+                case "longitude": w.setLongitude(new BigDecimal(value)); break;
+                case "recorddate": w.setRecordDate(LocalDateTime.parse(value.replace(' ', 'T'))); break;
+                case "temperature": w.setTemperature(new BigDecimal(value)); break;
+                case "temperaturemin": w.setTemperatureMin(new BigDecimal(value)); break;
+                case "temperaturemax": w.setTemperatureMax(new BigDecimal(value)); break;
+                case "humidity": w.setHumidity(new BigDecimal(value)); break;
+                case "rainfall": w.setRainfall(new BigDecimal(value)); break;
+                case "windspeed": w.setWindSpeed(new BigDecimal(value)); break;
+                case "winddirection": w.setWindDirection(Integer.valueOf(value)); break;
+                case "weathercondition": w.setWeatherCondition(value); break;
+                case "solarradiation": w.setSolarRadiation(new BigDecimal(value)); break;
+                case "evapotranspiration": w.setEvapotranspiration(new BigDecimal(value)); break;
+                case "atmosphericpressure": w.setAtmosphericPressure(new BigDecimal(value)); break;
+                case "uvindex": w.setUvIndex(Integer.valueOf(value)); break;
+                case "datasource": w.setDataSource(value); break;
+                case "stationid": w.setStationId(value); break;
+                case "dataquality": w.setDataQuality(DataQuality.valueOf(value.toUpperCase(Locale.ROOT))); break;
+                default: break;
+            }
+        }
+        return w;
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields and doubled quotes inside them.
+     */
+    private static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    // =================================================================================
+    // BATCHED WRITE
+    // =================================================================================
+
+    private ChunkResult write(ParsedChunk chunk) {
+        long startedAt = System.nanoTime();
+        ChunkResult result = new ChunkResult(chunk);
+        if (chunk.rows.isEmpty()) {
+            return result;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                chunk.rows.forEach(WeatherData::prepareForInsert);
+                jdbcTemplate.batchUpdate(INSERT_SQL, chunk.rows, chunk.rows.size(), (ps, w) -> {
+                    ps.setString(1, w.getId());
+                    ps.setBigDecimal(2, w.getLatitude());
+                    ps.setBigDecimal(3, w.getLongitude());
+                    ps.setString(4, w.getGeohash());
+                    ps.setTimestamp(5, Timestamp.valueOf(w.getRecordDate()));
+                    ps.setBigDecimal(6, w.getTemperature());
+                    ps.setBigDecimal(7, w.getTemperatureMin());
+                    ps.setBigDecimal(8, w.getTemperatureMax());
+                    ps.setBigDecimal(9, w.getHumidity());
+                    ps.setBigDecimal(10, w.getRainfall());
+                    ps.setBigDecimal(11, w.getWindSpeed());
+                    ps.setObject(12, w.getWindDirection(), Types.INTEGER);
+                    ps.setString(13, w.getWeatherCondition());
+                    ps.setBigDecimal(14, w.getSolarRadiation());
+                    ps.setBigDecimal(15, w.getEvapotranspiration());
+                    ps.setBigDecimal(16, w.getAtmosphericPressure());
+                    ps.setObject(17, w.getUvIndex(), Types.INTEGER);
+                    ps.setString(18, w.getDataSource());
+                    ps.setString(19, w.getStationId());
+                    ps.setString(20, w.getDataQuality() != null ? w.getDataQuality().name() : null);
+                    ps.setTimestamp(21, Timestamp.valueOf(w.getCreatedAt()));
+                    ps.setTimestamp(22, Timestamp.valueOf(w.getUpdatedAt()));
+                });
+                weatherRollupService.recordInserted(chunk.rows);
+                chunk.rows.forEach(weatherSeriesStore::record);
+                chunk.rows.forEach(weatherAlertEngine::record);
+            });
+            result.inserted = chunk.rows.size();
+        } catch (Exception e) {
+            logger.error("Weather ingestion chunk {} failed: {}", chunk.index, e.getMessage());
+            result.rejected += chunk.rows.size();
+            result.failure = e.getMessage();
+        }
+        result.writeNanos = System.nanoTime() - startedAt;
+        logger.debug("Weather ingestion chunk {}: {} rows parsed in {} ms, written in {} ms",
+                chunk.index, chunk.lineCount, chunk.parseNanos / 1_000_000, result.writeNanos / 1_000_000);
+        return result;
+    }
+
+    private static ChunkResult await(Future<ChunkResult> future) throws IOException {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing weather data", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Weather ingestion chunk failed", e.getCause());
+        }
+    }
+
+    // =================================================================================
+    // CHUNK STATE
+    // =================================================================================
+
+    private static final class Totals {
+        int linesRead;
+        int inserted;
+        int rejected;
+        final List<Map<String, Object>> chunks = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+
+        void add(ChunkResult result) {
+            if (result == null) {
+                return;
+            }
+            inserted += result.inserted;
+            rejected += result.rejected;
+            chunks.add(result.toReport());
+            for (String error : result.errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(error);
+                }
+            }
+            if (result.failure != null && errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("chunk " + result.index + ": " + result.failure);
+            }
+        }
+    }
+
+    private static final class ParsedChunk {
+        final int index;
+        final int firstLine;
+        final int lineCount;
+        final List<WeatherData> rows = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        long parseNanos;
+
+        ParsedChunk(int index, int firstLine, int lineCount) {
+            this.index = index;
+            this.firstLine = firstLine;
+            this.lineCount = lineCount;
+        }
+    }
+
+    private static final class ChunkResult {
+        final int index;
+        final int firstLine;
+        final int lineCount;
+        final long parseNanos;
+        final List<String> errors;
+        int inserted;
+        int rejected;
+        long writeNanos;
+        String failure;
+
+        ChunkResult(ParsedChunk chunk) {
+            this.index = chunk.index;
+            this.firstLine = chunk.firstLine;
+            this.lineCount = chunk.lineCount;
+            this.parseNanos = chunk.parseNanos;
+            this.errors = chunk.errors;
+            this.rejected = chunk.errors.size();
+        }
+
+        Map<String, Object> toReport() {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("chunk", index);
+            report.put("firstLine", firstLine);
+            report.put("lines", lineCount);
+            report.put("inserted", inserted);
+            report.put("rejected", rejected);
+            report.put("parseMs", parseNanos / 1_000_000);
+            report.put("writeMs", writeNanos / 1_000_000);
+            report.put("rowsPerSecond", writeNanos > 0 ? inserted * 1_000_000_000L / writeNanos : inserted);
+            if (failure != null) {
+                report.put("failure", failure);
+            }
+            return report;
+        }
+    }
+}
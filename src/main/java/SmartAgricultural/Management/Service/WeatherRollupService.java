@@ -0,0 +1,276 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Model.WeatherRollup;
+import SmartAgricultural.Management.Model.WeatherRollup.Granularity;
+import SmartAgricultural.Management.Repository.WeatherDataRepository;
+import SmartAgricultural.Management.Repository.WeatherRollupRepository;
+import SmartAgricultural.Management.Util.GeoHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Maintains the day, month and location-cell rollups of weather readings.
+ *
+ * Inserts are folded into per-bucket deltas and merged with one upsert per bucket. Updates
+ * and deletes cannot be subtracted from min/max, so the affected buckets are recomputed from
+ * weather_data instead; {@link #rebuildAll()} recomputes everything for backfills. Archived
+ * readings are no longer in weather_data but still belong to the history, so full rebuilds
+ * stream them back in from the archive.
+ *
+ * Cell rollups are built from the geohash column, which readings stored before the spatial
+ * index only get from {@link WeatherGeohashBackfill}; it calls {@link #rebuildCells()} once it
+ * is done, so cells built while it was still running are recomputed with every reading.
+ */
+@Service
+@Transactional
+public class WeatherRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherRollupService.class);
+
+    // Geohash cells of ~150 m, so readings of one station always share a cell
+    public static final int CELL_PRECISION = 7;
+
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(3000, 1, 1, 0, 0);
+
+    // Archived readings folded back per round trip when rollups are rebuilt
+    private static final int ARCHIVE_BATCH = 5000;
+
+    @Autowired
+    private WeatherRollupRepository weatherRollupRepository;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private WeatherArchiveService weatherArchiveService;
+
+    // =================================================================================
+    // INCREMENTAL MAINTENANCE
+    // =================================================================================
+
+    public void recordInserted(Collection<WeatherData> readings) {
+        upsertDeltas(readings, EnumSet.allOf(Granularity.class));
+    }
+
+    private void upsertDeltas(Collection<WeatherData> readings, Set<Granularity> granularities) {
+        Map<String, WeatherRollup> deltas = new LinkedHashMap<>();
+        for (WeatherData w : readings) {
+            if (w.getRecordDate() == null) {
+                continue;
+            }
+            LocalDate day = w.getRecordDate().toLocalDate();
+            YearMonth month = YearMonth.from(day);
+
+            if (granularities.contains(Granularity.DAY)) {
+                deltas.computeIfAbsent(dayId(day), id -> {
+                    WeatherRollup rollup = new WeatherRollup(id, Granularity.DAY);
+                    rollup.setPeriodStart(day);
+                    return rollup;
+                }).add(w);
+            }
+
+            if (granularities.contains(Granularity.MONTH)) {
+                deltas.computeIfAbsent(monthId(month), id -> {
+                    WeatherRollup rollup = new WeatherRollup(id, Granularity.MONTH);
+                    rollup.setPeriodStart(month.atDay(1));
+                    return rollup;
+                }).add(w);
+            }
+
+            String cell = granularities.contains(Granularity.CELL) ? cellOf(w) : null;
+            if (cell != null) {
+                deltas.computeIfAbsent(cellId(cell), id -> {
+                    WeatherRollup rollup = new WeatherRollup(id, Granularity.CELL);
+                    rollup.setCellId(cell);
+                    rollup.setLatitude(w.getLatitude().doubleValue());
+                    rollup.setLongitude(w.getLongitude().doubleValue());
+                    return rollup;
+                }).add(w);
+            }
+        }
+        deltas.values().forEach(weatherRollupRepository::upsert);
+    }
+
+    /**
+     * Bucket ids a reading contributes to; capture them before a reading is changed or deleted.
+     */
+    public Set<String> bucketIds(WeatherData w) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (w.getRecordDate() != null) {
+            LocalDate day = w.getRecordDate().toLocalDate();
+            ids.add(dayId(day));
+            ids.add(monthId(YearMonth.from(day)));
+        }
+        String cell = cellOf(w);
+        if (cell != null) {
+            ids.add(cellId(cell));
+        }
+        return ids;
+    }
+
+    public Set<String> bucketIds(Collection<WeatherData> readings) {
+        Set<String> ids = new LinkedHashSet<>();
+        readings.forEach(w -> ids.addAll(bucketIds(w)));
+        return ids;
+    }
+
+    /**
+     * Recomputes the given buckets from weather_data.
+     */
+    public void refresh(Set<String> bucketIds) {
+        for (String id : bucketIds) {
+            weatherRollupRepository.deleteRollup(id);
+            String key = id.substring(id.indexOf('#') + 1);
+            if (id.startsWith("DAY#")) {
+                LocalDateTime from = LocalDate.parse(key).atStartOfDay();
+                weatherRollupRepository.rebuildDays(from, from.plusDays(1));
+            } else if (id.startsWith("MONTH#")) {
+                LocalDateTime from = YearMonth.parse(key).atDay(1).atStartOfDay();
+                weatherRollupRepository.rebuildMonths(from, from.plusMonths(1));
+            } else if (id.startsWith("CELL#")) {
+                String to = GeoHash.successor(key);
+                weatherRollupRepository.rebuildCells(CELL_PRECISION, key, to != null ? to : "~");
+            }
+        }
+    }
+
+    /**
+     * Recomputes every rollup from weather_data and the archive, e.g. after a backfill or a cleanup.
+     */
+    public Map<String, Object> rebuildAll() {
+        long startedAt = System.currentTimeMillis();
+        weatherRollupRepository.deleteAllRollups();
+        int days = weatherRollupRepository.rebuildDays(MIN_DATE, MAX_DATE);
+        int months = weatherRollupRepository.rebuildMonths(MIN_DATE, MAX_DATE);
+        int cells = weatherRollupRepository.rebuildAllCells(CELL_PRECISION);
+        long archived = foldInArchive(EnumSet.allOf(Granularity.class));
+        long elapsed = System.currentTimeMillis() - startedAt;
+
+        logger.info("Weather rollups rebuilt: {} days, {} months, {} cells, {} archived readings in {} ms",
+                days, months, cells, archived, elapsed);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("days", days);
+        result.put("months", months);
+        result.put("cells", cells);
+        result.put("archivedReadings", archived);
+        result.put("elapsedMs", elapsed);
+        return result;
+    }
+
+    /**
+     * Recomputes the cell rollups alone, e.g. once the geohash backfill has completed.
+     */
+    public int rebuildCells() {
+        long startedAt = System.currentTimeMillis();
+        weatherRollupRepository.deleteRollups(Granularity.CELL);
+        int cells = weatherRollupRepository.rebuildAllCells(CELL_PRECISION);
+        long archived = foldInArchive(EnumSet.of(Granularity.CELL));
+        logger.info("Weather cell rollups rebuilt: {} cells, {} archived readings in {} ms",
+                cells, archived, System.currentTimeMillis() - startedAt);
+        return cells;
+    }
+
+    /**
+     * Adds the archived readings back into freshly rebuilt rollups. Readings still present in
+     * weather_data (an archive run that failed before deleting them) are already counted. An
+     * unreadable archive fails the rebuild, whose transaction then rolls back rather than
+     * committing rollups that silently miss the archived history.
+     */
+    private long foldInArchive(Set<Granularity> granularities) {
+        long folded = 0;
+        try (WeatherArchiveService.ArchiveCursor cursor = weatherArchiveService.open(MIN_DATE, MAX_DATE)) {
+            List<WeatherArchiveService.ArchivedReading> batch = new ArrayList<>(ARCHIVE_BATCH);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == ARCHIVE_BATCH || !cursor.hasNext()) {
+                    List<String> ids = batch.stream().map(WeatherArchiveService.ArchivedReading::getId)
+                            .filter(Objects::nonNull).toList();
+                    Set<String> live = ids.isEmpty() ? Set.of() : new HashSet<>(weatherDataRepository.findExistingIds(ids));
+                    List<WeatherData> readings = batch.stream()
+                            .filter(r -> r.getId() == null || !live.contains(r.getId()))
+                            .map(WeatherArchiveService.ArchivedReading::toWeatherData)
+                            .toList();
+                    upsertDeltas(readings, granularities);
+                    folded += readings.size();
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to fold archived weather readings into the rollups", e);
+        }
+        return folded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (weatherRollupRepository.count() == 0 && weatherDataRepository.count() > 0) {
+            logger.info("Weather rollups are empty, building them from existing weather data");
+            try {
+                rebuildAll();
+            } catch (UncheckedIOException e) {
+                // Left empty, so the next start builds them again
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                logger.error("Could not build the weather rollups", e);
+            }
+        }
+    }
+
+    // =================================================================================
+    // READ OPERATIONS
+    // =================================================================================
+
+    @Transactional(readOnly = true)
+    public List<WeatherRollup> findDaily(LocalDate from, LocalDate to) {
+        return weatherRollupRepository.findByGranularityAndPeriodStartBetweenOrderByPeriodStart(
+                Granularity.DAY, from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<WeatherRollup> findMonthly() {
+        return weatherRollupRepository.findByGranularityOrderByPeriodStart(Granularity.MONTH);
+    }
+
+    @Transactional(readOnly = true)
+    public List<WeatherRollup> findCells() {
+        return weatherRollupRepository.findByGranularity(Granularity.CELL);
+    }
+
+    // =================================================================================
+    // HELPERS
+    // =================================================================================
+
+    private static String dayId(LocalDate day) {
+        return "DAY#" + day;
+    }
+
+    private static String monthId(YearMonth month) {
+        return "MONTH#" + month;
+    }
+
+    private static String cellId(String cell) {
+        return "CELL#" + cell;
+    }
+
+    private static String cellOf(WeatherData w) {
+        if (w.getLatitude() == null || w.getLongitude() == null) {
+            return null;
+        }
+        return GeoHash.encode(w.getLatitude().doubleValue(), w.getLongitude().doubleValue(), CELL_PRECISION);
+    }
+}
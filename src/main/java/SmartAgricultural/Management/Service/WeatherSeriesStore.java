@@ -0,0 +1,554 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Repository.WeatherDataRepository;
+import SmartAgricultural.Management.Util.GeoHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process columnar copy of recent weather readings.
+ *
+ * Readings are kept as primitive column arrays ordered by record date, once for the whole
+ * region and once per geohash cell, so that the analytics in {@link WeatherDataService}
+ * can be answered in a single pass without materializing entities or BigDecimal streams.
+ * The store is fed after each committed insert; updates and deletes mark it stale and it
+ * reloads itself from the database (and the weather archive, for readings that have been
+ * moved to cold storage) on the next read.
+ *
+ * Every append and reload bumps a sequence number under the write lock. Scans report the
+ * sequence they saw, and {@link AppendListener}s are called with each appended reading's
+ * sequence, so a consumer can tell exactly which readings a scan already included.
+ */
+@Component
+public class WeatherSeriesStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherSeriesStore.class);
+
+    // Geohash cells of ~39 x 20 km; a 0.5 degree radius is covered by a few dozen of them at most
+    static final int CELL_PRECISION = 4;
+    private static final int INITIAL_CAPACITY = 256;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private WeatherArchiveService weatherArchiveService;
+
+    @Value("${weather.series.retention-days:120}")
+    private int retentionDays = 120;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Series region = new Series();
+    private final Map<String, Series> cells = new HashMap<>();
+    private final Map<String, Short> conditionCodes = new HashMap<>();
+    private final List<String> conditionNames = new ArrayList<>();
+
+    private volatile boolean loaded = false;
+    private volatile boolean stale = false;
+    private long horizon = Long.MAX_VALUE;
+    private long sequence = 0;
+
+    private final List<AppendListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Called under the store's write lock after each committed reading is appended.
+     */
+    public interface AppendListener {
+        void appended(WeatherData weatherData, long sequence);
+    }
+
+    public void addAppendListener(AppendListener listener) {
+        listeners.add(listener);
+    }
+
+    // =================================================================================
+    // WRITE PATH
+    // =================================================================================
+
+    /**
+     * Records a newly inserted reading. Inside a transaction the reading is only applied
+     * once the transaction commits, so rolled-back inserts never reach the store.
+     */
+    public void record(WeatherData weatherData) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(weatherData);
+                }
+            });
+        } else {
+            append(weatherData);
+        }
+    }
+
+    /**
+     * Marks the store stale after readings were updated or deleted.
+     */
+    public void invalidate() {
+        stale = true;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    stale = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Replaces the store content with the given readings, which must be ordered by record date.
+     */
+    public void load(List<WeatherData> ascending, LocalDateTime since) {
+        lock.writeLock().lock();
+        try {
+            region.clear();
+            cells.clear();
+            horizon = toEpoch(since);
+            for (WeatherData weatherData : ascending) {
+                appendLocked(weatherData);
+            }
+            sequence++;
+            loaded = true;
+            stale = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(WeatherData weatherData) {
+        if (!loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (appendLocked(weatherData)) {
+                long appended = ++sequence;
+                for (AppendListener listener : listeners) {
+                    listener.appended(weatherData, appended);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean appendLocked(WeatherData w) {
+        if (w.getRecordDate() == null || w.getLatitude() == null || w.getLongitude() == null) {
+            return false;
+        }
+        long time = toEpoch(w.getRecordDate());
+        if (time < horizon) {
+            return false;
+        }
+        double lat = w.getLatitude().doubleValue();
+        double lon = w.getLongitude().doubleValue();
+        double temp = toDouble(w.getTemperature());
+        double hum = toDouble(w.getHumidity());
+        double rain = toDouble(w.getRainfall());
+        double wind = toDouble(w.getWindSpeed());
+        short cond = conditionCode(w.getWeatherCondition());
+
+        region.insert(time, lat, lon, temp, hum, rain, wind, cond);
+        cells.computeIfAbsent(GeoHash.encode(lat, lon, CELL_PRECISION), k -> new Series())
+                .insert(time, lat, lon, temp, hum, rain, wind, cond);
+        return true;
+    }
+
+    // =================================================================================
+    // READ PATH
+    // =================================================================================
+
+    /**
+     * Aggregates every reading recorded strictly after {@code since}, in date order.
+     */
+    public WindowStats scanRegion(LocalDateTime since) {
+        ensureLoaded(since);
+        lock.readLock().lock();
+        try {
+            WindowStats stats = new WindowStats(conditionNames);
+            stats.sequence = sequence;
+            long from = toEpoch(since);
+            for (int i = region.upperBound(from); i < region.size; i++) {
+                region.emit(i, stats);
+            }
+            return stats.finish();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aggregates readings recorded strictly after {@code since} within {@code radius} degrees of
+     * great-circle arc from the given point. Only the geohash cells covering the circle are
+     * visited; their series are merged in date order and filtered by exact distance.
+     */
+    public WindowStats scanRadius(BigDecimal latitude, BigDecimal longitude, BigDecimal radius, LocalDateTime since) {
+        ensureLoaded(since);
+        double lat = latitude.doubleValue();
+        double lon = longitude.doubleValue();
+        double r = radius.doubleValue();
+        double lonSpan = GeoHash.longitudeSpan(lat, r);
+        double minLat = lat - r, maxLat = lat + r, minLon = lon - lonSpan, maxLon = lon + lonSpan;
+        long from = toEpoch(since);
+        List<String> cover = GeoHash.cover(minLat, maxLat, minLon, maxLon, CELL_PRECISION);
+
+        lock.readLock().lock();
+        try {
+            WindowStats stats = new WindowStats(conditionNames);
+            stats.sequence = sequence;
+
+            List<Series> candidates = new ArrayList<>();
+            for (String cell : cover) {
+                Series series = cells.get(cell);
+                if (series != null && series.size > 0) {
+                    candidates.add(series);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return stats.finish();
+            }
+
+            int k = candidates.size();
+            Series[] sources = candidates.toArray(new Series[0]);
+            int[] cursors = new int[k];
+            for (int s = 0; s < k; s++) {
+                cursors[s] = sources[s].upperBound(from);
+            }
+
+            // k-way merge by record date; k is the number of non-empty cells in the cover
+            while (true) {
+                int pick = -1;
+                long best = Long.MAX_VALUE;
+                for (int s = 0; s < k; s++) {
+                    if (cursors[s] < sources[s].size && sources[s].time[cursors[s]] < best) {
+                        best = sources[s].time[cursors[s]];
+                        pick = s;
+                    }
+                }
+                if (pick < 0) {
+                    break;
+                }
+                Series series = sources[pick];
+                int i = cursors[pick]++;
+                double rowLat = series.lat[i], rowLon = series.lon[i];
+                if (rowLat >= minLat && rowLat <= maxLat && rowLon >= minLon && rowLon <= maxLon
+                        && GeoHash.centralAngleDegrees(lat, lon, rowLat, rowLon) <= r) {
+                    series.emit(i, stats);
+                }
+            }
+            return stats.finish();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        return region.size;
+    }
+
+    private void ensureLoaded(LocalDateTime since) {
+        if (loaded && !stale && toEpoch(since) >= horizon) {
+            return;
+        }
+        reload(since);
+    }
+
+    private synchronized void reload(LocalDateTime since) {
+        if (loaded && !stale && toEpoch(since) >= horizon) {
+            return;
+        }
+        LocalDateTime retentionStart = LocalDateTime.now().minusDays(retentionDays);
+        LocalDateTime loadFrom = since.isBefore(retentionStart) ? since : retentionStart;
+
+        long startedAt = System.currentTimeMillis();
+        List<WeatherData> descending = weatherDataRepository.findRecentWeatherData(loadFrom);
+        List<WeatherData> archived = weatherArchiveService.read(loadFrom, LocalDateTime.now());
+
+        // Merge archived and live readings, both ordered by record date
+        List<WeatherData> ascending = new ArrayList<>(descending.size() + archived.size());
+        int live = descending.size() - 1, cold = 0;
+        while (live >= 0 || cold < archived.size()) {
+            if (live < 0 || (cold < archived.size()
+                    && !archived.get(cold).getRecordDate().isAfter(descending.get(live).getRecordDate()))) {
+                ascending.add(archived.get(cold++));
+            } else {
+                ascending.add(descending.get(live--));
+            }
+        }
+        load(ascending, loadFrom);
+        logger.info("Weather series store loaded {} readings since {} in {} ms",
+                ascending.size(), loadFrom, System.currentTimeMillis() - startedAt);
+    }
+
+    // =================================================================================
+    // HELPERS
+    // =================================================================================
+
+    private short conditionCode(String condition) {
+        if (condition == null) {
+            return -1;
+        }
+        Short code = conditionCodes.get(condition);
+        if (code == null) {
+            code = (short) conditionNames.size();
+            conditionCodes.put(condition, code);
+            conditionNames.add(condition);
+        }
+        return code;
+    }
+
+    private static long toEpoch(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    // =================================================================================
+    // COLUMN STORAGE
+    // =================================================================================
+
+    /**
+     * Growable set of primitive columns kept sorted by record time. Missing values are NaN,
+     * a missing weather condition is -1.
+     */
+    private static final class Series {
+        long[] time = new long[INITIAL_CAPACITY];
+        double[] lat = new double[INITIAL_CAPACITY];
+        double[] lon = new double[INITIAL_CAPACITY];
+        double[] temp = new double[INITIAL_CAPACITY];
+        double[] hum = new double[INITIAL_CAPACITY];
+        double[] rain = new double[INITIAL_CAPACITY];
+        double[] wind = new double[INITIAL_CAPACITY];
+        short[] cond = new short[INITIAL_CAPACITY];
+        int size = 0;
+
+        void insert(long t, double la, double lo, double te, double hu, double ra, double wi, short co) {
+            if (size == time.length) {
+                grow();
+            }
+            // Readings mostly arrive in date order, so the shifted tail is usually empty
+            int at = upperBound(t);
+            int tail = size - at;
+            if (tail > 0) {
+                System.arraycopy(time, at, time, at + 1, tail);
+                System.arraycopy(lat, at, lat, at + 1, tail);
+                System.arraycopy(lon, at, lon, at + 1, tail);
+                System.arraycopy(temp, at, temp, at + 1, tail);
+                System.arraycopy(hum, at, hum, at + 1, tail);
+                System.arraycopy(rain, at, rain, at + 1, tail);
+                System.arraycopy(wind, at, wind, at + 1, tail);
+                System.arraycopy(cond, at, cond, at + 1, tail);
+            }
+            time[at] = t;
+            lat[at] = la;
+            lon[at] = lo;
+            temp[at] = te;
+            hum[at] = hu;
+            rain[at] = ra;
+            wind[at] = wi;
+            cond[at] = co;
+            size++;
+        }
+
+        /** First index whose time is strictly greater than {@code t}. */
+        int upperBound(long t) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (time[mid] <= t) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void emit(int i, WindowStats stats) {
+            stats.accept(temp[i], hum[i], rain[i], cond[i]);
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        private void grow() {
+            int capacity = time.length * 2;
+            time = Arrays.copyOf(time, capacity);
+            lat = Arrays.copyOf(lat, capacity);
+            lon = Arrays.copyOf(lon, capacity);
+            temp = Arrays.copyOf(temp, capacity);
+            hum = Arrays.copyOf(hum, capacity);
+            rain = Arrays.copyOf(rain, capacity);
+            wind = Arrays.copyOf(wind, capacity);
+            cond = Arrays.copyOf(cond, capacity);
+        }
+    }
+
+    // =================================================================================
+    // WINDOW AGGREGATES
+    // =================================================================================
+
+    /**
+     * Single-pass aggregate over a date-ordered window of readings. Thresholds mirror the
+     * ones used by the drought, flood, heat-stress and crop-condition analyses.
+     */
+    public static final class WindowStats {
+
+        private final List<String> conditionNames;
+        private final int[] conditionCounts;
+        private Map<String, Long> conditions;
+
+        private long count;
+        // Store sequence at the time of the scan; appends up to it are included
+        private long sequence;
+
+        private long temperatureCount;
+        private double temperatureSum;
+        private double temperatureMin = Double.POSITIVE_INFINITY;
+        private double temperatureMax = Double.NEGATIVE_INFINITY;
+        private double sumX, sumXY, sumX2;
+
+        private long hotCount;           // > 35°C
+        private long extremeHeatCount;   // > 40°C
+        private long coldCount;          // < 10°C
+        private long optimalTempCount;   // 20-30°C
+
+        private long optimalHumidityCount; // 40-70%
+        private long lowHumidityCount;     // < 30%
+        private long highHumidityCount;    // > 80%
+
+        private double rainfallSum;
+        private long rainyCount;         // > 0mm
+        private long dryCount;           // missing or < 1mm
+        private long heavyRainCount;     // > 50mm
+        private double heavyRainSum;
+        private int consecutiveRain;     // > 1mm
+        private int maxConsecutiveRain;
+
+        WindowStats(List<String> conditionNames) {
+            this.conditionNames = conditionNames;
+            this.conditionCounts = new int[conditionNames.size()];
+        }
+
+        void accept(double temp, double hum, double rain, short cond) {
+            count++;
+
+            if (!Double.isNaN(temp)) {
+                double x = temperatureCount;
+                temperatureCount++;
+                temperatureSum += temp;
+                sumX += x;
+                sumXY += x * temp;
+                sumX2 += x * x;
+                if (temp < temperatureMin) temperatureMin = temp;
+                if (temp > temperatureMax) temperatureMax = temp;
+                if (temp > 35) hotCount++;
+                if (temp > 40) extremeHeatCount++;
+                if (temp < 10) coldCount++;
+                if (temp >= 20 && temp <= 30) optimalTempCount++;
+            }
+
+            if (!Double.isNaN(hum)) {
+                if (hum >= 40 && hum <= 70) optimalHumidityCount++;
+                if (hum < 30) lowHumidityCount++;
+                if (hum > 80) highHumidityCount++;
+            }
+
+            if (Double.isNaN(rain)) {
+                dryCount++;
+                consecutiveRain = 0;
+            } else {
+                rainfallSum += rain;
+                if (rain > 0) rainyCount++;
+                if (rain < 1) dryCount++;
+                if (rain > 50) {
+                    heavyRainCount++;
+                    heavyRainSum += rain;
+                }
+                if (rain > 1) {
+                    consecutiveRain++;
+                    if (consecutiveRain > maxConsecutiveRain) maxConsecutiveRain = consecutiveRain;
+                } else {
+                    consecutiveRain = 0;
+                }
+            }
+
+            if (cond >= 0) {
+                conditionCounts[cond]++;
+            }
+        }
+
+        /** Resolves condition codes to names while the store lock is still held. */
+        WindowStats finish() {
+            conditions = new HashMap<>();
+            for (int i = 0; i < conditionCounts.length; i++) {
+                if (conditionCounts[i] > 0) {
+                    conditions.put(conditionNames.get(i), (long) conditionCounts[i]);
+                }
+            }
+            return this;
+        }
+
+        public long getCount() { return count; }
+        public long getSequence() { return sequence; }
+        public long getTemperatureCount() { return temperatureCount; }
+        public double getTemperatureSum() { return temperatureSum; }
+        public double getTemperatureMin() { return temperatureCount > 0 ? temperatureMin : 0; }
+        public double getTemperatureMax() { return temperatureCount > 0 ? temperatureMax : 0; }
+        public long getHotCount() { return hotCount; }
+        public long getExtremeHeatCount() { return extremeHeatCount; }
+        public long getColdCount() { return coldCount; }
+        public long getOptimalTempCount() { return optimalTempCount; }
+        public long getOptimalHumidityCount() { return optimalHumidityCount; }
+        public long getLowHumidityCount() { return lowHumidityCount; }
+        public long getHighHumidityCount() { return highHumidityCount; }
+        public double getRainfallSum() { return rainfallSum; }
+        public long getRainyCount() { return rainyCount; }
+        public long getDryCount() { return dryCount; }
+        public long getHeavyRainCount() { return heavyRainCount; }
+        public double getHeavyRainSum() { return heavyRainSum; }
+        public int getMaxConsecutiveRain() { return maxConsecutiveRain; }
+
+        // Regression sums over reading index x, exposed so fitted models can keep extending them
+        public double getTrendSumX() { return sumX; }
+        public double getTrendSumXY() { return sumXY; }
+        public double getTrendSumX2() { return sumX2; }
+
+        /**
+         * Least-squares slope of temperature against reading index (0, 1, 2, ...).
+         */
+        public double getTemperatureTrend() {
+            if (temperatureCount < 2) return 0;
+            double n = temperatureCount;
+            double denominator = n * sumX2 - sumX * sumX;
+            if (denominator == 0) return 0;
+            return (n * sumXY - sumX * temperatureSum) / denominator;
+        }
+
+        public Map<String, Long> getConditionCounts() {
+            return conditions;
+        }
+    }
+}
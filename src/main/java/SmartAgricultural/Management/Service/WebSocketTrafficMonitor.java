@@ -0,0 +1,192 @@
+package SmartAgricultural.Management.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writer pool and metrics for outbound WebSocket traffic.
+ *
+ * Each session queues its frames and one writer at a time drains that queue, so a client on
+ * a slow link only holds a writer thread, never a broker or outbound channel thread. Writes
+ * block, so a watchdog also checks every watched session each second and closes the ones
+ * whose write in progress has gone over the send-time limit; otherwise a few stuck clients
+ * that receive nothing new would hold the whole pool. The counters here cover queue depth,
+ * send latency (queued to written) and how many frames were dropped or sessions closed for
+ * falling behind.
+ */
+@Service
+public class WebSocketTrafficMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketTrafficMonitor.class);
+
+    private static final long WATCHDOG_INTERVAL_MS = 1_000;
+
+    private final ApplicationContext applicationContext;
+    private final ThreadPoolExecutor writers;
+    private final ScheduledExecutorService watchdog;
+    // Closing a stuck session can block on the same write, so it never runs on the watchdog thread
+    private final ExecutorService closer;
+    private final Set<Runnable> watched = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger queuedFrames = new AtomicInteger();
+    private final AtomicInteger maxSessionQueueDepth = new AtomicInteger();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+    private final AtomicLong latencyNanosTotal = new AtomicLong();
+    private final AtomicLong latencyNanosMax = new AtomicLong();
+
+    public WebSocketTrafficMonitor(ApplicationContext applicationContext,
+                                   @Value("${chat.websocket.writer-threads:8}") int writerThreads) {
+        this.applicationContext = applicationContext;
+
+        AtomicInteger counter = new AtomicInteger();
+        // At most one drain task per session is queued, so the queue is bounded by the session count
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ws-writer-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-send-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.closer = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ws-closer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::checkSendTimes, WATCHDOG_INTERVAL_MS, WATCHDOG_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        closer.shutdown();
+        writers.shutdown();
+    }
+
+    public void execute(Runnable drain) {
+        writers.execute(drain);
+    }
+
+    /**
+     * Registers a session's send-time check with the watchdog until {@link #unwatch} is called.
+     */
+    public void watch(Runnable sendTimeCheck) {
+        watched.add(sendTimeCheck);
+    }
+
+    public void unwatch(Runnable sendTimeCheck) {
+        watched.remove(sendTimeCheck);
+    }
+
+    public void close(Runnable close) {
+        closer.execute(close);
+    }
+
+    private void checkSendTimes() {
+        for (Runnable check : watched) {
+            try {
+                check.run();
+            } catch (Exception e) {
+                logger.debug("WebSocket send-time check failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // =================================================================================
+    // RECORDING
+    // =================================================================================
+
+    public void sessionOpened() {
+        sessions.incrementAndGet();
+    }
+
+    public void sessionClosed(int discardedFrames) {
+        sessions.decrementAndGet();
+        queuedFrames.addAndGet(-discardedFrames);
+    }
+
+    public void frameQueued(int sessionQueueDepth) {
+        queuedFrames.incrementAndGet();
+        maxSessionQueueDepth.accumulateAndGet(sessionQueueDepth, Math::max);
+    }
+
+    public void frameSent(long latencyNanos) {
+        queuedFrames.decrementAndGet();
+        framesSent.incrementAndGet();
+        latencyNanosTotal.addAndGet(latencyNanos);
+        latencyNanosMax.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    public void frameDropped() {
+        framesDropped.incrementAndGet();
+    }
+
+    public void slowConsumerDisconnected(String sessionId, String reason) {
+        slowConsumerDisconnects.incrementAndGet();
+        logger.warn("Closing slow WebSocket session {}: {}", sessionId, reason);
+    }
+
+    // =================================================================================
+    // STATISTICS
+    // =================================================================================
+
+    public Map<String, Object> getStatistics() {
+        long sent = framesSent.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.get());
+        stats.put("queuedFrames", queuedFrames.get());
+        stats.put("maxSessionQueueDepth", maxSessionQueueDepth.get());
+        stats.put("framesSent", sent);
+        stats.put("framesDropped", framesDropped.get());
+        stats.put("slowConsumerDisconnects", slowConsumerDisconnects.get());
+        stats.put("averageSendLatencyMs", sent > 0 ? latencyNanosTotal.get() / sent / 1_000_000.0 : 0.0);
+        stats.put("maxSendLatencyMs", latencyNanosMax.get() / 1_000_000.0);
+        stats.put("writerActiveThreads", writers.getActiveCount());
+        stats.put("writerQueuedSessions", writers.getQueue().size());
+        stats.put("inboundChannel", executorStatistics("clientInboundChannelExecutor"));
+        stats.put("outboundChannel", executorStatistics("clientOutboundChannelExecutor"));
+        return stats;
+    }
+
+    // Looked up on demand: the channel executors are built from WebSocketConfig, which uses this bean
+    private Map<String, Object> executorStatistics(String beanName) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        try {
+            ThreadPoolTaskExecutor executor = applicationContext.getBean(beanName, ThreadPoolTaskExecutor.class);
+            stats.put("poolSize", executor.getPoolSize());
+            stats.put("activeThreads", executor.getActiveCount());
+            stats.put("queueDepth", executor.getQueueSize());
+            stats.put("completedTasks", executor.getThreadPoolExecutor().getCompletedTaskCount());
+        } catch (Exception e) {
+            logger.debug("Executor {} not available: {}", beanName, e.getMessage());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,37 @@
+package SmartAgricultural.Management.Util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Per-request async timeouts for handlers that return a {@code StreamingResponseBody}.
+ *
+ * Spring MVC starts such bodies with the global async timeout, which should stay short for
+ * ordinary async handlers. A handler that knows its response may stream for longer calls
+ * {@link #extend} before returning; the timeout is applied to that request only, just before
+ * its async processing starts.
+ */
+public final class AsyncTimeouts {
+
+    private static final String INTERCEPTOR_KEY = AsyncTimeouts.class.getName();
+
+    private AsyncTimeouts() {
+    }
+
+    public static void extend(HttpServletRequest request, long timeoutMs) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(INTERCEPTOR_KEY,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        if (webRequest instanceof AsyncWebRequest asyncRequest) {
+                            asyncRequest.setTimeout(timeoutMs);
+                        }
+                    }
+                });
+    }
+}
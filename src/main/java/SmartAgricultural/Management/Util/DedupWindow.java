@@ -0,0 +1,251 @@
+package SmartAgricultural.Management.Util;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of 64-bit content fingerprints, kept as a ring of time buckets.
+ *
+ * A fingerprint counts as seen while the bucket it was recorded in is one of the last
+ * {@code windowBuckets} buckets. Each bucket is an open-addressed set of longs, so an
+ * entry costs eight bytes plus slack, and expiry is dropping a whole bucket when the ring
+ * turns. The total number of entries is capped: past the cap the oldest bucket is dropped
+ * early, shortening the window under a storm rather than growing without bound.
+ */
+public final class DedupWindow {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long bucketMillis;
+    private final int windowBuckets;
+    private final int maxEntries;
+    private final LongSet[] ring;
+    private long currentBucket;
+    private int size;
+    private long evictedEarly;
+
+    public DedupWindow(long bucketMillis, int windowBuckets, int maxEntries, long nowMillis) {
+        if (bucketMillis <= 0 || windowBuckets <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("Bucket length, window and capacity must be positive");
+        }
+        this.bucketMillis = bucketMillis;
+        this.windowBuckets = windowBuckets;
+        this.maxEntries = maxEntries;
+        this.ring = new LongSet[windowBuckets];
+        for (int i = 0; i < windowBuckets; i++) {
+            ring[i] = new LongSet();
+        }
+        this.currentBucket = nowMillis / bucketMillis;
+    }
+
+    /**
+     * Returns whether the fingerprint was seen within the window, recording it if it was not.
+     */
+    public synchronized boolean checkAndRecord(long fingerprint, long nowMillis) {
+        advance(nowMillis);
+        if (containsInWindow(fingerprint)) {
+            return true;
+        }
+        add(currentBucket, fingerprint);
+        return false;
+    }
+
+    public synchronized boolean contains(long fingerprint, long nowMillis) {
+        advance(nowMillis);
+        return containsInWindow(fingerprint);
+    }
+
+    /**
+     * Records a fingerprint seen at {@code atMillis}; ignored if that is outside the window.
+     */
+    public synchronized void record(long fingerprint, long atMillis, long nowMillis) {
+        advance(nowMillis);
+        long bucket = Math.min(atMillis / bucketMillis, currentBucket);
+        if (bucket > currentBucket - windowBuckets && !containsInWindow(fingerprint)) {
+            add(bucket, fingerprint);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long evictedEarly() {
+        return evictedEarly;
+    }
+
+    private boolean containsInWindow(long fingerprint) {
+        for (LongSet bucket : ring) {
+            if (bucket.contains(fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(long bucket, long fingerprint) {
+        while (size >= maxEntries && dropOldest(bucket)) {
+            evictedEarly++;
+        }
+        if (size < maxEntries && ring[slot(bucket)].add(fingerprint)) {
+            size++;
+        }
+    }
+
+    /**
+     * Drops the oldest non-empty bucket older than {@code keep}; returns false if there is none.
+     */
+    private boolean dropOldest(long keep) {
+        for (long bucket = currentBucket - windowBuckets + 1; bucket < keep; bucket++) {
+            LongSet set = ring[slot(bucket)];
+            if (set.size > 0) {
+                size -= set.size;
+                set.clear();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void advance(long nowMillis) {
+        long target = nowMillis / bucketMillis;
+        if (target <= currentBucket) {
+            return;
+        }
+        // After a pause longer than the window every bucket is cleared once
+        long first = Math.max(currentBucket + 1, target - windowBuckets + 1);
+        for (long bucket = first; bucket <= target; bucket++) {
+            LongSet set = ring[slot(bucket)];
+            size -= set.size;
+            set.clear();
+        }
+        currentBucket = target;
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) windowBuckets);
+    }
+
+    /**
+     * 64-bit FNV-1a over the text with whitespace trimmed and collapsed, then a separator and
+     * {@code qualifier}, finished with a mixing step so similar texts spread across the table.
+     */
+    public static long fingerprint(String text, String qualifier) {
+        long hash = FNV_OFFSET_BASIS;
+        boolean pendingSpace = false;
+        boolean started = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                hash = fnv(hash, ' ');
+                pendingSpace = false;
+            }
+            hash = fnv(hash, c);
+            started = true;
+        }
+        hash = fnv(hash, '\u0000');
+        if (qualifier != null) {
+            for (int i = 0; i < qualifier.length(); i++) {
+                hash = fnv(hash, qualifier.charAt(i));
+            }
+        }
+        return mix(hash);
+    }
+
+    private static long fnv(long hash, char c) {
+        hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+        return (hash ^ (c >>> 8)) * FNV_PRIME;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Open-addressed set of longs with linear probing; zero marks an empty slot,
+     * so a zero fingerprint is stored as a separate flag.
+     */
+    private static final class LongSet {
+        private long[] table = new long[16];
+        private boolean hasZero;
+        private int size;
+
+        boolean contains(long value) {
+            if (size == 0) {
+                return false;
+            }
+            if (value == 0) {
+                return hasZero;
+            }
+            int mask = table.length - 1;
+            for (int i = (int) value & mask; ; i = (i + 1) & mask) {
+                long slot = table[i];
+                if (slot == 0) {
+                    return false;
+                }
+                if (slot == value) {
+                    return true;
+                }
+            }
+        }
+
+        boolean add(long value) {
+            if (value == 0) {
+                if (hasZero) {
+                    return false;
+                }
+                hasZero = true;
+                size++;
+                return true;
+            }
+            if ((size + 1) * 2 > table.length) {
+                rehash(table.length * 2);
+            }
+            if (insert(table, value)) {
+                size++;
+                return true;
+            }
+            return false;
+        }
+
+        void clear() {
+            if (table.length > 16) {
+                table = new long[16];
+            } else {
+                Arrays.fill(table, 0L);
+            }
+            hasZero = false;
+            size = 0;
+        }
+
+        private void rehash(int capacity) {
+            long[] next = new long[capacity];
+            for (long value : table) {
+                if (value != 0) {
+                    insert(next, value);
+                }
+            }
+            table = next;
+        }
+
+        private static boolean insert(long[] table, long value) {
+            int mask = table.length - 1;
+            for (int i = (int) value & mask; ; i = (i + 1) & mask) {
+                long slot = table[i];
+                if (slot == 0) {
+                    table[i] = value;
+                    return true;
+                }
+                if (slot == value) {
+                    return false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package SmartAgricultural.Management.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Geohash encoding, cell covering and great-circle helpers used by the weather spatial index.
+ *
+ * A geohash interleaves longitude and latitude bits into a base-32 string, so that every
+ * prefix names a rectangular cell and all readings inside that cell share the prefix. A
+ * region can therefore be fetched as a handful of index range scans over the geohash column.
+ */
+public final class GeoHash {
+
+    public static final int MAX_PRECISION = 12;
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int[] DECODE = new int[128];
+
+    static {
+        java.util.Arrays.fill(DECODE, -1);
+        for (int i = 0; i < BASE32.length; i++) {
+            DECODE[BASE32[i]] = i;
+        }
+    }
+
+    private GeoHash() {
+    }
+
+    /**
+     * Encodes a coordinate with the given number of characters (1-12).
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean evenBit = true;
+        int bit = 0, ch = 0, idx = 0;
+
+        while (idx < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash[idx++] = BASE32[ch];
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return new String(hash);
+    }
+
+    /**
+     * Decodes a geohash to the centre of its cell as {@code {latitude, longitude}}.
+     */
+    public static double[] center(String geohash) {
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < geohash.length(); i++) {
+            int value = DECODE[geohash.charAt(i)];
+            for (int mask = 16; mask > 0; mask >>= 1) {
+                boolean set = (value & mask) != 0;
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (set) minLon = mid; else maxLon = mid;
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) minLat = mid; else maxLat = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{(minLat + maxLat) / 2, (minLon + maxLon) / 2};
+    }
+
+    /**
+     * Cell height in degrees of latitude at the given precision.
+     */
+    public static double cellHeight(int precision) {
+        int latBits = (5 * precision) / 2;
+        return 180.0 / (1L << latBits);
+    }
+
+    /**
+     * Cell width in degrees of longitude at the given precision.
+     */
+    public static double cellWidth(int precision) {
+        int lonBits = (5 * precision + 1) / 2;
+        return 360.0 / (1L << lonBits);
+    }
+
+    /**
+     * Returns the sorted set of cells of the given precision intersecting the bounding box.
+     */
+    public static List<String> cover(double minLat, double maxLat, double minLon, double maxLon, int precision) {
+        minLat = clamp(minLat, -90, 90);
+        maxLat = clamp(maxLat, -90, 90);
+        minLon = clamp(minLon, -180, 180);
+        maxLon = clamp(maxLon, -180, 180);
+
+        double height = cellHeight(precision);
+        double width = cellWidth(precision);
+        TreeSet<String> cells = new TreeSet<>();
+
+        // Step by whole cells and snap the last step onto the box edge so it is always covered
+        for (double lat = minLat; ; lat += height) {
+            double rowLat = Math.min(lat, maxLat);
+            for (double lon = minLon; ; lon += width) {
+                double colLon = Math.min(lon, maxLon);
+                cells.add(encode(rowLat, colLon, precision));
+                if (colLon >= maxLon) break;
+            }
+            if (rowLat >= maxLat) break;
+        }
+        return new ArrayList<>(cells);
+    }
+
+    /**
+     * Covers the bounding box with the finest precision that needs at most {@code maxCells} cells.
+     */
+    public static List<String> coverAdaptive(double minLat, double maxLat, double minLon, double maxLon, int maxCells) {
+        List<String> best = cover(minLat, maxLat, minLon, maxLon, 1);
+        for (int precision = 2; precision <= MAX_PRECISION; precision++) {
+            double rows = Math.ceil((maxLat - minLat) / cellHeight(precision)) + 1;
+            double cols = Math.ceil((maxLon - minLon) / cellWidth(precision)) + 1;
+            if (rows * cols > maxCells) {
+                break;
+            }
+            best = cover(minLat, maxLat, minLon, maxLon, precision);
+        }
+        return best;
+    }
+
+    /**
+     * Collapses a sorted cell list into half-open string ranges {@code [from, to)} over full
+     * geohashes. Cells that are adjacent in geohash order are merged; {@code to} is null when
+     * the range is open-ended.
+     */
+    public static List<String[]> toRanges(List<String> sortedCells) {
+        List<String[]> ranges = new ArrayList<>();
+        String from = null, to = null;
+        for (String cell : sortedCells) {
+            String next = successor(cell);
+            if (from != null && to != null && to.equals(cell)) {
+                to = next;
+                continue;
+            }
+            if (from != null) {
+                ranges.add(new String[]{from, to});
+            }
+            from = cell;
+            to = next;
+        }
+        if (from != null) {
+            ranges.add(new String[]{from, to});
+        }
+        return ranges;
+    }
+
+    /**
+     * Smallest string greater than every geohash starting with {@code prefix}, or null if none.
+     */
+    public static String successor(String prefix) {
+        char[] chars = prefix.toCharArray();
+        for (int i = chars.length - 1; i >= 0; i--) {
+            int value = DECODE[chars[i]];
+            if (value < BASE32.length - 1) {
+                chars[i] = BASE32[value + 1];
+                return new String(chars, 0, i + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Great-circle central angle between two points, in degrees of arc.
+     */
+    public static double centralAngleDegrees(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dPhi = phi2 - phi1;
+        double dLambda = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dPhi / 2) * Math.sin(dPhi / 2)
+                + Math.cos(phi1) * Math.cos(phi2) * Math.sin(dLambda / 2) * Math.sin(dLambda / 2);
+        return Math.toDegrees(2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+    }
+
+    /**
+     * Great-circle distance between two points in kilometres.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        return Math.toRadians(centralAngleDegrees(lat1, lon1, lat2, lon2)) * EARTH_RADIUS_KM;
+    }
+
+    /**
+     * Longitude half-width of the box enclosing a circle of {@code radiusDegrees} arc.
+     */
+    public static double longitudeSpan(double latitude, double radiusDegrees) {
+        double cos = Math.cos(Math.toRadians(Math.min(89.0, Math.abs(latitude) + radiusDegrees)));
+        return Math.min(180.0, radiusDegrees / Math.max(cos, 1e-6));
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
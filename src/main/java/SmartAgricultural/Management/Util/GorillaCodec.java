@@ -0,0 +1,277 @@
+package SmartAgricultural.Management.Util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Gorilla-style time series compression (Pelkonen et al., VLDB 2015).
+ *
+ * Timestamps are stored as delta-of-delta with variable-length buckets, so a regular
+ * reporting interval costs one bit per point. Values are stored as the XOR with the previous
+ * value, writing only the meaningful bits between the leading and trailing zeros; repeated
+ * and slowly changing values cost one to a dozen bits. Each series is written to its own
+ * bit stream and decoded sequentially.
+ */
+public final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    // =================================================================================
+    // BIT STREAMS
+    // =================================================================================
+
+    public static final class BitOutput {
+        private byte[] buffer = new byte[64];
+        private long bitCount = 0;
+
+        public void writeBit(boolean bit) {
+            int index = (int) (bitCount >>> 3);
+            if (index >= buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            if (bit) {
+                buffer[index] |= (byte) (0x80 >>> (bitCount & 7));
+            }
+            bitCount++;
+        }
+
+        /**
+         * Writes the lowest {@code bits} bits of {@code value}, most significant first.
+         */
+        public void writeBits(long value, int bits) {
+            for (int i = bits - 1; i >= 0; i--) {
+                writeBit(((value >>> i) & 1L) != 0);
+            }
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (int) ((bitCount + 7) >>> 3));
+        }
+    }
+
+    /**
+     * Reads bits from a byte array, or from a stream one byte at a time so a column can be
+     * decoded without holding it in memory.
+     */
+    public static final class BitInput {
+        private final byte[] buffer;
+        private final InputStream in;
+        private int index = 0;
+        private int current;
+        private int bitsLeft = 0;
+
+        public BitInput(byte[] buffer) {
+            this.buffer = buffer;
+            this.in = null;
+        }
+
+        public BitInput(InputStream in) {
+            this.buffer = null;
+            this.in = in;
+        }
+
+        public boolean readBit() {
+            if (bitsLeft == 0) {
+                current = nextByte();
+                bitsLeft = 8;
+            }
+            bitsLeft--;
+            return ((current >>> bitsLeft) & 1) != 0;
+        }
+
+        public long readBits(int bits) {
+            long value = 0;
+            for (int i = 0; i < bits; i++) {
+                value = (value << 1) | (readBit() ? 1 : 0);
+            }
+            return value;
+        }
+
+        private int nextByte() {
+            if (in == null) {
+                return buffer[index++] & 0xff;
+            }
+            try {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Bit stream ended");
+                }
+                return b;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // =================================================================================
+    // TIMESTAMPS: DELTA-OF-DELTA
+    // =================================================================================
+
+    public static final class TimestampEncoder {
+        private final BitOutput out;
+        private long previous;
+        private long previousDelta;
+        private boolean first = true;
+
+        public TimestampEncoder(BitOutput out) {
+            this.out = out;
+        }
+
+        public void write(long timestamp) {
+            if (first) {
+                out.writeBits(timestamp, 64);
+                previous = timestamp;
+                first = false;
+                return;
+            }
+            long delta = timestamp - previous;
+            long dod = delta - previousDelta;
+
+            // Buckets sized for millisecond timestamps with jitter of up to a few seconds
+            if (dod == 0) {
+                out.writeBit(false);
+            } else if (fits(dod, 7)) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (fits(dod, 12)) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 12);
+            } else if (fits(dod, 20)) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 20);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(dod, 64);
+            }
+            previous = timestamp;
+            previousDelta = delta;
+        }
+
+        private static boolean fits(long value, int bits) {
+            long limit = 1L << (bits - 1);
+            return value >= -limit && value < limit;
+        }
+    }
+
+    public static final class TimestampDecoder {
+        private final BitInput in;
+        private long previous;
+        private long previousDelta;
+        private boolean first = true;
+
+        public TimestampDecoder(BitInput in) {
+            this.in = in;
+        }
+
+        public long read() {
+            if (first) {
+                previous = in.readBits(64);
+                first = false;
+                return previous;
+            }
+            long dod;
+            if (!in.readBit()) {
+                dod = 0;
+            } else if (!in.readBit()) {
+                dod = signExtend(in.readBits(7), 7);
+            } else if (!in.readBit()) {
+                dod = signExtend(in.readBits(12), 12);
+            } else if (!in.readBit()) {
+                dod = signExtend(in.readBits(20), 20);
+            } else {
+                dod = in.readBits(64);
+            }
+            previousDelta += dod;
+            previous += previousDelta;
+            return previous;
+        }
+
+        private static long signExtend(long value, int bits) {
+            int shift = 64 - bits;
+            return (value << shift) >> shift;
+        }
+    }
+
+    // =================================================================================
+    // VALUES: XOR
+    // =================================================================================
+
+    public static final class ValueEncoder {
+        private final BitOutput out;
+        private long previous;
+        private int previousLeading = Integer.MAX_VALUE;
+        private int previousTrailing = 0;
+        private boolean first = true;
+
+        public ValueEncoder(BitOutput out) {
+            this.out = out;
+        }
+
+        public void write(double value) {
+            long bits = Double.doubleToLongBits(value);
+            if (first) {
+                out.writeBits(bits, 64);
+                previous = bits;
+                first = false;
+                return;
+            }
+            long xor = bits ^ previous;
+            if (xor == 0) {
+                out.writeBit(false);
+            } else {
+                out.writeBit(true);
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+
+                if (previousLeading != Integer.MAX_VALUE && leading >= previousLeading && trailing >= previousTrailing) {
+                    // Meaningful bits fit inside the previous window
+                    out.writeBit(false);
+                    out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int length = 64 - leading - trailing;
+                    out.writeBit(true);
+                    out.writeBits(leading, 5);
+                    out.writeBits(length - 1, 6);
+                    out.writeBits(xor >>> trailing, length);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+            previous = bits;
+        }
+    }
+
+    public static final class ValueDecoder {
+        private final BitInput in;
+        private long previous;
+        private int previousLeading;
+        private int previousTrailing;
+        private boolean first = true;
+
+        public ValueDecoder(BitInput in) {
+            this.in = in;
+        }
+
+        public double read() {
+            if (first) {
+                previous = in.readBits(64);
+                first = false;
+                return Double.longBitsToDouble(previous);
+            }
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    previousLeading = (int) in.readBits(5);
+                    int length = (int) in.readBits(6) + 1;
+                    previousTrailing = 64 - previousLeading - length;
+                }
+                int length = 64 - previousLeading - previousTrailing;
+                previous ^= in.readBits(length) << previousTrailing;
+            }
+            return Double.longBitsToDouble(previous);
+        }
+    }
+}
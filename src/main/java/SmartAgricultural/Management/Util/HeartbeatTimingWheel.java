@@ -0,0 +1,123 @@
+package SmartAgricultural.Management.Util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel for heartbeat deadlines, in epoch milliseconds.
+ *
+ * Each key sits in at most one slot, the one for the deadline it had when it was scheduled.
+ * A heartbeat only moves the key's deadline forward; when its slot comes round and the
+ * deadline has moved, the key is re-slotted instead of expiring. Heartbeats are therefore
+ * O(1) without removal from the wheel, and each tick only looks at the keys due in that slot.
+ *
+ * Deadlines further away than one revolution wait in their slot for later rounds, so the
+ * wheel size only affects how many keys share a slot, not correctness.
+ */
+public final class HeartbeatTimingWheel {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Entry>[] slots;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public HeartbeatTimingWheel(long tickMillis, int slotCount, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.slots = new List[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Sets the key's deadline, scheduling it if it is not on the wheel yet.
+     */
+    public synchronized void touch(String key, long deadlineMillis) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key, deadlineMillis);
+            entries.put(key, entry);
+            schedule(entry);
+        } else {
+            entry.deadline = deadlineMillis;
+        }
+    }
+
+    /**
+     * Takes the key off the wheel; returns whether it was scheduled.
+     */
+    public synchronized boolean remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        slots[(int) (entry.tick & mask)].remove(entry);
+        return true;
+    }
+
+    /**
+     * Advances the wheel to {@code nowMillis} and returns the keys whose deadline has passed.
+     */
+    public synchronized List<String> advance(long nowMillis) {
+        List<String> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        // After a long pause every slot is visited once rather than once per missed tick
+        long lastTick = Math.min(targetTick, currentTick + mask);
+        for (long tick = currentTick; tick <= lastTick; tick++) {
+            List<Entry> slot = slots[(int) (tick & mask)];
+            List<Entry> moved = null;
+            for (Iterator<Entry> it = slot.iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (entry.tick > targetTick) {
+                    continue;
+                }
+                it.remove();
+                if (entry.deadline <= nowMillis) {
+                    entries.remove(entry.key);
+                    expired.add(entry.key);
+                } else {
+                    if (moved == null) {
+                        moved = new ArrayList<>();
+                    }
+                    moved.add(entry);
+                }
+            }
+            if (moved != null) {
+                moved.forEach(this::schedule);
+            }
+        }
+        currentTick = targetTick + 1;
+        return expired;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void schedule(Entry entry) {
+        entry.tick = Math.max(Math.floorDiv(entry.deadline + tickMillis - 1, tickMillis), currentTick);
+        slots[(int) (entry.tick & mask)].add(entry);
+    }
+
+    private static final class Entry {
+        private final String key;
+        private long deadline;
+        private long tick;
+
+        private Entry(String key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package SmartAgricultural.Management.Util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into search terms: runs of letters and digits, lower-cased and stripped of
+ * accents, so "Récolte" and "recolte" index to the same term. Offsets point back into the
+ * original text for highlighting.
+ */
+public final class SearchTokenizer {
+
+    public static final int MIN_TERM_LENGTH = 2;
+    public static final int MAX_TERM_LENGTH = 40;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchTokenizer() {
+    }
+
+    public static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+            int start = i;
+            while (i < length) {
+                codePoint = text.codePointAt(i);
+                if (!Character.isLetterOrDigit(codePoint) && Character.getType(codePoint) != Character.NON_SPACING_MARK) {
+                    break;
+                }
+                i += Character.charCount(codePoint);
+            }
+            String term = normalize(text.substring(start, i));
+            if (!term.isEmpty()) {
+                tokens.add(new Token(term, start, i));
+            }
+        }
+        return tokens;
+    }
+
+    public static String normalize(String word) {
+        String folded = word;
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) > 0x7f) {
+                folded = COMBINING_MARKS.matcher(Normalizer.normalize(word, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        folded = folded.toLowerCase(Locale.ROOT);
+        return folded.length() > MAX_TERM_LENGTH ? folded.substring(0, MAX_TERM_LENGTH) : folded;
+    }
+
+    public static boolean isIndexable(String term) {
+        return term.length() >= MIN_TERM_LENGTH;
+    }
+
+    public static final class Token {
+        private final String term;
+        private final int start;
+        private final int end;
+
+        private Token(String term, int start, int end) {
+            this.term = term;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+    }
+}
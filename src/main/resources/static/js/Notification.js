@@ -3,14 +3,20 @@
  * Manages all system notifications including CRUD operations
  */
 
+// Resolved while this script is executing, so NotificationStream.js is found next to it from any page
+const NOTIFICATION_SCRIPT_BASE = document.currentScript
+    ? document.currentScript.src.replace(/[^/]*$/, '')
+    : 'js/';
+
 class NotificationManager {
     constructor() {
         this.baseUrl = 'http://localhost:1010/api';
         this.notifications = [];
         this.unreadCount = 0;
         this.pollingInterval = null;
-        this.pollInterval = 30000; // 30 seconds
+        this.pollInterval = 30000; // 30 seconds, only while the push stream is down
         this.isDropdownOpen = false;
+        this.stream = null;
         
         this.init();
     }
@@ -20,7 +26,7 @@ class NotificationManager {
         this.cleanupDuplicateNotifications(); // Clean up duplicates first
         this.loadNotificationsFromStorage(); // Load from storage first
         this.loadNotifications(); // Then load from API
-        this.startPolling();
+        this.startPushStream();
         this.attachEventListeners();
     }
 
@@ -592,6 +598,11 @@ class NotificationManager {
             }
         }
         
+        // Let pages with their own badge follow changes instead of polling
+        window.dispatchEvent(new CustomEvent('notifications:updated', {
+            detail: { unreadCount: this.unreadCount }
+        }));
+
         // Log for debugging (only if count > 0 to reduce console noise)
         if (this.unreadCount > 0) {
             console.log(`📬 Notifications: ${this.notifications.length} total, ${this.unreadCount} unread`);
@@ -835,10 +846,95 @@ class NotificationManager {
         }
     }
 
+    /**
+     * Receive notifications pushed by the server; falls back to polling while disconnected
+     */
+    async startPushStream() {
+        try {
+            if (typeof NotificationStream === 'undefined') {
+                await new Promise((resolve, reject) => {
+                    const script = document.createElement('script');
+                    script.src = `${NOTIFICATION_SCRIPT_BASE}NotificationStream.js`;
+                    script.onload = resolve;
+                    script.onerror = reject;
+                    document.head.appendChild(script);
+                });
+            }
+        } catch (error) {
+            console.warn('Notification stream unavailable, polling instead');
+            this.startPolling();
+            return;
+        }
+
+        const userStr = localStorage.getItem('user') || sessionStorage.getItem('user');
+        let userKey = 'anonymous';
+        try {
+            const user = userStr ? JSON.parse(userStr) : null;
+            userKey = (user && (user.email || user.username)) || userKey;
+        } catch (error) {
+            // Keep anonymous
+        }
+
+        this.stream = new NotificationStream({
+            baseUrl: this.baseUrl,
+            userKey: userKey,
+            getToken: () => localStorage.getItem('token') || sessionStorage.getItem('token'),
+            onNotification: (n, stream) => this.receivePushedNotification(n, stream),
+            onRead: (id) => this.receivePushedRead(id),
+            onStateChange: (connected) => {
+                if (connected) {
+                    this.stopPolling();
+                } else {
+                    this.startPolling();
+                }
+            }
+        });
+        this.stream.start();
+    }
+
+    /**
+     * Add a notification delivered by the push stream (same shape as the fetched ones)
+     */
+    receivePushedNotification(n, stream) {
+        const notification = {
+            id: n.id,
+            message: n.content || n.message,
+            type: n.type || (stream === 'user' ? 'MESSAGE' : 'SYSTEM'),
+            timestamp: n.timestamp,
+            read: n.read || false,
+            source: stream === 'user' ? 'chat' : 'system'
+        };
+
+        const key = notification.id ? notification.id.toString() : `${notification.message}_${notification.timestamp}`;
+        if (this.notifications.some(existing => (existing.id ? existing.id.toString() : '') === key)) {
+            return;
+        }
+
+        this.notifications.unshift(notification);
+        this.saveAllNotificationsToStorage();
+        this.updateUnreadCount();
+        this.renderNotifications();
+        this.showBrowserNotification(notification.message);
+    }
+
+    /**
+     * A notification was marked read in another tab or device
+     */
+    receivePushedRead(id) {
+        const notification = this.notifications.find(n => n.id && n.id.toString() === String(id));
+        if (notification && !notification.read) {
+            notification.read = true;
+            this.saveAllNotificationsToStorage();
+            this.updateUnreadCount();
+            this.renderNotifications();
+        }
+    }
+
     /**
      * Start polling for new notifications
      */
     startPolling() {
+        if (this.pollingInterval) return;
         this.pollingInterval = setInterval(() => {
             this.loadNotifications();
         }, this.pollInterval);
@@ -1061,9 +1157,6 @@ function initializeNotifications() {
             // Update again after 1 second to ensure badge is visible
             setTimeout(updateBadge, 1000);
             
-            // Update every 5 seconds to catch any missed notifications
-            setInterval(updateBadge, 5000);
-            
             console.log('Notification system initialized successfully');
         } catch (error) {
             console.error('Error initializing notification system:', error);
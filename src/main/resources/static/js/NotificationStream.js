@@ -0,0 +1,225 @@
+/**
+ * NotificationStream.js - Server-push notifications over STOMP
+ * Subscribes to /user/queue/notifications (and /topic/notifications for system notifications)
+ * on the /ws endpoint. After every (re)connect it fetches what was missed since the last
+ * sequence number seen, so a dashboard never has to poll.
+ */
+
+const NOTIFICATION_STREAM_SOCKJS_URL = 'https://cdn.jsdelivr.net/npm/sockjs-client@1/dist/sockjs.min.js';
+const NOTIFICATION_STREAM_STOMP_URL = 'https://cdn.jsdelivr.net/npm/stompjs@2.3.3/lib/stomp.min.js';
+
+class NotificationStream {
+    /**
+     * @param {Object} options
+     * @param {string} options.baseUrl - API base, e.g. http://localhost:1010/api
+     * @param {string} options.userKey - Key for the stored sequence numbers (user email)
+     * @param {Function} options.getToken - Returns the JWT, or null
+     * @param {Function} options.onNotification - Called with (notification, stream) for each new notification
+     * @param {Function} options.onRead - Called with the id of a notification read elsewhere
+     * @param {Function} options.onStateChange - Called with true when connected, false when not
+     * @param {boolean} options.includeSystem - Also follow broadcast system notifications
+     */
+    constructor(options = {}) {
+        this.baseUrl = options.baseUrl || 'http://localhost:1010/api';
+        this.wsUrl = options.wsUrl || this.baseUrl.replace(/\/api\/?$/, '') + '/ws';
+        this.userKey = options.userKey || 'anonymous';
+        this.getToken = options.getToken || (() =>
+            localStorage.getItem('token') || sessionStorage.getItem('token') || localStorage.getItem('authToken'));
+        this.onNotification = options.onNotification || (() => {});
+        this.onRead = options.onRead || (() => {});
+        this.onStateChange = options.onStateChange || (() => {});
+        this.includeSystem = options.includeSystem !== false;
+
+        this.client = null;
+        this.connected = false;
+        this.stopped = true;
+        this.retryDelay = 1000;
+        this.maxRetryDelay = 60000;
+        this.seen = new Set();
+    }
+
+    /**
+     * Load SockJS/STOMP if the page does not have them, then connect
+     */
+    async start() {
+        this.stopped = false;
+        try {
+            if (typeof SockJS === 'undefined') {
+                await NotificationStream.loadScript(NOTIFICATION_STREAM_SOCKJS_URL);
+            }
+            if (typeof Stomp === 'undefined') {
+                await NotificationStream.loadScript(NOTIFICATION_STREAM_STOMP_URL);
+            }
+        } catch (error) {
+            console.warn('Notification stream unavailable, WebSocket libraries failed to load:', error);
+            this.onStateChange(false);
+            return;
+        }
+        this.connect();
+    }
+
+    stop() {
+        this.stopped = true;
+        if (this.client) {
+            try {
+                this.client.disconnect();
+            } catch (error) {
+                // Already closed
+            }
+        }
+        this.client = null;
+        this.setConnected(false);
+    }
+
+    static loadScript(src) {
+        return new Promise((resolve, reject) => {
+            const existing = document.querySelector(`script[src="${src}"]`);
+            if (existing && existing.dataset.loaded === 'true') {
+                resolve();
+                return;
+            }
+            const script = existing || document.createElement('script');
+            script.addEventListener('load', () => {
+                script.dataset.loaded = 'true';
+                resolve();
+            });
+            script.addEventListener('error', reject);
+            if (!existing) {
+                script.src = src;
+                document.head.appendChild(script);
+            }
+        });
+    }
+
+    connect() {
+        if (this.stopped) return;
+
+        const token = this.getToken();
+        const client = Stomp.over(new SockJS(this.wsUrl));
+        client.debug = null;
+        this.client = client;
+
+        const headers = token ? { Authorization: `Bearer ${token}` } : {};
+        client.connect(headers, () => {
+            this.retryDelay = 1000;
+            this.setConnected(true);
+
+            if (token) {
+                client.subscribe('/user/queue/notifications', (message) => this.handle(JSON.parse(message.body), 'user'));
+            }
+            if (this.includeSystem) {
+                client.subscribe('/topic/notifications', (message) => this.handle(JSON.parse(message.body), 'system'));
+            }
+
+            // Subscribed first, so nothing falls between the catch-up and the live stream
+            this.catchUp();
+        }, () => {
+            this.setConnected(false);
+            this.scheduleReconnect();
+        });
+    }
+
+    setConnected(connected) {
+        if (this.connected !== connected) {
+            this.connected = connected;
+            this.onStateChange(connected);
+        }
+    }
+
+    /**
+     * Reconnect with exponential backoff and jitter, so a restarted server is not hit by every dashboard at once
+     */
+    scheduleReconnect() {
+        if (this.stopped) return;
+        const delay = this.retryDelay + Math.floor(Math.random() * 1000);
+        this.retryDelay = Math.min(this.retryDelay * 2, this.maxRetryDelay);
+        setTimeout(() => this.connect(), delay);
+    }
+
+    handle(event, stream) {
+        if (!event) return;
+        if (event.event === 'READ') {
+            this.onRead(event.id);
+        } else if (event.event === 'CREATED' && event.notification) {
+            this.deliver(event.notification, event.seq, stream);
+        }
+    }
+
+    deliver(notification, seq, stream) {
+        const key = `${stream}:${seq}`;
+        // A notification can arrive both pushed and in the catch-up page
+        if (this.seen.has(key)) return;
+        this.seen.add(key);
+        if (this.seen.size > 1000) {
+            this.seen.delete(this.seen.values().next().value);
+        }
+
+        if (seq > this.getSeq(stream)) {
+            this.setSeq(stream, seq);
+        }
+        try {
+            this.onNotification(notification, stream);
+        } catch (error) {
+            console.error('Error handling pushed notification:', error);
+        }
+    }
+
+    /**
+     * Fetch notifications created while disconnected
+     */
+    async catchUp() {
+        await this.catchUpStream('user', `${this.baseUrl}/chat/notifications/since`, true);
+        if (this.includeSystem) {
+            await this.catchUpStream('system', `${this.baseUrl}/notifications/since`, false);
+        }
+    }
+
+    async catchUpStream(stream, url, authenticated) {
+        const headers = { 'Content-Type': 'application/json' };
+        if (authenticated) {
+            const token = this.getToken();
+            if (!token) return;
+            headers['Authorization'] = `Bearer ${token}`;
+        }
+
+        // First connection: the page already loaded its list, only record where the stream starts.
+        // Pages follow the server's cursor alone: pushed notifications raise the stored sequence
+        // while paging, and following it would skip the pages in between.
+        const start = this.getSeq(stream);
+        let cursor = start;
+        try {
+            let more = true;
+            for (let page = 0; more && page < 10; page++) {
+                const response = await fetch(`${url}?seq=${cursor}&limit=100`, { headers });
+                if (!response.ok) break;
+
+                const data = await response.json();
+                (data.notifications || []).forEach(n => this.deliver(n, n.id, stream));
+                if (typeof data.latestSeq === 'number' && data.latestSeq > cursor) {
+                    cursor = data.latestSeq;
+                }
+                more = data.hasMore === true;
+            }
+        } catch (error) {
+            console.error(`Error catching up ${stream} notifications:`, error);
+        }
+        if (cursor !== start) {
+            this.setSeq(stream, Math.max(cursor, this.getSeq(stream)));
+        }
+    }
+
+    storageKey(stream) {
+        return `notificationSeq:${this.userKey}:${stream}`;
+    }
+
+    getSeq(stream) {
+        const stored = localStorage.getItem(this.storageKey(stream));
+        return stored === null ? -1 : parseInt(stored, 10);
+    }
+
+    setSeq(stream, seq) {
+        localStorage.setItem(this.storageKey(stream), String(seq));
+    }
+}
+
+window.NotificationStream = NotificationStream;
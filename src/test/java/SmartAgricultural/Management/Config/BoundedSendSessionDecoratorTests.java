@@ -0,0 +1,115 @@
+package SmartAgricultural.Management.Config;
+
+import SmartAgricultural.Management.Service.WebSocketTrafficMonitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BoundedSendSessionDecoratorTests {
+
+    private final WebSocketTrafficMonitor monitor = new WebSocketTrafficMonitor(null, 1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        monitor.shutdown();
+    }
+
+    @Test
+    void onlyTopicMessagesCountAsBroadcasts() {
+        assertThat(BoundedSendSessionDecorator.isBroadcastFrame(
+                frame("MESSAGE", "/topic/public"))).isTrue();
+        assertThat(BoundedSendSessionDecorator.isBroadcastFrame(
+                frame("MESSAGE", "/user/queue/notifications"))).isFalse();
+        assertThat(BoundedSendSessionDecorator.isBroadcastFrame(
+                frame("RECEIPT", "/topic/public"))).isFalse();
+        assertThat(BoundedSendSessionDecorator.isBroadcastFrame(
+                new TextMessage("MESSAGE\r\ndestination:/topic/presence\r\n\r\n{}\u0000"))).isTrue();
+        // A body mentioning a topic is not a header
+        assertThat(BoundedSendSessionDecorator.isBroadcastFrame(
+                new TextMessage("MESSAGE\nsubscription:sub-0\n\ndestination:/topic/x\u0000"))).isFalse();
+        assertThat(BoundedSendSessionDecorator.isBroadcastFrame(new BinaryMessage(new byte[]{1}))).isFalse();
+    }
+
+    @Test
+    void dropPolicyDropsBroadcastsButClosesOnPrivateDeliveries() throws Exception {
+        WebSocketSession delegate = blockingSession();
+        BoundedSendSessionDecorator session = new BoundedSendSessionDecorator(delegate, monitor,
+                BoundedSendSessionDecorator.Policy.DROP, 1, 1 << 20, 60_000);
+
+        session.sendMessage(frame("MESSAGE", "/topic/public"));
+        awaitWriterBlocked();
+        session.sendMessage(frame("MESSAGE", "/topic/public"));
+
+        // Queue is full: another broadcast is dropped and the session stays open
+        session.sendMessage(frame("MESSAGE", "/topic/public"));
+        assertThat(monitor.getStatistics().get("framesDropped")).isEqualTo(1L);
+        verify(delegate, never()).close(any(CloseStatus.class));
+
+        // A private delivery cannot be dropped, so the slow session is closed instead
+        session.sendMessage(frame("MESSAGE", "/user/queue/messages"));
+        assertThat(monitor.getStatistics().get("framesDropped")).isEqualTo(1L);
+        verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void disconnectPolicyClosesOnBroadcastsToo() throws Exception {
+        WebSocketSession delegate = blockingSession();
+        BoundedSendSessionDecorator session = new BoundedSendSessionDecorator(delegate, monitor,
+                BoundedSendSessionDecorator.Policy.DISCONNECT, 1, 1 << 20, 60_000);
+
+        session.sendMessage(frame("MESSAGE", "/topic/public"));
+        awaitWriterBlocked();
+        session.sendMessage(frame("MESSAGE", "/topic/public"));
+        session.sendMessage(frame("MESSAGE", "/topic/public"));
+
+        assertThat(monitor.getStatistics().get("framesDropped")).isEqualTo(0L);
+        verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void watchdogClosesAStuckWriteWithoutWaitingForAnotherFrame() throws Exception {
+        WebSocketSession delegate = blockingSession();
+        BoundedSendSessionDecorator session = new BoundedSendSessionDecorator(delegate, monitor,
+                BoundedSendSessionDecorator.Policy.DROP, 10, 1 << 20, 50);
+
+        session.sendMessage(frame("MESSAGE", "/user/queue/messages"));
+        awaitWriterBlocked();
+
+        verify(delegate, timeout(3_000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(monitor.getStatistics().get("slowConsumerDisconnects")).isEqualTo(1L);
+    }
+
+    private final CountDownLatch writing = new CountDownLatch(1);
+
+    private WebSocketSession blockingSession() throws Exception {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("session-1");
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(delegate).sendMessage(any());
+        return delegate;
+    }
+
+    private void awaitWriterBlocked() throws InterruptedException {
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static TextMessage frame(String command, String destination) {
+        return new TextMessage(command + "\ndestination:" + destination + "\nsubscription:sub-0\n" +
+                "content-type:application/json\n\n{\"content\":\"hello\"}\u0000");
+    }
+}
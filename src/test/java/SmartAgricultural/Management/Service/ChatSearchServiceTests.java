@@ -0,0 +1,203 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.ChatMessage;
+import SmartAgricultural.Management.Repository.ChatMessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatSearchServiceTests {
+
+    @TempDir
+    Path indexDir;
+
+    private final ChatMessageRepository repository = mock(ChatMessageRepository.class);
+    private final Map<Long, ChatMessage> database = Collections.synchronizedMap(new TreeMap<>());
+    private final List<Long> catchUpCursors = new CopyOnWriteArrayList<>();
+    private final List<ChatSearchService> services = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenAnswer(i -> {
+            long afterId = i.getArgument(0);
+            catchUpCursors.add(afterId);
+            synchronized (database) {
+                return database.values().stream().filter(m -> m.getId() > afterId)
+                        .limit(i.<Pageable>getArgument(1).getPageSize()).toList();
+            }
+        });
+        when(repository.findAllById(anyIterable())).thenAnswer(i -> {
+            List<ChatMessage> found = new ArrayList<>();
+            for (Long id : i.<Iterable<Long>>getArgument(0)) {
+                if (database.containsKey(id)) {
+                    found.add(database.get(id));
+                }
+            }
+            return found;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(ChatSearchService::shutdown);
+    }
+
+    @Test
+    void pagesTakeTheNewestMatchesAcrossConversations() throws Exception {
+        for (long id = 1; id <= 5; id++) {
+            save(id, "alice", "bob", "harvest report " + (id == 3 ? "maize" : "beans"));
+        }
+        for (long id = 6; id <= 8; id++) {
+            save(id, "carol", "alice", "harvest schedule");
+        }
+        save(9, "bob", "carol", "harvest elsewhere");
+        save(10, "alice", "bob", "irrigation only");
+        ChatSearchService search = start(60_000);
+
+        Map<String, Object> first = search.search("alice", null, "harvest ", null, 3);
+        assertThat(ids(first)).containsExactly(8L, 7L, 6L);
+        assertThat(first.get("hasMore")).isEqualTo(true);
+        assertThat(first.get("nextBefore")).isEqualTo(6L);
+
+        Map<String, Object> second = search.search("alice", null, "harvest ", 6L, 3);
+        assertThat(ids(second)).containsExactly(5L, 4L, 3L);
+
+        assertThat(ids(search.search("alice", "bob", "harv", null, 10))).containsExactly(5L, 4L, 3L, 2L, 1L);
+        assertThat(ids(search.search("alice", "bob", "report maize", null, 10))).containsExactly(3L);
+    }
+
+    @Test
+    void mergePurgesDeletedMessagesAndForgetsThem() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            save(id, "alice", "bob", "harvest " + id);
+        }
+        ChatSearchService search = configure(60_000);
+        ReflectionTestUtils.setField(search, "flushDocs", 1);
+        ReflectionTestUtils.setField(search, "flushIntervalMillis", 3_600_000L);
+        ReflectionTestUtils.setField(search, "maxSegments", 1);
+        search.start();
+        awaitStatistic(search, "ready", Boolean.TRUE::equals);
+
+        database.remove(2L);
+        search.remove(2L);
+        awaitStatistic(search, "deletedDocuments", n -> ((Number) n).intValue() == 1);
+        // The next flush goes past max-segments and merges
+        ChatMessage next = save(4, "alice", "bob", "harvest 4");
+        search.index(next);
+        awaitStatistic(search, "deletedDocuments", n -> ((Number) n).intValue() == 0);
+
+        assertThat(ids(search.search("alice", "bob", "harvest ", null, 10))).containsExactly(4L, 3L, 1L);
+        search.shutdown();
+
+        ChatSearchService restarted = start(60_000);
+        assertThat(ids(restarted.search("alice", "bob", "harvest ", null, 10))).containsExactly(4L, 3L, 1L);
+        assertThat(restarted.getStatistics().get("deletedDocuments")).isEqualTo(0);
+    }
+
+    @Test
+    void restartResumesFromTheLowWaterIdNotTheHighestIndexedId() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            save(id, "alice", "bob", "harvest " + id);
+        }
+
+        // Indexed too recently to rule out a transaction that took a lower id and commits later
+        start(indexDir.resolve("recent"), 3_600_000).shutdown();
+        catchUpCursors.clear();
+        start(indexDir.resolve("recent"), 3_600_000).shutdown();
+        assertThat(catchUpCursors.get(0)).isEqualTo(0L);
+
+        start(indexDir.resolve("settled"), 0).shutdown();
+        catchUpCursors.clear();
+        start(indexDir.resolve("settled"), 0);
+        assertThat(catchUpCursors.get(0)).isEqualTo(3L);
+    }
+
+    @Test
+    void postingListKeepsIdsSortedAndUnique() throws IOException {
+        ChatSearchService.PostingList list = new ChatSearchService.PostingList();
+        assertThat(list.add(10)).isTrue();
+        assertThat(list.add(300)).isTrue();
+        assertThat(list.add(300)).isFalse();
+        // A transaction that committed late
+        assertThat(list.add(42)).isTrue();
+        assertThat(list.add(42)).isFalse();
+        assertThat(list.add(1L << 40)).isTrue();
+        assertThat(list.toArray()).containsExactly(10, 42, 300, 1L << 40);
+
+        assertThat(list.without(Set.of(42L, 7L)).toArray()).containsExactly(10, 300, 1L << 40);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        list.writeTo(new DataOutputStream(bytes));
+        ChatSearchService.PostingList read = ChatSearchService.PostingList.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertThat(read.toArray()).containsExactly(10, 42, 300, 1L << 40);
+        assertThat(read.add(301)).isTrue();
+        assertThat(read.toArray()).containsExactly(10, 42, 300, 301, 1L << 40);
+    }
+
+    private ChatMessage save(long id, String senderId, String recipientId, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setSenderId(senderId);
+        message.setRecipientId(recipientId);
+        message.setContent(content);
+        database.put(id, message);
+        return message;
+    }
+
+    private ChatSearchService configure(long commitGraceMillis) {
+        return configure(indexDir, commitGraceMillis);
+    }
+
+    private ChatSearchService configure(Path dir, long commitGraceMillis) {
+        ChatSearchService search = new ChatSearchService(repository);
+        ReflectionTestUtils.setField(search, "indexDir", dir.toString());
+        ReflectionTestUtils.setField(search, "commitGraceMillis", commitGraceMillis);
+        services.add(search);
+        return search;
+    }
+
+    private ChatSearchService start(long commitGraceMillis) throws InterruptedException {
+        return start(indexDir, commitGraceMillis);
+    }
+
+    private ChatSearchService start(Path dir, long commitGraceMillis) throws InterruptedException {
+        ChatSearchService search = configure(dir, commitGraceMillis);
+        search.start();
+        awaitStatistic(search, "ready", Boolean.TRUE::equals);
+        return search;
+    }
+
+    private static void awaitStatistic(ChatSearchService search, String name, Predicate<Object> condition)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.test(search.getStatistics().get(name)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.test(search.getStatistics().get(name))).as(name).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> ids(Map<String, Object> response) {
+        return ((List<Map<String, Object>>) response.get("results")).stream()
+                .map(r -> (Long) r.get("id")).toList();
+    }
+}
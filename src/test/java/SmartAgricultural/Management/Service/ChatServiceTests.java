@@ -0,0 +1,84 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.ChatMessage;
+import SmartAgricultural.Management.Repository.ChatMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChatServiceTests {
+
+    private final ChatMessageRepository repository = mock(ChatMessageRepository.class);
+    private final ChatConversationService conversationService = mock(ChatConversationService.class);
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        chatService = new ChatService(repository, conversationService,
+                mock(ChatMediaDerivativeService.class), mock(ChatPresenceService.class),
+                mock(ChatSearchService.class), mock(UploadBlobStore.class), mock(ChatUnreadCounter.class));
+
+        // Messages 1..25 between alice and bob
+        when(repository.findConversationIdsBefore(anyLong(), eq("alice"), eq("bob"), anyLong(), any(Pageable.class)))
+                .thenAnswer(i -> idsBefore(i.getArgument(3), i.getArgument(4)));
+        when(repository.findConversationBefore(anyLong(), eq("alice"), eq("bob"), anyLong(), any(Pageable.class)))
+                .thenAnswer(i -> idsBefore(i.getArgument(3), i.getArgument(4)).stream().map(id -> {
+                    ChatMessage message = new ChatMessage();
+                    message.setId(id);
+                    return message;
+                }).toList());
+    }
+
+    @Test
+    void numberedPagesAreServedFromTheKeysetCursor() {
+        assertThat(ids(chatService.getChatHistoryPaginated("alice", "bob", 0, 10)))
+                .containsExactly(16L, 17L, 18L, 19L, 20L, 21L, 22L, 23L, 24L, 25L);
+        assertThat(ids(chatService.getChatHistoryPaginated("alice", "bob", 2, 10)))
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(chatService.getChatHistoryPaginated("alice", "bob", 3, 10)).isEmpty();
+
+        verify(repository, never()).findBySenderIdAndRecipientId(anyString(), anyString(), any());
+        verify(repository).findConversationBefore(anyLong(), eq("alice"), eq("bob"), eq(6L), any(Pageable.class));
+    }
+
+    @Test
+    void readsOnlyScanAboveTheWatermark() {
+        when(conversationService.getReadUpTo("bob", "alice")).thenReturn(10L);
+        when(repository.markReadUpTo(anyLong(), eq("alice"), eq("bob"), anyLong(), anyLong())).thenReturn(3);
+
+        assertThat(chatService.markReadUpTo("bob", "alice", 15)).isEqualTo(3);
+        verify(repository).markReadUpTo(ChatMessage.conversationKeyOf("bob", "alice"), "alice", "bob", 10L, 15L);
+
+        // Already read that far: no update at all
+        assertThat(chatService.markReadUpTo("bob", "alice", 10)).isZero();
+        assertThat(chatService.markReadUpTo("bob", "alice", 7)).isZero();
+        verify(repository, times(1)).markReadUpTo(anyLong(), anyString(), anyString(), anyLong(), anyLong());
+        verify(conversationService, times(1)).recordReadUpTo(anyString(), anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void aDeepPageCostsOneCursorLookup() {
+        assertThat(ids(chatService.getChatHistoryPaginated("alice", "bob", 20, 1))).containsExactly(5L);
+
+        verify(repository, times(1)).findConversationIdsBefore(anyLong(), eq("alice"), eq("bob"),
+                eq(Long.MAX_VALUE), eq(PageRequest.of(19, 1)));
+        assertThat(chatService.getChatHistoryPaginated("alice", "bob", Integer.MAX_VALUE, 100)).isEmpty();
+    }
+
+    private static List<Long> idsBefore(long beforeId, Pageable pageable) {
+        return LongStream.iterate(Math.min(beforeId - 1, 25), id -> id >= 1, id -> id - 1)
+                .skip(pageable.getOffset()).limit(pageable.getPageSize()).boxed().toList();
+    }
+
+    private static List<Long> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getId).toList();
+    }
+}
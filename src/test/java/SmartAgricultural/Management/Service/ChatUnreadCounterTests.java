@@ -0,0 +1,90 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Repository.ChatMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ChatUnreadCounterTests {
+
+    private final ChatMessageRepository repository = mock(ChatMessageRepository.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final ChatUnreadCounter counter = new ChatUnreadCounter(repository, messagingTemplate);
+
+    @Test
+    void countIsLoadedOnceThenKeptUpToDateFromEvents() {
+        when(repository.countByRecipientIdAndReadFalse("alice")).thenReturn(3L);
+
+        assertThat(counter.getUnreadCount("alice")).isEqualTo(3);
+        counter.messageReceived("alice");
+        counter.messageReceived("alice");
+        counter.messagesRead("alice", 4);
+
+        assertThat(counter.getUnreadCount("alice")).isEqualTo(1);
+        verify(repository, times(1)).countByRecipientIdAndReadFalse("alice");
+        verify(messagingTemplate, times(3)).convertAndSendToUser(eq("alice"), eq("/queue/unread"), any(Object.class));
+    }
+
+    @Test
+    void countNeverGoesBelowZero() {
+        when(repository.countByRecipientIdAndReadFalse("alice")).thenReturn(1L);
+        counter.getUnreadCount("alice");
+
+        counter.messagesRead("alice", 5);
+
+        assertThat(counter.getUnreadCount("alice")).isZero();
+    }
+
+    @Test
+    void reconcileCorrectsDrift() {
+        when(repository.countByRecipientIdAndReadFalse("alice")).thenReturn(2L);
+        counter.getUnreadCount("alice");
+        when(repository.countUnreadByRecipients(any())).thenReturn(rows("alice", 5L));
+
+        counter.reconcile();
+
+        assertThat(counter.getUnreadCount("alice")).isEqualTo(5);
+        assertThat(counter.getStatistics().get("corrections")).isEqualTo(1L);
+    }
+
+    @Test
+    void reconcileSkipsCountsChangedWhileItWasQuerying() {
+        when(repository.countByRecipientIdAndReadFalse("alice")).thenReturn(2L);
+        counter.getUnreadCount("alice");
+        // A message arrives between reading the version and applying the recount
+        when(repository.countUnreadByRecipients(any())).thenAnswer(invocation -> {
+            counter.messageReceived("alice");
+            return rows("alice", 2L);
+        });
+
+        counter.reconcile();
+
+        assertThat(counter.getUnreadCount("alice")).isEqualTo(3);
+        assertThat(counter.getStatistics().get("corrections")).isEqualTo(0L);
+    }
+
+    @Test
+    void usersMissingFromTheRecountHaveNothingUnread() {
+        when(repository.countByRecipientIdAndReadFalse(anyString())).thenReturn(4L);
+        counter.getUnreadCount("bob");
+        when(repository.countUnreadByRecipients(any())).thenReturn(new ArrayList<>());
+
+        counter.reconcile();
+
+        assertThat(counter.getUnreadCount("bob")).isZero();
+    }
+
+    private static List<Object[]> rows(String userId, long count) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{userId, count});
+        return rows;
+    }
+}
@@ -0,0 +1,116 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.ChatNotification;
+import SmartAgricultural.Management.Repository.ChatNotificationRepository;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Catch-up paging as NotificationStream.js walks it: each request continues from the
+ * previous page's latestSeq until hasMore is false.
+ */
+class NotificationServiceTests {
+
+    private final List<ChatNotification> stored = new CopyOnWriteArrayList<>();
+    private final NotificationService service = new NotificationService();
+
+    @BeforeEach
+    void setUp() {
+        ChatNotificationRepository repository = mock(ChatNotificationRepository.class);
+        when(repository.findByRecipientIdAndIdGreaterThanOrderByIdAsc(anyString(), anyLong(), any(Pageable.class)))
+                .thenAnswer(i -> stored.stream()
+                        .filter(n -> n.getRecipientId().equals(i.getArgument(0)) && n.getId() > i.<Long>getArgument(1))
+                        .limit(i.<Pageable>getArgument(2).getPageSize())
+                        .toList());
+        when(repository.findTopByRecipientIdOrderByIdDesc(anyString())).thenAnswer(i -> stored.stream()
+                .filter(n -> n.getRecipientId().equals(i.getArgument(0)))
+                .reduce((first, second) -> second));
+        ReflectionTestUtils.setField(service, "chatNotificationRepository", repository);
+    }
+
+    @Test
+    void firstSubscriptionOnlyReturnsTheStartingSequence() {
+        add(1, "alice");
+        add(2, "bob");
+        add(3, "alice");
+
+        Map<String, Object> page = service.getNotificationsSince("alice", -1, 100);
+
+        assertThat(page.get("notifications")).asInstanceOf(InstanceOfAssertFactories.LIST).isEmpty();
+        assertThat(page.get("latestSeq")).isEqualTo(3L);
+        assertThat(page.get("hasMore")).isEqualTo(false);
+        assertThat(service.getNotificationsSince("carol", -1, 100).get("latestSeq")).isEqualTo(0L);
+    }
+
+    @Test
+    void pagingFromTheCursorVisitsEveryNotificationOnce() {
+        for (long id = 1; id <= 25; id++) {
+            add(id, id % 5 == 0 ? "bob" : "alice");
+        }
+
+        List<Long> seen = new ArrayList<>();
+        long cursor = 0;
+        boolean more = true;
+        int pages = 0;
+        while (more) {
+            Map<String, Object> page = service.getNotificationsSince("alice", cursor, 7);
+            for (Object n : (List<?>) page.get("notifications")) {
+                seen.add(((ChatNotification) n).getId());
+            }
+            // New notifications pushed while paging must not make the cursor skip ahead
+            if (pages++ == 0) {
+                add(26, "alice");
+            }
+            cursor = (Long) page.get("latestSeq");
+            more = (Boolean) page.get("hasMore");
+        }
+
+        assertThat(seen).doesNotHaveDuplicates().hasSize(21).isSorted();
+        assertThat(seen).contains(26L).doesNotContain(5L, 10L, 15L, 20L, 25L);
+        assertThat(cursor).isEqualTo(26L);
+    }
+
+    @Test
+    void emptyPageKeepsTheCursorWhereItWas() {
+        add(4, "alice");
+
+        Map<String, Object> page = service.getNotificationsSince("alice", 4, 100);
+
+        assertThat(page.get("latestSeq")).isEqualTo(4L);
+        assertThat(page.get("hasMore")).isEqualTo(false);
+    }
+
+    @Test
+    void limitIsClampedToAtLeastOne() {
+        add(1, "alice");
+        add(2, "alice");
+
+        Map<String, Object> page = service.getNotificationsSince("alice", 0, 0);
+
+        assertThat(page.get("notifications")).asInstanceOf(InstanceOfAssertFactories.LIST).hasSize(1);
+        assertThat(page.get("hasMore")).isEqualTo(true);
+        assertThat(page.get("latestSeq")).isEqualTo(1L);
+    }
+
+    private void add(long id, String recipient) {
+        ChatNotification notification = new ChatNotification("system", recipient, "n" + id,
+                ChatNotification.NotificationType.MESSAGE);
+        notification.setId(id);
+        stored.add(notification);
+    }
+}
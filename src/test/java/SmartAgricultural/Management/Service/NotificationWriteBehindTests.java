@@ -0,0 +1,177 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.ChatNotification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class NotificationWriteBehindTests {
+
+    private static final int CONTENT_COLUMN_LENGTH = 255;
+
+    @TempDir
+    Path spillDir;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicBoolean databaseDown = new AtomicBoolean();
+    private final List<String> stored = new CopyOnWriteArrayList<>();
+    private NotificationWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    void oneBadRowDoesNotHoldBackTheRestOfItsBatch() throws Exception {
+        writeBehind = start(3);
+        List<String> pushed = new CopyOnWriteArrayList<>();
+
+        enqueue("first", pushed);
+        enqueue("x".repeat(CONTENT_COLUMN_LENGTH + 1), pushed);
+        enqueue("third", pushed);
+        awaitWritten(2);
+        // Dead letters are appended once the row-by-row pass is over
+        awaitStatistic("deadLettered", 1);
+
+        assertThat(stored).containsExactly("first", "third");
+        assertThat(pushed).containsExactly("first", "third");
+        assertThat(files("spill-")).isEmpty();
+        assertThat(files("dead-letter-")).hasSize(1);
+        assertThat(Files.readString(files("dead-letter-").get(0))).contains("\"error\":\"Data too long");
+        assertThat(writeBehind.getStatistics().get("deadLettered")).isEqualTo(1L);
+    }
+
+    @Test
+    void outageSpillsTheBatchAndReplayWritesIt() throws Exception {
+        writeBehind = start(2);
+        databaseDown.set(true);
+
+        enqueue("first", new ArrayList<>());
+        enqueue("second", new ArrayList<>());
+        awaitStatistic("spilled", 2);
+        assertThat(files("dead-letter-")).isEmpty();
+
+        databaseDown.set(false);
+        writeBehind.replaySpills();
+
+        assertThat(stored).containsExactly("first", "second");
+        assertThat(files("spill-")).isEmpty();
+    }
+
+    @Test
+    void replayDeadLettersPoisonRowsInsteadOfRespillingThem() throws Exception {
+        writeBehind = start(2);
+        databaseDown.set(true);
+        enqueue("fine", new ArrayList<>());
+        enqueue("x".repeat(CONTENT_COLUMN_LENGTH + 1), new ArrayList<>());
+        awaitStatistic("spilled", 2);
+
+        databaseDown.set(false);
+        writeBehind.replaySpills();
+        writeBehind.replaySpills();
+        awaitStatistic("deadLettered", 1);
+
+        assertThat(stored).containsExactly("fine");
+        assertThat(files("spill-")).isEmpty();
+        assertThat(files("dead-letter-")).hasSize(1);
+    }
+
+    private NotificationWriteBehind start(int batchSize) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        NotificationWriteBehind service = new NotificationWriteBehind(jdbcTemplate,
+                mock(PlatformTransactionManager.class), objectMapper, 100, batchSize, 1_000, 100);
+        ReflectionTestUtils.setField(service, "spillDir", spillDir.toString());
+
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class))).thenAnswer(invocation -> {
+            if (databaseDown.get()) {
+                throw new DataAccessResourceFailureException("Communications link failure");
+            }
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            KeyHolder keys = invocation.getArgument(2);
+            List<String> contents = new ArrayList<>();
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                PreparedStatement ps = mock(PreparedStatement.class);
+                setter.setValues(ps, i);
+                contents.add(captureContent(ps));
+            }
+            for (String content : contents) {
+                if (content.length() > CONTENT_COLUMN_LENGTH) {
+                    throw new DataIntegrityViolationException("Data too long for column 'content' at row 1");
+                }
+            }
+            for (String content : contents) {
+                keys.getKeyList().add(Map.of("GENERATED_KEY", ids.incrementAndGet()));
+                stored.add(content);
+            }
+            return new int[contents.size()];
+        });
+
+        service.start();
+        return service;
+    }
+
+    private static String captureContent(PreparedStatement ps) throws Exception {
+        ArgumentCaptor<String> content = ArgumentCaptor.forClass(String.class);
+        verify(ps, atLeastOnce()).setString(anyInt(), content.capture());
+        // sender, recipient, content, type
+        return content.getAllValues().get(2);
+    }
+
+    private void enqueue(String content, List<String> pushed) {
+        ChatNotification notification = new ChatNotification("sender", "recipient", content,
+                ChatNotification.NotificationType.MESSAGE);
+        writeBehind.enqueue(notification, () -> pushed.add(notification.getContent()));
+    }
+
+    private void awaitWritten(long count) throws InterruptedException {
+        awaitStatistic("written", count);
+    }
+
+    private void awaitStatistic(String name, long value) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (((Number) writeBehind.getStatistics().get(name)).longValue() < value
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(((Number) writeBehind.getStatistics().get(name)).longValue()).isEqualTo(value);
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> listing = Files.list(spillDir)) {
+            return listing.filter(p -> p.getFileName().toString().startsWith(prefix)).toList();
+        }
+    }
+}
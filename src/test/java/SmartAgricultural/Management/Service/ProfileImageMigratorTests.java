@@ -0,0 +1,95 @@
+package SmartAgricultural.Management.Service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProfileImageMigratorTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ProfileImageStore profileImageStore = mock(ProfileImageStore.class);
+    private final ProfileImageMigrator migrator = new ProfileImageMigrator(jdbcTemplate, profileImageStore, 50);
+
+    @Test
+    void missingLegacyColumnFinishesTheMigration() {
+        when(jdbcTemplate.update(anyString())).thenThrow(new BadSqlGrammarException("clear",
+                "UPDATE users SET profile_image_data = NULL",
+                new SQLException("Unknown column 'profile_image_data' in 'field list'", "42S22", 1054)));
+
+        migrator.migrateBatch();
+
+        assertThat(migrator.getStatistics().get("finished")).isEqualTo(true);
+    }
+
+    @Test
+    void transientFailureIsRetriedOnTheNextPass() {
+        when(jdbcTemplate.update(anyString()))
+                .thenThrow(new DataAccessResourceFailureException("Communications link failure"))
+                .thenReturn(0);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), anyInt())).thenReturn(List.of());
+
+        migrator.migrateBatch();
+        assertThat(migrator.getStatistics().get("finished")).isEqualTo(false);
+
+        // Next pass reaches the database and finds nothing left
+        migrator.migrateBatch();
+        assertThat(migrator.getStatistics().get("finished")).isEqualTo(true);
+        verify(jdbcTemplate, times(2)).update(anyString());
+    }
+
+    @Test
+    void deletingAnImageClearsItsLegacyBytes() {
+        migrator.discardLegacyImage("u1");
+
+        verify(jdbcTemplate).update(
+                "UPDATE users SET profile_image_data = NULL WHERE id = ? AND profile_image_data IS NOT NULL", "u1");
+    }
+
+    @Test
+    void migrationRacingADeleteDoesNotRestoreTheImage() throws Exception {
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<byte[]>>any(), eq("u1")))
+                .thenReturn(List.of(new byte[]{1, 2, 3}));
+        String key = "ab".repeat(32);
+        when(profileImageStore.store(any())).thenReturn(key);
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(1);
+        // The delete cleared the bytes after they were read, so the guarded update matches nothing
+        when(jdbcTemplate.update(contains("profile_image_data IS NOT NULL"), eq(key), anyString(), eq("u1")))
+                .thenReturn(0);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("u1")))
+                .thenReturn(Collections.singletonList(null));
+
+        assertThat(migrator.migrateUser("u1")).isNull();
+        assertThat(migrator.getStatistics().get("migrated")).isEqualTo(0L);
+        verify(jdbcTemplate).queryForList("SELECT profile_image_key FROM users WHERE id = ?", String.class, "u1");
+    }
+
+    @Test
+    void deleteFailsWhenTheLegacyBytesCannotBeCleared() {
+        when(jdbcTemplate.update(anyString(), eq("u1")))
+                .thenThrow(new DataAccessResourceFailureException("Communications link failure"));
+
+        assertThatThrownBy(() -> migrator.discardLegacyImage("u1"))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    @Test
+    void deleteWithoutALegacyColumnSucceeds() {
+        when(jdbcTemplate.update(anyString(), eq("u1"))).thenThrow(new BadSqlGrammarException("clear",
+                "UPDATE users SET profile_image_data = NULL",
+                new SQLException("Unknown column 'profile_image_data' in 'field list'", "42S22", 1054)));
+
+        migrator.discardLegacyImage("u1");
+    }
+}
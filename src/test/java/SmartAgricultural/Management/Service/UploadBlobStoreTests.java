@@ -0,0 +1,190 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.UploadBlob;
+import SmartAgricultural.Management.Repository.UploadBlobReferenceRepository;
+import SmartAgricultural.Management.Repository.UploadBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the store against in-memory stand-ins for upload_blobs and upload_blob_refs that follow
+ * the repository queries.
+ */
+class UploadBlobStoreTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private final Map<String, Integer> refCounts = new HashMap<>();
+    private final Map<String, LocalDateTime> updatedAt = new HashMap<>();
+    private final Set<String> references = new HashSet<>();
+    private UploadBlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        UploadBlobRepository blobs = mock(UploadBlobRepository.class);
+        UploadBlobReferenceRepository refs = mock(UploadBlobReferenceRepository.class);
+
+        when(refs.insertIfAbsent(anyString(), anyString(), any())).thenAnswer(i ->
+                references.add(i.getArgument(0) + "|" + i.getArgument(1)) ? 1 : 0);
+        when(refs.deleteByHashAndOwner(anyString(), anyString())).thenAnswer(i ->
+                references.remove(i.getArgument(0) + "|" + i.getArgument(1)) ? 1 : 0);
+        when(refs.existsByHashAndOwner(anyString(), anyString())).thenAnswer(i ->
+                references.contains(i.getArgument(0) + "|" + i.getArgument(1)));
+        when(refs.transfer(anyString(), anyString(), anyString())).thenAnswer(i -> {
+            if (!references.remove(i.getArgument(0) + "|" + i.getArgument(1))) {
+                return 0;
+            }
+            references.add(i.getArgument(0) + "|" + i.getArgument(2));
+            return 1;
+        });
+
+        doAnswer(i -> {
+            refCounts.merge(i.getArgument(0), 1, Integer::sum);
+            updatedAt.put(i.getArgument(0), i.getArgument(4));
+            return null;
+        }).when(blobs).acquire(anyString(), anyLong(), any(), anyString(), any());
+        when(blobs.release(anyString(), any())).thenAnswer(i -> {
+            String hash = i.getArgument(0);
+            if (refCounts.getOrDefault(hash, 0) <= 0) {
+                return 0;
+            }
+            refCounts.merge(hash, -1, Integer::sum);
+            updatedAt.put(hash, i.getArgument(1));
+            return 1;
+        });
+        when(blobs.findById(anyString())).thenAnswer(i -> {
+            if (!refCounts.containsKey(i.<String>getArgument(0))) {
+                return Optional.empty();
+            }
+            UploadBlob blob = new UploadBlob();
+            blob.setExtension(".txt");
+            return Optional.of(blob);
+        });
+        when(blobs.findUnreferencedSince(any(), any(Pageable.class))).thenAnswer(i -> refCounts.entrySet().stream()
+                .filter(e -> e.getValue() <= 0 && updatedAt.get(e.getKey()).isBefore(i.getArgument(0)))
+                .map(Map.Entry::getKey).toList());
+        when(blobs.deleteIfUnreferenced(anyString(), any())).thenAnswer(i -> {
+            String hash = i.getArgument(0);
+            if (refCounts.getOrDefault(hash, 1) > 0 || !updatedAt.get(hash).isBefore(i.getArgument(1))) {
+                return 0;
+            }
+            refCounts.remove(hash);
+            return 1;
+        });
+
+        store = new UploadBlobStore(blobs, refs, mock(PlatformTransactionManager.class), uploadDir.toString());
+        ReflectionTestUtils.setField(store, "gcGraceHours", 0);
+    }
+
+    @Test
+    void identicalUploadsShareOneFile() throws IOException {
+        UploadBlobStore.StoredBlob first = store("same bytes", "upload:a");
+        UploadBlobStore.StoredBlob second = store("same bytes", "upload:b");
+
+        assertThat(second.getUrl()).isEqualTo(first.getUrl());
+        assertThat(first.isDuplicate()).isFalse();
+        assertThat(second.isDuplicate()).isTrue();
+        assertThat(refCounts.get(first.getHash())).isEqualTo(2);
+        assertThat(Files.exists(file(first))).isTrue();
+    }
+
+    @Test
+    void repeatedReleasesByOneOwnerDropOnlyItsReference() throws IOException, InterruptedException {
+        UploadBlobStore.StoredBlob blob = store("shared", "chat-message:1");
+        store("shared", "upload:token");
+
+        // The anonymous endpoint called again and again with the same file
+        for (int i = 0; i < 5; i++) {
+            store.release(blob.getFileName(), "upload:token");
+        }
+        assertThat(refCounts.get(blob.getHash())).isEqualTo(1);
+
+        Thread.sleep(5);
+        store.collectGarbage();
+        assertThat(Files.exists(file(blob))).isTrue();
+    }
+
+    @Test
+    void ownersThatNeverHeldTheBlobCannotReleaseIt() throws IOException {
+        UploadBlobStore.StoredBlob blob = store("chat attachment", "chat-message:7");
+
+        store.release(blob.getUrl(), "upload:guess");
+        store.release(blob.getUrl(), "user-profile:someone");
+
+        assertThat(refCounts.get(blob.getHash())).isEqualTo(1);
+        assertThat(store.isHeldBy(blob.getUrl(), "chat-message:7")).isTrue();
+        assertThat(store.isHeldBy(blob.getUrl(), "upload:guess")).isFalse();
+    }
+
+    @Test
+    void storingTwiceForOneOwnerTakesOneReference() throws IOException {
+        UploadBlobStore.StoredBlob blob = store("avatar", "user-profile:42");
+        store("avatar", "user-profile:42");
+
+        assertThat(refCounts.get(blob.getHash())).isEqualTo(1);
+    }
+
+    @Test
+    void transferMovesTheReferenceToTheNewOwner() throws IOException {
+        UploadBlobStore.StoredBlob blob = store("photo", "chat-upload:u1");
+
+        assertThat(store.transfer(blob.getUrl(), "chat-upload:u1", "chat-message:9")).isTrue();
+        store.release(blob.getUrl(), "chat-upload:u1");
+
+        assertThat(refCounts.get(blob.getHash())).isEqualTo(1);
+        assertThat(store.isHeldBy(blob.getUrl(), "chat-message:9")).isTrue();
+    }
+
+    @Test
+    void collectorDeletesBlobsWithoutReferencesAndTheirDerivatives() throws IOException, InterruptedException {
+        UploadBlobStore.StoredBlob blob = store("to be removed", "chat-message:3");
+        Path derivative = file(blob).resolveSibling(blob.getHash() + "-320.jpg");
+        Files.writeString(derivative, "thumbnail");
+
+        store.release(blob.getUrl(), "chat-message:3");
+        Thread.sleep(5);
+        store.collectGarbage();
+
+        assertThat(Files.exists(file(blob))).isFalse();
+        assertThat(Files.exists(derivative)).isFalse();
+        assertThat(refCounts).doesNotContainKey(blob.getHash());
+    }
+
+    @Test
+    void hashFromUrlAcceptsOnlyBlobNames() {
+        String hash = "a".repeat(64);
+        assertThat(UploadBlobStore.hashFromUrl("/uploads/blobs/aa/" + hash + ".png")).isEqualTo(hash);
+        assertThat(UploadBlobStore.hashFromUrl(hash + ".png")).isEqualTo(hash);
+        assertThat(UploadBlobStore.hashFromUrl("uploads/profiles/" + hash + ".png")).isNull();
+        assertThat(UploadBlobStore.hashFromUrl("photo.png")).isNull();
+        assertThat(UploadBlobStore.hashFromUrl(null)).isNull();
+    }
+
+    private UploadBlobStore.StoredBlob store(String content, String owner) throws IOException {
+        return store.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                "file.txt", "text/plain", owner);
+    }
+
+    private Path file(UploadBlobStore.StoredBlob blob) {
+        return uploadDir.resolve("blobs").resolve(blob.getHash().substring(0, 2)).resolve(blob.getFileName());
+    }
+}
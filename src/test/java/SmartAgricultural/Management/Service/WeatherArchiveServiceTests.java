@@ -0,0 +1,172 @@
+package SmartAgricultural.Management.Service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class WeatherArchiveServiceTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mergeKeepsDistinctReadingsWithTheSameTimestamp() throws IOException {
+        Path file = dir.resolve("station.wseg");
+        write(file, List.of(reading("a", 1_000, 215), reading("b", 2_000, 220)));
+
+        List<WeatherArchiveService.ArchivedReading> merged = WeatherArchiveService.mergeWithExisting(file,
+                List.of(reading("c", 1_000, 230), reading("d", 3_000, 240)));
+
+        assertThat(merged).extracting(WeatherArchiveService.ArchivedReading::getId)
+                .containsExactly("a", "c", "b", "d");
+    }
+
+    @Test
+    void mergeSkipsReadingsTheSegmentAlreadyHolds() throws IOException {
+        Path file = dir.resolve("station.wseg");
+        write(file, List.of(reading("a", 1_000, 215), reading("b", 2_000, 220)));
+
+        // A previous run wrote the segment but failed before deleting the rows
+        List<WeatherArchiveService.ArchivedReading> merged = WeatherArchiveService.mergeWithExisting(file,
+                List.of(reading("a", 1_000, 215), reading("b", 2_000, 220), reading("c", 2_000, 225)));
+
+        assertThat(merged).extracting(WeatherArchiveService.ArchivedReading::getId)
+                .containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void onlyIdsWrittenToTheSegmentAreConfirmed() throws IOException {
+        Path file = dir.resolve("station.wseg");
+        write(file, List.of(reading("a", 1_000, 215), reading("b", 1_000, 220)));
+
+        assertThat(WeatherArchiveService.confirmedIds(file, List.of("a", "b", "x"))).containsExactly("a", "b");
+    }
+
+    @Test
+    void segmentRoundTripsEveryColumn() throws IOException {
+        Path file = dir.resolve("station.wseg");
+        List<WeatherArchiveService.ArchivedReading> written = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            WeatherArchiveService.ArchivedReading r = reading("id" + i, 1_700_000_000_000L + i * 600_000L, 200 + i % 7);
+            r.weatherCondition = i % 10 == 0 ? "Rain" : "Clear";
+            r.rainfall = i % 10 == 0 ? 125 : Double.NaN;
+            written.add(r);
+        }
+        write(file, written);
+
+        List<WeatherArchiveService.ArchivedReading> read = new ArrayList<>();
+        try (WeatherArchiveService.SegmentReader reader = new WeatherArchiveService.SegmentReader(file)) {
+            while (reader.hasNext()) {
+                read.add(reader.next());
+            }
+        }
+
+        assertThat(read).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            WeatherArchiveService.ArchivedReading expected = written.get(i);
+            WeatherArchiveService.ArchivedReading actual = read.get(i);
+            assertThat(actual.getId()).isEqualTo(expected.getId());
+            assertThat(actual.getRecordDateMillis()).isEqualTo(expected.getRecordDateMillis());
+            assertThat(actual.getTemperature()).isEqualTo(expected.getTemperature());
+            assertThat(actual.getRainfall()).isEqualTo(expected.getRainfall());
+            assertThat(actual.getWeatherCondition()).isEqualTo(expected.getWeatherCondition());
+            assertThat(actual.getStationId()).isEqualTo("ST-1");
+        }
+    }
+
+    @Test
+    void cursorMergesSegmentsAcrossMonthsInRecordDateOrder() throws IOException {
+        write(segment("2024-01", "a"), List.of(reading("a1", millis(2024, 1, 3), 1), reading("a2", millis(2024, 1, 20), 2)));
+        write(segment("2024-01", "b"), List.of(reading("b1", millis(2024, 1, 10), 3)));
+        write(segment("2024-02", "a"), List.of(reading("a3", millis(2024, 2, 1), 4), reading("a4", millis(2024, 2, 28), 5)));
+
+        List<String> ids = new ArrayList<>();
+        try (WeatherArchiveService.ArchiveCursor cursor = service().open(
+                LocalDateTime.of(2024, 1, 5, 0, 0), LocalDateTime.of(2024, 2, 28, 0, 0))) {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().getId());
+            }
+        }
+
+        assertThat(ids).containsExactly("b1", "a2", "a3");
+    }
+
+    @Test
+    void segmentsWithAnotherMagicAreRejected() throws IOException {
+        Path file = dir.resolve("station.wseg");
+        write(file, List.of(reading("a", 1_000, 215)));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[3] = '1'; // "WSG1"
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> new WeatherArchiveService.SegmentReader(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a weather archive segment");
+    }
+
+    @Test
+    void laterMonthsAreOnlyOpenedWhenTheCursorReachesThem() throws IOException {
+        write(segment("2024-01", "a"), List.of(reading("a1", millis(2024, 1, 3), 1), reading("a2", millis(2024, 1, 20), 2)));
+        Files.writeString(segment("2024-02", "a"), "not a segment");
+
+        try (WeatherArchiveService.ArchiveCursor cursor = service().open(
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 3, 1, 0, 0))) {
+            assertThat(cursor.next().getId()).isEqualTo("a1");
+            assertThat(cursor.next().getId()).isEqualTo("a2");
+            // January is exhausted, so February is opened now and its broken segment shows up
+            assertThatThrownBy(cursor::hasNext).isInstanceOf(UncheckedIOException.class);
+        }
+    }
+
+    private WeatherArchiveService service() {
+        WeatherArchiveService service = new WeatherArchiveService(mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "archiveDir", dir.toString());
+        return service;
+    }
+
+    private Path segment(String month, String station) throws IOException {
+        return Files.createDirectories(dir.resolve(month)).resolve(station + ".wseg");
+    }
+
+    private static long millis(int year, int month, int day) {
+        return LocalDateTime.of(year, month, day, 12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static void write(Path file, List<WeatherArchiveService.ArchivedReading> readings) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            WeatherArchiveService.writeSegment(out, "ST-1", readings);
+        }
+    }
+
+    private static WeatherArchiveService.ArchivedReading reading(String id, long recordDate, double temperature) {
+        WeatherArchiveService.ArchivedReading r = new WeatherArchiveService.ArchivedReading();
+        r.id = id;
+        r.recordDate = recordDate;
+        r.latitude = -194_400_000;
+        r.longitude = 3_006_100_000L;
+        r.temperature = temperature;
+        r.humidity = 650;
+        r.rainfall = Double.NaN;
+        r.windSpeed = 32;
+        r.dataSource = "station";
+        r.dataQuality = "GOOD";
+        r.stationId = "ST-1";
+        return r;
+    }
+}
@@ -0,0 +1,94 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+class WeatherForecastModelCacheTests {
+
+    private static final BigDecimal LAT = new BigDecimal("12.1348");
+    private static final BigDecimal LON = new BigDecimal("15.0557");
+
+    private WeatherSeriesStore store;
+    private WeatherForecastModelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        store = spy(new WeatherSeriesStore());
+        List<WeatherData> history = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            history.add(reading(LAT, LON, 30 + i, 10 - i));
+        }
+        store.load(history, LocalDateTime.now().minusYears(1));
+
+        cache = new WeatherForecastModelCache();
+        ReflectionTestUtils.setField(cache, "weatherSeriesStore", store);
+        cache.listenToAppends();
+    }
+
+    @Test
+    void appendedReadingsExtendOnlyTheModelsAroundThem() {
+        assertThat(cache.get(LAT, LON).getCount()).isEqualTo(10);
+
+        store.record(reading(LAT, LON, 35, 0));
+        // About 4 degrees away, outside every radius of the cached model
+        store.record(reading(new BigDecimal("8.5667"), new BigDecimal("16.0833"), 25, 0));
+
+        assertThat(cache.get(LAT, LON).getCount()).isEqualTo(11);
+        assertThat(cache.getMetrics().get("incrementalUpdates")).isEqualTo(1L);
+    }
+
+    @Test
+    void readingAppendedAfterTheScanIsReplayedOntoTheFit() {
+        doAnswer(invocation -> {
+            Object stats = invocation.callRealMethod();
+            store.record(reading(LAT, LON, 36, 0));
+            return stats;
+        }).when(store).scanRadius(any(), any(), any(), any());
+
+        assertThat(cache.get(LAT, LON).getCount()).isEqualTo(11);
+        assertThat(cache.getMetrics().get("replayedReadings")).isEqualTo(1L);
+    }
+
+    @Test
+    void readingAppendedBeforeTheScanIsNotCountedTwice() {
+        doAnswer(invocation -> {
+            store.record(reading(LAT, LON, 36, 0));
+            return invocation.callRealMethod();
+        }).when(store).scanRadius(any(), any(), any(), any());
+
+        assertThat(cache.get(LAT, LON).getCount()).isEqualTo(11);
+        assertThat(cache.getMetrics().get("replayedReadings")).isEqualTo(0L);
+        assertThat(cache.getMetrics().get("fitsInProgress")).isEqualTo(0);
+    }
+
+    @Test
+    void invalidationDuringAFitKeepsItOutOfTheCache() {
+        doAnswer(invocation -> {
+            Object stats = invocation.callRealMethod();
+            cache.invalidate();
+            return stats;
+        }).when(store).scanRadius(any(), any(), any(), any());
+
+        cache.get(LAT, LON);
+
+        assertThat(cache.getMetrics().get("models")).isEqualTo(0);
+    }
+
+    private static WeatherData reading(BigDecimal latitude, BigDecimal longitude, double temperature, int daysAgo) {
+        WeatherData w = new WeatherData(latitude, longitude, LocalDateTime.now().minusDays(daysAgo).minusMinutes(1));
+        w.setTemperature(BigDecimal.valueOf(temperature));
+        return w;
+    }
+}
@@ -0,0 +1,121 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.exception.ValidationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WeatherIngestionServiceTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final WeatherDataService weatherDataService = mock(WeatherDataService.class);
+    private final List<WeatherData> written = new CopyOnWriteArrayList<>();
+    private WeatherIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new WeatherIngestionService(mock(PlatformTransactionManager.class), 2, 1);
+        ReflectionTestUtils.setField(service, "weatherDataService", weatherDataService);
+        ReflectionTestUtils.setField(service, "weatherSeriesStore", mock(WeatherSeriesStore.class));
+        ReflectionTestUtils.setField(service, "weatherAlertEngine", mock(WeatherAlertEngine.class));
+        ReflectionTestUtils.setField(service, "weatherRollupService", mock(WeatherRollupService.class));
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<WeatherData>>any()))
+                .thenAnswer(i -> {
+                    written.addAll(i.<Collection<WeatherData>>getArgument(1));
+                    return new int[0][];
+                });
+        doAnswer(i -> {
+            WeatherData w = i.getArgument(0);
+            if (w.getLatitude() == null || w.getLongitude() == null || w.getRecordDate() == null) {
+                throw new ValidationException("Latitude, longitude and record date are required");
+            }
+            return null;
+        }).when(weatherDataService).validateWeatherData(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void csvMapsColumnsByHeaderNameAndHonoursQuotes() throws IOException {
+        Map<String, Object> result = ingest(WeatherIngestionService.Format.CSV, """
+                station_id,Latitude,longitude,record-date,temperature,weather_condition,data_quality
+                ST-1,-1.9441,30.0619,2024-05-01 06:00:00,18.5,"Rain, ""heavy"" at times",good
+
+                ST-2,-1.95,30.07,2024-05-01T07:00:00,,Clear,EXCELLENT
+                """);
+
+        assertThat(result).containsEntry("linesRead", 2).containsEntry("inserted", 2).containsEntry("rejected", 0);
+        WeatherData first = written.get(0);
+        assertThat(first.getStationId()).isEqualTo("ST-1");
+        assertThat(first.getLatitude()).isEqualByComparingTo("-1.9441");
+        assertThat(first.getRecordDate()).isEqualTo(LocalDateTime.of(2024, 5, 1, 6, 0));
+        assertThat(first.getTemperature()).isEqualByComparingTo(new BigDecimal("18.5"));
+        assertThat(first.getWeatherCondition()).isEqualTo("Rain, \"heavy\" at times");
+        assertThat(first.getDataQuality()).isEqualTo(WeatherData.DataQuality.GOOD);
+        // Empty fields stay unset
+        assertThat(written.get(1).getTemperature()).isNull();
+    }
+
+    @Test
+    void ndjsonRejectsOnlyTheBadLinesWithTheirLineNumbers() throws IOException {
+        Map<String, Object> result = ingest(WeatherIngestionService.Format.NDJSON, """
+                {"latitude": -1.9441, "longitude": 30.0619, "recordDate": "2024-05-01T06:00:00", "temperature": 18.5}
+                {"latitude": -1.9441, "longitude":
+                {"latitude": -1.9441, "recordDate": "2024-05-01T07:00:00"}
+                {"latitude": -1.95, "longitude": 30.07, "recordDate": "2024-05-01T08:00:00", "stationId": "ST-2"}
+                """);
+
+        assertThat(result).containsEntry("linesRead", 4).containsEntry("inserted", 2).containsEntry("rejected", 2);
+        assertThat(written).extracting(WeatherData::getStationId).containsExactly(null, "ST-2");
+        @SuppressWarnings("unchecked")
+        List<String> errors = (List<String>) result.get("errors");
+        assertThat(errors).hasSize(2);
+        assertThat(errors.get(0)).startsWith("line 2: Unparseable record");
+        assertThat(errors.get(1)).isEqualTo("line 3: Latitude, longitude and record date are required");
+    }
+
+    @Test
+    void csvRowWithAnUnparseableNumberIsRejected() throws IOException {
+        Map<String, Object> result = ingest(WeatherIngestionService.Format.CSV, """
+                latitude,longitude,record_date,temperature
+                -1.9441,30.0619,2024-05-01T06:00:00,warm
+                """);
+
+        assertThat(result).containsEntry("inserted", 0).containsEntry("rejected", 1);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(),
+                ArgumentMatchers.<ParameterizedPreparedStatementSetter<WeatherData>>any());
+    }
+
+    private Map<String, Object> ingest(WeatherIngestionService.Format format, String body) throws IOException {
+        return service.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format);
+    }
+}
@@ -0,0 +1,111 @@
+package SmartAgricultural.Management.Service;
+
+import SmartAgricultural.Management.Model.WeatherRollup;
+import SmartAgricultural.Management.Model.WeatherRollup.Granularity;
+import SmartAgricultural.Management.Repository.WeatherDataRepository;
+import SmartAgricultural.Management.Repository.WeatherRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class WeatherRollupServiceTests {
+
+    @TempDir
+    Path archiveDir;
+
+    private final WeatherRollupRepository rollups = mock(WeatherRollupRepository.class);
+    private final WeatherDataRepository weatherData = mock(WeatherDataRepository.class);
+    private final List<WeatherRollup> upserted = new ArrayList<>();
+    private WeatherRollupService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        WeatherArchiveService archive = new WeatherArchiveService(mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(archive, "archiveDir", archiveDir.toString());
+        service = new WeatherRollupService();
+        ReflectionTestUtils.setField(service, "weatherRollupRepository", rollups);
+        ReflectionTestUtils.setField(service, "weatherDataRepository", weatherData);
+        ReflectionTestUtils.setField(service, "weatherArchiveService", archive);
+        doAnswer(i -> upserted.add(i.getArgument(0))).when(rollups).upsert(any());
+
+        // "kept" is archived but its row survived a failed archive run, so weather_data already counts it
+        when(weatherData.findExistingIds(anyCollection())).thenAnswer(i ->
+                i.<Collection<String>>getArgument(0).stream().filter("kept"::equals).toList());
+        Path month = Files.createDirectories(archiveDir.resolve("2023-03"));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(month.resolve("ST-1.wseg"))))) {
+            WeatherArchiveService.writeSegment(out, "ST-1", List.of(
+                    reading("a", LocalDateTime.of(2023, 3, 1, 6, 0), 180),
+                    reading("kept", LocalDateTime.of(2023, 3, 1, 12, 0), 250),
+                    reading("b", LocalDateTime.of(2023, 3, 2, 6, 0), 200)));
+        }
+    }
+
+    @Test
+    void fullRebuildFoldsArchivedReadingsBackIn() {
+        Map<String, Object> result = service.rebuildAll();
+
+        verify(rollups).deleteAllRollups();
+        assertThat(result.get("archivedReadings")).isEqualTo(2L);
+        assertThat(upserted).extracting(WeatherRollup::getId)
+                .contains("DAY#2023-03-01", "DAY#2023-03-02", "MONTH#2023-03");
+        WeatherRollup month = upserted.stream().filter(r -> r.getId().equals("MONTH#2023-03")).findFirst().orElseThrow();
+        assertThat(month.getRecordCount()).isEqualTo(2);
+        assertThat(month.getAverageTemperature()).isEqualTo(19.0);
+    }
+
+    @Test
+    void cellRebuildOnlyTouchesCells() {
+        service.rebuildCells();
+
+        verify(rollups).deleteRollups(Granularity.CELL);
+        verify(rollups, never()).deleteAllRollups();
+        assertThat(upserted).isNotEmpty().allSatisfy(r -> assertThat(r.getGranularity()).isEqualTo(Granularity.CELL));
+        assertThat(upserted.stream().mapToLong(WeatherRollup::getRecordCount).sum()).isEqualTo(2);
+    }
+
+    @Test
+    void unreadableArchiveFailsTheRebuild() throws IOException {
+        Files.writeString(Files.createDirectories(archiveDir.resolve("2023-04")).resolve("ST-1.wseg"), "not a segment");
+
+        assertThatThrownBy(service::rebuildAll).isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(service::rebuildCells).isInstanceOf(UncheckedIOException.class);
+    }
+
+    private static WeatherArchiveService.ArchivedReading reading(String id, LocalDateTime at, double temperature) {
+        WeatherArchiveService.ArchivedReading r = new WeatherArchiveService.ArchivedReading();
+        r.id = id;
+        r.recordDate = at.toInstant(ZoneOffset.UTC).toEpochMilli();
+        r.latitude = -194_400_000;
+        r.longitude = 3_006_100_000L;
+        r.temperature = temperature;
+        r.humidity = 650;
+        r.rainfall = Double.NaN;
+        r.windSpeed = 32;
+        r.dataSource = "station";
+        r.dataQuality = "GOOD";
+        r.stationId = "ST-1";
+        return r;
+    }
+}
@@ -0,0 +1,39 @@
+package SmartAgricultural.Management.Util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncTimeoutsTests {
+
+    @Test
+    void extendedTimeoutAppliesToThatRequestOnly() throws Exception {
+        MockHttpServletRequest streaming = new MockHttpServletRequest();
+        MockHttpServletRequest ordinary = new MockHttpServletRequest();
+
+        AsyncTimeouts.extend(streaming, 3_600_000);
+        startAsync(streaming);
+        startAsync(ordinary);
+
+        assertThat(streaming.getAsyncContext().getTimeout()).isEqualTo(3_600_000);
+        assertThat(ordinary.getAsyncContext().getTimeout()).isEqualTo(30_000);
+    }
+
+    private static void startAsync(MockHttpServletRequest request) throws Exception {
+        request.setAsyncSupported(true);
+        StandardServletAsyncWebRequest asyncRequest = new StandardServletAsyncWebRequest(request,
+                new MockHttpServletResponse());
+        // The global spring.mvc.async.request-timeout, applied before the handler runs
+        asyncRequest.setTimeout(30_000L);
+        WebAsyncManager manager = WebAsyncUtils.getAsyncManager(request);
+        manager.setAsyncWebRequest(asyncRequest);
+        manager.setTaskExecutor(new SimpleAsyncTaskExecutor());
+        manager.startCallableProcessing(() -> "streamed");
+    }
+}
@@ -0,0 +1,107 @@
+package SmartAgricultural.Management.Util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DedupWindowTests {
+
+    private static final long MINUTE = 60_000;
+
+    @Test
+    void fingerprintIsSeenUntilItsBucketLeavesTheWindow() {
+        DedupWindow window = new DedupWindow(MINUTE, 15, 1_000, 0);
+
+        assertThat(window.checkAndRecord(42, 0)).isFalse();
+        assertThat(window.checkAndRecord(42, 10 * MINUTE)).isTrue();
+        assertThat(window.contains(42, 14 * MINUTE + 59_999)).isTrue();
+        assertThat(window.contains(42, 15 * MINUTE)).isFalse();
+        assertThat(window.size()).isZero();
+    }
+
+    @Test
+    void pauseLongerThanTheWindowClearsEverything() {
+        DedupWindow window = new DedupWindow(MINUTE, 15, 1_000, 0);
+        for (long i = 1; i <= 100; i++) {
+            window.checkAndRecord(i, i * 1_000);
+        }
+
+        assertThat(window.size()).isEqualTo(100);
+        assertThat(window.checkAndRecord(1, 24 * 60 * MINUTE)).isFalse();
+        assertThat(window.size()).isEqualTo(1);
+    }
+
+    @Test
+    void capDropsTheOldestBucketEarly() {
+        DedupWindow window = new DedupWindow(1_000, 3, 3, 0);
+        window.checkAndRecord(1, 0);
+        window.checkAndRecord(2, 0);
+        window.checkAndRecord(3, 1_000);
+
+        window.checkAndRecord(4, 1_000);
+
+        assertThat(window.evictedEarly()).isEqualTo(1);
+        assertThat(window.size()).isEqualTo(2);
+        assertThat(window.contains(1, 1_000)).isFalse();
+        assertThat(window.contains(3, 1_000)).isTrue();
+        assertThat(window.contains(4, 1_000)).isTrue();
+    }
+
+    @Test
+    void capNeverGrowsTheCurrentBucketPastTheLimit() {
+        DedupWindow window = new DedupWindow(1_000, 3, 2, 0);
+        window.checkAndRecord(1, 0);
+        window.checkAndRecord(2, 0);
+
+        assertThat(window.checkAndRecord(3, 0)).isFalse();
+        assertThat(window.size()).isEqualTo(2);
+        assertThat(window.contains(3, 0)).isFalse();
+    }
+
+    @Test
+    void recordKeepsTheOriginalTimeAndIgnoresReadingsOutsideTheWindow() {
+        DedupWindow window = new DedupWindow(MINUTE, 15, 1_000, 0);
+        window.record(7, 2 * MINUTE, 10 * MINUTE);
+
+        assertThat(window.contains(7, 16 * MINUTE)).isTrue();
+        assertThat(window.contains(7, 17 * MINUTE)).isFalse();
+
+        window.record(8, 0, 20 * MINUTE);
+        assertThat(window.contains(8, 20 * MINUTE)).isFalse();
+    }
+
+    @Test
+    void storesZeroAndGrowsBucketsPastTheirInitialTable() {
+        DedupWindow window = new DedupWindow(MINUTE, 15, 100_000, 0);
+        assertThat(window.checkAndRecord(0, 0)).isFalse();
+        for (long i = 1; i <= 10_000; i++) {
+            window.checkAndRecord(i * 0x9E3779B97F4A7C15L, 0);
+        }
+
+        assertThat(window.contains(0, 0)).isTrue();
+        for (long i = 1; i <= 10_000; i++) {
+            assertThat(window.contains(i * 0x9E3779B97F4A7C15L, 0)).isTrue();
+        }
+        assertThat(window.size()).isEqualTo(10_001);
+    }
+
+    @Test
+    void fingerprintIgnoresSurroundingAndRepeatedWhitespace() {
+        long base = DedupWindow.fingerprint("Heavy rain expected", "ALERT");
+
+        assertThat(DedupWindow.fingerprint("  Heavy   rain\texpected\n", "ALERT")).isEqualTo(base);
+        assertThat(DedupWindow.fingerprint("Heavy rain expected", "INFO")).isNotEqualTo(base);
+        assertThat(DedupWindow.fingerprint("Heavy rainexpected", "ALERT")).isNotEqualTo(base);
+        assertThat(DedupWindow.fingerprint("heavy rain expected", "ALERT")).isNotEqualTo(base);
+        // The separator keeps text and qualifier apart
+        assertThat(DedupWindow.fingerprint("ab", "c")).isNotEqualTo(DedupWindow.fingerprint("a", "bc"));
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThatThrownBy(() -> new DedupWindow(0, 15, 10, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new DedupWindow(MINUTE, 0, 10, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new DedupWindow(MINUTE, 15, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,84 @@
+package SmartAgricultural.Management.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class GeoHashTests {
+
+    @Test
+    void encodesKnownCoordinates() {
+        assertThat(GeoHash.encode(57.64911, 10.40744, 11)).isEqualTo("u4pruydqqvj");
+        assertThat(GeoHash.encode(48.8566, 2.3522, 5)).isEqualTo("u09tv");
+        assertThat(GeoHash.encode(57.64911, 10.40744, 5)).isEqualTo("u4pru");
+    }
+
+    @Test
+    void centreLiesWithinHalfACellOfTheEncodedPoint() {
+        for (int precision = 1; precision <= GeoHash.MAX_PRECISION; precision++) {
+            double[] centre = GeoHash.center(GeoHash.encode(12.1348, 15.0557, precision));
+            assertThat(centre[0]).isCloseTo(12.1348, within(GeoHash.cellHeight(precision) / 2));
+            assertThat(centre[1]).isCloseTo(15.0557, within(GeoHash.cellWidth(precision) / 2));
+        }
+    }
+
+    @Test
+    void coverContainsTheCellOfEveryPointInTheBox() {
+        double minLat = 9.5, maxLat = 13.25, minLon = 14.0, maxLon = 18.75;
+        List<String> cells = GeoHash.cover(minLat, maxLat, minLon, maxLon, 4);
+
+        assertThat(cells).isSorted().doesNotHaveDuplicates();
+        Random random = new Random(7);
+        for (int i = 0; i < 1_000; i++) {
+            double lat = minLat + random.nextDouble() * (maxLat - minLat);
+            double lon = minLon + random.nextDouble() * (maxLon - minLon);
+            assertThat(cells).contains(GeoHash.encode(lat, lon, 4));
+        }
+        // Corners are covered too, including the snapped last row and column
+        assertThat(cells).contains(GeoHash.encode(maxLat, maxLon, 4), GeoHash.encode(minLat, minLon, 4));
+    }
+
+    @Test
+    void adaptiveCoverStaysWithinTheCellBudget() {
+        List<String> cells = GeoHash.coverAdaptive(9.5, 13.25, 14.0, 18.75, 64);
+
+        assertThat(cells).isNotEmpty().hasSizeLessThanOrEqualTo(64);
+    }
+
+    @Test
+    void successorIsTheFirstStringPastEveryHashWithThePrefix() {
+        assertThat(GeoHash.successor("s0")).isEqualTo("s1");
+        assertThat(GeoHash.successor("9z")).isEqualTo("b");
+        assertThat(GeoHash.successor("zz")).isNull();
+        assertThat("s0zzzzzz").isLessThan(GeoHash.successor("s0"));
+    }
+
+    @Test
+    void adjacentCellsCollapseIntoOneRange() {
+        List<String[]> ranges = GeoHash.toRanges(List.of("s0", "s1", "s2", "s5", "zz"));
+
+        assertThat(ranges).hasSize(3);
+        assertThat(ranges.get(0)).containsExactly("s0", "s3");
+        assertThat(ranges.get(1)).containsExactly("s5", "s6");
+        assertThat(ranges.get(2)).containsExactly("zz", null);
+    }
+
+    @Test
+    void distancesFollowTheGreatCircle() {
+        // N'Djamena to Moundou
+        assertThat(GeoHash.distanceKm(12.1348, 15.0557, 8.5667, 16.0833)).isCloseTo(411, within(5.0));
+        assertThat(GeoHash.distanceKm(0, 0, 0, 180)).isCloseTo(Math.PI * GeoHash.EARTH_RADIUS_KM, within(0.001));
+        assertThat(GeoHash.centralAngleDegrees(10, 20, 10, 20)).isZero();
+    }
+
+    @Test
+    void longitudeSpanWidensTowardsThePoles() {
+        assertThat(GeoHash.longitudeSpan(0, 1)).isCloseTo(1.0, within(0.001));
+        assertThat(GeoHash.longitudeSpan(60, 1)).isGreaterThan(2.0);
+        assertThat(GeoHash.longitudeSpan(89.9, 1)).isLessThanOrEqualTo(180.0);
+    }
+}
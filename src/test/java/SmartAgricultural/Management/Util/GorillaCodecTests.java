@@ -0,0 +1,109 @@
+package SmartAgricultural.Management.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GorillaCodecTests {
+
+    @Test
+    void timestampsRoundTripThroughEveryBucket() {
+        long start = 1_700_000_000_000L;
+        // Regular spacing, then jitter sized for each delta-of-delta bucket, then a large jump
+        long[] timestamps = {start, start + 600_000, start + 1_200_000, start + 1_800_050,
+                start + 2_400_000, start + 3_001_500, start + 3_600_000, start + 4_300_000,
+                start + 4_300_001, start + 86_400_000L * 400};
+        GorillaCodec.BitOutput out = new GorillaCodec.BitOutput();
+        GorillaCodec.TimestampEncoder encoder = new GorillaCodec.TimestampEncoder(out);
+        for (long t : timestamps) {
+            encoder.write(t);
+        }
+        byte[] bytes = out.toByteArray();
+
+        assertThat(readTimestamps(new GorillaCodec.BitInput(bytes), timestamps.length)).containsExactly(timestamps);
+        assertThat(readTimestamps(new GorillaCodec.BitInput(new ByteArrayInputStream(bytes)), timestamps.length))
+                .containsExactly(timestamps);
+    }
+
+    @Test
+    void valuesRoundTripFromArrayAndStream() {
+        Random random = new Random(7);
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            values.add(i % 50 == 0 ? Double.NaN : Math.round((20 + random.nextGaussian() * 3) * 10) / 10.0);
+        }
+        values.add(0.0);
+        values.add(-0.0);
+        values.add(Double.MAX_VALUE);
+        GorillaCodec.BitOutput out = new GorillaCodec.BitOutput();
+        GorillaCodec.ValueEncoder encoder = new GorillaCodec.ValueEncoder(out);
+        values.forEach(encoder::write);
+        byte[] bytes = out.toByteArray();
+
+        assertThat(readValues(new GorillaCodec.BitInput(bytes), values.size())).isEqualTo(values);
+        assertThat(readValues(new GorillaCodec.BitInput(new ByteArrayInputStream(bytes)), values.size()))
+                .isEqualTo(values);
+    }
+
+    @Test
+    void repeatedValuesTakeOneBitEach() {
+        GorillaCodec.BitOutput out = new GorillaCodec.BitOutput();
+        GorillaCodec.ValueEncoder encoder = new GorillaCodec.ValueEncoder(out);
+        for (int i = 0; i < 801; i++) {
+            encoder.write(21.5);
+        }
+
+        assertThat(out.toByteArray()).hasSize(8 + 100);
+    }
+
+    @Test
+    void bitsAreReadInTheOrderTheyWereWritten() {
+        GorillaCodec.BitOutput out = new GorillaCodec.BitOutput();
+        out.writeBit(true);
+        out.writeBits(0b0110, 4);
+        out.writeBits(-1L, 64);
+        out.writeBits(0x2A, 7);
+        byte[] bytes = out.toByteArray();
+
+        for (GorillaCodec.BitInput in : List.of(new GorillaCodec.BitInput(bytes),
+                new GorillaCodec.BitInput(new ByteArrayInputStream(bytes)))) {
+            assertThat(in.readBit()).isTrue();
+            assertThat(in.readBits(4)).isEqualTo(0b0110);
+            assertThat(in.readBits(64)).isEqualTo(-1L);
+            assertThat(in.readBits(7)).isEqualTo(0x2A);
+        }
+    }
+
+    @Test
+    void truncatedStreamFailsInsteadOfReadingZeros() {
+        GorillaCodec.BitInput in = new GorillaCodec.BitInput(new ByteArrayInputStream(new byte[]{(byte) 0xFF}));
+
+        assertThat(in.readBits(8)).isEqualTo(0xFF);
+        assertThatThrownBy(in::readBit).isInstanceOf(UncheckedIOException.class);
+    }
+
+    private static long[] readTimestamps(GorillaCodec.BitInput in, int count) {
+        GorillaCodec.TimestampDecoder decoder = new GorillaCodec.TimestampDecoder(in);
+        long[] read = new long[count];
+        for (int i = 0; i < count; i++) {
+            read[i] = decoder.read();
+        }
+        return read;
+    }
+
+    private static List<Double> readValues(GorillaCodec.BitInput in, int count) {
+        GorillaCodec.ValueDecoder decoder = new GorillaCodec.ValueDecoder(in);
+        List<Double> read = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            read.add(decoder.read());
+        }
+        return read;
+    }
+}
@@ -0,0 +1,90 @@
+package SmartAgricultural.Management.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HeartbeatTimingWheelTests {
+
+    private static final long TICK = 100;
+
+    @Test
+    void keyExpiresOnceItsDeadlinePasses() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(TICK, 8, 0);
+        wheel.touch("alice", 450);
+
+        assertThat(advanceTo(wheel, 0, 400)).isEmpty();
+        assertThat(wheel.advance(500)).containsExactly("alice");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void heartbeatMovesTheDeadlineForward() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(TICK, 8, 0);
+        wheel.touch("alice", 300);
+        wheel.touch("alice", 700);
+
+        assertThat(advanceTo(wheel, 0, 600)).isEmpty();
+        assertThat(wheel.advance(700)).containsExactly("alice");
+    }
+
+    @Test
+    void deadlinesBeyondOneRevolutionWaitForTheirRound() {
+        // 8 slots of 100 ms turn once every 800 ms
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(TICK, 8, 0);
+        wheel.touch("far", 5_000);
+        wheel.touch("near", 250);
+
+        assertThat(advanceTo(wheel, 0, 4_900)).containsExactly("near");
+        assertThat(wheel.advance(5_000)).containsExactly("far");
+    }
+
+    @Test
+    void longPauseExpiresEveryOverdueKeyInOnePass() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(TICK, 8, 0);
+        for (int i = 0; i < 20; i++) {
+            wheel.touch("user-" + i, 100L * (i + 1));
+        }
+        wheel.touch("later", 60_000);
+
+        assertThat(wheel.advance(10_000)).hasSize(20);
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(60_000)).containsExactly("later");
+    }
+
+    @Test
+    void removedKeysNeverExpire() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(TICK, 8, 0);
+        wheel.touch("alice", 200);
+
+        assertThat(wheel.remove("alice")).isTrue();
+        assertThat(wheel.remove("alice")).isFalse();
+        assertThat(wheel.advance(1_000)).isEmpty();
+    }
+
+    @Test
+    void deadlineAlreadyPastExpiresOnTheNextAdvance() {
+        HeartbeatTimingWheel wheel = new HeartbeatTimingWheel(TICK, 8, 1_000);
+        wheel.advance(1_000);
+        wheel.touch("late", 500);
+
+        assertThat(wheel.advance(1_100)).containsExactly("late");
+    }
+
+    @Test
+    void rejectsNonPositiveTicks() {
+        assertThatThrownBy(() -> new HeartbeatTimingWheel(0, 8, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> advanceTo(HeartbeatTimingWheel wheel, long from, long to) {
+        List<String> expired = new ArrayList<>();
+        for (long now = from; now <= to; now += TICK) {
+            expired.addAll(wheel.advance(now));
+        }
+        return expired;
+    }
+}
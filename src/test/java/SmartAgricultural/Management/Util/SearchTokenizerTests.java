@@ -0,0 +1,50 @@
+package SmartAgricultural.Management.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchTokenizerTests {
+
+    @Test
+    void splitsOnAnythingButLettersAndDigits() {
+        assertThat(terms("Maize, beans & 2 tons—sold!")).containsExactly("maize", "beans", "2", "tons", "sold");
+        assertThat(terms("plot-7/B12")).containsExactly("plot", "7", "b12");
+        assertThat(terms("   ")).isEmpty();
+        assertThat(terms(null)).isEmpty();
+    }
+
+    @Test
+    void foldsCaseAndAccents() {
+        assertThat(terms("Récolte ÉTÉ naïve")).containsExactly("recolte", "ete", "naive");
+        // Decomposed input: e followed by a combining acute accent
+        assertThat(terms("re\u0301colte")).containsExactly("recolte");
+        assertThat(SearchTokenizer.normalize("Récolte")).isEqualTo(SearchTokenizer.normalize("recolte"));
+    }
+
+    @Test
+    void offsetsPointIntoTheOriginalText() {
+        String text = "Le café est prêt";
+        List<SearchTokenizer.Token> tokens = SearchTokenizer.tokenize(text);
+
+        assertThat(tokens).hasSize(4);
+        SearchTokenizer.Token cafe = tokens.get(1);
+        assertThat(cafe.getTerm()).isEqualTo("cafe");
+        assertThat(text.substring(cafe.getStart(), cafe.getEnd())).isEqualTo("café");
+        assertThat(text.substring(tokens.get(3).getStart(), tokens.get(3).getEnd())).isEqualTo("prêt");
+    }
+
+    @Test
+    void longTermsAreTruncatedAndShortOnesAreNotIndexed() {
+        String term = SearchTokenizer.tokenize("x".repeat(100)).get(0).getTerm();
+        assertThat(term).hasSize(SearchTokenizer.MAX_TERM_LENGTH);
+        assertThat(SearchTokenizer.isIndexable("a")).isFalse();
+        assertThat(SearchTokenizer.isIndexable("ab")).isTrue();
+    }
+
+    private static List<String> terms(String text) {
+        return SearchTokenizer.tokenize(text).stream().map(SearchTokenizer.Token::getTerm).toList();
+    }
+}
@@ -0,0 +1,183 @@
+package SmartAgricultural.Management.benchmark;
+
+import SmartAgricultural.Management.Model.Inventory;
+import SmartAgricultural.Management.Model.MarketPrice;
+import SmartAgricultural.Management.Model.Transaction;
+import SmartAgricultural.Management.Model.WeatherData;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded synthetic data for the benchmarks, plus helpers to wire services without Spring.
+ *
+ * Values follow the ranges the services branch on (rainfall mostly dry with heavy storms,
+ * stock levels around their capacity, prices spread over markets and trends), so every
+ * benchmark exercises the same code paths as production data.
+ */
+public final class BenchmarkData {
+
+    public static final int CROPS = 40;
+    public static final int STATIONS = 50;
+
+    private static final String[] LOCATIONS = {"Kigali", "Musanze", "Huye", "Rubavu", "Nyagatare",
+            "Rwamagana", "Muhanga", "Rusizi", "Karongi", "Nyanza"};
+    private static final String[] GRADES = {"A", "B", "C"};
+
+    private BenchmarkData() {
+    }
+
+    public static String cropId(int index) {
+        return "CROP" + (index % CROPS);
+    }
+
+    // =================================================================================
+    // GENERATORS
+    // =================================================================================
+
+    /**
+     * Readings from {@link #STATIONS} stations, evenly spaced over the given number of days up to now.
+     */
+    public static List<WeatherData> weatherData(int count, int days, long seed) {
+        Random random = new Random(seed);
+        LocalDateTime start = LocalDateTime.now().minusDays(days);
+        long stepSeconds = (long) days * 24 * 3600 / count;
+
+        List<WeatherData> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int station = random.nextInt(STATIONS);
+            WeatherData w = new WeatherData(
+                    decimal(-1.9 - station * 0.01, 8),
+                    decimal(30.0 + station * 0.015, 8),
+                    start.plusSeconds(i * stepSeconds));
+            w.setTemperature(decimal(15 + random.nextDouble() * 30, 1));
+            w.setHumidity(decimal(random.nextDouble() * 100, 1));
+            w.setRainfall(decimal(random.nextDouble() < 0.7 ? 0 : random.nextDouble() * 80, 2));
+            w.setWindSpeed(decimal(random.nextDouble() * 50, 1));
+            w.setWeatherCondition(random.nextBoolean() ? "Sunny" : "Rain");
+            w.setStationId("ST" + station);
+            w.setDataSource("BENCH");
+            readings.add(w);
+        }
+        return readings;
+    }
+
+    public static List<Inventory> inventory(int count, long seed) {
+        Random random = new Random(seed);
+        Inventory.FacilityType[] facilities = Inventory.FacilityType.values();
+        Inventory.InventoryStatus[] statuses = Inventory.InventoryStatus.values();
+
+        List<Inventory> inventories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigDecimal capacity = decimal(1000 + random.nextDouble() * 50000, 2);
+            BigDecimal current = capacity.multiply(decimal(random.nextDouble(), 2)).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal reserved = current.multiply(decimal(random.nextDouble() * 0.3, 2)).setScale(2, RoundingMode.HALF_UP);
+
+            Inventory inv = new Inventory(cropId(random.nextInt(CROPS)), facilities[random.nextInt(facilities.length)],
+                    LOCATIONS[random.nextInt(LOCATIONS.length)], current, GRADES[random.nextInt(GRADES.length)]);
+            inv.setStorageCapacity(capacity);
+            inv.setReservedQuantity(reserved);
+            inv.setAvailableQuantity(current.subtract(reserved));
+            inv.setMinimumStockLevel(capacity.multiply(new BigDecimal("0.1")).setScale(2, RoundingMode.HALF_UP));
+            inv.setStorageDate(LocalDate.now().minusDays(1 + random.nextInt(365)));
+            inv.setLastMovementDate(LocalDateTime.now().minusDays(random.nextInt(30)));
+            inv.setExpiryDate(LocalDate.now().plusDays(random.nextInt(240) - 30));
+            inv.setMarketValuePerUnit(decimal(100 + random.nextDouble() * 900, 2));
+            inv.setStatus(random.nextInt(10) < 7 ? Inventory.InventoryStatus.AVAILABLE
+                    : statuses[random.nextInt(statuses.length)]);
+            inventories.add(inv);
+        }
+        return inventories;
+    }
+
+    public static List<MarketPrice> marketPrices(int count, long seed) {
+        Random random = new Random(seed);
+        MarketPrice.MarketType[] types = MarketPrice.MarketType.values();
+        MarketPrice.PriceTrend[] trends = MarketPrice.PriceTrend.values();
+        MarketPrice.DemandLevel[] demand = MarketPrice.DemandLevel.values();
+        MarketPrice.SupplyLevel[] supply = MarketPrice.SupplyLevel.values();
+
+        List<MarketPrice> prices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String location = LOCATIONS[random.nextInt(LOCATIONS.length)];
+            MarketPrice price = new MarketPrice(cropId(random.nextInt(CROPS)), location + " Market",
+                    types[random.nextInt(types.length)], location, decimal(150 + random.nextDouble() * 850, 2), "BENCH");
+            price.setPriceDate(LocalDate.now().minusDays(random.nextInt(90)));
+            price.setPriceTrend(trends[random.nextInt(trends.length)]);
+            price.setDemandLevel(demand[random.nextInt(demand.length)]);
+            price.setSupplyLevel(supply[random.nextInt(supply.length)]);
+            price.setReliabilityScore(1 + random.nextInt(5));
+            prices.add(price);
+        }
+        return prices;
+    }
+
+    public static List<Transaction> transactions(int count, long seed) {
+        Random random = new Random(seed);
+        Transaction.PaymentMethod[] methods = Transaction.PaymentMethod.values();
+        Transaction.TransactionStatus[] statuses = Transaction.TransactionStatus.values();
+
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction t = new Transaction("FARMER" + random.nextInt(500), "BUYER" + random.nextInt(200),
+                    cropId(random.nextInt(CROPS)), decimal(10 + random.nextDouble() * 5000, 2),
+                    decimal(150 + random.nextDouble() * 850, 2), methods[random.nextInt(methods.length)]);
+            t.setTransactionDate(LocalDateTime.now().minusDays(random.nextInt(365)));
+            t.setStatus(statuses[random.nextInt(statuses.length)]);
+            t.setDeliveryLocation(LOCATIONS[random.nextInt(LOCATIONS.length)]);
+            t.setQualityGrade(GRADES[random.nextInt(GRADES.length)]);
+            t.setRatingFarmer(1 + random.nextInt(5));
+            transactions.add(t);
+        }
+        return transactions;
+    }
+
+    private static BigDecimal decimal(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    // =================================================================================
+    // WIRING
+    // =================================================================================
+
+    /**
+     * In-memory stand-in for a Spring Data repository: each method name answers with the given
+     * value, any other call fails so a benchmark cannot silently measure an empty path.
+     */
+    @SuppressWarnings("unchecked")
+    public static <R> R repository(Class<R> type, Map<String, Object> answers) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (answers.containsKey(method.getName())) {
+                return answers.get(method.getName());
+            }
+            switch (method.getName()) {
+                case "toString": return type.getSimpleName();
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                default: break;
+            }
+            throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+        });
+    }
+
+    /**
+     * Sets a field-injected dependency.
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName + " into " + target.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package SmartAgricultural.Management.benchmark;
+
+import SmartAgricultural.Management.Model.Inventory;
+import SmartAgricultural.Management.Repository.InventoryRepository;
+import SmartAgricultural.Management.Service.InventoryPredictionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Global inventory predictions (stock coverage, consumption forecasts, deficits, capacity,
+ * trends, food-security score and restock advice) over an in-memory inventory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryPredictionBenchmark {
+
+    @Param({"1000", "10000"})
+    private int items;
+
+    private InventoryPredictionService service;
+
+    @Setup
+    public void setUp() {
+        List<Inventory> inventory = BenchmarkData.inventory(items, 42);
+        service = new InventoryPredictionService();
+        BenchmarkData.inject(service, "inventoryRepository",
+                BenchmarkData.repository(InventoryRepository.class, Map.of("findAll", inventory)));
+    }
+
+    @Benchmark
+    public Map<String, Object> globalInventoryPredictions() {
+        return service.getGlobalInventoryPredictions();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(InventoryPredictionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,66 @@
+package SmartAgricultural.Management.benchmark;
+
+import SmartAgricultural.Management.Model.MarketPrice;
+import SmartAgricultural.Management.Repository.MarketPriceRepository;
+import SmartAgricultural.Management.Service.MarketPriceService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory statistics of a crop price report: per market type, per location, per
+ * trend and data quality.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarketPriceStatisticsBenchmark {
+
+    @Param({"10000", "100000"})
+    private int prices;
+
+    private List<MarketPrice> data;
+    private MarketPriceService service;
+
+    @Setup
+    public void setUp() {
+        data = BenchmarkData.marketPrices(prices, 42);
+        service = new MarketPriceService(BenchmarkData.repository(MarketPriceRepository.class, Map.of()));
+    }
+
+    @Benchmark
+    public Object marketTypeStatistics() {
+        return service.getMarketTypeStatistics(data);
+    }
+
+    @Benchmark
+    public Object locationStatistics() {
+        return service.getLocationStatistics(data);
+    }
+
+    @Benchmark
+    public Object priceTrendStatistics() {
+        return service.getPriceTrendStatistics(data);
+    }
+
+    @Benchmark
+    public Object dataQualityStatistics() {
+        return service.getDataQualityStatistics(data);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MarketPriceStatisticsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,73 @@
+package SmartAgricultural.Management.benchmark;
+
+import SmartAgricultural.Management.Model.Transaction;
+import SmartAgricultural.Management.Repository.TransactionRepository;
+import SmartAgricultural.Management.Service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Crop transaction analytics with the repository answering from memory, so only the
+ * service-side aggregation is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionAnalyticsBenchmark {
+
+    @Param({"10000", "100000"})
+    private int transactions;
+
+    private TransactionService service;
+    private String cropId;
+
+    @Setup
+    public void setUp() {
+        List<Transaction> data = BenchmarkData.transactions(transactions, 42);
+        cropId = BenchmarkData.cropId(0);
+        List<Transaction> cropTransactions = data.stream()
+                .filter(t -> cropId.equals(t.getCropId()))
+                .collect(Collectors.toList());
+
+        List<Object[]> averagePrices = new ArrayList<>();
+        data.stream()
+                .collect(Collectors.groupingBy(Transaction::getCropId,
+                        Collectors.averagingDouble(t -> t.getPricePerUnit().doubleValue())))
+                .forEach((crop, average) -> averagePrices.add(new Object[]{crop, BigDecimal.valueOf(average)}));
+
+        BigDecimal quantity = cropTransactions.stream()
+                .map(Transaction::getQuantity)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        service = new TransactionService();
+        BenchmarkData.inject(service, "transactionRepository", BenchmarkData.repository(TransactionRepository.class,
+                Map.of("findByCropId", cropTransactions,
+                        "getTotalQuantityByCrop", quantity,
+                        "findAveragePricesByCrop", averagePrices)));
+    }
+
+    @Benchmark
+    public Map<String, Object> cropAnalytics() {
+        return service.getCropAnalytics(cropId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TransactionAnalyticsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,144 @@
+package SmartAgricultural.Management.benchmark;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Service.WeatherSeriesStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the food-security risk aggregation over entity lists with BigDecimal streams
+ * (the previous WeatherDataService path) against a single scan of {@link WeatherSeriesStore}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherSeriesBenchmark {
+
+    @Param({"10000", "100000"})
+    private int readings;
+
+    private List<WeatherData> entities;
+    private WeatherSeriesStore store;
+    private LocalDateTime since;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.now().minusDays(90);
+        long stepSeconds = 90L * 24 * 3600 / readings;
+
+        entities = new ArrayList<>(readings);
+        for (int i = 0; i < readings; i++) {
+            int station = random.nextInt(50);
+            WeatherData w = new WeatherData(
+                    BigDecimal.valueOf(12.0 + station * 0.05).setScale(8, RoundingMode.HALF_UP),
+                    BigDecimal.valueOf(15.0 + station * 0.07).setScale(8, RoundingMode.HALF_UP),
+                    start.plusSeconds(i * stepSeconds));
+            w.setTemperature(BigDecimal.valueOf(15 + random.nextDouble() * 30).setScale(1, RoundingMode.HALF_UP));
+            w.setHumidity(BigDecimal.valueOf(random.nextDouble() * 100).setScale(1, RoundingMode.HALF_UP));
+            w.setRainfall(BigDecimal.valueOf(random.nextDouble() < 0.7 ? 0 : random.nextDouble() * 80)
+                    .setScale(2, RoundingMode.HALF_UP));
+            w.setWindSpeed(BigDecimal.valueOf(random.nextDouble() * 50).setScale(1, RoundingMode.HALF_UP));
+            w.setWeatherCondition(random.nextBoolean() ? "Sunny" : "Rain");
+            w.setDataSource("BENCH");
+            entities.add(w);
+        }
+
+        store = new WeatherSeriesStore();
+        store.load(entities, start);
+        since = LocalDateTime.now().minusDays(30);
+    }
+
+    @Benchmark
+    public void entityBigDecimalPath(Blackhole bh) {
+        List<WeatherData> data = entities.stream()
+                .filter(w -> w.getRecordDate().isAfter(since))
+                .collect(Collectors.toList());
+
+        BigDecimal totalRainfall = data.stream()
+                .map(w -> w.getRainfall() != null ? w.getRainfall() : BigDecimal.ZERO)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long dryDays = data.stream()
+                .filter(w -> w.getRainfall() == null || w.getRainfall().compareTo(BigDecimal.ONE) < 0)
+                .count();
+        List<WeatherData> heavyRain = data.stream()
+                .filter(w -> w.getRainfall() != null && w.getRainfall().compareTo(new BigDecimal("50")) > 0)
+                .collect(Collectors.toList());
+        BigDecimal extremeRainfall = heavyRain.stream()
+                .map(WeatherData::getRainfall)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        int maxConsecutive = 0, consecutive = 0;
+        List<WeatherData> sorted = data.stream()
+                .sorted(Comparator.comparing(WeatherData::getRecordDate))
+                .collect(Collectors.toList());
+        for (WeatherData w : sorted) {
+            if (w.getRainfall() != null && w.getRainfall().compareTo(BigDecimal.ONE) > 0) {
+                maxConsecutive = Math.max(maxConsecutive, ++consecutive);
+            } else {
+                consecutive = 0;
+            }
+        }
+
+        long hotDays = data.stream()
+                .filter(w -> w.getTemperature() != null && w.getTemperature().compareTo(new BigDecimal("35")) > 0)
+                .count();
+        long extremeHeatDays = data.stream()
+                .filter(w -> w.getTemperature() != null && w.getTemperature().compareTo(new BigDecimal("40")) > 0)
+                .count();
+        BigDecimal avgTemp = data.stream()
+                .filter(w -> w.getTemperature() != null)
+                .map(WeatherData::getTemperature)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(new BigDecimal(data.size()), 2, RoundingMode.HALF_UP);
+        long optimalTemp = data.stream()
+                .filter(w -> w.getTemperature() != null)
+                .filter(w -> w.getTemperature().compareTo(new BigDecimal("20")) >= 0
+                        && w.getTemperature().compareTo(new BigDecimal("30")) <= 0)
+                .count();
+        long optimalHumidity = data.stream()
+                .filter(w -> w.getHumidity() != null)
+                .filter(w -> w.getHumidity().compareTo(new BigDecimal("40")) >= 0
+                        && w.getHumidity().compareTo(new BigDecimal("70")) <= 0)
+                .count();
+
+        bh.consume(totalRainfall);
+        bh.consume(dryDays);
+        bh.consume(extremeRainfall);
+        bh.consume(maxConsecutive);
+        bh.consume(hotDays);
+        bh.consume(extremeHeatDays);
+        bh.consume(avgTemp);
+        bh.consume(optimalTemp);
+        bh.consume(optimalHumidity);
+    }
+
+    @Benchmark
+    public WeatherSeriesStore.WindowStats columnarStorePath() {
+        return store.scanRegion(since);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(WeatherSeriesBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,91 @@
+package SmartAgricultural.Management.benchmark;
+
+import SmartAgricultural.Management.Model.WeatherData;
+import SmartAgricultural.Management.Service.WeatherSeriesStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Temperature trend used by weather predictions: the BigDecimal least-squares fit over an
+ * entity list (the previous {@code WeatherDataService.calculateTrend}) against the running
+ * sums collected by a radius scan of {@link WeatherSeriesStore}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherTrendBenchmark {
+
+    private static final BigDecimal RADIUS = new BigDecimal("0.5");
+
+    @Param({"10000", "100000"})
+    private int readings;
+
+    private List<BigDecimal> temperatures;
+    private WeatherSeriesStore store;
+    private BigDecimal latitude;
+    private BigDecimal longitude;
+    private LocalDateTime since;
+
+    @Setup
+    public void setUp() {
+        List<WeatherData> data = BenchmarkData.weatherData(readings, 90, 42);
+        store = new WeatherSeriesStore();
+        store.load(data, LocalDateTime.now().minusDays(90));
+
+        since = LocalDateTime.now().minusDays(60);
+        temperatures = data.stream()
+                .filter(w -> w.getRecordDate().isAfter(since))
+                .map(WeatherData::getTemperature)
+                .collect(Collectors.toList());
+        latitude = data.get(0).getLatitude();
+        longitude = data.get(0).getLongitude();
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTrend() {
+        int n = temperatures.size();
+        BigDecimal sumX = BigDecimal.ZERO;
+        BigDecimal sumY = BigDecimal.ZERO;
+        BigDecimal sumXY = BigDecimal.ZERO;
+        BigDecimal sumX2 = BigDecimal.ZERO;
+
+        for (int i = 0; i < n; i++) {
+            BigDecimal x = new BigDecimal(i);
+            BigDecimal y = temperatures.get(i);
+            sumX = sumX.add(x);
+            sumY = sumY.add(y);
+            sumXY = sumXY.add(x.multiply(y));
+            sumX2 = sumX2.add(x.multiply(x));
+        }
+
+        BigDecimal nBig = new BigDecimal(n);
+        BigDecimal numerator = nBig.multiply(sumXY).subtract(sumX.multiply(sumY));
+        BigDecimal denominator = nBig.multiply(sumX2).subtract(sumX.multiply(sumX));
+        return numerator.divide(denominator, 4, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public double storeRadiusTrend() {
+        return store.scanRadius(latitude, longitude, RADIUS, since).getTemperatureTrend();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(WeatherTrendBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,224 @@
+package SmartAgricultural.Management.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens many STOMP sessions against a running server's {@code /ws} endpoint and drives
+ * broadcast traffic through {@code /topic/public}, with a share of deliberately slow
+ * consumers, to check that fast sessions keep their latency while slow ones are dropped or
+ * disconnected.
+ *
+ * Run against a started application: {@code mvn -Ploadtest test [-Dloadtest.sessions=5000]};
+ * the summary is printed and written to target/loadtest-result.json, and the server side
+ * figures can be read from GET /api/chat/ws-stats.
+ */
+public final class StompSessionLoadTest {
+
+    private static final String URL = System.getProperty("loadtest.url", "ws://localhost:8080/ws/websocket");
+    private static final int SESSIONS = Integer.getInteger("loadtest.sessions", 2000);
+    private static final int CONNECT_CONCURRENCY = Integer.getInteger("loadtest.connect-concurrency", 200);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 60);
+    private static final int PUBLISHERS = Integer.getInteger("loadtest.publishers", 20);
+    private static final int PUBLISH_INTERVAL_MS = Integer.getInteger("loadtest.publish-interval-ms", 200);
+    private static final double SLOW_FRACTION = Double.parseDouble(System.getProperty("loadtest.slow-fraction", "0.05"));
+    private static final int SLOW_DELAY_MS = Integer.getInteger("loadtest.slow-delay-ms", 2000);
+    private static final String TOKEN = System.getProperty("loadtest.token");
+    private static final String RESULT = System.getProperty("loadtest.result", "target/loadtest-result.json");
+
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger closedByServer = new AtomicInteger();
+    private final AtomicLong connectNanosTotal = new AtomicLong();
+    private final AtomicLong connectNanosMax = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong fastReceived = new AtomicLong();
+    private final AtomicLong slowReceived = new AtomicLong();
+    private final AtomicLong fastLatencyMillisTotal = new AtomicLong();
+    private final AtomicLong fastLatencyMillisMax = new AtomicLong();
+
+    private StompSessionLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        new StompSessionLoadTest().run();
+    }
+
+    private void run() throws Exception {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(4);
+        scheduler.setThreadNamePrefix("loadtest-heartbeat-");
+        scheduler.initialize();
+
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        client.setTaskScheduler(scheduler);
+        client.setDefaultHeartbeat(new long[]{10000, 10000});
+
+        StompHeaders connectHeaders = new StompHeaders();
+        if (TOKEN != null) {
+            connectHeaders.add("Authorization", "Bearer " + TOKEN);
+        }
+
+        int slowSessions = (int) Math.round(SESSIONS * SLOW_FRACTION);
+        List<StompSession> sessions = Collections.synchronizedList(new ArrayList<>(SESSIONS));
+        Semaphore inFlight = new Semaphore(CONNECT_CONCURRENCY);
+        CountDownLatch attempts = new CountDownLatch(SESSIONS);
+
+        System.out.printf("Opening %d sessions (%d slow) against %s%n", SESSIONS, slowSessions, URL);
+        long openStartedAt = System.nanoTime();
+        for (int i = 0; i < SESSIONS; i++) {
+            boolean slow = i < slowSessions;
+            inFlight.acquire();
+            long startedAt = System.nanoTime();
+            client.connectAsync(URI.create(URL), new WebSocketHttpHeaders(), connectHeaders, new SessionHandler(slow))
+                    .whenComplete((session, error) -> {
+                        if (error != null) {
+                            failed.incrementAndGet();
+                        } else {
+                            long nanos = System.nanoTime() - startedAt;
+                            connected.incrementAndGet();
+                            connectNanosTotal.addAndGet(nanos);
+                            connectNanosMax.accumulateAndGet(nanos, Math::max);
+                            sessions.add(session);
+                        }
+                        inFlight.release();
+                        attempts.countDown();
+                    });
+        }
+        attempts.await(5, TimeUnit.MINUTES);
+        long openMillis = (System.nanoTime() - openStartedAt) / 1_000_000;
+        System.out.printf("Connected %d, failed %d in %d ms%n", connected.get(), failed.get(), openMillis);
+
+        List<StompSession> publishers = new ArrayList<>();
+        synchronized (sessions) {
+            for (int i = sessions.size() - 1; i >= 0 && publishers.size() < PUBLISHERS; i--) {
+                publishers.add(sessions.get(i));
+            }
+        }
+
+        ScheduledExecutorService publishing = Executors.newScheduledThreadPool(2);
+        for (StompSession publisher : publishers) {
+            publishing.scheduleAtFixedRate(() -> {
+                if (publisher.isConnected()) {
+                    Map<String, Object> payload = new HashMap<>();
+                    payload.put("senderId", "loadtest-" + publisher.getSessionId());
+                    payload.put("content", String.valueOf(System.currentTimeMillis()));
+                    publisher.send("/app/chat.addUser", payload);
+                    published.incrementAndGet();
+                }
+            }, ThreadLocalRandom.current().nextInt(PUBLISH_INTERVAL_MS), PUBLISH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        Thread.sleep(DURATION_SECONDS * 1000L);
+        publishing.shutdownNow();
+
+        int stillConnected = 0;
+        synchronized (sessions) {
+            for (StompSession session : sessions) {
+                if (session.isConnected()) {
+                    stillConnected++;
+                    session.disconnect();
+                }
+            }
+        }
+        client.stop();
+        scheduler.shutdown();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("url", URL);
+        result.put("sessions", SESSIONS);
+        result.put("slowSessions", slowSessions);
+        result.put("connected", connected.get());
+        result.put("failed", failed.get());
+        result.put("openMillis", openMillis);
+        result.put("averageConnectMs", connected.get() > 0 ? connectNanosTotal.get() / connected.get() / 1_000_000.0 : 0.0);
+        result.put("maxConnectMs", connectNanosMax.get() / 1_000_000.0);
+        result.put("durationSeconds", DURATION_SECONDS);
+        result.put("published", published.get());
+        result.put("fastReceived", fastReceived.get());
+        result.put("slowReceived", slowReceived.get());
+        result.put("averageFastLatencyMs", fastReceived.get() > 0 ? (double) fastLatencyMillisTotal.get() / fastReceived.get() : 0.0);
+        result.put("maxFastLatencyMs", fastLatencyMillisMax.get());
+        result.put("closedByServer", closedByServer.get());
+        result.put("stillConnected", stillConnected);
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        System.out.println(mapper.writeValueAsString(result));
+        File output = new File(RESULT);
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+    }
+
+    private final class SessionHandler extends StompSessionHandlerAdapter {
+        private final boolean slow;
+        private volatile boolean established;
+
+        private SessionHandler(boolean slow) {
+            this.slow = slow;
+        }
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            established = true;
+            session.subscribe("/topic/public", new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return Map.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    if (slow) {
+                        slowReceived.incrementAndGet();
+                        // Blocks this connection's reader, so the server sees a client that stops reading
+                        try {
+                            Thread.sleep(SLOW_DELAY_MS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return;
+                    }
+                    fastReceived.incrementAndGet();
+                    Object content = payload instanceof Map ? ((Map<?, ?>) payload).get("content") : null;
+                    if (content != null) {
+                        try {
+                            long latency = System.currentTimeMillis() - Long.parseLong(content.toString());
+                            fastLatencyMillisTotal.addAndGet(latency);
+                            fastLatencyMillisMax.accumulateAndGet(latency, Math::max);
+                        } catch (NumberFormatException ignored) {
+                            // Not one of ours
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            // Connect failures are counted by the connect future
+            if (established) {
+                closedByServer.incrementAndGet();
+            }
+        }
+    }
+}